@@ -15,7 +15,7 @@ import hirs.data.persist.DeviceInfoReport;
 import hirs.data.persist.ReferenceManifest;
 import hirs.data.persist.SupplyChainPolicy;
 import hirs.data.persist.SupportReferenceManifest;
-import hirs.data.persist.SwidResource;
+import hirs.data.persist.SwidResourceEntry;
 import hirs.data.persist.info.FirmwareInfo;
 import hirs.data.persist.info.HardwareInfo;
 import hirs.data.persist.info.NetworkInfo;
@@ -28,10 +28,9 @@ import hirs.data.persist.certificate.IssuedAttestationCertificate;
 import hirs.data.persist.certificate.PlatformCredential;
 import hirs.data.service.DeviceRegister;
 import hirs.persist.CertificateManager;
+import hirs.persist.ContentBlobStore;
 import hirs.persist.ReferenceManifestManager;
-import hirs.persist.DBManager;
 import hirs.persist.DeviceManager;
-import hirs.persist.TPM2ProvisionerState;
 import hirs.structs.converters.SimpleStructBuilder;
 import hirs.structs.converters.StructConverter;
 import hirs.structs.elements.aca.IdentityRequestEnvelope;
@@ -88,7 +87,6 @@ import java.security.interfaces.RSAPublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.MGF1ParameterSpec;
 import java.security.spec.RSAPublicKeySpec;
-import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashSet;
@@ -160,18 +158,15 @@ public abstract class AbstractAttestationCertificateAuthority
 
     /**
      * Container wired application configuration property identifying the number of days that
-     * certificates issued by this ACA are valid for.
+     * certificates issued by this ACA are valid for, unless overridden by the policy.
      */
-    private Integer validDays = 1;
+    private final int validDays;
 
     private final CertificateManager certificateManager;
     private final ReferenceManifestManager referenceManifestManager;
     private final DeviceRegister deviceRegister;
     private final DeviceManager deviceManager;
-    private final DBManager<TPM2ProvisionerState> tpm2ProvisionerStateDBManager;
-    private String tpmQuoteHash = "";
-    private String tpmQuoteSignature = "";
-    private String pcrValues;
+    private final ProvisioningSessionStore provisioningSessionStore;
 
     /**
      * Constructor.
@@ -184,7 +179,7 @@ public abstract class AbstractAttestationCertificateAuthority
      * @param deviceRegister the device register
      * @param validDays the number of days issued certs are valid
      * @param deviceManager the device manager
-     * @param tpm2ProvisionerStateDBManager the DBManager for persisting provisioner state
+     * @param provisioningSessionStore the store of open TPM 2.0 provisioning sessions
      */
     @SuppressWarnings("checkstyle:parameternumber")
     public AbstractAttestationCertificateAuthority(
@@ -195,7 +190,7 @@ public abstract class AbstractAttestationCertificateAuthority
             final ReferenceManifestManager referenceManifestManager,
             final DeviceRegister deviceRegister, final int validDays,
             final DeviceManager deviceManager,
-            final DBManager<TPM2ProvisionerState> tpm2ProvisionerStateDBManager) {
+            final ProvisioningSessionStore provisioningSessionStore) {
         this.supplyChainValidationService = supplyChainValidationService;
         this.privateKey = privateKey;
         this.acaCertificate = acaCertificate;
@@ -205,7 +200,7 @@ public abstract class AbstractAttestationCertificateAuthority
         this.deviceRegister = deviceRegister;
         this.validDays = validDays;
         this.deviceManager = deviceManager;
-        this.tpm2ProvisionerStateDBManager = tpm2ProvisionerStateDBManager;
+        this.provisioningSessionStore = provisioningSessionStore;
     }
 
     /**
@@ -357,17 +352,14 @@ public abstract class AbstractAttestationCertificateAuthority
         // generate the identity credential
         LOG.debug("generating credential from identity proof");
         // check the policy set valid date
-        SupplyChainPolicy scp = this.supplyChainValidationService.getPolicy();
-        if (scp != null) {
-            this.validDays = Integer.parseInt(scp.getValidityDays());
-        }
+        ProvisioningContext context = createProvisioningContext();
         // transform the public key struct into a public key
         PublicKey publicKey = assemblePublicKey(proof.getIdentityKey().getStorePubKey().getKey());
         X509Certificate credential = generateCredential(publicKey, endorsementCredential,
                 platformCredentials, device.getDeviceInfo()
                         .getNetworkInfo()
                         .getIpAddress()
-                        .getHostName());
+                        .getHostName(), context.getValidDays());
 
         // generate the attestation using the credential and the key for this session
         LOG.debug("generating symmetric response");
@@ -391,8 +383,7 @@ public abstract class AbstractAttestationCertificateAuthority
      * Basic implementation of the ACA processIdentityClaimTpm2 method. Parses the claim,
      * stores the device info, performs supply chain validation, generates a nonce,
      * and wraps that nonce with the make credential process before returning it to the client.
-     *            attCert.setPcrValues(pcrValues);
-
+     *
      * @param identityClaim the request to process, cannot be null
      * @return an identity claim response for the specified request containing a wrapped blob
      */
@@ -413,9 +404,10 @@ public abstract class AbstractAttestationCertificateAuthority
         // and later tpm20MakeCredential function
         RSAPublicKey ekPub = parsePublicKey(claim.getEkPublicArea().toByteArray());
         AppraisalStatus.Status validationResult = AppraisalStatus.Status.FAIL;
+        ProvisioningContext context = new ProvisioningContext(validDays);
 
         try {
-            validationResult = doSupplyChainValidation(claim, ekPub);
+            validationResult = doSupplyChainValidation(claim, ekPub, context);
         } catch (Exception ex) {
             for (StackTraceElement ste : ex.getStackTrace()) {
                 LOG.error(ste.toString());
@@ -431,7 +423,10 @@ public abstract class AbstractAttestationCertificateAuthority
             LOG.info("Sending nonce: " + strNonce);
             LOG.info("Persisting claim of length: " + identityClaim.length);
 
-            tpm2ProvisionerStateDBManager.save(new TPM2ProvisionerState(nonce, identityClaim));
+            // keep the parsed claim so the certificate request does not have to parse it again
+            provisioningSessionStore.put(new ProvisioningSession(nonce, identityClaim, claim,
+                    akPub, context.getEndorsementCredential(), context.getPlatformCredentials(),
+                    context.getDevice()));
 
             // Package response
             ProvisionerTpm2.IdentityClaimResponse response
@@ -451,19 +446,24 @@ public abstract class AbstractAttestationCertificateAuthority
      *
      * @param claim the identity claim
      * @param ekPub the public endorsement key
+     * @param context the state of the provisioning request
      * @return the {@link AppraisalStatus} of the supply chain validation
      */
     private AppraisalStatus.Status doSupplyChainValidation(
-            final ProvisionerTpm2.IdentityClaim claim, final PublicKey ekPub) {
+            final ProvisionerTpm2.IdentityClaim claim, final PublicKey ekPub,
+            final ProvisioningContext context) {
         // attempt to find an endorsement credential to validate
         EndorsementCredential endorsementCredential = parseEcFromIdentityClaim(claim, ekPub);
 
         // attempt to find platform credentials to validate
         Set<PlatformCredential> platformCredentials = parsePcsFromIdentityClaim(claim,
                 endorsementCredential);
+        context.setEndorsementCredential(endorsementCredential);
+        context.setPlatformCredentials(new HashSet<>(platformCredentials));
 
         // Parse and save device info
-        Device device = processDeviceInfo(claim);
+        Device device = processDeviceInfo(claim, context);
+        context.setDevice(device);
 
         // There are situations in which the claim is sent with no PCs
         // or a PC from the tpm which will be deprecated
@@ -543,39 +543,31 @@ public abstract class AbstractAttestationCertificateAuthority
                     "Could not deserialize Protobuf Certificate Request object.", ipbe);
         }
 
-        // attempt to retrieve provisioner state based on nonce in request
-        TPM2ProvisionerState tpm2ProvisionerState = getTpm2ProvisionerState(request);
-        if (tpm2ProvisionerState != null) {
-            // Reparse Identity Claim to gather necessary components
-            byte[] identityClaim = tpm2ProvisionerState.getIdentityClaim();
-            ProvisionerTpm2.IdentityClaim claim = parseIdentityClaim(identityClaim);
-
-            // Get endorsement public key
-            RSAPublicKey ekPub = parsePublicKey(claim.getEkPublicArea().toByteArray());
-
-            // Get attestation public key
-            RSAPublicKey akPub = parsePublicKey(claim.getAkPublicArea().toByteArray());
-
-            // Get Endorsement Credential if it exists or was uploaded
-            EndorsementCredential endorsementCredential = parseEcFromIdentityClaim(claim, ekPub);
-
-            // Get Platform Credentials if they exist or were uploaded
-            Set<PlatformCredential> platformCredentials = parsePcsFromIdentityClaim(claim,
-                    endorsementCredential);
+        // attempt to retrieve the provisioning session based on nonce in request
+        ProvisioningSession session = getProvisioningSession(request);
+        if (session != null) {
+            // Sessions restored from the database only hold the raw Identity Claim
+            if (!session.isParsed()) {
+                session = parseProvisioningSession(session);
+            }
+            ProvisionerTpm2.IdentityClaim claim = session.getClaim();
+            RSAPublicKey akPub = session.getAkPublicKey();
+            EndorsementCredential endorsementCredential = session.getEndorsementCredential();
+            Set<PlatformCredential> platformCredentials = session.getPlatformCredentials();
 
             // Get device name and device
             String deviceName = claim.getDv().getNw().getHostname();
-            Device device = deviceManager.getDevice(deviceName);
-            // check the policy set valid date
-            SupplyChainPolicy scp = this.supplyChainValidationService.getPolicy();
-            if (scp != null) {
-                this.validDays = Integer.parseInt(scp.getValidityDays());
+            Device device = session.getDevice();
+            if (device == null) {
+                device = deviceManager.getDevice(deviceName);
             }
+            // check the policy set valid date
+            ProvisioningContext context = createProvisioningContext();
 
             // Parse through the Provisioner supplied TPM Quote and pcr values
             // these fields are optional
             if (request.getQuote() != null && !request.getQuote().isEmpty()) {
-                parseTPMQuote(request.getQuote().toStringUtf8());
+                parseTPMQuote(request.getQuote().toStringUtf8(), context);
                 TPMInfo savedInfo = device.getDeviceInfo().getTPMInfo();
                 TPMInfo tpmInfo = new TPMInfo(savedInfo.getTPMMake(),
                         savedInfo.getTPMVersionMajor(),
@@ -583,8 +575,8 @@ public abstract class AbstractAttestationCertificateAuthority
                         savedInfo.getTPMVersionRevMajor(),
                         savedInfo.getTPMVersionRevMinor(),
                         savedInfo.getPcrValues(),
-                        this.tpmQuoteHash.getBytes(StandardCharsets.UTF_8),
-                        this.tpmQuoteSignature.getBytes(StandardCharsets.UTF_8));
+                        context.getTpmQuoteHash().getBytes(StandardCharsets.UTF_8),
+                        context.getTpmQuoteSignature().getBytes(StandardCharsets.UTF_8));
 
                 DeviceInfoReport dvReport = new DeviceInfoReport(
                         device.getDeviceInfo().getNetworkInfo(),
@@ -599,12 +591,14 @@ public abstract class AbstractAttestationCertificateAuthority
             if (validationResult == AppraisalStatus.Status.PASS) {
                 // Create signed, attestation certificate
                 X509Certificate attestationCertificate = generateCredential(akPub,
-                        endorsementCredential, platformCredentials, deviceName);
+                        endorsementCredential, platformCredentials, deviceName,
+                        context.getValidDays());
                 byte[] derEncodedAttestationCertificate = getDerEncodedCertificate(
                         attestationCertificate);
 
-                // We validated the nonce and made use of the identity claim so state can be deleted
-                tpm2ProvisionerStateDBManager.delete(tpm2ProvisionerState);
+                // We validated the nonce and made use of the identity claim so the session
+                // can be closed
+                provisioningSessionStore.remove(session);
 
                 // Package the signed certificate into a response
                 ByteString certificateBytes = ByteString.copyFrom(derEncodedAttestationCertificate);
@@ -630,21 +624,38 @@ public abstract class AbstractAttestationCertificateAuthority
         }
     }
 
+    /**
+     * Creates the state of a new provisioning request. The validity period of the certificates
+     * issued for the request is read from the current policy, falling back on the configured
+     * value.
+     * @return the provisioning context
+     */
+    private ProvisioningContext createProvisioningContext() {
+        int certificateValidDays = validDays;
+        SupplyChainPolicy scp = this.supplyChainValidationService.getPolicy();
+        if (scp != null) {
+            certificateValidDays = Integer.parseInt(scp.getValidityDays());
+        }
+        return new ProvisioningContext(certificateValidDays);
+    }
+
     /**
      * This method takes the provided TPM Quote and splits it between the PCR
      * quote and the signature hash.
      * @param tpmQuote contains hash values for the quote and the signature
+     * @param context the state of the provisioning request, receives the quote
+     * @return true if the quote was parsed
      */
-    private boolean parseTPMQuote(final String tpmQuote) {
+    boolean parseTPMQuote(final String tpmQuote, final ProvisioningContext context) {
         boolean success = false;
         if (tpmQuote != null) {
             String[] lines = tpmQuote.split(":");
             if (lines[1].contains("signature")) {
-                this.tpmQuoteHash = lines[1].replace("signature", "").trim();
+                context.setTpmQuoteHash(lines[1].replace("signature", "").trim());
             } else {
-                this.tpmQuoteHash = lines[1].trim();
+                context.setTpmQuoteHash(lines[1].trim());
             }
-            this.tpmQuoteSignature = lines[2].trim();
+            context.setTpmQuoteSignature(lines[2].trim());
             success = true;
         }
 
@@ -696,10 +707,12 @@ public abstract class AbstractAttestationCertificateAuthority
     /**
      * Converts a protobuf DeviceInfo object to a HIRS Utils DeviceInfoReport object.
      * @param claim the protobuf serialized identity claim containing the device info
+     * @param context the state of the provisioning request, receives the PCR values
      * @return a HIRS Utils DeviceInfoReport representation of device info
      */
     @SuppressWarnings("methodlength")
-    private DeviceInfoReport parseDeviceInfo(final ProvisionerTpm2.IdentityClaim claim) {
+    DeviceInfoReport parseDeviceInfo(final ProvisionerTpm2.IdentityClaim claim,
+                                     final ProvisioningContext context) {
         ProvisionerTpm2.DeviceInfo dv = claim.getDv();
 
         // Get network info
@@ -751,7 +764,7 @@ public abstract class AbstractAttestationCertificateAuthority
                 firstChassisSerialNumber, firstBaseboardSerialNumber);
 
         if (dv.hasPcrslist()) {
-            this.pcrValues = dv.getPcrslist().toStringUtf8();
+            context.setPcrValues(dv.getPcrslist().toStringUtf8());
         }
 
         // check for RIM Base and Support files, if they don't exists in the database, load them
@@ -770,7 +783,7 @@ public abstract class AbstractAttestationCertificateAuthority
                 try {
                     dbBaseRim = BaseReferenceManifest.select(referenceManifestManager)
                             .includeArchived()
-                            .byHashCode(Arrays.hashCode(swidFile.toByteArray()))
+                            .byContentDigest(ContentBlobStore.digest(swidFile.toByteArray()))
                             .getRIM();
 
                     if (dbBaseRim == null) {
@@ -780,20 +793,18 @@ public abstract class AbstractAttestationCertificateAuthority
                                 swidFile.toByteArray());
 
                         BaseReferenceManifest base = (BaseReferenceManifest) dbBaseRim;
-                        for (SwidResource swid : base.parseResource()) {
-                            matcher = pattern.matcher(swid.getName());
+                        for (SwidResourceEntry swid : base.getSwidResourceEntries()) {
+                            matcher = pattern.matcher(swid.getFileName());
                             if (matcher.matches()) {
                                 //found the file name
-                                int dotIndex = swid.getName().lastIndexOf(".");
-                                clientName = swid.getName().substring(0, dotIndex);
-                                dbBaseRim = new BaseReferenceManifest(
-                                        String.format("%s.swidtag",
-                                                clientName),
-                                        swidFile.toByteArray());
+                                int dotIndex = swid.getFileName().lastIndexOf(".");
+                                clientName = swid.getFileName().substring(0, dotIndex);
+                                dbBaseRim.setFileName(String.format("%s.swidtag",
+                                        clientName));
                                 break;
                             }
                         }
-                        this.referenceManifestManager.save(dbBaseRim);
+                        dbBaseRim = this.referenceManifestManager.saveOrGetExisting(dbBaseRim);
                     } else {
                         LOG.info("Client provided Base RIM already loaded in database.");
                         dbBaseRim.restore();
@@ -815,7 +826,7 @@ public abstract class AbstractAttestationCertificateAuthority
                 try {
                     support = SupportReferenceManifest.select(referenceManifestManager)
                             .includeArchived()
-                            .byHashCode(Arrays.hashCode(logFile.toByteArray()))
+                            .byContentDigest(ContentBlobStore.digest(logFile.toByteArray()))
                             .getRIM();
 
                     if (support == null) {
@@ -826,7 +837,7 @@ public abstract class AbstractAttestationCertificateAuthority
                         support.setPlatformManufacturer(dv.getHw().getManufacturer());
                         support.setPlatformModel(dv.getHw().getProductName());
                         support.setTagId(tagId);
-                        this.referenceManifestManager.save(support);
+                        this.referenceManifestManager.saveOrGetExisting(support);
                     } else {
                         LOG.info("Client provided Support RIM already loaded in database.");
                         if (dbBaseRim != null) {
@@ -867,7 +878,7 @@ public abstract class AbstractAttestationCertificateAuthority
                 support.setPlatformManufacturer(dv.getHw().getManufacturer());
                 support.setPlatformModel(dv.getHw().getProductName());
                 support.setTagId(tagId);
-                this.referenceManifestManager.save(support);
+                this.referenceManifestManager.saveOrGetExisting(support);
             } catch (IOException ioEx) {
                 LOG.error(ioEx);
             }
@@ -882,9 +893,9 @@ public abstract class AbstractAttestationCertificateAuthority
                 (short) 0,
                 (short) 0,
                 (short) 0,
-                this.pcrValues.getBytes(StandardCharsets.UTF_8),
-                this.tpmQuoteHash.getBytes(StandardCharsets.UTF_8),
-                this.tpmQuoteSignature.getBytes(StandardCharsets.UTF_8));
+                context.getPcrValues().getBytes(StandardCharsets.UTF_8),
+                context.getTpmQuoteHash().getBytes(StandardCharsets.UTF_8),
+                context.getTpmQuoteSignature().getBytes(StandardCharsets.UTF_8));
 
         // Create final report
         DeviceInfoReport dvReport = new DeviceInfoReport(nw, os, fw, hw, tpm,
@@ -894,8 +905,9 @@ public abstract class AbstractAttestationCertificateAuthority
         return dvReport;
     }
 
-    private Device processDeviceInfo(final ProvisionerTpm2.IdentityClaim claim) {
-        DeviceInfoReport deviceInfoReport = parseDeviceInfo(claim);
+    private Device processDeviceInfo(final ProvisionerTpm2.IdentityClaim claim,
+                                     final ProvisioningContext context) {
+        DeviceInfoReport deviceInfoReport = parseDeviceInfo(claim, context);
 
         if (deviceInfoReport == null) {
             LOG.error("Failed to deserialize Device Info Report");
@@ -1247,7 +1259,8 @@ public abstract class AbstractAttestationCertificateAuthority
     }
 
     /**
-     * Generates a credential using the specified public key.
+     * Generates a credential using the specified public key, valid for the configured number
+     * of days.
      *
      * @param publicKey
      *            cannot be null
@@ -1263,10 +1276,34 @@ public abstract class AbstractAttestationCertificateAuthority
                                        final EndorsementCredential endorsementCredential,
                                        final Set<PlatformCredential> platformCredentials,
                                        final String deviceName) {
+        return generateCredential(publicKey, endorsementCredential, platformCredentials,
+                deviceName, validDays);
+    }
+
+    /**
+     * Generates a credential using the specified public key.
+     *
+     * @param publicKey
+     *            cannot be null
+     * @param endorsementCredential
+     *            the endorsement credential
+     * @param platformCredentials
+     *            the set of platform credentials
+     * @param deviceName
+     *            The host name used in the subject alternative name
+     * @param certificateValidDays
+     *            the number of days the credential is valid
+     * @return identity credential
+     */
+    X509Certificate generateCredential(final PublicKey publicKey,
+                                       final EndorsementCredential endorsementCredential,
+                                       final Set<PlatformCredential> platformCredentials,
+                                       final String deviceName,
+                                       final int certificateValidDays) {
         try {
             // have the certificate expire in the configured number of days
             Calendar expiry = Calendar.getInstance();
-            expiry.add(Calendar.DAY_OF_YEAR, validDays);
+            expiry.add(Calendar.DAY_OF_YEAR, certificateValidDays);
 
             X500Name issuer =
                     new X500Name(acaCertificate.getSubjectX500Principal().getName());
@@ -1574,18 +1611,45 @@ public abstract class AbstractAttestationCertificateAuthority
      * provided nonce.
      *
      * @param request Client Certificate Request containing nonce to complete identity claim
-     * @return the {@link TPM2ProvisionerState} if valid nonce provided / null, otherwise
+     * @return the {@link ProvisioningSession} if valid nonce provided / null, otherwise
      */
-    private TPM2ProvisionerState getTpm2ProvisionerState(
+    private ProvisioningSession getProvisioningSession(
             final ProvisionerTpm2.CertificateRequest request) {
         if (request.hasNonce()) {
             byte[] nonce = request.getNonce().toByteArray();
-            return TPM2ProvisionerState.getTPM2ProvisionerState(tpm2ProvisionerStateDBManager,
-                    nonce);
+            return provisioningSessionStore.get(nonce);
         }
         return null;
     }
 
+    /**
+     * Helper method to reparse the Identity Claim of a session that only holds the raw claim,
+     * such as a session started on another ACA node.
+     *
+     * @param session the session holding the raw Identity Claim
+     * @return a session holding the parsed Identity Claim components
+     */
+    private ProvisioningSession parseProvisioningSession(final ProvisioningSession session) {
+        byte[] identityClaim = session.getIdentityClaim();
+        ProvisionerTpm2.IdentityClaim claim = parseIdentityClaim(identityClaim);
+
+        // Get endorsement public key
+        RSAPublicKey ekPub = parsePublicKey(claim.getEkPublicArea().toByteArray());
+
+        // Get attestation public key
+        RSAPublicKey akPub = parsePublicKey(claim.getAkPublicArea().toByteArray());
+
+        // Get Endorsement Credential if it exists or was uploaded
+        EndorsementCredential endorsementCredential = parseEcFromIdentityClaim(claim, ekPub);
+
+        // Get Platform Credentials if they exist or were uploaded
+        Set<PlatformCredential> platformCredentials = parsePcsFromIdentityClaim(claim,
+                endorsementCredential);
+
+        return new ProvisioningSession(session.getNonce(), identityClaim, claim, akPub,
+                endorsementCredential, platformCredentials, null);
+    }
+
     /**
      * Helper method to parse a byte array into an {@link ProvisionerTpm2.IdentityClaim}.
      *
@@ -58,13 +58,14 @@ public final class CredentialManagementHelper {
             LOG.error(iae.getMessage());
             throw iae;
         }
-        int certificateHash = endorsementCredential.getCertificateHash();
+        String contentDigest = endorsementCredential.getContentDigest();
         EndorsementCredential existingCredential =
                 EndorsementCredential.select(certificateManager).includeArchived()
-                        .byHashCode(certificateHash).getCertificate();
+                        .byContentDigest(contentDigest).getCertificate();
         if (existingCredential == null) {
-            LOG.info("No Endorsement Credential found with hash: " + certificateHash);
-            return (EndorsementCredential) certificateManager.save(endorsementCredential);
+            LOG.info("No Endorsement Credential found with digest: " + contentDigest);
+            return (EndorsementCredential) certificateManager
+                    .saveOrGetExisting(endorsementCredential);
         } else if (existingCredential.isArchived()) {
             // if the EK is stored in the DB and it's archived, unarchive.
             LOG.info("Unarchiving credential");
@@ -110,8 +111,8 @@ public final class CredentialManagementHelper {
             PlatformCredential existingCredential =
                     PlatformCredential.select(certificateManager)
                             .includeArchived()
-                            .byHashCode(platformCredential
-                                    .getCertificateHash())
+                            .byContentDigest(platformCredential
+                                    .getContentDigest())
                             .getCertificate();
             if (existingCredential == null) {
                 if (platformCredential.getPlatformSerial() != null) {
@@ -134,7 +135,8 @@ public final class CredentialManagementHelper {
                         }
                     }
                 }
-                return (PlatformCredential) certificateManager.save(platformCredential);
+                return (PlatformCredential) certificateManager
+                        .saveOrGetExisting(platformCredential);
             } else if (existingCredential.isArchived()) {
                 // if the PC is stored in the DB and it's archived, unarchive.
                 LOG.info("Unarchiving credential");
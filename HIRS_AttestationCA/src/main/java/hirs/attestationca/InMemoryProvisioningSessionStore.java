@@ -0,0 +1,96 @@
+package hirs.attestationca;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import hirs.persist.CrudManager;
+import hirs.persist.TPM2ProvisionerState;
+import hirs.utils.HexUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProvisioningSessionStore} that keeps sessions in memory and evicts them once they are
+ * older than a configured time to live, or when more than a configured number of sessions are
+ * open.
+ * <p>
+ * A single ACA node serves both halves of a provisioning session from memory, without touching
+ * the database. When several ACA nodes share a database, a {@link TPM2ProvisionerState} manager
+ * can be given as a fallback: sessions are then also persisted, and a certificate request for a
+ * session that is not in memory (because the identity claim was handled by another node) is
+ * served from the database. Such sessions only hold the raw identity claim.
+ */
+public class InMemoryProvisioningSessionStore implements ProvisioningSessionStore {
+
+    private static final Logger LOG = LogManager.getLogger(InMemoryProvisioningSessionStore.class);
+
+    private final Cache<String, ProvisioningSession> sessions;
+    private final CrudManager<TPM2ProvisionerState> fallback;
+
+    /**
+     * Constructor.
+     *
+     * @param timeToLiveSeconds the number of seconds a session is kept after it is stored
+     * @param maximumSize the maximum number of sessions kept in memory
+     * @param fallback manager used to persist sessions for other ACA nodes, null to keep
+     *                 sessions in memory only
+     */
+    public InMemoryProvisioningSessionStore(final long timeToLiveSeconds, final long maximumSize,
+                                            final CrudManager<TPM2ProvisionerState> fallback) {
+        sessions = CacheBuilder.newBuilder()
+                .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+                .maximumSize(maximumSize)
+                .build();
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void put(final ProvisioningSession session) {
+        sessions.put(keyOf(session.getNonce()), session);
+        if (fallback != null) {
+            fallback.save(new TPM2ProvisionerState(session.getNonce(),
+                    session.getIdentityClaim()));
+        }
+    }
+
+    @Override
+    public ProvisioningSession get(final byte[] nonce) {
+        ProvisioningSession session = sessions.getIfPresent(keyOf(nonce));
+        if (session == null && fallback != null) {
+            TPM2ProvisionerState state =
+                    TPM2ProvisionerState.getTPM2ProvisionerState(fallback, nonce);
+            if (state != null) {
+                LOG.debug("Provisioning session restored from the database");
+                session = new ProvisioningSession(state.getNonce(), state.getIdentityClaim());
+            }
+        }
+        return session;
+    }
+
+    @Override
+    public void remove(final ProvisioningSession session) {
+        sessions.invalidate(keyOf(session.getNonce()));
+        if (fallback != null) {
+            TPM2ProvisionerState state =
+                    TPM2ProvisionerState.getTPM2ProvisionerState(fallback, session.getNonce());
+            if (state != null) {
+                fallback.delete(state);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of sessions currently held in memory.
+     *
+     * @return the number of sessions
+     */
+    public long size() {
+        sessions.cleanUp();
+        return sessions.size();
+    }
+
+    private static String keyOf(final byte[] nonce) {
+        return HexUtils.byteArrayToHexString(nonce);
+    }
+}
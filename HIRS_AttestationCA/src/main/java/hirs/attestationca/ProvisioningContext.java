@@ -0,0 +1,153 @@
+package hirs.attestationca;
+
+import hirs.data.persist.Device;
+import hirs.data.persist.certificate.EndorsementCredential;
+import hirs.data.persist.certificate.PlatformCredential;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Holds the state of a single provisioning request as it moves through the
+ * {@link AbstractAttestationCertificateAuthority}. The ACA is a singleton shared by every
+ * provisioning client, so values read from a request (the TPM quote, the PCR values) or from the
+ * policy at the time of the request (the validity period of issued certificates) are kept here
+ * rather than in fields of the ACA. A context is created per request and is not shared between
+ * threads.
+ */
+final class ProvisioningContext {
+
+    private final int validDays;
+    private String tpmQuoteHash = "";
+    private String tpmQuoteSignature = "";
+    private String pcrValues = "";
+    private EndorsementCredential endorsementCredential;
+    private Set<PlatformCredential> platformCredentials = Collections.emptySet();
+    private Device device;
+
+    /**
+     * Constructor.
+     *
+     * @param validDays the number of days certificates issued for this request are valid
+     */
+    ProvisioningContext(final int validDays) {
+        this.validDays = validDays;
+    }
+
+    /**
+     * Getter for the number of days certificates issued for this request are valid.
+     *
+     * @return the validity period in days
+     */
+    int getValidDays() {
+        return validDays;
+    }
+
+    /**
+     * Getter for the hash of the TPM quote sent with the request.
+     *
+     * @return the quote hash, empty if no quote was sent
+     */
+    String getTpmQuoteHash() {
+        return tpmQuoteHash;
+    }
+
+    /**
+     * Setter for the hash of the TPM quote sent with the request.
+     *
+     * @param tpmQuoteHash the quote hash
+     */
+    void setTpmQuoteHash(final String tpmQuoteHash) {
+        this.tpmQuoteHash = tpmQuoteHash;
+    }
+
+    /**
+     * Getter for the signature of the TPM quote sent with the request.
+     *
+     * @return the quote signature, empty if no quote was sent
+     */
+    String getTpmQuoteSignature() {
+        return tpmQuoteSignature;
+    }
+
+    /**
+     * Setter for the signature of the TPM quote sent with the request.
+     *
+     * @param tpmQuoteSignature the quote signature
+     */
+    void setTpmQuoteSignature(final String tpmQuoteSignature) {
+        this.tpmQuoteSignature = tpmQuoteSignature;
+    }
+
+    /**
+     * Getter for the PCR values reported by the device.
+     *
+     * @return the PCR values, empty if the device did not report any
+     */
+    String getPcrValues() {
+        return pcrValues;
+    }
+
+    /**
+     * Setter for the PCR values reported by the device.
+     *
+     * @param pcrValues the PCR values
+     */
+    void setPcrValues(final String pcrValues) {
+        this.pcrValues = pcrValues;
+    }
+
+    /**
+     * Getter for the endorsement credential found for the device.
+     *
+     * @return the endorsement credential, null if none was found
+     */
+    EndorsementCredential getEndorsementCredential() {
+        return endorsementCredential;
+    }
+
+    /**
+     * Setter for the endorsement credential found for the device.
+     *
+     * @param endorsementCredential the endorsement credential
+     */
+    void setEndorsementCredential(final EndorsementCredential endorsementCredential) {
+        this.endorsementCredential = endorsementCredential;
+    }
+
+    /**
+     * Getter for the platform credentials sent with, or found for, the identity claim.
+     *
+     * @return the platform credentials, empty if none were found
+     */
+    Set<PlatformCredential> getPlatformCredentials() {
+        return platformCredentials;
+    }
+
+    /**
+     * Setter for the platform credentials sent with, or found for, the identity claim.
+     *
+     * @param platformCredentials the platform credentials
+     */
+    void setPlatformCredentials(final Set<PlatformCredential> platformCredentials) {
+        this.platformCredentials = platformCredentials;
+    }
+
+    /**
+     * Getter for the device that sent the request.
+     *
+     * @return the device, null if it has not been processed yet
+     */
+    Device getDevice() {
+        return device;
+    }
+
+    /**
+     * Setter for the device that sent the request.
+     *
+     * @param device the device
+     */
+    void setDevice(final Device device) {
+        this.device = device;
+    }
+}
@@ -0,0 +1,150 @@
+package hirs.attestationca;
+
+import hirs.attestationca.configuration.provisionerTpm2.ProvisionerTpm2;
+import hirs.data.persist.Device;
+import hirs.data.persist.certificate.EndorsementCredential;
+import hirs.data.persist.certificate.PlatformCredential;
+import org.bouncycastle.util.Arrays;
+
+import java.security.interfaces.RSAPublicKey;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The state of a TPM 2.0 provisioning session, kept between the identity claim and the
+ * certificate request of a client. A session is keyed by the nonce sent to the client in
+ * response to its identity claim.
+ * <p>
+ * A session created by the ACA while processing the identity claim holds the artifacts that were
+ * already parsed from the claim, so that the certificate request does not have to parse them
+ * again. A session restored from the database only holds the raw identity claim; see
+ * {@link #isParsed()}.
+ */
+public final class ProvisioningSession {
+
+    private final byte[] nonce;
+    private final byte[] identityClaim;
+    private final ProvisionerTpm2.IdentityClaim claim;
+    private final RSAPublicKey akPublicKey;
+    private final EndorsementCredential endorsementCredential;
+    private final Set<PlatformCredential> platformCredentials;
+    private final Device device;
+
+    /**
+     * Constructor for a session that only holds the raw identity claim.
+     *
+     * @param nonce the nonce sent to the client
+     * @param identityClaim the serialized identity claim
+     */
+    public ProvisioningSession(final byte[] nonce, final byte[] identityClaim) {
+        this(nonce, identityClaim, null, null, null, Collections.<PlatformCredential>emptySet(),
+                null);
+    }
+
+    /**
+     * Constructor for a session holding the parsed identity claim.
+     *
+     * @param nonce the nonce sent to the client
+     * @param identityClaim the serialized identity claim
+     * @param claim the parsed identity claim
+     * @param akPublicKey the attestation public key parsed from the claim
+     * @param endorsementCredential the endorsement credential of the device, may be null
+     * @param platformCredentials the platform credentials of the device
+     * @param device the device that sent the claim, may be null
+     */
+    public ProvisioningSession(final byte[] nonce, final byte[] identityClaim,
+                               final ProvisionerTpm2.IdentityClaim claim,
+                               final RSAPublicKey akPublicKey,
+                               final EndorsementCredential endorsementCredential,
+                               final Set<PlatformCredential> platformCredentials,
+                               final Device device) {
+        if (nonce == null) {
+            throw new IllegalArgumentException("Nonce should not be null");
+        }
+        if (identityClaim == null) {
+            throw new IllegalArgumentException("Identity Claim should not be null");
+        }
+        this.nonce = Arrays.clone(nonce);
+        this.identityClaim = Arrays.clone(identityClaim);
+        this.claim = claim;
+        this.akPublicKey = akPublicKey;
+        this.endorsementCredential = endorsementCredential;
+        this.platformCredentials = Collections.unmodifiableSet(
+                new HashSet<>(platformCredentials));
+        this.device = device;
+    }
+
+    /**
+     * Get the nonce.
+     *
+     * @return the nonce
+     */
+    public byte[] getNonce() {
+        return Arrays.clone(nonce);
+    }
+
+    /**
+     * Get the serialized identity claim.
+     *
+     * @return the identity claim
+     */
+    public byte[] getIdentityClaim() {
+        return Arrays.clone(identityClaim);
+    }
+
+    /**
+     * Returns whether the session holds the parsed identity claim artifacts, or only the raw
+     * identity claim.
+     *
+     * @return true if the parsed artifacts are available
+     */
+    public boolean isParsed() {
+        return claim != null;
+    }
+
+    /**
+     * Get the parsed identity claim.
+     *
+     * @return the identity claim, null if the session is not parsed
+     */
+    public ProvisionerTpm2.IdentityClaim getClaim() {
+        return claim;
+    }
+
+    /**
+     * Get the attestation public key.
+     *
+     * @return the AK public key, null if the session is not parsed
+     */
+    public RSAPublicKey getAkPublicKey() {
+        return akPublicKey;
+    }
+
+    /**
+     * Get the endorsement credential of the device.
+     *
+     * @return the endorsement credential, null if none was found
+     */
+    public EndorsementCredential getEndorsementCredential() {
+        return endorsementCredential;
+    }
+
+    /**
+     * Get the platform credentials of the device.
+     *
+     * @return unmodifiable set of platform credentials
+     */
+    public Set<PlatformCredential> getPlatformCredentials() {
+        return platformCredentials;
+    }
+
+    /**
+     * Get the device that sent the identity claim.
+     *
+     * @return the device, null if it is not known
+     */
+    public Device getDevice() {
+        return device;
+    }
+}
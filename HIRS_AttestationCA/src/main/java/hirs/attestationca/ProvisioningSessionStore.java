@@ -0,0 +1,30 @@
+package hirs.attestationca;
+
+/**
+ * Keeps {@link ProvisioningSession}s between the identity claim and the certificate request of
+ * TPM 2.0 provisioning clients.
+ */
+public interface ProvisioningSessionStore {
+
+    /**
+     * Stores a session under its nonce.
+     *
+     * @param session the session
+     */
+    void put(ProvisioningSession session);
+
+    /**
+     * Finds the session associated with a nonce.
+     *
+     * @param nonce the nonce sent to the client
+     * @return the session, or null if no session matches the nonce or it has expired
+     */
+    ProvisioningSession get(byte[] nonce);
+
+    /**
+     * Removes a session once it has been used.
+     *
+     * @param session the session
+     */
+    void remove(ProvisioningSession session);
+}
@@ -31,13 +31,17 @@ import java.security.KeyStoreException;
 import java.security.PrivateKey;
 import java.security.Security;
 import java.security.cert.X509Certificate;
+import hirs.attestationca.InMemoryProvisioningSessionStore;
+import hirs.attestationca.ProvisioningSessionStore;
 import hirs.persist.DBDeviceGroupManager;
 import hirs.persist.DBDeviceManager;
 import hirs.persist.DeviceGroupManager;
+import hirs.persist.DBManager;
 import hirs.persist.DeviceManager;
 import hirs.persist.ReferenceManifestManager;
 import hirs.persist.DBReferenceManifestManager;
 import hirs.persist.HibernateConfiguration;
+import hirs.persist.TPM2ProvisionerState;
 import hirs.structs.converters.SimpleStructConverter;
 import hirs.structs.converters.StructConverter;
 import hirs.utils.LogConfigurationUtil;
@@ -88,6 +92,15 @@ public class AttestationCertificateAuthorityConfiguration extends WebMvcConfigur
     @Value("${aca.keyStore.alias}")
     private String keyAlias;
 
+    @Value("${aca.provisioning.session.ttl}")
+    private long provisioningSessionTtl;
+
+    @Value("${aca.provisioning.session.maximumSize}")
+    private long provisioningSessionMaximumSize;
+
+    @Value("${aca.provisioning.session.dbFallback}")
+    private boolean provisioningSessionDbFallback;
+
     @Autowired
     private Environment environment;
 
@@ -252,6 +265,25 @@ public class AttestationCertificateAuthorityConfiguration extends WebMvcConfigur
         return new DBReferenceManifestManager(sessionFactory.getObject());
     }
 
+    /**
+     * Creates the {@link ProvisioningSessionStore} holding open TPM 2.0 provisioning sessions.
+     * Sessions are only persisted when the database fallback is enabled, which is required when
+     * several ACA nodes share the database.
+     *
+     * @param tpm2ProvisionerStateDBManager the DBManager for persisting provisioner state
+     * @return {@link ProvisioningSessionStore}
+     */
+    @Bean
+    public ProvisioningSessionStore provisioningSessionStore(
+            final DBManager<TPM2ProvisionerState> tpm2ProvisionerStateDBManager) {
+        DBManager<TPM2ProvisionerState> fallback = null;
+        if (provisioningSessionDbFallback) {
+            fallback = tpm2ProvisionerStateDBManager;
+        }
+        return new InMemoryProvisioningSessionStore(provisioningSessionTtl,
+                provisioningSessionMaximumSize, fallback);
+    }
+
     @Override
     public void addResourceHandlers(final ResourceHandlerRegistry resourceHandlerRegistry) {
         resourceHandlerRegistry.addResourceHandler("/client-files/**")
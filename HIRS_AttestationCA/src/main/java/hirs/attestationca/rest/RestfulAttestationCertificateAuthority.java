@@ -1,7 +1,5 @@
 package hirs.attestationca.rest;
 
-import hirs.persist.DBManager;
-import hirs.persist.TPM2ProvisionerState;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
@@ -14,6 +12,7 @@ import org.springframework.web.bind.annotation.RestController;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import hirs.attestationca.AbstractAttestationCertificateAuthority;
+import hirs.attestationca.ProvisioningSessionStore;
 import hirs.attestationca.service.SupplyChainValidationService;
 import hirs.data.service.DeviceRegister;
 import hirs.persist.CertificateManager;
@@ -41,7 +40,7 @@ public class RestfulAttestationCertificateAuthority
      * @param deviceRegister the device register
      * @param validDays the number of days issued certs are valid
      * @param deviceManager the device manager
-     * @param tpm2ProvisionerStateDBManager the DBManager for persisting provisioner state
+     * @param provisioningSessionStore the store of open TPM 2.0 provisioning sessions
      */
     @SuppressWarnings({ "checkstyle:parameternumber" })
     @Autowired
@@ -53,12 +52,12 @@ public class RestfulAttestationCertificateAuthority
             final ReferenceManifestManager referenceManifestManager,
             final DeviceRegister deviceRegister,
             final DeviceManager deviceManager,
-            final DBManager<TPM2ProvisionerState> tpm2ProvisionerStateDBManager,
+            final ProvisioningSessionStore provisioningSessionStore,
             @Value("${aca.certificates.validity}") final int validDays) {
         super(supplyChainValidationService, privateKey, acaCertificate, structConverter,
                 certificateManager, referenceManifestManager,
                 deviceRegister, validDays, deviceManager,
-                tpm2ProvisionerStateDBManager);
+                provisioningSessionStore);
     }
 
     /*
@@ -1,6 +1,5 @@
 package hirs.attestationca.service;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -10,18 +9,17 @@ import java.security.cert.CertificateException;
 import hirs.data.persist.BaseReferenceManifest;
 import hirs.data.persist.EventLogMeasurements;
 import hirs.data.persist.SupportReferenceManifest;
-import hirs.data.persist.SwidResource;
 import hirs.data.persist.TPMMeasurementRecord;
 import hirs.data.persist.PCRPolicy;
 import hirs.data.persist.ArchivableEntity;
-import hirs.tpm.eventlog.TCGEventLog;
-import hirs.tpm.eventlog.TpmPcrEvent;
+import hirs.tpm.eventlog.TCGEventLogDiffReport;
+import hirs.tpm.eventlog.TCGEventLogReader;
 import hirs.utils.BouncyCastleUtils;
-import hirs.utils.ReferenceManifestValidator;
+import hirs.utils.ReferenceManifestCache;
 import hirs.validation.SupplyChainCredentialValidator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.bouncycastle.util.encoders.Hex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Import;
 import org.springframework.stereotype.Service;
@@ -32,8 +30,16 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Level;
@@ -82,10 +88,28 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
     private CertificateManager certificateManager;
     private CredentialValidator supplyChainCredentialValidator;
     private CrudManager<SupplyChainValidationSummary> supplyChainValidatorSummaryManager;
+    private final ReferenceManifestCache rimCache = ReferenceManifestCache.getInstance();
+    private final TrustStoreIndex trustStoreIndex;
 
     private static final Logger LOGGER
             = LogManager.getLogger(SupplyChainValidationServiceImpl.class);
 
+    /**
+     * Number of validation stages run concurrently, across all provisioning requests.
+     */
+    private static final int STAGE_THREADS = Math.max(2,
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Number of validation stages waiting for a thread. Once the queue is full, further stages
+     * are run by the thread submitting them.
+     */
+    private static final int STAGE_QUEUE_SIZE = STAGE_THREADS * 4;
+
+    private static final int STAGE_KEEP_ALIVE_SECONDS = 60;
+
+    private static final ExecutorService STAGE_EXECUTOR = createStageExecutor();
+
     /**
      * Constructor.
      *
@@ -109,6 +133,7 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
         this.referenceManifestManager = referenceManifestManager;
         this.supplyChainValidatorSummaryManager = supplyChainValidatorSummaryManager;
         this.supplyChainCredentialValidator = supplyChainCredentialValidator;
+        this.trustStoreIndex = new TrustStoreIndex(certificateManager);
     }
 
     /**
@@ -141,10 +166,35 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
         SupplyChainValidation.ValidationType platformType = SupplyChainValidation
                 .ValidationType.PLATFORM_CREDENTIAL;
         LOGGER.info("Validating supply chain.");
+        final long validationStart = System.nanoTime();
 
-        // Validate the Endorsement Credential
+        // Start the stages that do not depend on each other: the endorsement credential, the
+        // chain of each platform credential and the firmware. Their results are merged below,
+        // in the same order as if they had been run one after the other.
+        Future<SupplyChainValidation> ecStage = null;
         if (policy.isEcValidationEnabled()) {
-            validations.add(validateEndorsementCredential(ec, acceptExpiredCerts));
+            ecStage = submitStage("endorsement credential",
+                    () -> validateEndorsementCredential(ec, acceptExpiredCerts));
+        }
+        Map<PlatformCredential, Future<SupplyChainValidation>> pcStages = new LinkedHashMap<>();
+        if (policy.isPcValidationEnabled() && pcs != null) {
+            for (PlatformCredential pc : pcs) {
+                pcStages.put(pc, submitStage("platform credential",
+                        () -> validatePlatformCredential(pc, getCaChain(pc),
+                                acceptExpiredCerts)));
+            }
+        }
+        Future<SupplyChainValidation> firmwareStage = null;
+        if (policy.isFirmwareValidationEnabled()) {
+            // may need to associated with device to pull the correct info
+            // compare tpm quote with what is pulled from RIM associated file
+            firmwareStage = submitStage("firmware",
+                    () -> validateFirmware(device, policy.getPcrPolicy()));
+        }
+
+        // Validate the Endorsement Credential
+        if (ecStage != null) {
+            validations.add(awaitStage(ecStage));
             // store the device with the credential
             if (ec != null) {
                 ec.setDevice(device);
@@ -159,10 +209,10 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
                 LOGGER.error("There were no Platform Credentials to validate.");
                 pcErrorMessage = "Platform credential(s) missing\n";
             } else {
-                for (PlatformCredential pc : pcs) {
-                    KeyStore trustedCa = getCaChain(pc);
-                    platformScv = validatePlatformCredential(
-                            pc, trustedCa, acceptExpiredCerts);
+                for (Map.Entry<PlatformCredential, Future<SupplyChainValidation>> pcStage
+                        : pcStages.entrySet()) {
+                    PlatformCredential pc = pcStage.getKey();
+                    platformScv = awaitStage(pcStage.getValue());
 
                     if (platformScv.getResult() == FAIL) {
                         pcErrorMessage = String.format("%s%s%n", pcErrorMessage,
@@ -212,6 +262,7 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
         // Validate Platform Credential attributes
         if (policy.isPcAttributeValidationEnabled()
                 && pcErrorMessage.isEmpty()) {
+            final long attributeStart = System.nanoTime();
             // Ensure there are platform credentials to validate
             SupplyChainValidation attributeScv = null;
             String attrErrorMessage = "";
@@ -260,14 +311,14 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
                         attributeScv.getResult(), aes, attributeScv.getMessage()));
 
             }
+            logStageTime("platform credential attributes", attributeStart);
         }
 
-        if (policy.isFirmwareValidationEnabled()) {
-            // may need to associated with device to pull the correct info
-            // compare tpm quote with what is pulled from RIM associated file
-            validations.add(validateFirmware(device, policy.getPcrPolicy()));
+        if (firmwareStage != null) {
+            validations.add(awaitStage(firmwareStage));
         }
 
+        logStageTime("supply chain", validationStart);
         LOGGER.info("The service finished and now summarizing");
         // Generate validation summary, save it, and return it.
         SupplyChainValidationSummary summary
@@ -281,6 +332,67 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
         return summary;
     }
 
+    /**
+     * Starts a validation stage on the shared stage executor, logging how long the stage took
+     * once it completes.
+     *
+     * @param stage the name of the stage, used in the log
+     * @param task  the validation to run
+     * @return the pending result of the validation
+     */
+    private static Future<SupplyChainValidation> submitStage(
+            final String stage, final Callable<SupplyChainValidation> task) {
+        return STAGE_EXECUTOR.submit(() -> {
+            final long start = System.nanoTime();
+            try {
+                return task.call();
+            } finally {
+                logStageTime(stage, start);
+            }
+        });
+    }
+
+    /**
+     * Waits for a validation stage to complete. Exceptions thrown by the stage are rethrown as
+     * they would have been had the stage been run by the calling thread.
+     *
+     * @param stage the pending result of the validation
+     * @return the result of the validation
+     */
+    private static SupplyChainValidation awaitStage(final Future<SupplyChainValidation> stage) {
+        try {
+            return stage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating the supply chain", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Supply chain validation stage failed", cause);
+        }
+    }
+
+    private static void logStageTime(final String stage, final long startNanos) {
+        LOGGER.debug(String.format("Validation of %s took %d ms", stage,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+    }
+
+    private static ExecutorService createStageExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(STAGE_THREADS, STAGE_THREADS,
+                STAGE_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(STAGE_QUEUE_SIZE),
+                new ThreadFactoryBuilder().setNameFormat("supply-chain-validation-%d")
+                        .setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     /**
      * This method is a sub set of the validate supply chain method and focuses
      * on the specific multibase validation check for a delta chain. This method
@@ -374,31 +486,23 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
         }
 
         if (passed) {
-            List<SwidResource> resources =
-                    ((BaseReferenceManifest) baseReferenceManifest).parseResource();
             fwStatus = new AppraisalStatus(PASS,
                     SupplyChainCredentialValidator.FIRMWARE_VALID);
 
-            // verify signatures
-            ReferenceManifestValidator referenceManifestValidator =
-                    new ReferenceManifestValidator(
-                            new ByteArrayInputStream(baseReferenceManifest.getRimBytes()));
+            // verify signatures, reusing the results for RIMs that were already verified
+            ReferenceManifestCache.VerifiedBaseRim verifiedBaseRim = rimCache.getBaseRim(
+                    (BaseReferenceManifest) baseReferenceManifest);
+            ReferenceManifestCache.VerifiedSupportRim verifiedSupportRim = null;
 
-            for (SwidResource swidRes : resources) {
-                if (swidRes.getName().equals(supportReferenceManifest.getFileName())) {
-                    referenceManifestValidator.validateSupportRimHash(
-                            supportReferenceManifest.getRimBytes(), swidRes.getHashValue());
-                }
-            }
-
-            if (!referenceManifestValidator.isSignatureValid()) {
+            if (!verifiedBaseRim.isSignatureValid()) {
                 passed = false;
                 fwStatus = new AppraisalStatus(FAIL,
                         "Firmware validation failed: Signature validation "
                                 + "failed for Base RIM.");
             }
 
-            if (passed && !referenceManifestValidator.isSupportRimValid()) {
+            if (passed && !verifiedBaseRim.isSupportRimValid(
+                    (SupportReferenceManifest) supportReferenceManifest)) {
                 passed = false;
                 fwStatus = new AppraisalStatus(FAIL,
                         "Firmware validation failed: Hash validation "
@@ -406,12 +510,10 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
             }
 
             if (passed) {
-                TCGEventLog logProcessor;
                 try {
-                    logProcessor = new TCGEventLog(supportReferenceManifest.getRimBytes());
-                    baseline = logProcessor.getExpectedPCRValues();
-                } catch (CertificateException cEx) {
-                    LOGGER.error(cEx);
+                    verifiedSupportRim = rimCache.getSupportRim(
+                            (SupportReferenceManifest) supportReferenceManifest);
+                    baseline = verifiedSupportRim.getExpectedPcrValues();
                 } catch (NoSuchAlgorithmException noSaEx) {
                     LOGGER.error(noSaEx);
                 } catch (IOException ioEx) {
@@ -457,38 +559,26 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
                         // part 2 of firmware validation check: bios measurements
                         // vs baseline tcg event log
                         // find the measurement
-                        TCGEventLog tcgEventLog;
-                        TCGEventLog tcgMeasurementLog;
-                        LinkedList<TpmPcrEvent> tpmPcrEvents = new LinkedList<>();
+                        // match events on (pcr, type, digest) rather than on position
+                        StringBuilder sb = new StringBuilder();
                         try {
-                            if (measurement.getPlatformManufacturer().equals(manufacturer)) {
-                                tcgMeasurementLog = new TCGEventLog(measurement.getRimBytes());
-                                tcgEventLog = new TCGEventLog(
-                                        supportReferenceManifest.getRimBytes());
-                                for (TpmPcrEvent tpe : tcgEventLog.getEventList()) {
-                                    if (!tpe.eventCompare(
-                                            tcgMeasurementLog.getEventByNumber(
-                                                    tpe.getEventNumber()))) {
-                                        tpmPcrEvents.add(tpe);
-                                    }
+                            if (verifiedSupportRim != null
+                                    && measurement.getPlatformManufacturer().equals(manufacturer)) {
+                                TCGEventLogDiffReport report = verifiedSupportRim
+                                        .getEventLogIndex().compare(new TCGEventLogReader(
+                                                measurement.getRimBytes()));
+                                if (!report.isMatch()) {
+                                    LOGGER.info(String.format("Event log mismatch for %s: %s",
+                                            device.getName(), report.getSummary()));
+                                    sb.append(report.toString());
                                 }
                             }
-                        } catch (CertificateException cEx) {
-                            LOGGER.error(cEx);
-                        } catch (NoSuchAlgorithmException noSaEx) {
-                            LOGGER.error(noSaEx);
                         } catch (IOException ioEx) {
                             LOGGER.error(ioEx);
                         }
 
-                        if (!tpmPcrEvents.isEmpty()) {
-                            StringBuilder sb = new StringBuilder();
+                        if (sb.length() > 0) {
                             validationObject = measurement;
-                            for (TpmPcrEvent tpe : tpmPcrEvents) {
-                                sb.append(String.format("Event %s - %s%n",
-                                        tpe.getEventNumber(),
-                                        tpe.getEventTypeStr()));
-                            }
                             if (fwStatus.getAppStatus().equals(FAIL)) {
                                 fwStatus = new AppraisalStatus(FAIL, String.format("%s%n%s",
                                         fwStatus.getMessage(), sb.toString()));
@@ -506,6 +596,7 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
                     + "%s for %s can not be found", failedString, manufacturer));
         }
 
+        rimCache.logStats();
         return buildValidationRecord(SupplyChainValidation.ValidationType.FIRMWARE,
                 fwStatus.getAppStatus(), fwStatus.getMessage(), validationObject, level);
     }
@@ -546,7 +637,7 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
                                             + "No associated RIM file could be found for %s",
                                     manufacturer));
                 } else {
-                    baseline = sRim.getExpectedPCRList();
+                    baseline = rimCache.getSupportRim(sRim).getExpectedPcrValues();
                     String pcrContent = new String(device.getDeviceInfo()
                             .getTPMInfo().getPcrValues());
                     String[] storedPcrs = buildStoredPcrs(pcrContent, baseline[0].length());
@@ -764,17 +855,28 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
      * single trust chain for the queried certificate, but is guaranteed to
      * include the trust chain if it exists in this class' CertificateManager.
      * Returns the certificate authority credentials in a KeyStore.
+     * <p>
+     * The CA credentials are looked up in an in-memory index of the trust store, and the
+     * assembled KeyStore is shared by every credential with the same issuer until the index is
+     * refreshed. The returned KeyStore must not be modified.
      *
      * @param credential the credential whose CA chain should be retrieved
      * @return A keystore containing all relevant CA credentials to the given
      * certificate's organization or null if the keystore can't be assembled
      */
     public KeyStore getCaChain(final Certificate credential) {
-        KeyStore caKeyStore = null;
-        try {
-            caKeyStore = caCertSetToKeystore(getCaChainRec(credential, Collections.emptySet()));
-        } catch (KeyStoreException | IOException e) {
-            LOGGER.error("Unable to assemble CA keystore", e);
+        TrustStoreIndex.Snapshot trustStore = trustStoreIndex.getSnapshot();
+        String chainKey = String.format("%s|%s|%s", credential.getAuthKeyId(),
+                credential.getIssuerSorted(), credential.getIssuer());
+        KeyStore caKeyStore = trustStore.getKeyStore(chainKey);
+        if (caKeyStore == null) {
+            try {
+                caKeyStore = caCertSetToKeystore(getCaChainRec(credential,
+                        Collections.emptySet(), trustStore));
+                trustStore.putKeyStore(chainKey, caKeyStore);
+            } catch (KeyStoreException | IOException e) {
+                LOGGER.error("Unable to assemble CA keystore", e);
+            }
         }
         return caKeyStore;
     }
@@ -801,35 +903,29 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
      * @param credential                the credential whose CA chain should be retrieved
      * @param previouslyQueriedSubjects a list of organizations to refrain
      *                                  from querying
+     * @param trustStore                the index of the trust store to look CA credentials up in
      * @return a Set containing all relevant CA credentials to the given
      * certificate's organization
      */
     private Set<CertificateAuthorityCredential> getCaChainRec(
             final Certificate credential,
-            final Set<String> previouslyQueriedSubjects) {
+            final Set<String> previouslyQueriedSubjects,
+            final TrustStoreIndex.Snapshot trustStore) {
         CertificateAuthorityCredential skiCA = null;
         Set<CertificateAuthorityCredential> certAuthsWithMatchingIssuer = new HashSet<>();
         if (credential.getAuthKeyId() != null
                 && !credential.getAuthKeyId().isEmpty()) {
-            byte[] bytes = Hex.decode(credential.getAuthKeyId());
-            skiCA = CertificateAuthorityCredential
-                    .select(certificateManager)
-                    .bySubjectKeyIdentifier(bytes).getCertificate();
+            skiCA = trustStore.bySubjectKeyIdentifier(credential.getAuthKeyId());
         }
 
         if (skiCA == null) {
             if (credential.getIssuerSorted() == null
                     || credential.getIssuerSorted().isEmpty()) {
-                certAuthsWithMatchingIssuer = CertificateAuthorityCredential
-                        .select(certificateManager)
-                        .bySubject(credential.getIssuer())
-                        .getCertificates();
+                certAuthsWithMatchingIssuer = trustStore.bySubject(credential.getIssuer());
             } else {
                 //Get certificates by subject organization
-                certAuthsWithMatchingIssuer = CertificateAuthorityCredential
-                        .select(certificateManager)
-                        .bySubjectSorted(credential.getIssuerSorted())
-                        .getCertificates();
+                certAuthsWithMatchingIssuer = trustStore.bySubjectSorted(
+                        credential.getIssuerSorted());
             }
         } else {
             certAuthsWithMatchingIssuer.add(skiCA);
@@ -842,7 +938,7 @@ public class SupplyChainValidationServiceImpl implements SupplyChainValidationSe
             caCreds.add(cred);
             if (!BouncyCastleUtils.x500NameCompare(cred.getIssuer(),
                     cred.getSubject())) {
-                caCreds.addAll(getCaChainRec(cred, queriedOrganizations));
+                caCreds.addAll(getCaChainRec(cred, queriedOrganizations, trustStore));
             }
         }
         return caCreds;
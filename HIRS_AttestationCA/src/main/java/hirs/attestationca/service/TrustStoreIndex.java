@@ -0,0 +1,169 @@
+package hirs.attestationca.service;
+
+import hirs.data.persist.certificate.CertificateAuthorityCredential;
+import hirs.persist.CertificateManager;
+import hirs.persist.CertificateStamp;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory index of the {@link CertificateAuthorityCredential}s in the trust store, used to
+ * assemble the CA chain of a credential without querying the database for every hop.
+ * <p>
+ * The index is a snapshot of the CA credentials that are not archived, looked up by subject key
+ * identifier, subject and sorted subject. Certificate authority credentials are uploaded and
+ * archived through the portal, which runs apart from the ACA, so before a snapshot is reused
+ * the {@link CertificateStamp} of the CA credentials is queried, and the snapshot is reloaded as
+ * soon as a credential has been stored, archived or restored since it was loaded. The key
+ * stores assembled from a snapshot are kept with it, so that devices sharing the same CAs share
+ * the same key store.
+ */
+final class TrustStoreIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger(TrustStoreIndex.class);
+
+    private final CertificateManager certificateManager;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Constructor.
+     *
+     * @param certificateManager the certificate manager holding the trust store
+     */
+    TrustStoreIndex(final CertificateManager certificateManager) {
+        this.certificateManager = certificateManager;
+    }
+
+    /**
+     * Returns the current snapshot of the trust store, reloading it if a CA credential has been
+     * stored, archived or restored since it was loaded.
+     *
+     * @return the snapshot
+     */
+    Snapshot getSnapshot() {
+        CertificateStamp stamp = certificateManager.getStamp(CertificateAuthorityCredential.class);
+        Snapshot current = snapshot;
+        if (current == null || !Objects.equals(current.stamp, stamp)) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || !Objects.equals(current.stamp, stamp)) {
+                    LOGGER.debug("Reloading the trust store: {}", stamp);
+                    current = new Snapshot(stamp, CertificateAuthorityCredential
+                            .select(certificateManager).getCertificates());
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * View of the trust store at the time it was loaded, along with the key stores assembled
+     * from it.
+     */
+    static final class Snapshot {
+
+        private final CertificateStamp stamp;
+        private final Map<String, CertificateAuthorityCredential> bySubjectKeyIdentifier =
+                new HashMap<>();
+        private final Map<String, Set<CertificateAuthorityCredential>> bySubject =
+                new HashMap<>();
+        private final Map<String, Set<CertificateAuthorityCredential>> bySubjectSorted =
+                new HashMap<>();
+        private final ConcurrentMap<String, KeyStore> keyStores = new ConcurrentHashMap<>();
+
+        private Snapshot(final CertificateStamp stamp,
+                         final Set<CertificateAuthorityCredential> credentials) {
+            this.stamp = stamp;
+            for (CertificateAuthorityCredential credential : credentials) {
+                byte[] ski = credential.getSubjectKeyIdentifier();
+                if (ski != null && ski.length > 0) {
+                    bySubjectKeyIdentifier.putIfAbsent(Hex.toHexString(ski), credential);
+                }
+                index(bySubject, credential.getSubject(), credential);
+                index(bySubjectSorted, credential.getSubjectSorted(), credential);
+            }
+            LOGGER.debug(String.format("Indexed %d certificate authority credentials",
+                    credentials.size()));
+        }
+
+        private static void index(final Map<String, Set<CertificateAuthorityCredential>> map,
+                                  final String key,
+                                  final CertificateAuthorityCredential credential) {
+            if (key != null && !key.isEmpty()) {
+                map.computeIfAbsent(key, k -> new HashSet<>()).add(credential);
+            }
+        }
+
+        /**
+         * Finds the CA credential with the given subject key identifier.
+         *
+         * @param subjectKeyIdentifier the subject key identifier, hex encoded
+         * @return the credential, or null if none matches
+         */
+        CertificateAuthorityCredential bySubjectKeyIdentifier(final String subjectKeyIdentifier) {
+            return bySubjectKeyIdentifier.get(
+                    Hex.toHexString(Hex.decode(subjectKeyIdentifier)));
+        }
+
+        /**
+         * Finds the CA credentials with the given subject.
+         *
+         * @param subject the subject
+         * @return the matching credentials, possibly empty
+         */
+        Set<CertificateAuthorityCredential> bySubject(final String subject) {
+            return lookup(bySubject, subject);
+        }
+
+        /**
+         * Finds the CA credentials with the given sorted subject.
+         *
+         * @param subjectSorted the sorted subject
+         * @return the matching credentials, possibly empty
+         */
+        Set<CertificateAuthorityCredential> bySubjectSorted(final String subjectSorted) {
+            return lookup(bySubjectSorted, subjectSorted);
+        }
+
+        private static Set<CertificateAuthorityCredential> lookup(
+                final Map<String, Set<CertificateAuthorityCredential>> map, final String key) {
+            Set<CertificateAuthorityCredential> credentials = map.get(key);
+            if (credentials == null) {
+                return Collections.emptySet();
+            }
+            return Collections.unmodifiableSet(credentials);
+        }
+
+        /**
+         * Getter for the key store previously assembled from this snapshot for the given chain.
+         *
+         * @param chainKey identifies the issuer of the credential the chain was assembled for
+         * @return the key store, or null if none was assembled yet
+         */
+        KeyStore getKeyStore(final String chainKey) {
+            return keyStores.get(chainKey);
+        }
+
+        /**
+         * Keeps a key store assembled from this snapshot for the given chain.
+         *
+         * @param chainKey identifies the issuer of the credential the chain was assembled for
+         * @param keyStore the key store
+         */
+        void putKeyStore(final String chainKey, final KeyStore keyStore) {
+            keyStores.putIfAbsent(chainKey, keyStore);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package hirs.attestationca;
 
 import com.google.protobuf.ByteString;
+import hirs.attestationca.configuration.provisionerTpm2.ProvisionerTpm2;
+import hirs.data.persist.info.TPMInfo;
 import hirs.data.persist.certificate.PlatformCredential;
 import hirs.utils.HexUtils;
 import org.apache.commons.codec.binary.Hex;
@@ -26,6 +28,7 @@ import javax.security.auth.x500.X500Principal;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -39,8 +42,15 @@ import java.security.Security;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.MGF1ParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import hirs.structs.converters.StructConverter;
 import hirs.structs.elements.aca.SymmetricAttestation;
@@ -575,7 +585,7 @@ public class AbstractAttestationCertificateAuthorityTest {
      * Tests {@link AbstractAttestationCertificateAuthority#
      * AbstractAttestationCertificateAuthority(SupplyChainValidationService, PrivateKey,
      * X509Certificate, StructConverter, CertificateManager, DeviceRegister, int,
-     * DeviceManager, DBManager)}.
+     * DeviceManager, ProvisioningSessionStore)}.
      *
      * @throws Exception during subject alternative name checking if cert formatting is bad
      */
@@ -766,6 +776,73 @@ public class AbstractAttestationCertificateAuthorityTest {
         assertEquals(hex, realHex);
     }
 
+    /**
+     * Load test for {@link AbstractAttestationCertificateAuthority#parseTPMQuote(String,
+     * ProvisioningContext)} and {@link AbstractAttestationCertificateAuthority#parseDeviceInfo(
+     * ProvisionerTpm2.IdentityClaim, ProvisioningContext)}. Many clients are provisioned
+     * concurrently by the same ACA, and each must get a device info report holding its own PCR
+     * values and quote.
+     *
+     * @throws Exception if a provisioning thread fails
+     */
+    @Test
+    public void testConcurrentProvisioningIsolation() throws Exception {
+        final int clients = 16;
+        final int requests = 512;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                final String id = Integer.toString(i);
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        ProvisionerTpm2.IdentityClaim claim = ProvisionerTpm2.IdentityClaim
+                                .newBuilder()
+                                .setDv(ProvisionerTpm2.DeviceInfo.newBuilder()
+                                        .setFw(ProvisionerTpm2.FirmwareInfo.newBuilder()
+                                                .setBiosVendor("vendor")
+                                                .setBiosVersion("1.0")
+                                                .setBiosReleaseDate("01/01/2020"))
+                                        .setHw(ProvisionerTpm2.HardwareInfo.newBuilder()
+                                                .setManufacturer("manufacturer")
+                                                .setProductName("product")
+                                                .setProductVersion("1.0")
+                                                .setSystemSerialNumber("serial" + id))
+                                        .setNw(ProvisionerTpm2.NetworkInfo.newBuilder()
+                                                .setHostname("device" + id)
+                                                .setIpAddress("127.0.0.1")
+                                                .setMacAddress("00:00:00:00:00:01"))
+                                        .setOs(ProvisionerTpm2.OsInfo.newBuilder()
+                                                .setOsName("Linux")
+                                                .setOsVersion("5.0")
+                                                .setOsArch("x86_64")
+                                                .setDistribution("distribution")
+                                                .setDistributionRelease("1"))
+                                        .setPcrslist(ByteString.copyFromUtf8("pcrs" + id)))
+                                .setAkPublicArea(ByteString.EMPTY)
+                                .setEkPublicArea(ByteString.EMPTY)
+                                .build();
+                        ProvisioningContext context = new ProvisioningContext(1);
+                        aca.parseTPMQuote("quote:hash" + id + " signature:sig" + id, context);
+                        TPMInfo tpmInfo = aca.parseDeviceInfo(claim, context).getTPMInfo();
+                        return Arrays.equals(tpmInfo.getPcrValues(),
+                                ("pcrs" + id).getBytes(StandardCharsets.UTF_8))
+                                && Arrays.equals(tpmInfo.getTpmQuoteHash(),
+                                ("hash" + id).getBytes(StandardCharsets.UTF_8))
+                                && Arrays.equals(tpmInfo.getTpmQuoteSignature(),
+                                ("sig" + id).getBytes(StandardCharsets.UTF_8));
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Method to generate a make credential output file for use in manual testing. Feed to
      * a TPM 2.0 or emulator using the activate credential command to ensure proper parsing.
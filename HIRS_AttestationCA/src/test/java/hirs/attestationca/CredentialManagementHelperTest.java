@@ -85,7 +85,7 @@ public class CredentialManagementHelperTest {
         byte[] ekBytes = IOUtils.toByteArray(new FileInputStream(path));
 
         CredentialManagementHelper.storeEndorsementCredential(certMan, ekBytes);
-        verify(certMan).save(any(Certificate.class));
+        verify(certMan).saveOrGetExisting(any(Certificate.class));
     }
 
     /**
@@ -99,6 +99,6 @@ public class CredentialManagementHelperTest {
         byte[] ekBytes = IOUtils.toByteArray(new FileInputStream(path));
 
         CredentialManagementHelper.storeEndorsementCredential(certMan, ekBytes);
-        verify(certMan).save(any(Certificate.class));
+        verify(certMan).saveOrGetExisting(any(Certificate.class));
     }
 }
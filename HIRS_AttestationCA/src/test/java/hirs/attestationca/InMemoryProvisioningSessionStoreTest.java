@@ -0,0 +1,125 @@
+package hirs.attestationca;
+
+import hirs.persist.CrudManager;
+import hirs.persist.TPM2ProvisionerState;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Test suite for {@link InMemoryProvisioningSessionStore}.
+ */
+public class InMemoryProvisioningSessionStoreTest {
+
+    private static final long TTL = 600;
+    private static final long MAXIMUM_SIZE = 100;
+    private static final byte[] NONCE = new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+    private static final byte[] OTHER_NONCE = new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 11};
+    private static final byte[] IDENTITY_CLAIM = new byte[] {42, 43, 44};
+
+    private CrudManager<TPM2ProvisionerState> crudManager;
+
+    /**
+     * Creates a fresh mock of the database fallback for each test.
+     */
+    @BeforeMethod
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        crudManager = mock(CrudManager.class);
+    }
+
+    /**
+     * Tests that a stored session is found by its nonce and no longer found once removed.
+     */
+    @Test
+    public void testPutGetRemove() {
+        InMemoryProvisioningSessionStore store =
+                new InMemoryProvisioningSessionStore(TTL, MAXIMUM_SIZE, null);
+        ProvisioningSession session = new ProvisioningSession(NONCE, IDENTITY_CLAIM);
+
+        store.put(session);
+        assertSame(store.get(NONCE.clone()), session);
+        assertNull(store.get(OTHER_NONCE));
+        assertEquals(store.size(), 1);
+
+        store.remove(session);
+        assertNull(store.get(NONCE));
+        assertEquals(store.size(), 0);
+    }
+
+    /**
+     * Tests that sessions are no longer found once their time to live has passed.
+     */
+    @Test
+    public void testExpiry() {
+        InMemoryProvisioningSessionStore store =
+                new InMemoryProvisioningSessionStore(0, MAXIMUM_SIZE, null);
+        store.put(new ProvisioningSession(NONCE, IDENTITY_CLAIM));
+
+        assertNull(store.get(NONCE));
+        assertEquals(store.size(), 0);
+    }
+
+    /**
+     * Tests that no more than the maximum number of sessions are kept in memory.
+     */
+    @Test
+    public void testMaximumSize() {
+        InMemoryProvisioningSessionStore store =
+                new InMemoryProvisioningSessionStore(TTL, 1, null);
+        store.put(new ProvisioningSession(NONCE, IDENTITY_CLAIM));
+        store.put(new ProvisioningSession(OTHER_NONCE, IDENTITY_CLAIM));
+
+        assertEquals(store.size(), 1);
+        assertNull(store.get(NONCE));
+    }
+
+    /**
+     * Tests that the database is not used when no fallback is configured, and that sessions are
+     * persisted, restored and deleted when it is.
+     *
+     * @throws IOException if the nonce can not be read
+     */
+    @Test
+    public void testDatabaseFallback() throws IOException {
+        new InMemoryProvisioningSessionStore(TTL, MAXIMUM_SIZE, null)
+                .put(new ProvisioningSession(NONCE, IDENTITY_CLAIM));
+        verifyZeroInteractions(crudManager);
+
+        InMemoryProvisioningSessionStore store =
+                new InMemoryProvisioningSessionStore(TTL, MAXIMUM_SIZE, crudManager);
+        store.put(new ProvisioningSession(NONCE, IDENTITY_CLAIM));
+        ArgumentCaptor<TPM2ProvisionerState> saved =
+                ArgumentCaptor.forClass(TPM2ProvisionerState.class);
+        verify(crudManager).save(saved.capture());
+        assertEquals(saved.getValue().getIdentityClaim(), IDENTITY_CLAIM);
+
+        // a session opened on another node is only found in the database
+        InMemoryProvisioningSessionStore otherNode =
+                new InMemoryProvisioningSessionStore(TTL, MAXIMUM_SIZE, crudManager);
+        long id = new DataInputStream(new ByteArrayInputStream(NONCE)).readLong();
+        when(crudManager.get(id)).thenReturn(saved.getValue());
+
+        ProvisioningSession restored = otherNode.get(NONCE);
+        assertFalse(restored.isParsed());
+        assertEquals(restored.getNonce(), NONCE);
+        assertEquals(restored.getIdentityClaim(), IDENTITY_CLAIM);
+
+        otherNode.remove(restored);
+        verify(crudManager).delete(any(TPM2ProvisionerState.class));
+    }
+}
@@ -43,6 +43,7 @@ import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.cert.X509Certificate;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -341,6 +342,48 @@ public class SupplyChainValidationServiceImplTest extends SpringPersistenceTest
         verify(supplyChainValidationSummaryDBManager).save(any(SupplyChainValidationSummary.class));
     }
 
+    /**
+     * Pc validation enabled for a base and several delta credentials, which are validated
+     * concurrently and all associated with the device.
+     */
+    @Test
+    public final void testMultiplePlatformCredentialValidation() {
+        final int deltaCount = 8;
+        when(policy.isEcValidationEnabled()).thenReturn(false);
+        when(policy.isPcValidationEnabled()).thenReturn(true);
+        when(policy.isPcAttributeValidationEnabled()).thenReturn(false);
+        when(policy.isExpiredCertificateValidationEnabled()).thenReturn(true);
+
+        Set<PlatformCredential> chain = new HashSet<>();
+        chain.add(mockPlatformCredential(true, new Date(0)));
+        for (int i = 1; i <= deltaCount; i++) {
+            chain.add(mockPlatformCredential(false, new Date(i)));
+        }
+        doReturn(new AppraisalStatus(PASS, "")).when(supplyChainCredentialValidator)
+                .validatePlatformCredential(any(PlatformCredential.class), any(KeyStore.class),
+                        eq(true));
+
+        Assert.assertEquals(service.validateSupplyChain(ec, chain,
+                device).getOverallValidationResult(), PASS);
+        verify(supplyChainCredentialValidator, times(deltaCount + 1))
+                .validatePlatformCredential(any(PlatformCredential.class), any(KeyStore.class),
+                        eq(true));
+        for (PlatformCredential credential : chain) {
+            verify(credential).setDevice(device);
+            verify(certificateManager).update(credential);
+        }
+    }
+
+    private PlatformCredential mockPlatformCredential(final boolean base,
+                                                      final Date beginValidity) {
+        PlatformCredential credential = mock(PlatformCredential.class);
+        when(credential.getId()).thenReturn(UUID.randomUUID());
+        when(credential.isBase()).thenReturn(base);
+        when(credential.getBeginValidity()).thenReturn(beginValidity);
+        when(credential.getIssuerSorted()).thenReturn("STMicroelectronics NV");
+        return credential;
+    }
+
 
 
     /**
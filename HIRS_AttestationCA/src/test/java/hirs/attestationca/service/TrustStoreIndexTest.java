@@ -0,0 +1,97 @@
+package hirs.attestationca.service;
+
+import hirs.data.persist.certificate.Certificate;
+import hirs.data.persist.certificate.CertificateAuthorityCredential;
+import hirs.persist.CertificateManager;
+import hirs.persist.CertificateStamp;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the {@link TrustStoreIndex}.
+ */
+public class TrustStoreIndexTest {
+    private static final String ROOT_SUBJECT = "CN=Root CA,O=Example";
+    private static final String ROOT_SUBJECT_SORTED = "cn=root ca,o=example";
+    private static final byte[] ROOT_SKI = new byte[] {0x0A, 0x0B, 0x0C};
+    private static final String INTERMEDIATE_SUBJECT = "CN=Intermediate CA,O=Example";
+
+    private CertificateManager certificateManager;
+    private CertificateAuthorityCredential root;
+    private CertificateAuthorityCredential intermediate;
+
+    /**
+     * Sets up a trust store holding a root and an intermediate CA.
+     */
+    @BeforeMethod
+    public void setUp() {
+        root = mockCa(ROOT_SUBJECT, ROOT_SUBJECT_SORTED, ROOT_SKI);
+        intermediate = mockCa(INTERMEDIATE_SUBJECT, null, null);
+
+        Set<Certificate> trustStore = new HashSet<>();
+        trustStore.add(root);
+        trustStore.add(intermediate);
+        certificateManager = mock(CertificateManager.class);
+        when(certificateManager.get(any(CertificateAuthorityCredential.Selector.class)))
+                .thenReturn(trustStore);
+    }
+
+    /**
+     * Tests that CA credentials are found by subject key identifier, subject and sorted subject.
+     */
+    @Test
+    public void testLookups() {
+        TrustStoreIndex.Snapshot snapshot = new TrustStoreIndex(certificateManager)
+                .getSnapshot();
+
+        Assert.assertSame(snapshot.bySubjectKeyIdentifier("0A0B0C"), root);
+        Assert.assertSame(snapshot.bySubjectKeyIdentifier("0a0b0c"), root);
+        Assert.assertNull(snapshot.bySubjectKeyIdentifier("0a0b0d"));
+        Assert.assertEquals(snapshot.bySubject(INTERMEDIATE_SUBJECT).size(), 1);
+        Assert.assertTrue(snapshot.bySubject(INTERMEDIATE_SUBJECT).contains(intermediate));
+        Assert.assertTrue(snapshot.bySubjectSorted(ROOT_SUBJECT_SORTED).contains(root));
+        Assert.assertTrue(snapshot.bySubject("CN=Unknown").isEmpty());
+    }
+
+    /**
+     * Tests that the trust store is loaded once, until the stamp of the CA credentials changes.
+     */
+    @Test
+    public void testReloadedWhenStampChanges() {
+        when(certificateManager.getStamp(CertificateAuthorityCredential.class))
+                .thenReturn(new CertificateStamp(2, new Date(1000), null))
+                .thenReturn(new CertificateStamp(2, new Date(1000), null))
+                .thenReturn(new CertificateStamp(1, new Date(1000), new Date(2000)));
+        TrustStoreIndex index = new TrustStoreIndex(certificateManager);
+
+        TrustStoreIndex.Snapshot snapshot = index.getSnapshot();
+        Assert.assertSame(index.getSnapshot(), snapshot);
+        verify(certificateManager, times(1))
+                .get(any(CertificateAuthorityCredential.Selector.class));
+
+        Assert.assertNotSame(index.getSnapshot(), snapshot);
+        verify(certificateManager, times(2))
+                .get(any(CertificateAuthorityCredential.Selector.class));
+    }
+
+    private static CertificateAuthorityCredential mockCa(final String subject,
+                                                         final String subjectSorted,
+                                                         final byte[] ski) {
+        CertificateAuthorityCredential ca = mock(CertificateAuthorityCredential.class);
+        when(ca.getSubject()).thenReturn(subject);
+        when(ca.getSubjectSorted()).thenReturn(subjectSorted);
+        when(ca.getSubjectKeyIdentifier()).thenReturn(ski);
+        return ca;
+    }
+}
@@ -0,0 +1,94 @@
+package hirs.attestationca.portal.datatables;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import hirs.persist.OrderedListCursor;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@link OrderedListCursor}s returned with the pages of data tables, so that a table
+ * moving to its next page can be served by keyset pagination. A table only receives an opaque
+ * token for each cursor, which it sends back with the request for the next page.
+ * <p>
+ * A cursor is only used for the page that directly follows the page it was returned with, with
+ * the same ordering, search and page length; any other request falls back to offset pagination.
+ */
+final class DataTableCursors {
+
+    private static final long TIME_TO_LIVE_MINUTES = 30;
+    private static final long MAXIMUM_SIZE = 10000;
+
+    private static final Cache<String, Entry> CURSORS = CacheBuilder.newBuilder()
+            .expireAfterAccess(TIME_TO_LIVE_MINUTES, TimeUnit.MINUTES)
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+
+    private DataTableCursors() {
+        // do not construct
+    }
+
+    /**
+     * Keeps the cursor positioned after the given page, if it may have a next page.
+     *
+     * @param cursor the cursor returned with the page, may be null
+     * @param input the request for the page
+     * @param pageSize the number of records of the page
+     * @return the token identifying the cursor, or null if there is no next page
+     */
+    static String register(final OrderedListCursor cursor, final DataTableInput input,
+                           final int pageSize) {
+        if (cursor == null || pageSize < input.getLength()) {
+            return null;
+        }
+        String token = UUID.randomUUID().toString();
+        CURSORS.put(token, new Entry(cursor, input.getStart() + pageSize, signature(input)));
+        return token;
+    }
+
+    /**
+     * Finds the cursor positioned before the page requested by the given input.
+     *
+     * @param input the request for the page
+     * @return the cursor, or null if the request does not follow a page served with a cursor
+     */
+    static OrderedListCursor lookup(final DataTableInput input) {
+        if (input.getCursor() == null) {
+            return null;
+        }
+        Entry entry = CURSORS.getIfPresent(input.getCursor());
+        if (entry == null || entry.start != input.getStart()
+                || !entry.signature.equals(signature(input))) {
+            return null;
+        }
+        return entry.cursor;
+    }
+
+    private static String signature(final DataTableInput input) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(input.getLength()).append('|').append(input.getSearch().getValue());
+        for (Order order : input.getOrder()) {
+            sb.append('|').append(order.getColumn()).append(order.getDir());
+        }
+        for (Column column : input.getColumns()) {
+            sb.append('|').append(column.getData());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A cursor along with the request it may be used for.
+     */
+    private static final class Entry {
+        private final OrderedListCursor cursor;
+        private final int start;
+        private final String signature;
+
+        Entry(final OrderedListCursor cursor, final int start, final String signature) {
+            this.cursor = cursor;
+            this.start = start;
+            this.signature = signature;
+        }
+    }
+}
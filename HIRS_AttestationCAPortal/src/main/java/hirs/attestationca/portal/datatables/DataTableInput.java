@@ -91,6 +91,12 @@ public class DataTableInput {
     @NotEmpty
     private List<Column> columns = new ArrayList<>();
 
+    /**
+     * Token of the cursor returned with the previous page, if any. Allows the page that directly
+     * follows the previous page to be retrieved without counting the preceding records.
+     */
+    private String cursor;
+
 
     /**
      *
@@ -190,6 +196,22 @@ public class DataTableInput {
         this.columns.addAll(columns);
     }
 
+    /**
+     * Gets the token of the cursor returned with the previous page.
+     * @return the cursor token, or null if none was sent
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Sets the token of the cursor returned with the previous page.
+     * @param cursor the cursor token
+     */
+    public void setCursor(final String cursor) {
+        this.cursor = cursor;
+    }
+
     /**
      *
      * @return a {@link Map} of {@link Column} indexed by name
@@ -290,6 +312,7 @@ public class DataTableInput {
                 + ", search=" + search
                 + ", order=" + order
                 + ", columns=" + columns
+                + ", cursor=" + cursor
                 + '}';
     }
 }
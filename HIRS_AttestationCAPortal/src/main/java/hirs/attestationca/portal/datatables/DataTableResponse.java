@@ -17,6 +17,7 @@ public final class DataTableResponse<T> {
     private int draw;
     private long recordsTotal;
     private long recordsFiltered;
+    private String cursor;
 
     /**
      * Default constructor.
@@ -26,7 +27,8 @@ public final class DataTableResponse<T> {
     }
 
     /**
-     * Builds a data table response using a FilteredRecordList.
+     * Builds a data table response using a FilteredRecordList. If the list was retrieved with
+     * keyset pagination, the response holds the token of the cursor for the next page.
      * @param recordList the filtered record list
      * @param inputQuery the data table input (used for draw)
      */
@@ -34,6 +36,8 @@ public final class DataTableResponse<T> {
                              final DataTableInput inputQuery) {
         this(recordList, inputQuery.getDraw(),
                 recordList.getRecordsTotal(), recordList.getRecordsFiltered());
+        this.cursor = DataTableCursors.register(recordList.getNextCursor(), inputQuery,
+                recordList.size());
     }
 
     /**
@@ -117,4 +121,20 @@ public final class DataTableResponse<T> {
     public void setRecordsFiltered(final long recordsFiltered) {
         this.recordsFiltered = recordsFiltered;
     }
+
+    /**
+     * Gets the token of the cursor to send with the request for the next page.
+     * @return the cursor token, or null if the next page is retrieved by offset
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Sets the token of the cursor to send with the request for the next page.
+     * @param cursor the cursor token
+     */
+    public void setCursor(final String cursor) {
+        this.cursor = cursor;
+    }
 }
@@ -3,11 +3,13 @@ package hirs.attestationca.portal.datatables;
 import org.hibernate.Criteria;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import hirs.FilteredRecordsList;
 import hirs.persist.CriteriaModifier;
+import hirs.persist.OrderedListCursor;
 import hirs.persist.OrderedListQuerier;
 
 /**
@@ -45,7 +47,9 @@ public final class OrderedListQueryDataTableAdapter<T> {
     }
 
     /**
-     * Gets the ordered list of records.
+     * Gets the ordered list of records. The first page, and pages requested with the cursor
+     * returned with the previous page, are retrieved by keyset pagination; the counts of such
+     * pages are the counts computed for the first page.
      * @param clazz the type of objects to query for
      * @param dbManager the db manager to execute the actual query
      * @param dataTableInput the JS DataTable query abstraction
@@ -59,20 +63,65 @@ public final class OrderedListQueryDataTableAdapter<T> {
         final String orderColumnName,
         final CriteriaModifier criteriaModifier) {
 
+        Map<String, Boolean> searchableColumnMap = getSearchableColumns(dataTableInput);
+        boolean isAscending = isAscending(dataTableInput);
+
+        // the first page, and any page directly following a page served with a cursor, are
+        // retrieved by keyset pagination so that their cost does not depend on the page depth
+        OrderedListCursor cursor = DataTableCursors.lookup(dataTableInput);
+        if (dataTableInput.getLength() > 0
+                && (cursor != null || dataTableInput.getStart() == 0)) {
+            return dbManager.getOrderedListAfter(clazz, orderColumnName, isAscending,
+                    cursor, dataTableInput.getLength(),
+                    dataTableInput.getSearch().getValue(),
+                    searchableColumnMap, criteriaModifier);
+        }
+
+        return dbManager.getOrderedList(clazz, orderColumnName, isAscending,
+                dataTableInput.getStart(), dataTableInput.getLength(),
+                dataTableInput.getSearch().getValue(),
+                searchableColumnMap, criteriaModifier);
+    }
+
+    /**
+     * Gets the ordered list of records, holding only the given properties of each record. Pages
+     * requested with the cursor returned with the previous page are retrieved by keyset
+     * pagination, other pages by offset.
+     * @param clazz the type of objects to query for
+     * @param dbManager the db manager to execute the actual query
+     * @param dataTableInput the JS DataTable query abstraction
+     * @param orderColumnName the name of the column (java object field name) to query on
+     * @param criteriaModifier the criteria modifier
+     * @param properties the properties of the records to retrieve
+     * @param <T> the parameter type
+     * @return the filtered record list, with a map of property values per record
+     */
+    public static <T> FilteredRecordsList<Map<String, Object>> getProjectedList(
+        final Class<? extends T> clazz, final OrderedListQuerier<T> dbManager,
+        final DataTableInput dataTableInput, final String orderColumnName,
+        final CriteriaModifier criteriaModifier, final Collection<String> properties) {
+
+        return dbManager.getProjectedList(clazz, orderColumnName,
+                isAscending(dataTableInput), DataTableCursors.lookup(dataTableInput),
+                dataTableInput.getStart(), dataTableInput.getLength(),
+                dataTableInput.getSearch().getValue(),
+                getSearchableColumns(dataTableInput), criteriaModifier, properties);
+    }
+
+    private static Map<String, Boolean> getSearchableColumns(
+        final DataTableInput dataTableInput) {
         Map<String, Boolean> searchableColumnMap = new HashMap<>();
         for (Column column : dataTableInput.getColumns()) {
             searchableColumnMap.put(column.getData(), column.isSearchable());
         }
+        return searchableColumnMap;
+    }
 
+    private static boolean isAscending(final DataTableInput dataTableInput) {
         List<Order> orders = dataTableInput.getOrder();
-        boolean isAscending = true;
         if (!CollectionUtils.isEmpty(orders)) {
-            isAscending = orders.get(0).isAscending();
+            return orders.get(0).isAscending();
         }
-
-        return dbManager.getOrderedList(clazz, orderColumnName, isAscending,
-                dataTableInput.getStart(), dataTableInput.getLength(),
-                dataTableInput.getSearch().getValue(),
-                searchableColumnMap, criteriaModifier);
+        return true;
     }
 }
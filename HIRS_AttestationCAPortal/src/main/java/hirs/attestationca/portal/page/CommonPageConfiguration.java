@@ -2,6 +2,10 @@ package hirs.attestationca.portal.page;
 
 import hirs.attestationca.portal.datatables.DataTableView;
 import hirs.attestationca.portal.persistence.PersistenceConfiguration;
+import hirs.attestationca.portal.upload.BulkUploadService;
+import hirs.attestationca.portal.upload.UploadArchives;
+import hirs.persist.CertificateManager;
+import hirs.persist.ReferenceManifestManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -66,7 +70,8 @@ public class CommonPageConfiguration {
 
     /**
      * Creates a Spring Resolver for Multi-part form uploads. This is required
-     * for spring controllers to be able to process Spring MultiPartFiles
+     * for spring controllers to be able to process Spring MultiPartFiles. An upload may be
+     * as large as the archives of an upload may expand to.
      *
      * @return bean to handle multipart form requests
      */
@@ -74,7 +79,22 @@ public class CommonPageConfiguration {
     public CommonsMultipartResolver multipartResolver() {
         CommonsMultipartResolver resolver = new CommonsMultipartResolver();
         resolver.setDefaultEncoding(StandardCharsets.UTF_8.name());
+        resolver.setMaxUploadSize(UploadArchives.MAX_TOTAL_SIZE);
         return resolver;
     }
 
+    /**
+     * Creates the service storing bulk uploads of credentials and RIMs in the background.
+     *
+     * @param certificateManager the certificate manager
+     * @param referenceManifestManager the RIM manager
+     * @return bean to store bulk uploads
+     */
+    @Bean
+    public BulkUploadService bulkUploadService(
+            final CertificateManager certificateManager,
+            final ReferenceManifestManager referenceManifestManager) {
+        return new BulkUploadService(certificateManager, referenceManifestManager);
+    }
+
 }
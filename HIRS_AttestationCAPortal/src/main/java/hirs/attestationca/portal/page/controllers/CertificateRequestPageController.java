@@ -7,17 +7,32 @@ import hirs.attestationca.portal.page.Page;
 import hirs.attestationca.portal.page.PageController;
 import hirs.attestationca.portal.page.PageMessages;
 import hirs.attestationca.portal.page.params.NoPageParams;
+import hirs.attestationca.portal.upload.BulkUploadJob;
+import hirs.attestationca.portal.upload.BulkUploadService;
+import hirs.attestationca.portal.upload.MalformedArchiveException;
+import hirs.attestationca.portal.upload.UploadArchives;
+import hirs.attestationca.portal.upload.UploadedFile;
 import hirs.attestationca.portal.util.CertificateStringMapBuilder;
+import hirs.attestationca.portal.util.ContentZipWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
 import java.net.URISyntaxException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.time.DateUtils;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -41,6 +56,7 @@ import hirs.persist.OrderedListQuerier;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -58,6 +74,7 @@ public class CertificateRequestPageController extends PageController<NoPageParam
 
     private final CertificateManager certificateManager;
     private final OrderedListQuerier<Certificate> dataTableQuerier;
+    private final BulkUploadService bulkUploadService;
 
     private CertificateAuthorityCredential certificateAuthorityCredential;
 
@@ -68,6 +85,18 @@ public class CertificateRequestPageController extends PageController<NoPageParam
     private static final String ENDORSEMENTCREDENTIAL = "endorsement-key-credentials";
     private static final String ISSUEDCERTIFICATES = "issued-certificates";
 
+    private static final String HOLDER_SERIAL_NUMBER = "holderSerialNumber";
+    private static final String PLATFORM_CHAIN_TYPE = "platformChainType";
+    private static final List<String> TRUST_CHAIN_PROPERTIES = Arrays.asList(
+            "issuer", "subject", "beginValidity", "endValidity");
+    private static final List<String> ENDORSEMENT_CREDENTIAL_PROPERTIES = Arrays.asList(
+            "device.name", "issuer", "credentialType", "manufacturer", "model", "version",
+            "beginValidity", "endValidity");
+    private static final List<String> PLATFORM_CREDENTIAL_PROPERTIES = Arrays.asList(
+            "device.name", "issuer", "credentialType", PLATFORM_CHAIN_TYPE, "manufacturer",
+            "model", "version", "platformSerial", "beginValidity", "endValidity",
+            HOLDER_SERIAL_NUMBER);
+
     /**
      * Model attribute name used by initPage for the aca cert info.
      */
@@ -79,15 +108,18 @@ public class CertificateRequestPageController extends PageController<NoPageParam
      * @param certificateManager the certificate manager
      * @param crudManager the CRUD manager for certificates
      * @param acaCertificate the ACA's X509 certificate
+     * @param bulkUploadService the service storing bulk uploads
      */
     @Autowired
     public CertificateRequestPageController(
             final CertificateManager certificateManager,
             final CrudManager<Certificate> crudManager,
-            final X509Certificate acaCertificate) {
+            final X509Certificate acaCertificate,
+            final BulkUploadService bulkUploadService) {
         super(Page.TRUST_CHAIN);
         this.certificateManager = certificateManager;
         this.dataTableQuerier = crudManager;
+        this.bulkUploadService = bulkUploadService;
 
         try {
             certificateAuthorityCredential
@@ -167,7 +199,7 @@ public class CertificateRequestPageController extends PageController<NoPageParam
             produces = MediaType.APPLICATION_JSON_VALUE,
             method = RequestMethod.GET)
     @SuppressWarnings("unchecked")
-    public DataTableResponse<? extends Certificate> getTableData(
+    public DataTableResponse<?> getTableData(
             @PathVariable("certificateType") final String certificateType,
             final DataTableInput input) {
 
@@ -195,34 +227,47 @@ public class CertificateRequestPageController extends PageController<NoPageParam
             }
         };
 
-        FilteredRecordsList records
-                = OrderedListQueryDataTableAdapter.getOrderedList(
+        List<String> listedProperties = getListedProperties(certificateType);
+        if (listedProperties == null) {
+            FilteredRecordsList records
+                    = OrderedListQueryDataTableAdapter.getOrderedList(
+                            getCertificateClass(certificateType), dataTableQuerier,
+                            input, orderColumnName, criteriaModifier);
+            LOGGER.debug("Returning list of size: " + records.size());
+            return new DataTableResponse<>(records, input);
+        }
+
+        // only the columns displayed by the table are queried, not the whole certificates
+        FilteredRecordsList<Map<String, Object>> records
+                = OrderedListQueryDataTableAdapter.getProjectedList(
                         getCertificateClass(certificateType), dataTableQuerier,
-                        input, orderColumnName, criteriaModifier);
+                        input, orderColumnName, criteriaModifier, listedProperties);
 
         // special parsing for platform credential
         // Add the EndorsementCredential for each PlatformCredential based on the
         // serial number. (pc.HolderSerialNumber = ec.SerialNumber)
-        if (certificateType.equals(PLATFORMCREDENTIAL)) {
-            EndorsementCredential associatedEC;
-
-            if (!records.isEmpty()) {
-                // loop all the platform certificates
-                for (int i = 0; i < records.size(); i++) {
-                    PlatformCredential pc = (PlatformCredential) records.get(i);
-                    // find the EC using the PC's "holder serial number"
-                    associatedEC = EndorsementCredential
-                            .select(certificateManager)
-                            .bySerialNumber(pc.getHolderSerialNumber())
-                            .getCertificate();
-
-                    if (associatedEC != null) {
-                        LOGGER.debug("EC ID for holder s/n " + pc
-                                .getHolderSerialNumber() + " = " + associatedEC.getId());
-                    }
-
-                    pc.setEndorsementCredential(associatedEC);
+        if (certificateType.equals(PLATFORMCREDENTIAL) && !records.isEmpty()) {
+            // resolve the ECs of the whole page at once rather than one query per PC
+            List<BigInteger> holderSerialNumbers = new ArrayList<>(records.size());
+            for (Map<String, Object> record : records) {
+                holderSerialNumbers.add((BigInteger) record.get(HOLDER_SERIAL_NUMBER));
+            }
+            Map<BigInteger, EndorsementCredential> associatedECs = certificateManager
+                    .getEndorsementCredentialsBySerialNumber(holderSerialNumbers);
+
+            for (Map<String, Object> record : records) {
+                Object holderSerialNumber = record.get(HOLDER_SERIAL_NUMBER);
+                EndorsementCredential associatedEC = associatedECs.get(holderSerialNumber);
+                Map<String, Object> endorsementCredential = null;
+
+                if (associatedEC != null) {
+                    LOGGER.debug("EC ID for holder s/n " + holderSerialNumber
+                            + " = " + associatedEC.getId());
+                    endorsementCredential = Collections.singletonMap("id", associatedEC.getId());
                 }
+
+                record.put("endorsementCredential", endorsementCredential);
+                record.put("platformType", record.remove(PLATFORM_CHAIN_TYPE));
             }
         }
 
@@ -350,6 +395,86 @@ public class CertificateRequestPageController extends PageController<NoPageParam
 
     }
 
+    /**
+     * Handles request to download many certs at once, by streaming them into a ZIP archive
+     * written to the response stream. The certs are read over a database cursor, so that the
+     * whole trust chain or all the credentials of a manufacturer can be exported.
+     *
+     * @param certificateType String containing the certificate type
+     * @param device the name of the device the certs are associated with, null for any
+     * @param manufacturer the manufacturer of the credentials, null for any
+     * @param from the earliest upload date of the certs, null for any
+     * @param to the latest upload date of the certs (inclusive), null for any
+     * @param response the response object (needed to update the header with the
+     * file name)
+     * @throws java.io.IOException when writing to response output stream
+     */
+    @RequestMapping(value = "/{certificateType}/bulk-download", method = RequestMethod.GET)
+    public void bulkDownload(
+            @PathVariable("certificateType") final String certificateType,
+            @RequestParam(required = false) final String device,
+            @RequestParam(required = false) final String manufacturer,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final Date to,
+            final HttpServletResponse response)
+            throws IOException {
+        LOGGER.info("Handling request to download all " + certificateType);
+
+        final Class<? extends Certificate> certificateClass;
+        try {
+            certificateClass = getCertificateClass(certificateType);
+        } catch (IllegalArgumentException ex) {
+            LOGGER.error("Failed to export certificates", ex);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if ((device != null && !hasDeviceTableToJoin(certificateType))
+                || (manufacturer != null && !hasManufacturer(certificateType))) {
+            LOGGER.warn("Unsupported filter for the export of " + certificateType);
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        CriteriaModifier criteriaModifier = new CriteriaModifier() {
+            @Override
+            public void modify(final Criteria criteria) {
+                criteria.add(Restrictions.isNull(Certificate.ARCHIVE_FIELD));
+                if (device != null) {
+                    criteria.createAlias("device", "device");
+                    criteria.add(Restrictions.eq("device.name", device));
+                }
+                if (manufacturer != null) {
+                    criteria.add(Restrictions.eq("manufacturer", manufacturer));
+                }
+                if (from != null) {
+                    criteria.add(Restrictions.ge("createTime", from));
+                }
+                if (to != null) {
+                    criteria.add(Restrictions.lt("createTime", DateUtils.addDays(to, 1)));
+                }
+            }
+        };
+
+        // Set filename for download.
+        response.setHeader("Content-Disposition",
+                "attachment;filename=\"" + certificateType + ".zip\"");
+        response.setContentType("application/zip");
+
+        // write the certs to the output stream, named after their serial number and id
+        String prefix = certificateClass.getSimpleName() + "_";
+        try (ContentZipWriter writer = new ContentZipWriter(response.getOutputStream(),
+                Certificate.CONTENT_DIGEST_FIELD,
+                record -> prefix + record.get(Certificate.SERIAL_NUMBER_FIELD)
+                        + "_" + record.get("id") + ".cer")) {
+            long count = dataTableQuerier.streamProjectedList(certificateClass,
+                    criteriaModifier, Arrays.asList(Certificate.SERIAL_NUMBER_FIELD,
+                            Certificate.CONTENT_DIGEST_FIELD), writer);
+            LOGGER.info(String.format("Exported %d %s", count, certificateType));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
     /**
      * Handles request to download the ACA cert by writing it to the response
      * stream for download.
@@ -410,6 +535,70 @@ public class CertificateRequestPageController extends PageController<NoPageParam
         return redirectTo(getCertificatePage(certificateType), new NoPageParams(), model, attr);
     }
 
+    /**
+     * Submits a bulk upload of credentials, storing them in the background. Archives (ZIP, TAR,
+     * TAR.GZ) among the files are expanded, and the progress of the upload is polled with
+     * {@link #getBulkUpload(String)}.
+     *
+     * @param certificateType String containing the certificate type
+     * @param files the files and archives to process
+     * @return the job recording the progress of the upload, or a bad request response if an
+     * archive is malformed
+     * @throws IOException if a file or an archive cannot be read
+     */
+    @ResponseBody
+    @RequestMapping(value = "/{certificateType}/bulk-upload", method = RequestMethod.POST,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkUploadJob> bulkUpload(
+            @PathVariable("certificateType") final String certificateType,
+            @RequestParam("file") final MultipartFile[] files) throws IOException {
+        List<UploadedFile> uploadedFiles;
+        try {
+            uploadedFiles = UploadArchives.expand(files);
+        } catch (MalformedArchiveException e) {
+            LOGGER.warn(String.format("Rejected bulk upload of %s", certificateType), e);
+            return ResponseEntity.badRequest().build();
+        }
+        LOGGER.info(String.format("Received bulk upload of %d %s",
+                uploadedFiles.size(), certificateType));
+
+        switch (certificateType) {
+            case PLATFORMCREDENTIAL:
+                return ResponseEntity.ok(bulkUploadService.submitCertificates(
+                        PlatformCredential.class,
+                        file -> new PlatformCredential(file.getContent()), uploadedFiles));
+            case ENDORSEMENTCREDENTIAL:
+                return ResponseEntity.ok(bulkUploadService.submitCertificates(
+                        EndorsementCredential.class,
+                        file -> new EndorsementCredential(file.getContent()), uploadedFiles));
+            case TRUSTCHAIN:
+                return ResponseEntity.ok(bulkUploadService.submitCertificates(
+                        CertificateAuthorityCredential.class,
+                        file -> new CertificateAuthorityCredential(file.getContent()),
+                        uploadedFiles));
+            default:
+                throw new IllegalArgumentException(
+                        String.format("Unknown certificate type: %s", certificateType));
+        }
+    }
+
+    /**
+     * Gets the progress of a bulk upload of credentials.
+     *
+     * @param id the id of the bulk upload job
+     * @return the job, or a not found response if the job is unknown or no longer kept
+     */
+    @ResponseBody
+    @RequestMapping(value = "/{certificateType}/bulk-upload/{id}", method = RequestMethod.GET,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkUploadJob> getBulkUpload(@PathVariable("id") final String id) {
+        BulkUploadJob job = bulkUploadService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
     /**
      * Get the page based on the certificate type.
      *
@@ -472,6 +661,37 @@ public class CertificateRequestPageController extends PageController<NoPageParam
         return hasDevice;
     }
 
+    /**
+     * Get flag indicating if the certificates of a type have a manufacturer to filter them by.
+     *
+     * @param certificateType String containing the certificate type
+     * @return true if the certificates have a manufacturer
+     */
+    private static boolean hasManufacturer(final String certificateType) {
+        return certificateType.equals(PLATFORMCREDENTIAL)
+                || certificateType.equals(ENDORSEMENTCREDENTIAL);
+    }
+
+    /**
+     * Get the properties of the certificates displayed by the table of a certificate type.
+     *
+     * @param certificateType String containing the certificate type
+     * @return the displayed properties, or null if the table displays the certificates
+     * themselves (issued certificates list the platform credentials they reference)
+     */
+    private static List<String> getListedProperties(final String certificateType) {
+        switch (certificateType) {
+            case TRUSTCHAIN:
+                return TRUST_CHAIN_PROPERTIES;
+            case ENDORSEMENTCREDENTIAL:
+                return ENDORSEMENT_CREDENTIAL_PROPERTIES;
+            case PLATFORMCREDENTIAL:
+                return PLATFORM_CREDENTIAL_PROPERTIES;
+            default:
+                return null;
+        }
+    }
+
     /**
      * Gets the certificate by ID.
      *
@@ -512,17 +732,17 @@ public class CertificateRequestPageController extends PageController<NoPageParam
     }
 
     /**
-     * Gets the certificate by the hash code of its bytes. Looks for both
+     * Gets the certificate by the SHA-256 digest of its bytes. Looks for both
      * archived and unarchived certificates.
      *
      * @param certificateType String containing the certificate type
-     * @param certificateHash the hash of the certificate's bytes
+     * @param contentDigest the digest of the certificate's bytes
      * @param certificateManager the certificate manager to query
      * @return the certificate or null if none is found
      */
-    private Certificate getCertificateByHash(
+    private Certificate getCertificateByContentDigest(
             final String certificateType,
-            final int certificateHash,
+            final String contentDigest,
             final CertificateManager certificateManager) {
 
         switch (certificateType) {
@@ -530,19 +750,19 @@ public class CertificateRequestPageController extends PageController<NoPageParam
                 return PlatformCredential
                         .select(certificateManager)
                         .includeArchived()
-                        .byHashCode(certificateHash)
+                        .byContentDigest(contentDigest)
                         .getCertificate();
             case ENDORSEMENTCREDENTIAL:
                 return EndorsementCredential
                         .select(certificateManager)
                         .includeArchived()
-                        .byHashCode(certificateHash)
+                        .byContentDigest(contentDigest)
                         .getCertificate();
             case TRUSTCHAIN:
                 return CertificateAuthorityCredential
                         .select(certificateManager)
                         .includeArchived()
-                        .byHashCode(certificateHash)
+                        .byContentDigest(contentDigest)
                         .getCertificate();
             default:
                 return null;
@@ -658,9 +878,9 @@ public class CertificateRequestPageController extends PageController<NoPageParam
 
         // look for an identical certificate in the database
         try {
-            existingCertificate = getCertificateByHash(
+            existingCertificate = getCertificateByContentDigest(
                     certificateType,
-                    certificate.getCertificateHash(),
+                    certificate.getContentDigest(),
                     certificateManager);
         } catch (DBManagerException e) {
             final String failMessage = "Querying for existing certificate failed ("
@@ -716,7 +936,7 @@ public class CertificateRequestPageController extends PageController<NoPageParam
                     }**/
                 }
 
-                certificateManager.save(certificate);
+                certificateManager.saveOrGetExisting(certificate);
 
                 final String successMsg
                         = String.format("New certificate successfully uploaded (%s): ", fileName);
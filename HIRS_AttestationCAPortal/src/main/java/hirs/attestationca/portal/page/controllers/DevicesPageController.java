@@ -17,18 +17,17 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.apache.logging.log4j.LogManager.getLogger;
-import org.hibernate.criterion.Restrictions;
 import hirs.FilteredRecordsList;
 import hirs.data.persist.Device;
-import hirs.data.persist.certificate.Certificate;
-import hirs.data.persist.certificate.DeviceAssociatedCertificate;
-import hirs.persist.DBManager;
+import hirs.persist.CertificateManager;
+import hirs.persist.CertificateSummary;
 import hirs.persist.DeviceManager;
 
 /**
@@ -39,21 +38,21 @@ import hirs.persist.DeviceManager;
 public class DevicesPageController extends PageController<NoPageParams> {
 
     private final DeviceManager deviceManager;
-    private final DBManager<Certificate> certificateDBManager;
+    private final CertificateManager certificateManager;
     private static final Logger LOGGER = getLogger(DevicesPageController.class);
 
     /**
      * Constructor providing the Page's display and routing specification.
      * @param deviceManager the device manager
-     * @param certificateDBManager the certificate DB manager
+     * @param certificateManager the certificate manager
      */
     @Autowired
     public DevicesPageController(
             final DeviceManager deviceManager,
-            final DBManager<Certificate> certificateDBManager) {
+            final CertificateManager certificateManager) {
         super(DEVICES);
         this.deviceManager = deviceManager;
-        this.certificateDBManager = certificateDBManager;
+        this.certificateManager = certificateManager;
     }
 
     /**
@@ -95,63 +94,46 @@ public class DevicesPageController extends PageController<NoPageParams> {
     }
 
     /**
-     * Returns the list of devices combined with the certificates.
+     * Returns the list of devices combined with the summaries of their certificates.
      * @param deviceList list containing the devices
      * @return a record list after the device and certificate was mapped together.
      */
     private FilteredRecordsList<HashMap<String, Object>> retrieveDevicesAndAssociatedCertificates(
             final FilteredRecordsList<Device> deviceList) {
         FilteredRecordsList<HashMap<String, Object>> records = new FilteredRecordsList<>();
-        // hashmap containing the device-certificate relationship
-        HashMap<String, Object> deviceCertMap = new HashMap<>();
-        Device device;
-        Certificate certificate;
 
         // parse if there is a Device
         if (!deviceList.isEmpty()) {
-            // get a list of Certificates that contains the device IDs from the list
-            List<Certificate> certificateList = certificateDBManager.getList(
-                    Certificate.class,
-                    Restrictions.in("device.id", getDevicesIds(deviceList).toArray()));
-
-            // loop all the devices
-            for (int i = 0; i < deviceList.size(); i++) {
-                // hashmap containing the list of certificates based on the certificate type
-                HashMap<String, List<Object>> certificatePropertyMap = new HashMap<>();
-
-                device = deviceList.get(i);
+            // the device-certificate relationship, with the certificates of each device
+            // grouped by certificate type
+            Map<UUID, HashMap<String, Object>> deviceCertMaps = new LinkedHashMap<>();
+            for (Device device : deviceList) {
+                HashMap<String, Object> deviceCertMap = new HashMap<>();
                 deviceCertMap.put("device", device);
+                deviceCertMaps.put(device.getId(), deviceCertMap);
+            }
 
-                // loop all the certificates and combined the ones that match the ID
-                for (int j = 0; j < certificateList.size(); j++) {
-                    certificate = certificateList.get(j);
-
-                    // set the certificate if it's the same ID
-                    if (device.getId().equals(
-                                ((DeviceAssociatedCertificate) certificate).getDevice().getId())) {
-                        String certificateId = certificate.getClass().getSimpleName();
-                        // create a new list for the certificate type if does not exist
-                        // else add it to the current certificate type list
-                        List<Object> certificateListFromMap
-                                = certificatePropertyMap.get(certificateId);
-                        if (certificateListFromMap != null) {
-                            certificateListFromMap.add(certificate);
-                        } else {
-                            certificatePropertyMap.put(certificateId,
-                                    new ArrayList<>(Collections.singletonList(certificate)));
-                        }
-                    }
+            // only the listed fields of the certificates of the devices are queried
+            for (CertificateSummary certificate : certificateManager
+                    .getCertificateSummariesByDeviceIds(getDevicesIds(deviceList))) {
+                HashMap<String, Object> deviceCertMap =
+                        deviceCertMaps.get(certificate.getDeviceId());
+                @SuppressWarnings("unchecked")
+                List<Object> certificateListFromMap =
+                        (List<Object>) deviceCertMap.get(certificate.getCertificateType());
+                if (certificateListFromMap == null) {
+                    certificateListFromMap = new ArrayList<>();
+                    deviceCertMap.put(certificate.getCertificateType(), certificateListFromMap);
                 }
-
-                // add the device-certificate map to the record
-                deviceCertMap.putAll(certificatePropertyMap);
-                records.add(new HashMap<>(deviceCertMap));
-                deviceCertMap.clear();
+                certificateListFromMap.add(certificate);
             }
+
+            records.addAll(deviceCertMaps.values());
         }
         // set pagination values
         records.setRecordsTotal(deviceList.getRecordsTotal());
         records.setRecordsFiltered(deviceList.getRecordsFiltered());
+        records.setNextCursor(deviceList.getNextCursor());
         return records;
     }
 
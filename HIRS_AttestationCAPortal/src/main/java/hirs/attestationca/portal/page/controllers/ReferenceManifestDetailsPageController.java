@@ -5,6 +5,7 @@ import hirs.data.persist.EventLogMeasurements;
 import hirs.data.persist.ReferenceManifest;
 import hirs.data.persist.SupportReferenceManifest;
 import hirs.data.persist.SwidResource;
+import hirs.data.persist.SwidResourceEntry;
 import hirs.data.persist.certificate.CertificateAuthorityCredential;
 import hirs.persist.CertificateManager;
 import hirs.persist.DBManagerException;
@@ -47,8 +48,6 @@ public class ReferenceManifestDetailsPageController
 
     private final ReferenceManifestManager referenceManifestManager;
     private final CertificateManager certificateManager;
-    private static final ReferenceManifestValidator RIM_VALIDATOR
-            = new ReferenceManifestValidator();
     private static final Logger LOGGER
             = LogManager.getLogger(ReferenceManifestDetailsPageController.class);
 
@@ -224,7 +223,20 @@ public class ReferenceManifestDetailsPageController
         data.put("rimLinkHash", baseRim.getRimLinkHash());
         data.put("rimType", baseRim.getRimType());
 
-        List<SwidResource> resources = baseRim.parseResource();
+        if (baseRim.getSwidResourceEntries().isEmpty() && baseRim.indexSwidResources()) {
+            // RIMs stored before the resources were indexed are indexed once, on first display
+            try {
+                referenceManifestManager.update(baseRim);
+            } catch (DBManagerException ex) {
+                LOGGER.error("Failed to index the resources of Base RIM", ex);
+            }
+        }
+        List<SwidResource> resources = new ArrayList<>();
+        for (SwidResourceEntry entry : baseRim.getSwidResourceEntries()) {
+            resources.add(new SwidResource(entry));
+        }
+        // validators hold the result of their last validation, so one is used per request
+        ReferenceManifestValidator rimValidator = new ReferenceManifestValidator();
         TCGEventLog logProcessor = null;
         ReferenceManifest support = null;
 
@@ -246,9 +258,9 @@ public class ReferenceManifestDetailsPageController
         for (SwidResource swidRes : resources) {
             if (support != null && swidRes.getName()
                     .equals(support.getFileName())) {
-                RIM_VALIDATOR.validateSupportRimHash(support.getRimBytes(),
+                rimValidator.validateSupportRimHash(support.getRimBytes(),
                         swidRes.getHashValue());
-                if (RIM_VALIDATOR.isSupportRimValid()) {
+                if (rimValidator.isSupportRimValid()) {
                     data.put("supportRimHashValid", true);
                 } else {
                     data.put("supportRimHashValid", false);
@@ -264,16 +276,16 @@ public class ReferenceManifestDetailsPageController
         data.put("associatedRim", baseRim.getAssociatedRim());
         data.put("swidFiles", resources);
 
-        RIM_VALIDATOR.validateXmlSignature(new ByteArrayInputStream(baseRim.getRimBytes()));
-        data.put("signatureValid", RIM_VALIDATOR.isSignatureValid());
-        data.put("skID", RIM_VALIDATOR.getSubjectKeyIdentifier());
+        rimValidator.validateXmlSignature(new ByteArrayInputStream(baseRim.getRimBytes()));
+        data.put("signatureValid", rimValidator.isSignatureValid());
+        data.put("skID", rimValidator.getSubjectKeyIdentifier());
         try {
             Set<CertificateAuthorityCredential> certificates =
                     CertificateAuthorityCredential.select(certificateManager)
                             .getCertificates();
             for (CertificateAuthorityCredential cert : certificates) {
                 if (Arrays.equals(cert.getEncodedPublicKey(),
-                        RIM_VALIDATOR.getPublicKey().getEncoded())) {
+                        rimValidator.getPublicKey().getEncoded())) {
                     data.put("issuerID", cert.getId().toString());
                 }
             }
@@ -341,7 +353,7 @@ public class ReferenceManifestDetailsPageController
         LinkedList<TpmPcrEvent> tpmPcrEvents = new LinkedList<>();
         TCGEventLog measurementsProcess;
         if (measurements != null) {
-            measurementsProcess = new TCGEventLog((measurements.getRimBytes()));
+            measurementsProcess = new TCGEventLog(measurements.getRimBytes(), true);
             for (TpmPcrEvent tpe : logProcessor.getEventList()) {
                 if (!tpe.eventCompare(
                         measurementsProcess.getEventByNumber(
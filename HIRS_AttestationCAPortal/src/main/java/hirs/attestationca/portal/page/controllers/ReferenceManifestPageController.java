@@ -10,37 +10,49 @@ import hirs.FilteredRecordsList;
 import hirs.attestationca.portal.datatables.OrderedListQueryDataTableAdapter;
 import hirs.attestationca.portal.page.PageMessages;
 import hirs.attestationca.portal.page.params.NoPageParams;
+import hirs.attestationca.portal.upload.BulkUploadJob;
+import hirs.attestationca.portal.upload.BulkUploadService;
+import hirs.attestationca.portal.upload.MalformedArchiveException;
+import hirs.attestationca.portal.upload.ReferenceManifestAssociations;
+import hirs.attestationca.portal.upload.UploadArchives;
+import hirs.attestationca.portal.upload.UploadedFile;
 import hirs.data.persist.BaseReferenceManifest;
 import hirs.data.persist.SupportReferenceManifest;
 import hirs.persist.DBManagerException;
 import hirs.persist.ReferenceManifestManager;
 import hirs.persist.CriteriaModifier;
 import hirs.data.persist.ReferenceManifest;
-import hirs.data.persist.SwidResource;
 import hirs.data.persist.certificate.Certificate;
+import hirs.attestationca.portal.util.ContentZipWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
 
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.lang3.time.DateUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import org.hibernate.Criteria;
 import org.hibernate.criterion.Restrictions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -59,10 +71,12 @@ public class ReferenceManifestPageController
         extends PageController<NoPageParams> {
 
     private static final String BIOS_RELEASE_DATE_FORMAT = "yyyy-MM-dd";
-    private static final String LOG_FILE_PATTERN = "([^\\s]+(\\.(?i)(rimpcr|rimel|bin|log))$)";
+    private static final List<String> LISTED_PROPERTIES = Arrays.asList(
+            "tagId", "rimType", "platformManufacturer", "platformModel", "swidTagVersion");
 
     private final BiosDateValidator biosValidator;
     private final ReferenceManifestManager referenceManifestManager;
+    private final BulkUploadService bulkUploadService;
     private static final Logger LOGGER
             = LogManager.getLogger(ReferenceManifestPageController.class);
 
@@ -112,12 +126,15 @@ public class ReferenceManifestPageController
      * Constructor providing the Page's display and routing specification.
      *
      * @param referenceManifestManager the reference manifest manager
+     * @param bulkUploadService the service storing bulk uploads
      */
     @Autowired
     public ReferenceManifestPageController(
-            final ReferenceManifestManager referenceManifestManager) {
+            final ReferenceManifestManager referenceManifestManager,
+            final BulkUploadService bulkUploadService) {
         super(Page.REFERENCE_MANIFESTS);
         this.referenceManifestManager = referenceManifestManager;
+        this.bulkUploadService = bulkUploadService;
         this.biosValidator = new BiosDateValidator(BIOS_RELEASE_DATE_FORMAT);
     }
 
@@ -147,7 +164,7 @@ public class ReferenceManifestPageController
     @RequestMapping(value = "/list",
             produces = MediaType.APPLICATION_JSON_VALUE,
             method = RequestMethod.GET)
-    public DataTableResponse<ReferenceManifest> getTableData(
+    public DataTableResponse<Map<String, Object>> getTableData(
             final DataTableInput input) {
         LOGGER.debug("Handling request for summary list: " + input);
 
@@ -162,11 +179,12 @@ public class ReferenceManifestPageController
 
             }
         };
-        FilteredRecordsList<ReferenceManifest> records
-                = OrderedListQueryDataTableAdapter.getOrderedList(
+        // only the columns displayed by the table are queried, not the whole manifests
+        FilteredRecordsList<Map<String, Object>> records
+                = OrderedListQueryDataTableAdapter.getProjectedList(
                         ReferenceManifest.class,
                         referenceManifestManager,
-                        input, orderColumnName, criteriaModifier);
+                        input, orderColumnName, criteriaModifier, LISTED_PROPERTIES);
 
         LOGGER.debug("Returning list of size: " + records.size());
         return new DataTableResponse<>(records, input);
@@ -187,18 +205,11 @@ public class ReferenceManifestPageController
             final RedirectAttributes attr) throws URISyntaxException, Exception {
         Map<String, Object> model = new HashMap<>();
         PageMessages messages = new PageMessages();
-        String fileName;
-        Pattern logPattern = Pattern.compile(LOG_FILE_PATTERN);
-        Matcher matcher;
         boolean supportRIM = false;
-        BaseReferenceManifest base;
-        SupportReferenceManifest support;
 
         // loop through the files
         for (MultipartFile file : files) {
-            fileName = file.getOriginalFilename();
-            matcher = logPattern.matcher(fileName);
-            supportRIM = matcher.matches();
+            supportRIM = ReferenceManifestAssociations.isSupportRim(file.getOriginalFilename());
 
             //Parse reference manifests
             ReferenceManifest rim = parseRIM(file, supportRIM, messages);
@@ -206,52 +217,11 @@ public class ReferenceManifestPageController
             //Store only if it was parsed
             if (rim != null) {
                 if (supportRIM) {
-                    // look for associated base/support
-                    Set<BaseReferenceManifest> rims = BaseReferenceManifest
-                            .select(referenceManifestManager).getRIMs();
-                    support = (SupportReferenceManifest) rim;
-                    // update information for associated support rim
-                    for (BaseReferenceManifest dbRim : rims) {
-                        for (SwidResource swid : dbRim.parseResource()) {
-                            if (swid.getName().equals(rim.getFileName())) {
-                                support.setSwidTagVersion(dbRim.getSwidTagVersion());
-                                support.setPlatformManufacturer(dbRim.getPlatformManufacturer());
-                                support.setPlatformModel(dbRim.getPlatformModel());
-                                support.setTagId(dbRim.getTagId());
-                                support.setAssociatedRim(dbRim.getId());
-                                support.setUpdated(true);
-                                break;
-                            }
-                        }
-                    }
+                    ReferenceManifestAssociations.associate(referenceManifestManager,
+                            (SupportReferenceManifest) rim);
                 } else {
-                    base = (BaseReferenceManifest) rim;
-
-                    for (SwidResource swid : base.parseResource()) {
-                        support = SupportReferenceManifest.select(referenceManifestManager)
-                                .byFileName(swid.getName()).getRIM();
-                        if (support != null) {
-                            base.setAssociatedRim(support.getId());
-                            if (support.isUpdated()) {
-                                // this is separate because I want to break if we found it
-                                // instead of finding it, it is uptodate but still search
-                                break;
-                            } else {
-                                support.setSwidTagVersion(base.getSwidTagVersion());
-                                support.setPlatformManufacturer(base.getPlatformManufacturer());
-                                support.setPlatformModel(base.getPlatformModel());
-                                support.setTagId(base.getTagId());
-                                support.setUpdated(true);
-                                try {
-                                    referenceManifestManager.update(support);
-                                } catch (DBManagerException dbmEx) {
-                                    LOGGER.error(String.format("Couldn't update Support RIM "
-                                                    + "%s with associated UUID %s", rim.getTagId(),
-                                            support.getId()), dbmEx);
-                                }
-                            }
-                        }
-                    }
+                    ReferenceManifestAssociations.associate(referenceManifestManager,
+                            (BaseReferenceManifest) rim);
                 }
 
                 storeManifest(file.getOriginalFilename(),
@@ -268,6 +238,49 @@ public class ReferenceManifestPageController
                 new NoPageParams(), model, attr);
     }
 
+    /**
+     * Submits a bulk upload of reference manifests, storing them in the background. Archives
+     * (ZIP, TAR, TAR.GZ) among the files are expanded, and the progress of the upload is polled
+     * with {@link #getBulkUpload(String)}.
+     *
+     * @param files the files and archives to process
+     * @return the job recording the progress of the upload, or a bad request response if an
+     * archive is malformed
+     * @throws IOException if a file or an archive cannot be read
+     */
+    @ResponseBody
+    @RequestMapping(value = "/bulk-upload", method = RequestMethod.POST,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkUploadJob> bulkUpload(
+            @RequestParam("file") final MultipartFile[] files) throws IOException {
+        List<UploadedFile> uploadedFiles;
+        try {
+            uploadedFiles = UploadArchives.expand(files);
+        } catch (MalformedArchiveException e) {
+            LOGGER.warn("Rejected bulk upload of RIMs", e);
+            return ResponseEntity.badRequest().build();
+        }
+        LOGGER.info(String.format("Received bulk upload of %d RIMs", uploadedFiles.size()));
+        return ResponseEntity.ok(bulkUploadService.submitReferenceManifests(uploadedFiles));
+    }
+
+    /**
+     * Gets the progress of a bulk upload of reference manifests.
+     *
+     * @param id the id of the bulk upload job
+     * @return the job, or a not found response if the job is unknown or no longer kept
+     */
+    @ResponseBody
+    @RequestMapping(value = "/bulk-upload/{id}", method = RequestMethod.GET,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkUploadJob> getBulkUpload(@PathVariable("id") final String id) {
+        BulkUploadJob job = bulkUploadService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
     /**
      * Archives (soft delete) the Reference Integrity Manifest entry.
      *
@@ -355,6 +368,66 @@ public class ReferenceManifestPageController
         }
     }
 
+    /**
+     * Handles request to download many RIMs at once, by streaming them into a ZIP archive
+     * written to the response stream. The RIMs are read over a database cursor, so that all the
+     * RIMs of a manufacturer can be exported.
+     *
+     * @param rimType the type of the RIMs (Base or Support), null for any
+     * @param manufacturer the platform manufacturer of the RIMs, null for any
+     * @param from the earliest upload date of the RIMs, null for any
+     * @param to the latest upload date of the RIMs (inclusive), null for any
+     * @param response the response object (needed to update the header with the
+     * file name)
+     * @throws java.io.IOException when writing to response output stream
+     */
+    @RequestMapping(value = "/bulk-download", method = RequestMethod.GET)
+    public void bulkDownload(
+            @RequestParam(required = false) final String rimType,
+            @RequestParam(required = false) final String manufacturer,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final Date to,
+            final HttpServletResponse response)
+            throws IOException {
+        LOGGER.info("Handling request to download all RIMs");
+
+        CriteriaModifier criteriaModifier = new CriteriaModifier() {
+            @Override
+            public void modify(final Criteria criteria) {
+                criteria.add(Restrictions.isNull(Certificate.ARCHIVE_FIELD));
+                if (rimType != null) {
+                    criteria.add(Restrictions.eq("rimType", rimType));
+                }
+                if (manufacturer != null) {
+                    criteria.add(Restrictions.eq("platformManufacturer", manufacturer));
+                }
+                if (from != null) {
+                    criteria.add(Restrictions.ge("createTime", from));
+                }
+                if (to != null) {
+                    criteria.add(Restrictions.lt("createTime", DateUtils.addDays(to, 1)));
+                }
+            }
+        };
+
+        // Set filename for download.
+        response.setHeader("Content-Disposition",
+                "attachment;filename=\"reference-manifests.zip\"");
+        response.setContentType("application/zip");
+
+        // write the RIMs to the output stream, prefixed by their id as file names may repeat
+        try (ContentZipWriter writer = new ContentZipWriter(response.getOutputStream(),
+                ReferenceManifest.CONTENT_DIGEST_FIELD,
+                record -> record.get("id") + "_" + record.get("fileName"))) {
+            long count = referenceManifestManager.streamProjectedList(ReferenceManifest.class,
+                    criteriaModifier, Arrays.asList("fileName",
+                            ReferenceManifest.CONTENT_DIGEST_FIELD), writer);
+            LOGGER.info(String.format("Exported %d RIMs", count));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
     /**
      * This method takes the parameter and looks for this information in the
      * Database.
@@ -443,13 +516,13 @@ public class ReferenceManifestPageController
                 existingManifest = SupportReferenceManifest
                         .select(referenceManifestManager)
                         .includeArchived()
-                        .byHashCode(referenceManifest.getRimHash())
+                        .byContentDigest(referenceManifest.getContentDigest())
                         .getRIM();
             } else {
                 existingManifest = BaseReferenceManifest
                         .select(referenceManifestManager)
                         .includeArchived()
-                        .byHashCode(referenceManifest.getRimHash())
+                        .byContentDigest(referenceManifest.getContentDigest())
                         .getRIM();
             }
         } catch (DBManagerException e) {
@@ -463,7 +536,7 @@ public class ReferenceManifestPageController
         try {
             // save the new certificate if no match is found
             if (existingManifest == null) {
-                referenceManifestManager.save(referenceManifest);
+                referenceManifestManager.saveOrGetExisting(referenceManifest);
 
                 final String successMsg = String.format("RIM successfully uploaded (%s): ",
                         fileName);
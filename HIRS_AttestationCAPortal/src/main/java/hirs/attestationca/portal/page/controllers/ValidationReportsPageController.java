@@ -6,16 +6,21 @@ import hirs.attestationca.portal.datatables.OrderedListQueryDataTableAdapter;
 import hirs.attestationca.portal.page.PageController;
 import hirs.attestationca.portal.page.params.NoPageParams;
 import hirs.data.persist.certificate.Certificate;
+import hirs.utils.Callback;
+import org.apache.commons.lang3.time.DateUtils;
 import org.apache.logging.log4j.Logger;
 import static org.apache.logging.log4j.LogManager.getLogger;
 import org.hibernate.Criteria;
 import org.hibernate.criterion.Restrictions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
 
@@ -25,6 +30,21 @@ import hirs.data.persist.SupplyChainValidationSummary;
 import hirs.persist.CriteriaModifier;
 import hirs.persist.CrudManager;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
 /**
  * Controller for the Validation Reports page.
  */
@@ -36,6 +56,12 @@ public class ValidationReportsPageController extends PageController<NoPageParams
 
     private static final Logger LOGGER = getLogger(ValidationReportsPageController.class);
 
+    private static final String CSV_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ssZ";
+    private static final String CSV_HEADER = "id,createTime,device,overallValidationResult,"
+            + "message\n";
+    private static final List<String> CSV_PROPERTIES = Arrays.asList(
+            "createTime", "device.name", "overallValidationResult", "message");
+
     /**
      * Constructor providing the Page's display and routing specification.
      * @param supplyChainValidatorSummaryManager the manager
@@ -97,4 +123,114 @@ public class ValidationReportsPageController extends PageController<NoPageParams
 
         return new DataTableResponse<>(records, input);
     }
+
+    /**
+     * Handles request to download validation summaries, by streaming them as CSV into a ZIP
+     * archive written to the response stream. The summaries are read over a database cursor,
+     * so that a year of summaries can be exported.
+     *
+     * @param device the name of the validated device, null for any
+     * @param from the earliest date of the summaries, null for any
+     * @param to the latest date of the summaries (inclusive), null for any
+     * @param response the response object (needed to update the header with the
+     * file name)
+     * @throws java.io.IOException when writing to response output stream
+     */
+    @RequestMapping(value = "download", method = RequestMethod.GET)
+    public void download(
+            @RequestParam(required = false) final String device,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final Date to,
+            final HttpServletResponse response)
+            throws IOException {
+        LOGGER.info("Handling request to download validation summaries");
+
+        CriteriaModifier criteriaModifier = new CriteriaModifier() {
+            @Override
+            public void modify(final Criteria criteria) {
+                criteria.add(Restrictions.isNull(Certificate.ARCHIVE_FIELD));
+                criteria.createAlias("device", "device");
+                if (device != null) {
+                    criteria.add(Restrictions.eq("device.name", device));
+                }
+                if (from != null) {
+                    criteria.add(Restrictions.ge("createTime", from));
+                }
+                if (to != null) {
+                    criteria.add(Restrictions.lt("createTime", DateUtils.addDays(to, 1)));
+                }
+            }
+        };
+
+        // Set filename for download.
+        response.setHeader("Content-Disposition",
+                "attachment;filename=\"validation-reports.zip\"");
+        response.setContentType("application/zip");
+
+        final DateFormat dateFormat = new SimpleDateFormat(CSV_DATE_FORMAT);
+        try (ZipOutputStream zip = new ZipOutputStream(response.getOutputStream())) {
+            zip.putNextEntry(new ZipEntry("validation-reports.csv"));
+            final Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+            writer.write(CSV_HEADER);
+            long count = supplyChainValidatorSummaryManager.streamProjectedList(
+                    SupplyChainValidationSummary.class, criteriaModifier, CSV_PROPERTIES,
+                    new Callback<Map<String, Object>, Void>() {
+                        @Override
+                        public Void call(final Map<String, Object> record) {
+                            try {
+                                writer.write(toCsvLine(record, dateFormat));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            return null;
+                        }
+                    });
+            writer.flush();
+            zip.closeEntry();
+            LOGGER.info(String.format("Exported %d validation summaries", count));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Formats a validation summary as a line of CSV.
+     *
+     * @param record the property values of the summary
+     * @param dateFormat the format of the date of the summary
+     * @return the CSV line
+     */
+    private static String toCsvLine(final Map<String, Object> record,
+                                    final DateFormat dateFormat) {
+        Map<?, ?> device = (Map<?, ?>) record.get("device");
+        Object deviceName = null;
+        if (device != null) {
+            deviceName = device.get("name");
+        }
+        Object createTime = record.get("createTime");
+        if (createTime != null) {
+            createTime = dateFormat.format((Date) createTime);
+        }
+        return String.join(",", csvField(record.get("id")), csvField(createTime),
+                csvField(deviceName), csvField(record.get("overallValidationResult")),
+                csvField(record.get("message"))) + "\n";
+    }
+
+    /**
+     * Quotes a CSV field if it holds a separator, a quote or a line break.
+     *
+     * @param value the value of the field
+     * @return the CSV field
+     */
+    private static String csvField(final Object value) {
+        if (value == null) {
+            return "";
+        }
+        String field = value.toString();
+        if (field.contains(",") || field.contains("\"") || field.contains("\n")
+                || field.contains("\r")) {
+            return "\"" + field.replace("\"", "\"\"") + "\"";
+        }
+        return field;
+    }
 }
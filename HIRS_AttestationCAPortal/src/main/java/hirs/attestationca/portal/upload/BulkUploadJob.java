@@ -0,0 +1,200 @@
+package hirs.attestationca.portal.upload;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The progress of a bulk upload, holding the outcome of each file processed so far. Jobs are
+ * updated by the threads of the {@link BulkUploadService} and serialized to JSON for the portal
+ * to poll.
+ */
+public final class BulkUploadJob {
+
+    /**
+     * The outcome of storing an uploaded file.
+     */
+    public enum Status {
+        /**
+         * The file was parsed and stored.
+         */
+        STORED,
+
+        /**
+         * An identical archived entity was found and restored.
+         */
+        RESTORED,
+
+        /**
+         * An identical entity is already stored, or the file was uploaded more than once.
+         */
+        DUPLICATE,
+
+        /**
+         * The file could not be parsed or stored.
+         */
+        FAILED
+    }
+
+    /**
+     * The outcome of a single uploaded file.
+     */
+    public static final class Outcome {
+
+        private final String fileName;
+        private final Status status;
+        private final String message;
+
+        /**
+         * Constructor.
+         *
+         * @param fileName the name of the file
+         * @param status the outcome of the file
+         * @param message a description of the outcome
+         */
+        Outcome(final String fileName, final Status status, final String message) {
+            this.fileName = fileName;
+            this.status = status;
+            this.message = message;
+        }
+
+        /**
+         * Getter for the name of the file.
+         *
+         * @return the file name
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * Getter for the outcome of the file.
+         *
+         * @return the status
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Getter for the description of the outcome.
+         *
+         * @return the message
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final int total;
+    private final AtomicInteger processed = new AtomicInteger();
+    private final List<Outcome> outcomes = new ArrayList<>();
+    private volatile boolean done;
+
+    /**
+     * Constructor.
+     *
+     * @param total the number of files of the upload
+     */
+    BulkUploadJob(final int total) {
+        this.total = total;
+    }
+
+    /**
+     * Getter for the id the progress of the job is polled with.
+     *
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Getter for the number of files of the upload.
+     *
+     * @return the number of files
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Getter for the number of files processed so far.
+     *
+     * @return the number of processed files
+     */
+    public int getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * Getter for the outcomes of the files processed so far.
+     *
+     * @return a copy of the outcomes, in the order the files were processed
+     */
+    public List<Outcome> getOutcomes() {
+        synchronized (outcomes) {
+            return new ArrayList<>(outcomes);
+        }
+    }
+
+    /**
+     * Whether all files of the upload have been processed.
+     *
+     * @return true if the job is done
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Records the outcome of a file.
+     *
+     * @param fileName the name of the file
+     * @param status the outcome of the file
+     * @param message a description of the outcome
+     */
+    void record(final String fileName, final Status status, final String message) {
+        synchronized (outcomes) {
+            outcomes.add(new Outcome(fileName, status, message));
+        }
+        processed.incrementAndGet();
+    }
+
+    /**
+     * Records the same outcome for each of the given files that has no outcome yet, such as the
+     * files left unprocessed when an upload fails unexpectedly. A file name given more than once
+     * is taken as that many files, each of which may already have its own outcome.
+     *
+     * @param fileNames the names of the files of the upload
+     * @param status the outcome of the files
+     * @param message a description of the outcome, followed by the name of each file
+     */
+    void recordUnprocessed(final List<String> fileNames, final Status status,
+                           final String message) {
+        synchronized (outcomes) {
+            Map<String, Integer> recorded = new HashMap<>();
+            for (Outcome outcome : outcomes) {
+                recorded.merge(outcome.getFileName(), 1, Integer::sum);
+            }
+            for (String fileName : fileNames) {
+                if (recorded.getOrDefault(fileName, 0) > 0) {
+                    recorded.merge(fileName, -1, Integer::sum);
+                } else {
+                    record(fileName, status, String.format("%s (%s)", message, fileName));
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the job as done.
+     */
+    void finish() {
+        done = true;
+    }
+}
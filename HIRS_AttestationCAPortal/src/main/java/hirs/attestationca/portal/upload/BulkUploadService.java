@@ -0,0 +1,598 @@
+package hirs.attestationca.portal.upload;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import hirs.attestationca.portal.upload.BulkUploadJob.Status;
+import hirs.data.persist.ArchivableEntity;
+import hirs.data.persist.BaseReferenceManifest;
+import hirs.data.persist.ReferenceManifest;
+import hirs.data.persist.SupportReferenceManifest;
+import hirs.data.persist.certificate.Certificate;
+import hirs.data.persist.certificate.PlatformCredential;
+import hirs.persist.CertificateManager;
+import hirs.persist.CertificateSelector;
+import hirs.persist.ContentBlobHolder;
+import hirs.persist.DBManagerException;
+import hirs.persist.ReferenceManifestManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Stores large uploads of credentials and RIMs in the background. The files of an upload are
+ * processed in batches: the files of a batch are parsed in parallel, the stored entities
+ * identical to any of them are found with a single query on their content digests, and the new
+ * entities are inserted in a single transaction using JDBC batching. The outcome of each file is
+ * recorded in the {@link BulkUploadJob} returned when the upload is submitted.
+ */
+public class BulkUploadService {
+
+    /**
+     * Parses an uploaded file into an entity.
+     *
+     * @param <E> the type of the entity
+     */
+    public interface Parser<E> {
+
+        /**
+         * Parses an uploaded file.
+         *
+         * @param file the uploaded file
+         * @return the entity
+         * @throws IOException if the file cannot be parsed
+         */
+        E parse(UploadedFile file) throws IOException;
+    }
+
+    /**
+     * Number of files parsed, checked for duplicates and inserted together.
+     */
+    public static final int BATCH_SIZE = 500;
+
+    private static final Logger LOGGER = LogManager.getLogger(BulkUploadService.class);
+
+    /**
+     * Number of files parsed concurrently, across all uploads.
+     */
+    private static final int PARSE_THREADS = Math.max(2,
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Number of files waiting for a parsing thread. Once the queue is full, further files are
+     * parsed by the thread of their upload.
+     */
+    private static final int PARSE_QUEUE_SIZE = PARSE_THREADS * 4;
+
+    /**
+     * Number of uploads stored concurrently.
+     */
+    private static final int JOB_THREADS = 2;
+
+    /**
+     * Number of uploads waiting to be stored. Once the queue is full, further uploads are
+     * rejected.
+     */
+    private static final int JOB_QUEUE_SIZE = 16;
+
+    private static final int KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * Number of finished uploads whose progress is kept, and how long it is kept once the upload
+     * is finished. The progress of unfinished uploads, of which there are at most
+     * {@link #JOB_THREADS} plus {@link #JOB_QUEUE_SIZE}, is always kept.
+     */
+    private static final int MAXIMUM_RETAINED_JOBS = 100;
+    private static final int JOB_RETENTION_HOURS = 1;
+
+    private final CertificateManager certificateManager;
+    private final ReferenceManifestManager referenceManifestManager;
+    private final ExecutorService jobExecutor;
+    private final ExecutorService parseExecutor;
+    private final Map<String, BulkUploadJob> unfinishedJobs = new ConcurrentHashMap<>();
+    private final Cache<String, BulkUploadJob> finishedJobs = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_RETAINED_JOBS)
+            .expireAfterWrite(JOB_RETENTION_HOURS, TimeUnit.HOURS)
+            .build();
+
+    /**
+     * Constructor.
+     *
+     * @param certificateManager the certificate manager
+     * @param referenceManifestManager the RIM manager
+     */
+    public BulkUploadService(final CertificateManager certificateManager,
+                             final ReferenceManifestManager referenceManifestManager) {
+        this.certificateManager = certificateManager;
+        this.referenceManifestManager = referenceManifestManager;
+        this.jobExecutor = createExecutor(JOB_THREADS, JOB_QUEUE_SIZE, "bulk-upload-%d",
+                new ThreadPoolExecutor.AbortPolicy());
+        this.parseExecutor = createExecutor(PARSE_THREADS, PARSE_QUEUE_SIZE,
+                "bulk-upload-parser-%d", new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Submits an upload of certificates of the given type.
+     *
+     * @param certificateType the type of the certificates
+     * @param parser parses the uploaded files into certificates
+     * @param files the uploaded files, with any archives already expanded
+     * @param <T> the type of the certificates
+     * @return the job recording the progress of the upload
+     */
+    public <T extends Certificate> BulkUploadJob submitCertificates(
+            final Class<T> certificateType, final Parser<T> parser,
+            final List<UploadedFile> files) {
+        return submit(files, job -> store(job, files, parser,
+                new CertificateStore<>(certificateType)));
+    }
+
+    /**
+     * Submits an upload of RIMs. The support RIMs are stored before the base RIMs, so that the
+     * base RIMs are associated with the support RIMs of the same upload.
+     *
+     * @param files the uploaded files, with any archives already expanded
+     * @return the job recording the progress of the upload
+     */
+    public BulkUploadJob submitReferenceManifests(final List<UploadedFile> files) {
+        List<UploadedFile> supportFiles = new ArrayList<>();
+        List<UploadedFile> baseFiles = new ArrayList<>();
+        for (UploadedFile file : files) {
+            if (ReferenceManifestAssociations.isSupportRim(file.getName())) {
+                supportFiles.add(file);
+            } else {
+                baseFiles.add(file);
+            }
+        }
+        return submit(files, job -> {
+            store(job, supportFiles,
+                    file -> new SupportReferenceManifest(file.getName(), file.getContent()),
+                    new SupportRimStore());
+            store(job, baseFiles,
+                    file -> new BaseReferenceManifest(file.getName(), file.getContent()),
+                    new BaseRimStore());
+        });
+    }
+
+    /**
+     * Gets the job of an upload.
+     *
+     * @param id the id of the job
+     * @return the job, or null if there is no such job or it is no longer kept
+     */
+    public BulkUploadJob getJob(final String id) {
+        BulkUploadJob job = unfinishedJobs.get(id);
+        if (job == null) {
+            job = finishedJobs.getIfPresent(id);
+        }
+        return job;
+    }
+
+    private BulkUploadJob submit(final List<UploadedFile> files,
+                                 final Consumer<BulkUploadJob> work) {
+        BulkUploadJob job = new BulkUploadJob(files.size());
+        unfinishedJobs.put(job.getId(), job);
+        try {
+            jobExecutor.execute(() -> {
+                try {
+                    work.accept(job);
+                } catch (RuntimeException e) {
+                    LOGGER.error(String.format("Bulk upload %s failed", job.getId()), e);
+                    List<String> fileNames = new ArrayList<>();
+                    for (UploadedFile file : files) {
+                        fileNames.add(file.getName());
+                    }
+                    job.recordUnprocessed(fileNames, Status.FAILED,
+                            "The upload failed before the file was stored: " + e.getMessage());
+                } finally {
+                    finish(job);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Rejected bulk upload: too many uploads in progress");
+            for (UploadedFile file : files) {
+                job.record(file.getName(), Status.FAILED,
+                        "Too many uploads in progress, try again later");
+            }
+            finish(job);
+        }
+        return job;
+    }
+
+    // the job is kept as finished before it is dropped from the unfinished jobs
+    private void finish(final BulkUploadJob job) {
+        job.finish();
+        finishedJobs.put(job.getId(), job);
+        unfinishedJobs.remove(job.getId());
+    }
+
+    private <E extends ArchivableEntity & ContentBlobHolder> void store(
+            final BulkUploadJob job, final List<UploadedFile> files,
+            final Parser<? extends E> parser, final EntityStore<E> entityStore) {
+        for (List<UploadedFile> batch : Lists.partition(files, BATCH_SIZE)) {
+            storeBatch(job, parse(job, batch, parser), entityStore);
+        }
+    }
+
+    private <E> Map<UploadedFile, E> parse(final BulkUploadJob job,
+                                           final List<UploadedFile> batch,
+                                           final Parser<? extends E> parser) {
+        Map<UploadedFile, Future<? extends E>> futures = new LinkedHashMap<>();
+        for (UploadedFile file : batch) {
+            futures.put(file, parseExecutor.submit(() -> parser.parse(file)));
+        }
+
+        Map<UploadedFile, E> parsed = new LinkedHashMap<>();
+        for (Map.Entry<UploadedFile, Future<? extends E>> future : futures.entrySet()) {
+            String fileName = future.getKey().getName();
+            try {
+                parsed.put(future.getKey(), future.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while parsing uploaded files", e);
+            } catch (ExecutionException e) {
+                final String failMessage = String.format(
+                        "Failed to parse uploaded file (%s): ", fileName);
+                LOGGER.error(failMessage, e.getCause());
+                job.record(fileName, Status.FAILED, failMessage + e.getCause().getMessage());
+            }
+        }
+        return parsed;
+    }
+
+    private <E extends ArchivableEntity & ContentBlobHolder> void storeBatch(
+            final BulkUploadJob job, final Map<UploadedFile, E> parsed,
+            final EntityStore<E> entityStore) {
+        // drop the files uploaded more than once
+        Map<String, UploadedFile> files = new LinkedHashMap<>();
+        Map<String, E> entities = new LinkedHashMap<>();
+        for (Map.Entry<UploadedFile, E> entry : parsed.entrySet()) {
+            String digest = entry.getValue().getContentDigest();
+            if (files.putIfAbsent(digest, entry.getKey()) == null) {
+                entities.put(digest, entry.getValue());
+            } else {
+                job.record(entry.getKey().getName(), Status.DUPLICATE, String.format(
+                        "An identical file is part of this upload (%s)",
+                        entry.getKey().getName()));
+            }
+        }
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        // look for identical entities in the database
+        Set<? extends E> existingEntities;
+        try {
+            existingEntities = entityStore.findByContentDigests(entities.keySet());
+        } catch (DBManagerException e) {
+            LOGGER.error("Querying for existing entities failed", e);
+            for (UploadedFile file : files.values()) {
+                job.record(file.getName(), Status.FAILED, String.format(
+                        "Querying for existing %s failed (%s): %s",
+                        entityStore.getDescription(), file.getName(), e.getMessage()));
+            }
+            return;
+        }
+        for (E existing : existingEntities) {
+            String digest = existing.getContentDigest();
+            if (entities.remove(digest) != null) {
+                restore(job, files.get(digest).getName(), existing, entityStore);
+            }
+        }
+
+        List<E> newEntities = new ArrayList<>();
+        List<UploadedFile> newFiles = new ArrayList<>();
+        entityStore.prepare(entities.values());
+        for (Map.Entry<String, E> entry : entities.entrySet()) {
+            UploadedFile file = files.get(entry.getKey());
+            String failMessage = entityStore.check(entry.getValue());
+            if (failMessage != null) {
+                LOGGER.error(failMessage);
+                job.record(file.getName(), Status.FAILED,
+                        String.format("%s (%s)", failMessage, file.getName()));
+            } else {
+                newEntities.add(entry.getValue());
+                newFiles.add(file);
+            }
+        }
+        save(job, newFiles, newEntities, entityStore);
+    }
+
+    private <E extends ArchivableEntity & ContentBlobHolder> void restore(
+            final BulkUploadJob job, final String fileName, final E existing,
+            final EntityStore<E> entityStore) {
+        if (!existing.isArchived()) {
+            job.record(fileName, Status.DUPLICATE, String.format(
+                    "Storing %s failed: an identical %s already exists (%s)",
+                    entityStore.getDescription(), entityStore.getDescription(), fileName));
+            return;
+        }
+
+        // unarchive the identical entity and change its creation date
+        try {
+            existing.restore();
+            existing.resetCreateTime();
+            entityStore.update(existing);
+            job.record(fileName, Status.RESTORED, String.format(
+                    "Pre-existing %s found and unarchived (%s)",
+                    entityStore.getDescription(), fileName));
+        } catch (DBManagerException e) {
+            final String failMessage = String.format("Found an identical pre-existing %s in "
+                    + "the archive, but failed to unarchive it (%s): ",
+                    entityStore.getDescription(), fileName);
+            LOGGER.error(failMessage, e);
+            job.record(fileName, Status.FAILED, failMessage + e.getMessage());
+        }
+    }
+
+    private <E extends ArchivableEntity & ContentBlobHolder> void save(
+            final BulkUploadJob job, final List<UploadedFile> newFiles,
+            final List<E> newEntities, final EntityStore<E> entityStore) {
+        if (newEntities.isEmpty()) {
+            return;
+        }
+        try {
+            entityStore.saveAll(newEntities);
+            for (UploadedFile file : newFiles) {
+                recordStored(job, file.getName(), entityStore);
+            }
+            return;
+        } catch (DBManagerException e) {
+            LOGGER.warn("Storing a batch of uploaded files failed, storing them one by one", e);
+        }
+
+        // find the files that could not be stored
+        for (int i = 0; i < newEntities.size(); i++) {
+            String fileName = newFiles.get(i).getName();
+            try {
+                entityStore.save(newEntities.get(i));
+                recordStored(job, fileName, entityStore);
+            } catch (DBManagerException e) {
+                final String failMessage = String.format("Storing new %s failed (%s): ",
+                        entityStore.getDescription(), fileName);
+                LOGGER.error(failMessage, e);
+                job.record(fileName, Status.FAILED, failMessage + e.getMessage());
+            }
+        }
+    }
+
+    private static void recordStored(final BulkUploadJob job, final String fileName,
+                                     final EntityStore<?> entityStore) {
+        job.record(fileName, Status.STORED, String.format("New %s successfully uploaded (%s)",
+                entityStore.getDescription(), fileName));
+    }
+
+    private static ExecutorService createExecutor(
+            final int threads, final int queueSize, final String nameFormat,
+            final RejectedExecutionHandler rejectionPolicy) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build(),
+                rejectionPolicy);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Queries and stores the entities of one type for an upload.
+     *
+     * @param <E> the type of the entities
+     */
+    private abstract static class EntityStore<E extends ArchivableEntity & ContentBlobHolder> {
+
+        private final String description;
+
+        EntityStore(final String description) {
+            this.description = description;
+        }
+
+        /**
+         * Getter for the name of the entities used in the outcome messages.
+         *
+         * @return the description
+         */
+        String getDescription() {
+            return description;
+        }
+
+        /**
+         * Finds the stored entities, archived or not, with any of the given content digests.
+         *
+         * @param contentDigests the content digests
+         * @return the matching entities
+         */
+        abstract Set<? extends E> findByContentDigests(Collection<String> contentDigests);
+
+        /**
+         * Prepares the checks of the new entities of a batch.
+         *
+         * @param entities the entities of the batch that are not stored yet
+         */
+        void prepare(final Collection<E> entities) {
+            // nothing to prepare by default
+        }
+
+        /**
+         * Checks that a new entity can be stored, completing it as needed.
+         *
+         * @param entity the entity
+         * @return the reason the entity cannot be stored, or null if it can be stored
+         */
+        String check(final E entity) {
+            return null;
+        }
+
+        abstract void update(E entity);
+
+        abstract void save(E entity);
+
+        abstract void saveAll(Collection<E> entities);
+    }
+
+    /**
+     * Stores the certificates of one type. A platform base credential is not stored if another
+     * base credential of the same platform is stored or part of the upload.
+     *
+     * @param <T> the type of the certificates
+     */
+    private final class CertificateStore<T extends Certificate> extends EntityStore<T> {
+
+        private final Class<T> certificateType;
+        private final Set<String> baseSerialNumbers = new HashSet<>();
+
+        CertificateStore(final Class<T> certificateType) {
+            super("certificate");
+            this.certificateType = certificateType;
+        }
+
+        @Override
+        Set<T> findByContentDigests(final Collection<String> contentDigests) {
+            return new CertificateSelector<T>(certificateManager, certificateType, false) { }
+                    .byContentDigests(contentDigests)
+                    .getCertificates();
+        }
+
+        @Override
+        void prepare(final Collection<T> entities) {
+            Set<String> serialNumbers = new HashSet<>();
+            for (T certificate : entities) {
+                String serialNumber = getBaseSerialNumber(certificate);
+                if (serialNumber != null) {
+                    serialNumbers.add(serialNumber);
+                }
+            }
+            if (serialNumbers.isEmpty()) {
+                return;
+            }
+            for (PlatformCredential pc : PlatformCredential.select(certificateManager)
+                    .byBoardSerialNumbers(serialNumbers)
+                    .getCertificates()) {
+                if (pc.isBase()) {
+                    baseSerialNumbers.add(pc.getPlatformSerial());
+                }
+            }
+        }
+
+        @Override
+        String check(final T certificate) {
+            String serialNumber = getBaseSerialNumber(certificate);
+            if (serialNumber != null && !baseSerialNumbers.add(serialNumber)) {
+                return "Storing certificate failed: platform credential chain ("
+                        + serialNumber + ") base already exists in this chain";
+            }
+            return null;
+        }
+
+        @Override
+        void update(final T certificate) {
+            certificateManager.update(certificate);
+        }
+
+        @Override
+        void save(final T certificate) {
+            certificateManager.saveOrGetExisting(certificate);
+        }
+
+        @Override
+        void saveAll(final Collection<T> certificates) {
+            certificateManager.saveAll(certificates);
+        }
+
+        private String getBaseSerialNumber(final Certificate certificate) {
+            if (certificate instanceof PlatformCredential
+                    && ((PlatformCredential) certificate).isBase()) {
+                return ((PlatformCredential) certificate).getPlatformSerial();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stores RIMs, associating them with the stored RIMs they reference or are referenced by.
+     *
+     * @param <R> the type of the RIMs
+     */
+    private abstract class RimStore<R extends ReferenceManifest> extends EntityStore<R> {
+
+        RimStore() {
+            super("RIM");
+        }
+
+        @Override
+        void update(final R rim) {
+            referenceManifestManager.update(rim);
+        }
+
+        @Override
+        void save(final R rim) {
+            referenceManifestManager.saveOrGetExisting(rim);
+        }
+
+        @Override
+        void saveAll(final Collection<R> rims) {
+            referenceManifestManager.saveAll(rims);
+        }
+    }
+
+    /**
+     * Stores support RIMs.
+     */
+    private final class SupportRimStore extends RimStore<SupportReferenceManifest> {
+
+        @Override
+        Set<SupportReferenceManifest> findByContentDigests(
+                final Collection<String> contentDigests) {
+            return SupportReferenceManifest.select(referenceManifestManager)
+                    .includeArchived()
+                    .byContentDigests(contentDigests)
+                    .getRIMs();
+        }
+
+        @Override
+        String check(final SupportReferenceManifest support) {
+            ReferenceManifestAssociations.associate(referenceManifestManager, support);
+            return null;
+        }
+    }
+
+    /**
+     * Stores base RIMs.
+     */
+    private final class BaseRimStore extends RimStore<BaseReferenceManifest> {
+
+        @Override
+        Set<BaseReferenceManifest> findByContentDigests(
+                final Collection<String> contentDigests) {
+            return BaseReferenceManifest.select(referenceManifestManager)
+                    .includeArchived()
+                    .byContentDigests(contentDigests)
+                    .getRIMs();
+        }
+
+        @Override
+        String check(final BaseReferenceManifest base) {
+            ReferenceManifestAssociations.associate(referenceManifestManager, base);
+            return null;
+        }
+    }
+}
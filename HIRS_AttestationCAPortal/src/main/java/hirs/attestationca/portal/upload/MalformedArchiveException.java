@@ -0,0 +1,37 @@
+package hirs.attestationca.portal.upload;
+
+import java.io.IOException;
+
+/**
+ * This class represents an <code>Exception</code> thrown when an uploaded archive cannot be
+ * expanded because it is malformed, such as an archive that is truncated or whose headers
+ * cannot be parsed, or because it expands beyond the limits of an upload.
+ */
+public class MalformedArchiveException extends IOException {
+
+    private static final long serialVersionUID = 6319815420338497150L;
+
+    /**
+     * Creates a new <code>MalformedArchiveException</code> that has the message
+     * <code>msg</code>.
+     *
+     * @param msg
+     *            exception message
+     */
+    public MalformedArchiveException(final String msg) {
+        super(msg);
+    }
+
+    /**
+     * Creates a new <code>MalformedArchiveException</code> that has the message
+     * <code>msg</code> and wraps the root cause.
+     *
+     * @param msg
+     *            exception message
+     * @param t
+     *            root cause
+     */
+    public MalformedArchiveException(final String msg, final Throwable t) {
+        super(msg, t);
+    }
+}
@@ -0,0 +1,99 @@
+package hirs.attestationca.portal.upload;
+
+import hirs.data.persist.BaseReferenceManifest;
+import hirs.data.persist.SupportReferenceManifest;
+import hirs.data.persist.SwidResourceEntry;
+import hirs.persist.DBManagerException;
+import hirs.persist.ReferenceManifestManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Links uploaded support RIMs with the base RIMs that list them as resources, whichever of the
+ * two is uploaded first.
+ */
+public final class ReferenceManifestAssociations {
+
+    /**
+     * Pattern of the names of the files uploaded as support RIMs.
+     */
+    public static final Pattern SUPPORT_RIM_FILE_PATTERN =
+            Pattern.compile("([^\\s]+(\\.(?i)(rimpcr|rimel|bin|log))$)");
+
+    private static final Logger LOGGER = LogManager.getLogger(ReferenceManifestAssociations.class);
+
+    private ReferenceManifestAssociations() {
+        // do not construct
+    }
+
+    /**
+     * Determines whether an uploaded file is a support RIM, going by its name.
+     *
+     * @param fileName the name of the file
+     * @return true if the file is a support RIM, false if it is a base RIM
+     */
+    public static boolean isSupportRim(final String fileName) {
+        return SUPPORT_RIM_FILE_PATTERN.matcher(fileName).matches();
+    }
+
+    /**
+     * Copies the platform information of the stored base RIMs listing the given support RIM as a
+     * resource into it, and associates it with them.
+     *
+     * @param referenceManifestManager the RIM manager
+     * @param support the support RIM being uploaded
+     */
+    public static void associate(final ReferenceManifestManager referenceManifestManager,
+                                 final SupportReferenceManifest support) {
+        Set<BaseReferenceManifest> rims = referenceManifestManager
+                .getBaseRimsByResourceName(support.getFileName());
+        for (BaseReferenceManifest dbRim : rims) {
+            support.setSwidTagVersion(dbRim.getSwidTagVersion());
+            support.setPlatformManufacturer(dbRim.getPlatformManufacturer());
+            support.setPlatformModel(dbRim.getPlatformModel());
+            support.setTagId(dbRim.getTagId());
+            support.setAssociatedRim(dbRim.getId());
+            support.setUpdated(true);
+        }
+    }
+
+    /**
+     * Associates the given base RIM with the stored support RIMs it lists as resources, copying
+     * its platform information into the support RIMs that have not been updated yet.
+     *
+     * @param referenceManifestManager the RIM manager
+     * @param base the base RIM being uploaded
+     */
+    public static void associate(final ReferenceManifestManager referenceManifestManager,
+                                 final BaseReferenceManifest base) {
+        for (SwidResourceEntry swid : base.getSwidResourceEntries()) {
+            SupportReferenceManifest support = SupportReferenceManifest
+                    .select(referenceManifestManager)
+                    .byFileName(swid.getFileName()).getRIM();
+            if (support != null) {
+                base.setAssociatedRim(support.getId());
+                if (support.isUpdated()) {
+                    // this is separate because I want to break if we found it
+                    // instead of finding it, it is uptodate but still search
+                    break;
+                } else {
+                    support.setSwidTagVersion(base.getSwidTagVersion());
+                    support.setPlatformManufacturer(base.getPlatformManufacturer());
+                    support.setPlatformModel(base.getPlatformModel());
+                    support.setTagId(base.getTagId());
+                    support.setUpdated(true);
+                    try {
+                        referenceManifestManager.update(support);
+                    } catch (DBManagerException dbmEx) {
+                        LOGGER.error(String.format("Couldn't update Support RIM "
+                                        + "%s with associated UUID %s", base.getTagId(),
+                                support.getId()), dbmEx);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package hirs.attestationca.portal.upload;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Expands uploaded ZIP and TAR archives (optionally gzip compressed) into the files they hold.
+ * Files that are not archives are passed through as they are. Directories, links and other
+ * special entries of the archives are skipped. Archives that cannot be expanded are rejected
+ * with a {@link MalformedArchiveException}.
+ * <p>
+ * The archives of an upload may hold at most {@link #MAX_ENTRY_COUNT} entries, each one
+ * expanding to at most {@link #MAX_ENTRY_SIZE} bytes, and expand to at most
+ * {@link #MAX_TOTAL_SIZE} bytes in total. An upload whose archives go beyond these limits,
+ * such as a zip bomb, is rejected as soon as a limit is reached.
+ */
+public final class UploadArchives {
+
+    /**
+     * The maximum number of bytes an entry of an archive may expand to.
+     */
+    public static final int MAX_ENTRY_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The maximum number of bytes the archives of an upload may expand to in total.
+     */
+    public static final long MAX_TOTAL_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * The maximum number of entries the archives of an upload may hold in total.
+     */
+    public static final int MAX_ENTRY_COUNT = 10000;
+
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final int TAR_NAME_OFFSET = 0;
+    private static final int TAR_NAME_LENGTH = 100;
+    private static final int TAR_SIZE_OFFSET = 124;
+    private static final int TAR_SIZE_LENGTH = 12;
+    private static final int TAR_TYPE_OFFSET = 156;
+    private static final int TAR_MAGIC_OFFSET = 257;
+    private static final int TAR_PREFIX_OFFSET = 345;
+    private static final int TAR_PREFIX_LENGTH = 155;
+    private static final int OCTAL_RADIX = 8;
+    private static final byte TAR_REGULAR_FILE = '0';
+    private static final byte TAR_OLD_REGULAR_FILE = 0;
+    private static final byte TAR_GNU_LONG_NAME = 'L';
+    private static final String TAR_USTAR_MAGIC = "ustar";
+
+    private UploadArchives() {
+        // do not construct
+    }
+
+    /**
+     * Reads the files sent to the portal, expanding the archives among them.
+     *
+     * @param files the files sent to the portal
+     * @return the uploaded files, in the order they were sent
+     * @throws IOException if a file or an archive cannot be read, such as a
+     * {@link MalformedArchiveException} if an archive is malformed
+     */
+    public static List<UploadedFile> expand(final MultipartFile[] files) throws IOException {
+        List<UploadedFile> uploadedFiles = new ArrayList<>();
+        Expansion expansion = new Expansion();
+        for (MultipartFile file : files) {
+            uploadedFiles.addAll(expand(new UploadedFile(file.getOriginalFilename(),
+                    file.getBytes()), expansion));
+        }
+        return uploadedFiles;
+    }
+
+    /**
+     * Expands an uploaded file into the files it holds if it is a ZIP, TAR, TAR.GZ or TGZ
+     * archive, going by its name.
+     *
+     * @param file the uploaded file
+     * @return the files of the archive, or the given file if it is not an archive
+     * @throws IOException if the archive cannot be read, such as a
+     * {@link MalformedArchiveException} if it is malformed
+     */
+    public static List<UploadedFile> expand(final UploadedFile file) throws IOException {
+        return expand(file, new Expansion());
+    }
+
+    private static List<UploadedFile> expand(final UploadedFile file, final Expansion expansion)
+            throws IOException {
+        String name = file.getName().toLowerCase(Locale.ENGLISH);
+        try {
+            if (name.endsWith(".zip")) {
+                return readZip(new ByteArrayInputStream(file.getContent()), expansion);
+            }
+            if (name.endsWith(".tar")) {
+                return readTar(new ByteArrayInputStream(file.getContent()), expansion);
+            }
+            if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+                return readTar(new GZIPInputStream(new ByteArrayInputStream(file.getContent())),
+                        expansion);
+            }
+        } catch (MalformedArchiveException e) {
+            throw new MalformedArchiveException(
+                    String.format("Malformed archive %s: %s", file.getName(), e.getMessage()), e);
+        } catch (ZipException | EOFException e) {
+            throw new MalformedArchiveException(
+                    String.format("Malformed archive %s: %s", file.getName(), e), e);
+        }
+        return Collections.singletonList(file);
+    }
+
+    private static List<UploadedFile> readZip(final InputStream in, final Expansion expansion)
+            throws IOException {
+        List<UploadedFile> files = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    expansion.count(0);
+                } else {
+                    // the sizes in the entry are not trusted, the content is read up to the limit
+                    ByteArrayOutputStream content = new ByteArrayOutputStream();
+                    IOUtils.copyLarge(zip, content, 0, expansion.remaining() + 1);
+                    expansion.count(content.size());
+                    files.add(new UploadedFile(baseName(entry.getName()),
+                            content.toByteArray()));
+                }
+            }
+        }
+        return files;
+    }
+
+    private static List<UploadedFile> readTar(final InputStream tar, final Expansion expansion)
+            throws IOException {
+        List<UploadedFile> files = new ArrayList<>();
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        String longName = null;
+        try (InputStream in = tar) {
+            while (true) {
+                int read = IOUtils.read(in, header);
+                if (read == 0 || (read == TAR_BLOCK_SIZE && isZeroBlock(header))) {
+                    break;
+                }
+                if (read < TAR_BLOCK_SIZE) {
+                    throw new MalformedArchiveException("truncated TAR header");
+                }
+                int size = tarSize(header);
+                expansion.count(size);
+                byte[] content = new byte[size];
+                IOUtils.readFully(in, content);
+                IOUtils.skipFully(in, (TAR_BLOCK_SIZE - size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE);
+
+                byte type = header[TAR_TYPE_OFFSET];
+                if (type == TAR_GNU_LONG_NAME) {
+                    longName = field(content, 0, content.length);
+                } else if (type == TAR_REGULAR_FILE || type == TAR_OLD_REGULAR_FILE) {
+                    String name = longName;
+                    if (name == null) {
+                        name = tarName(header);
+                    }
+                    files.add(new UploadedFile(baseName(name), content));
+                    longName = null;
+                } else {
+                    longName = null;
+                }
+            }
+        }
+        return files;
+    }
+
+    // the size is an octal number, padded with spaces or NULs; base-256 sizes are not supported
+    private static int tarSize(final byte[] header) throws MalformedArchiveException {
+        String size = field(header, TAR_SIZE_OFFSET, TAR_SIZE_LENGTH).trim();
+        try {
+            long value = Long.parseLong(size, OCTAL_RADIX);
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new MalformedArchiveException("TAR entry size out of range: " + size);
+            }
+            return (int) value;
+        } catch (NumberFormatException e) {
+            throw new MalformedArchiveException("invalid TAR entry size: " + size, e);
+        }
+    }
+
+    private static String tarName(final byte[] header) {
+        String name = field(header, TAR_NAME_OFFSET, TAR_NAME_LENGTH);
+        if (field(header, TAR_MAGIC_OFFSET, TAR_USTAR_MAGIC.length()).equals(TAR_USTAR_MAGIC)) {
+            String prefix = field(header, TAR_PREFIX_OFFSET, TAR_PREFIX_LENGTH);
+            if (!prefix.isEmpty()) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    private static String field(final byte[] block, final int offset, final int length) {
+        int end = offset;
+        while (end < offset + length && block[end] != 0) {
+            end++;
+        }
+        return new String(block, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isZeroBlock(final byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String baseName(final String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Counts the entries expanded from the archives of an upload against the limits of an
+     * upload.
+     */
+    private static final class Expansion {
+        private int entryCount;
+        private long totalSize;
+
+        // the number of bytes the next entry may expand to
+        long remaining() {
+            return Math.min(MAX_ENTRY_SIZE, MAX_TOTAL_SIZE - totalSize);
+        }
+
+        void count(final long size) throws MalformedArchiveException {
+            entryCount++;
+            if (entryCount > MAX_ENTRY_COUNT) {
+                throw new MalformedArchiveException(
+                        "the upload holds more than " + MAX_ENTRY_COUNT + " archive entries");
+            }
+            if (size > MAX_ENTRY_SIZE) {
+                throw new MalformedArchiveException(
+                        "an entry expands to more than " + MAX_ENTRY_SIZE + " bytes");
+            }
+            totalSize += size;
+            if (totalSize > MAX_TOTAL_SIZE) {
+                throw new MalformedArchiveException(
+                        "the upload expands to more than " + MAX_TOTAL_SIZE + " bytes");
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package hirs.attestationca.portal.upload;
+
+import java.util.Arrays;
+
+/**
+ * A file sent to the portal, either directly or as an entry of an uploaded archive.
+ */
+public final class UploadedFile {
+
+    private final String name;
+    private final byte[] content;
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of the file
+     * @param content the bytes of the file
+     */
+    public UploadedFile(final String name, final byte[] content) {
+        this.name = name;
+        this.content = Arrays.copyOf(content, content.length);
+    }
+
+    /**
+     * Getter for the name of the file.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter for the bytes of the file.
+     *
+     * @return a copy of the bytes
+     */
+    public byte[] getContent() {
+        return Arrays.copyOf(content, content.length);
+    }
+}
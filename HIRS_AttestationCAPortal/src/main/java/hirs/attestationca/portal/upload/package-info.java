@@ -0,0 +1,4 @@
+/**
+ * Bulk upload of credentials and reference manifests to the Attestation CA Portal.
+ */
+package hirs.attestationca.portal.upload;
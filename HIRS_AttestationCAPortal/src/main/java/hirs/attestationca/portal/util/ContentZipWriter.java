@@ -0,0 +1,111 @@
+package hirs.attestationca.portal.util;
+
+import hirs.persist.ContentBlobStore;
+import hirs.utils.Callback;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the contents of streamed certificates or RIMs into a ZIP archive, one entry per record.
+ * It is given the records streamed by
+ * {@link hirs.persist.OrderedListQuerier#streamProjectedList}, which must hold the content digest
+ * of the record. The contents are loaded from the {@link ContentBlobStore} with one query per
+ * {@link #BATCH_SIZE} records, so that memory use does not grow with the number of records.
+ * <p>
+ * An {@link IOException} writing the archive is thrown as an {@link UncheckedIOException} by the
+ * callback.
+ */
+public final class ContentZipWriter extends Callback<Map<String, Object>, Void>
+        implements Closeable {
+
+    /**
+     * Number of records whose contents are loaded together.
+     */
+    public static final int BATCH_SIZE = 100;
+
+    private final ZipOutputStream zip;
+    private final String digestProperty;
+    private final Function<Map<String, Object>, String> entryNamer;
+    private final List<String> entryNames = new ArrayList<>();
+    private final List<String> digests = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param out the stream the archive is written to
+     * @param digestProperty the property of the records holding their content digest
+     * @param entryNamer names the entry of a record, the names must be unique
+     */
+    public ContentZipWriter(final OutputStream out, final String digestProperty,
+                            final Function<Map<String, Object>, String> entryNamer) {
+        this.zip = new ZipOutputStream(out);
+        this.digestProperty = digestProperty;
+        this.entryNamer = entryNamer;
+    }
+
+    /**
+     * Adds the entry of a streamed record, writing the pending entries once there are
+     * {@link #BATCH_SIZE} of them.
+     *
+     * @param record the property values of the record
+     * @return null
+     */
+    @Override
+    public Void call(final Map<String, Object> record) {
+        String digest = (String) record.get(digestProperty);
+        if (digest == null) {
+            return null;
+        }
+        entryNames.add(entryNamer.apply(record));
+        digests.add(digest);
+        if (digests.size() >= BATCH_SIZE) {
+            try {
+                writePending();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the pending entries and completes the archive. The underlying stream is closed.
+     *
+     * @throws IOException if the archive cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writePending();
+        } finally {
+            zip.close();
+        }
+    }
+
+    private void writePending() throws IOException {
+        Set<String> batch = new HashSet<>(digests);
+        Map<String, byte[]> contents = ContentBlobStore.loadAll(batch);
+        for (int i = 0; i < digests.size(); i++) {
+            byte[] content = contents.get(digests.get(i));
+            if (content != null) {
+                zip.putNextEntry(new ZipEntry(entryNames.get(i)));
+                zip.write(content);
+                zip.closeEntry();
+            }
+        }
+        zip.flush();
+        entryNames.clear();
+        digests.clear();
+    }
+}
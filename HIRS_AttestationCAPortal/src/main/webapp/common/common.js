@@ -63,12 +63,21 @@ function handleRimDeleteRequest(id) {
 * 
 */
 function setDataTables(id, url, columns) {
+    // token of the cursor returned with the current page, sent back so that the
+    // next page can be served without counting the preceding records
+    var cursor = null;
     var dtable = $(id).DataTable({
         processing: true,
         serverSide: true,
         ajax: {
             url: url,
+            data: function (data) {
+                if (cursor) {
+                    data.cursor = cursor;
+                }
+            },
             dataSrc: function (json) {
+                cursor = json.cursor;
                 formatElementDates('.date');
                 return json.data;
             }
@@ -108,6 +108,23 @@ public class ReferenceManifestPageControllerTest extends PageControllerTest {
         Assert.assertEquals(pageMessages.getError().size(), 1);
     }
 
+    /**
+     * Tests that a bulk upload of a malformed archive is rejected as a bad request.
+     *
+     * @throws Exception if an exception occurs
+     */
+    @Test
+    @Rollback
+    public void bulkUploadMalformedArchive() throws Exception {
+        MockMultipartFile archive = new MockMultipartFile("file", "rims.tgz", "",
+                new byte[] {1, 2, 3});
+
+        getMockMvc().perform(MockMvcRequestBuilders
+                .fileUpload("/reference-manifests/bulk-upload")
+                .file(archive))
+                .andExpect(status().isBadRequest());
+    }
+
     /**
      * Tests that uploading a RIM when an identical RIM is archived will cause
      * the existing RIM to be unarchived and updated.
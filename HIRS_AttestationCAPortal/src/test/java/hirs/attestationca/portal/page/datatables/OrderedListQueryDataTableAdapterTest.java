@@ -3,9 +3,11 @@ package hirs.attestationca.portal.page.datatables;
 import hirs.FilteredRecordsList;
 import hirs.data.persist.Device;
 import hirs.persist.CriteriaModifier;
+import hirs.persist.OrderedListCursor;
 import hirs.persist.OrderedListQuerier;
 import hirs.attestationca.portal.datatables.Column;
 import hirs.attestationca.portal.datatables.DataTableInput;
+import hirs.attestationca.portal.datatables.DataTableResponse;
 import hirs.attestationca.portal.datatables.Order;
 import hirs.attestationca.portal.datatables.OrderedListQueryDataTableAdapter;
 import hirs.attestationca.portal.datatables.Search;
@@ -18,6 +20,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -26,7 +29,9 @@ import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -105,4 +110,53 @@ public class OrderedListQueryDataTableAdapterTest {
 
         Assert.assertEquals(captor.getValue().size(), columnMapSize);
     }
+
+    /**
+     * Tests that the first page is retrieved by keyset pagination, and that the cursor returned
+     * with it is used to retrieve the next page only.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getKeysetQuery() {
+        final int length = 2;
+        final DataTableInput dataTableInput = new DataTableInput();
+        List<Column> columns = new ArrayList<>();
+        columns.add(new Column("name", "name", true, true, new Search()));
+        dataTableInput.setLength(length);
+        dataTableInput.setColumns(columns);
+        dataTableInput.setOrder(Collections.singletonList(new Order(0, true)));
+
+        FilteredRecordsList<Device> firstPage = new FilteredRecordsList<>();
+        firstPage.add(new Device("first"));
+        firstPage.add(new Device("second"));
+        OrderedListCursor cursor = new OrderedListCursor("second", "id", length, length);
+        firstPage.setNextCursor(cursor);
+        when(querier.getOrderedListAfter(Matchers.<Class<Device>>any(), anyString(),
+                anyBoolean(), isNull(OrderedListCursor.class), anyInt(), anyString(), anyMap(),
+                any(CriteriaModifier.class))).thenReturn(firstPage);
+
+        Assert.assertSame(OrderedListQueryDataTableAdapter.getOrderedList(Device.class, querier,
+                dataTableInput, "name"), firstPage);
+        String token = new DataTableResponse<>(firstPage, dataTableInput).getCursor();
+        Assert.assertNotNull(token);
+
+        dataTableInput.setStart(length);
+        dataTableInput.setCursor(token);
+        OrderedListQueryDataTableAdapter.getOrderedList(Device.class, querier,
+                dataTableInput, "name");
+        verify(querier).getOrderedListAfter(Matchers.<Class<Device>>any(), Matchers.eq("name"),
+                Matchers.eq(true), Matchers.same(cursor), Matchers.eq(length), anyString(),
+                anyMap(), any(CriteriaModifier.class));
+
+        // jumping to another page falls back to offset pagination
+        dataTableInput.setStart(length * 2);
+        OrderedListQueryDataTableAdapter.getOrderedList(Device.class, querier,
+                dataTableInput, "name");
+        verify(querier, never()).getOrderedList(Matchers.<Class<Device>>any(), anyString(),
+                anyBoolean(), Matchers.eq(length), anyInt(), anyString(), anyMap(),
+                any(CriteriaModifier.class));
+        verify(querier).getOrderedList(Matchers.<Class<Device>>any(), anyString(),
+                anyBoolean(), Matchers.eq(length * 2), anyInt(), anyString(), anyMap(),
+                any(CriteriaModifier.class));
+    }
 }
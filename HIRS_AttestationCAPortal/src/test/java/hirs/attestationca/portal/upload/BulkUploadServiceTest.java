@@ -0,0 +1,270 @@
+package hirs.attestationca.portal.upload;
+
+import hirs.attestationca.portal.upload.BulkUploadJob.Outcome;
+import hirs.attestationca.portal.upload.BulkUploadJob.Status;
+import hirs.data.persist.certificate.Certificate;
+import hirs.data.persist.certificate.CertificateAuthorityCredential;
+import hirs.data.persist.certificate.PlatformCredential;
+import hirs.persist.CertificateManager;
+import hirs.persist.CertificateSelector;
+import hirs.persist.DBManagerException;
+import hirs.persist.ReferenceManifestManager;
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link BulkUploadService}.
+ */
+public class BulkUploadServiceTest {
+
+    private static final String CA_CERT = "/certificates/fakeCA.pem";
+    private static final String INTERMEDIATE_CA_CERT = "/certificates/fakeIntelIntermediateCA.pem";
+    private static final String BASE_PLATFORM_CERT =
+            "/platform_credentials/pciids_plat_cert_2-0.pem";
+
+    private static final long TIMEOUT_MS = 10000;
+    private static final long POLL_INTERVAL_MS = 10;
+
+    private CertificateManager certificateManager;
+    private BulkUploadService bulkUploadService;
+
+    /**
+     * Sets up a service storing in a mock certificate manager, in which no certificate is stored.
+     */
+    @BeforeMethod
+    public void setup() {
+        certificateManager = mock(CertificateManager.class);
+        doReturn(Collections.emptySet()).when(certificateManager)
+                .get(any(CertificateSelector.class));
+        bulkUploadService = new BulkUploadService(certificateManager,
+                mock(ReferenceManifestManager.class));
+    }
+
+    /**
+     * Tests that new certificates are stored together, and that the job of the upload is kept.
+     *
+     * @throws Exception if the test files cannot be read or the upload does not finish
+     */
+    @Test(timeOut = TIMEOUT_MS)
+    public void testStored() throws Exception {
+        BulkUploadJob job = submitCaCertificates(
+                file(CA_CERT, "ca.pem"), file(INTERMEDIATE_CA_CERT, "intermediate.pem"));
+
+        Map<String, Status> statuses = awaitStatuses(job);
+        Assert.assertEquals(statuses.get("ca.pem"), Status.STORED);
+        Assert.assertEquals(statuses.get("intermediate.pem"), Status.STORED);
+        Assert.assertEquals(job.getProcessed(), 2);
+        verify(certificateManager).saveAll(anyCollectionOf(Certificate.class));
+        verify(certificateManager, never()).saveOrGetExisting(any(Certificate.class));
+        Assert.assertSame(bulkUploadService.getJob(job.getId()), job);
+    }
+
+    /**
+     * Tests that a file uploaded twice is stored once.
+     *
+     * @throws Exception if the test files cannot be read or the upload does not finish
+     */
+    @Test(timeOut = TIMEOUT_MS)
+    @SuppressWarnings("unchecked")
+    public void testDuplicateWithinUpload() throws Exception {
+        BulkUploadJob job = submitCaCertificates(
+                file(CA_CERT, "ca.pem"), file(CA_CERT, "copy.pem"));
+
+        Map<String, Status> statuses = awaitStatuses(job);
+        Assert.assertEquals(statuses.get("ca.pem"), Status.STORED);
+        Assert.assertEquals(statuses.get("copy.pem"), Status.DUPLICATE);
+        verify(certificateManager).saveAll((Collection<Certificate>) (Collection<?>)
+                Collections.singletonList(parseCaCertificate(CA_CERT)));
+    }
+
+    /**
+     * Tests that an identical archived certificate is restored instead of stored.
+     *
+     * @throws Exception if the test files cannot be read or the upload does not finish
+     */
+    @Test(timeOut = TIMEOUT_MS)
+    public void testRestoredFromArchive() throws Exception {
+        Certificate archived = parseCaCertificate(CA_CERT);
+        archived.archive();
+        doReturn(Collections.singleton(archived)).when(certificateManager)
+                .get(any(CertificateSelector.class));
+
+        BulkUploadJob job = submitCaCertificates(file(CA_CERT, "ca.pem"));
+
+        Assert.assertEquals(awaitStatuses(job).get("ca.pem"), Status.RESTORED);
+        Assert.assertFalse(archived.isArchived());
+        verify(certificateManager).update(archived);
+        verify(certificateManager, never()).saveAll(anyCollectionOf(Certificate.class));
+    }
+
+    /**
+     * Tests that an identical certificate that is not archived is reported as a duplicate.
+     *
+     * @throws Exception if the test files cannot be read or the upload does not finish
+     */
+    @Test(timeOut = TIMEOUT_MS)
+    public void testDuplicateStored() throws Exception {
+        Certificate stored = parseCaCertificate(CA_CERT);
+        doReturn(Collections.singleton(stored)).when(certificateManager)
+                .get(any(CertificateSelector.class));
+
+        BulkUploadJob job = submitCaCertificates(file(CA_CERT, "ca.pem"));
+
+        Assert.assertEquals(awaitStatuses(job).get("ca.pem"), Status.DUPLICATE);
+        verify(certificateManager, never()).update(any(Certificate.class));
+        verify(certificateManager, never()).saveAll(anyCollectionOf(Certificate.class));
+    }
+
+    /**
+     * Tests that a platform base credential is not stored when a base credential of the same
+     * platform is stored.
+     *
+     * @throws Exception if the test files cannot be read or the upload does not finish
+     */
+    @Test(timeOut = TIMEOUT_MS)
+    public void testBaseCredentialAlreadyStored() throws Exception {
+        PlatformCredential storedBase = new PlatformCredential(read(BASE_PLATFORM_CERT));
+        Assert.assertTrue(storedBase.isBase());
+        // the query on content digests finds nothing, the one on platform serials the base
+        doReturn(Collections.emptySet())
+                .doReturn(Collections.singleton(storedBase))
+                .when(certificateManager).get(any(CertificateSelector.class));
+
+        BulkUploadJob job = bulkUploadService.submitCertificates(PlatformCredential.class,
+                file -> new PlatformCredential(file.getContent()),
+                Collections.singletonList(file(BASE_PLATFORM_CERT, "base.pem")));
+
+        List<Outcome> outcomes = awaitOutcomes(job);
+        Assert.assertEquals(outcomes.size(), 1);
+        Assert.assertEquals(outcomes.get(0).getStatus(), Status.FAILED);
+        Assert.assertTrue(outcomes.get(0).getMessage().contains("base already exists"));
+        verify(certificateManager, never()).saveAll(anyCollectionOf(Certificate.class));
+    }
+
+    /**
+     * Tests that the files of a batch that cannot be stored together are stored one by one,
+     * so that only the files that cannot be stored fail.
+     *
+     * @throws Exception if the test files cannot be read or the upload does not finish
+     */
+    @Test(timeOut = TIMEOUT_MS)
+    public void testStoredOneByOneAfterBatchFails() throws Exception {
+        String failingDigest = parseCaCertificate(INTERMEDIATE_CA_CERT).getContentDigest();
+        doThrow(new DBManagerException("batch failed")).when(certificateManager)
+                .saveAll(anyCollectionOf(Certificate.class));
+        doAnswer(invocation -> {
+            Certificate certificate = (Certificate) invocation.getArguments()[0];
+            if (certificate.getContentDigest().equals(failingDigest)) {
+                throw new DBManagerException("constraint violated");
+            }
+            return certificate;
+        }).when(certificateManager).saveOrGetExisting(any(Certificate.class));
+
+        BulkUploadJob job = submitCaCertificates(
+                file(CA_CERT, "ca.pem"), file(INTERMEDIATE_CA_CERT, "intermediate.pem"));
+
+        Map<String, Status> statuses = awaitStatuses(job);
+        Assert.assertEquals(statuses.get("ca.pem"), Status.STORED);
+        Assert.assertEquals(statuses.get("intermediate.pem"), Status.FAILED);
+    }
+
+    /**
+     * Tests that a file that cannot be parsed fails without failing the other files.
+     *
+     * @throws Exception if the test files cannot be read or the upload does not finish
+     */
+    @Test(timeOut = TIMEOUT_MS)
+    public void testParseFailure() throws Exception {
+        BulkUploadJob job = submitCaCertificates(file(CA_CERT, "ca.pem"),
+                new UploadedFile("garbage.pem", new byte[] {1, 2, 3}));
+
+        Map<String, Status> statuses = awaitStatuses(job);
+        Assert.assertEquals(statuses.get("ca.pem"), Status.STORED);
+        Assert.assertEquals(statuses.get("garbage.pem"), Status.FAILED);
+    }
+
+    /**
+     * Tests that the files left unprocessed when an upload fails unexpectedly are recorded as
+     * failed, and that the files processed before keep their outcome.
+     *
+     * @throws Exception if the test files cannot be read or the upload does not finish
+     */
+    @Test(timeOut = TIMEOUT_MS)
+    public void testUnexpectedFailure() throws Exception {
+        doThrow(new IllegalStateException("connection lost")).when(certificateManager)
+                .get(any(CertificateSelector.class));
+
+        BulkUploadJob job = submitCaCertificates(file(CA_CERT, "ca.pem"),
+                new UploadedFile("garbage.pem", new byte[] {1, 2, 3}));
+
+        List<Outcome> outcomes = awaitOutcomes(job);
+        Assert.assertEquals(outcomes.size(), 2);
+        Assert.assertEquals(job.getProcessed(), 2);
+        Map<String, Outcome> byFileName = new HashMap<>();
+        for (Outcome outcome : outcomes) {
+            byFileName.put(outcome.getFileName(), outcome);
+        }
+        Assert.assertEquals(byFileName.get("garbage.pem").getStatus(), Status.FAILED);
+        Assert.assertTrue(byFileName.get("garbage.pem").getMessage().contains("parse"));
+        Assert.assertEquals(byFileName.get("ca.pem").getStatus(), Status.FAILED);
+        Assert.assertTrue(byFileName.get("ca.pem").getMessage().contains("connection lost"));
+    }
+
+    private BulkUploadJob submitCaCertificates(final UploadedFile... files) {
+        return bulkUploadService.submitCertificates(CertificateAuthorityCredential.class,
+                file -> new CertificateAuthorityCredential(file.getContent()),
+                Arrays.asList(files));
+    }
+
+    private static Map<String, Status> awaitStatuses(final BulkUploadJob job)
+            throws InterruptedException {
+        Map<String, Status> statuses = new HashMap<>();
+        for (Outcome outcome : awaitOutcomes(job)) {
+            statuses.put(outcome.getFileName(), outcome.getStatus());
+        }
+        return statuses;
+    }
+
+    private static List<Outcome> awaitOutcomes(final BulkUploadJob job)
+            throws InterruptedException {
+        while (!job.isDone()) {
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+        return job.getOutcomes();
+    }
+
+    private static Certificate parseCaCertificate(final String resource) throws IOException {
+        return new CertificateAuthorityCredential(read(resource));
+    }
+
+    private static UploadedFile file(final String resource, final String name)
+            throws IOException {
+        return new UploadedFile(name, read(resource));
+    }
+
+    private static byte[] read(final String resource) throws IOException {
+        try (InputStream in = BulkUploadServiceTest.class.getResourceAsStream(resource)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package hirs.attestationca.portal.upload;
+
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests for {@link UploadArchives}.
+ */
+public class UploadArchivesTest {
+
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final int TAR_NAME_LENGTH = 100;
+    private static final int TAR_SIZE_OFFSET = 124;
+    private static final int TAR_TYPE_OFFSET = 156;
+    private static final int TAR_MAGIC_OFFSET = 257;
+    private static final int TAR_PREFIX_OFFSET = 345;
+    private static final byte TAR_REGULAR_FILE = '0';
+    private static final byte TAR_DIRECTORY = '5';
+    private static final byte TAR_GNU_LONG_NAME = 'L';
+    private static final String TAR_USTAR_MAGIC = "ustar";
+
+    private static final byte[] FIRST_CONTENT = "first file".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SECOND_CONTENT = "second file".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Tests that a file that is not an archive is passed through as it is.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    @Test
+    public void testExpandNotArchive() throws IOException {
+        UploadedFile file = new UploadedFile("cert.pem", FIRST_CONTENT);
+        List<UploadedFile> files = UploadArchives.expand(file);
+
+        Assert.assertEquals(files.size(), 1);
+        Assert.assertSame(files.get(0), file);
+    }
+
+    /**
+     * Tests that the files of a ZIP archive are expanded under their base names, skipping its
+     * directories.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test
+    public void testExpandZip() throws IOException {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry("certs/"));
+            out.closeEntry();
+            addZipEntry(out, "certs/first.pem", FIRST_CONTENT);
+            addZipEntry(out, "second.pem", SECOND_CONTENT);
+        }
+
+        List<UploadedFile> files = UploadArchives.expand(
+                new UploadedFile("certs.ZIP", zip.toByteArray()));
+
+        assertFiles(files);
+    }
+
+    /**
+     * Tests that the regular files of a TAR archive are expanded under their base names,
+     * skipping its directories and joining the ustar prefix of their names.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test
+    public void testExpandTar() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        tar.write(tarHeader("certs/", 0, TAR_DIRECTORY));
+        byte[] header = tarHeader("first.pem", FIRST_CONTENT.length, TAR_REGULAR_FILE);
+        put(header, TAR_PREFIX_OFFSET, "certs");
+        writeTarEntry(tar, header, FIRST_CONTENT);
+        writeTarEntry(tar, tarHeader("second.pem", SECOND_CONTENT.length, TAR_REGULAR_FILE),
+                SECOND_CONTENT);
+        tar.write(new byte[2 * TAR_BLOCK_SIZE]);
+
+        assertFiles(UploadArchives.expand(new UploadedFile("certs.tar", tar.toByteArray())));
+    }
+
+    /**
+     * Tests that the files of a gzip compressed TAR archive are expanded.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test
+    public void testExpandTgz() throws IOException {
+        byte[] tar = tar(FIRST_CONTENT, SECOND_CONTENT);
+        ByteArrayOutputStream tgz = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(tgz)) {
+            out.write(tar);
+        }
+
+        assertFiles(UploadArchives.expand(new UploadedFile("certs.tgz", tgz.toByteArray())));
+        assertFiles(UploadArchives.expand(new UploadedFile("certs.tar.gz", tgz.toByteArray())));
+    }
+
+    /**
+     * Tests that the GNU long name of a TAR entry names the next file only.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test
+    public void testExpandTarGnuLongName() throws IOException {
+        char[] directory = new char[TAR_NAME_LENGTH];
+        Arrays.fill(directory, 'd');
+        byte[] longName = (new String(directory) + "/first.pem")
+                .getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        writeTarEntry(tar, tarHeader("././@LongLink", longName.length, TAR_GNU_LONG_NAME),
+                longName);
+        writeTarEntry(tar, tarHeader("truncated", FIRST_CONTENT.length, TAR_REGULAR_FILE),
+                FIRST_CONTENT);
+        writeTarEntry(tar, tarHeader("second.pem", SECOND_CONTENT.length, TAR_REGULAR_FILE),
+                SECOND_CONTENT);
+        tar.write(new byte[2 * TAR_BLOCK_SIZE]);
+
+        assertFiles(UploadArchives.expand(new UploadedFile("certs.tar", tar.toByteArray())));
+    }
+
+    /**
+     * Tests that a TAR archive ending without its end of archive blocks is expanded.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test
+    public void testExpandTarWithoutEndBlocks() throws IOException {
+        byte[] tar = tar(FIRST_CONTENT, SECOND_CONTENT);
+        byte[] withoutEnd = Arrays.copyOf(tar, tar.length - 2 * TAR_BLOCK_SIZE);
+
+        assertFiles(UploadArchives.expand(new UploadedFile("certs.tar", withoutEnd)));
+    }
+
+    /**
+     * Tests that the archives among the files of an upload are expanded, in the order the files
+     * were sent.
+     *
+     * @throws IOException if the files cannot be read
+     */
+    @Test
+    public void testExpandMultipartFiles() throws IOException {
+        MultipartFile[] files = new MultipartFile[] {
+                new MockMultipartFile("file", "certs.tar", "", tar(FIRST_CONTENT)),
+                new MockMultipartFile("file", "second.pem", "", SECOND_CONTENT)
+        };
+
+        assertFiles(UploadArchives.expand(files));
+    }
+
+    /**
+     * Tests that a TAR header whose size is not an octal number rejects the archive.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test(expectedExceptions = MalformedArchiveException.class)
+    public void testTarInvalidSize() throws IOException {
+        byte[] header = tarHeader("first.pem", 0, TAR_REGULAR_FILE);
+        put(header, TAR_SIZE_OFFSET, "12x4");
+
+        UploadArchives.expand(new UploadedFile("certs.tar", header));
+    }
+
+    /**
+     * Tests that a TAR header whose size does not fit in an array rejects the archive.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test(expectedExceptions = MalformedArchiveException.class)
+    public void testTarSizeOutOfRange() throws IOException {
+        byte[] header = tarHeader("first.pem", 0, TAR_REGULAR_FILE);
+        put(header, TAR_SIZE_OFFSET, "77777777777");
+
+        UploadArchives.expand(new UploadedFile("certs.tar", header));
+    }
+
+    /**
+     * Tests that a TAR header declaring an entry larger than the limit rejects the archive
+     * before the entry is read.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test(expectedExceptions = MalformedArchiveException.class)
+    public void testTarEntryTooLarge() throws IOException {
+        byte[] header = tarHeader("first.pem", UploadArchives.MAX_ENTRY_SIZE + 1,
+                TAR_REGULAR_FILE);
+
+        UploadArchives.expand(new UploadedFile("certs.tar", header));
+    }
+
+    /**
+     * Tests that a truncated TAR header rejects the archive.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test(expectedExceptions = MalformedArchiveException.class)
+    public void testTarTruncatedHeader() throws IOException {
+        byte[] header = tarHeader("first.pem", FIRST_CONTENT.length, TAR_REGULAR_FILE);
+
+        UploadArchives.expand(new UploadedFile("certs.tar",
+                Arrays.copyOf(header, TAR_BLOCK_SIZE / 2)));
+    }
+
+    /**
+     * Tests that a TAR entry shorter than its header declares rejects the archive.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test(expectedExceptions = MalformedArchiveException.class)
+    public void testTarTruncatedEntry() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        tar.write(tarHeader("first.pem", TAR_BLOCK_SIZE, TAR_REGULAR_FILE));
+        tar.write(FIRST_CONTENT);
+
+        UploadArchives.expand(new UploadedFile("certs.tar", tar.toByteArray()));
+    }
+
+    /**
+     * Tests that corrupt gzip data rejects the archive.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test(expectedExceptions = MalformedArchiveException.class)
+    public void testCorruptGzip() throws IOException {
+        UploadArchives.expand(new UploadedFile("certs.tgz", FIRST_CONTENT));
+    }
+
+    /**
+     * Tests that a ZIP entry expanding beyond the limit rejects the archive, whatever size its
+     * header declares.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test(expectedExceptions = MalformedArchiveException.class)
+    public void testZipEntryTooLarge() throws IOException {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            addZipEntry(out, "bomb.bin", new byte[UploadArchives.MAX_ENTRY_SIZE + 1]);
+        }
+
+        UploadArchives.expand(new UploadedFile("bomb.zip", zip.toByteArray()));
+    }
+
+    /**
+     * Tests that a ZIP archive holding more entries than the limit is rejected.
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    @Test(expectedExceptions = MalformedArchiveException.class)
+    public void testZipTooManyEntries() throws IOException {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            for (int i = 0; i <= UploadArchives.MAX_ENTRY_COUNT; i++) {
+                addZipEntry(out, i + ".pem", FIRST_CONTENT);
+            }
+        }
+
+        UploadArchives.expand(new UploadedFile("many.zip", zip.toByteArray()));
+    }
+
+    private static void assertFiles(final List<UploadedFile> files) {
+        Assert.assertEquals(files.size(), 2);
+        Assert.assertEquals(files.get(0).getName(), "first.pem");
+        Assert.assertEquals(files.get(0).getContent(), FIRST_CONTENT);
+        Assert.assertEquals(files.get(1).getName(), "second.pem");
+        Assert.assertEquals(files.get(1).getContent(), SECOND_CONTENT);
+    }
+
+    private static void addZipEntry(final ZipOutputStream out, final String name,
+                                    final byte[] content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        out.closeEntry();
+    }
+
+    // a TAR archive of "first.pem" and, if given, "second.pem"
+    private static byte[] tar(final byte[]... contents) throws IOException {
+        String[] names = {"first.pem", "second.pem"};
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        for (int i = 0; i < contents.length; i++) {
+            writeTarEntry(tar, tarHeader(names[i], contents[i].length, TAR_REGULAR_FILE),
+                    contents[i]);
+        }
+        tar.write(new byte[2 * TAR_BLOCK_SIZE]);
+        return tar.toByteArray();
+    }
+
+    private static byte[] tarHeader(final String name, final long size, final byte type) {
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        put(header, 0, name);
+        put(header, TAR_SIZE_OFFSET, String.format("%011o", size));
+        header[TAR_TYPE_OFFSET] = type;
+        put(header, TAR_MAGIC_OFFSET, TAR_USTAR_MAGIC);
+        return header;
+    }
+
+    private static void writeTarEntry(final ByteArrayOutputStream tar, final byte[] header,
+                                      final byte[] content) throws IOException {
+        tar.write(header);
+        tar.write(content);
+        tar.write(new byte[(TAR_BLOCK_SIZE - content.length % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE]);
+    }
+
+    private static void put(final byte[] block, final int offset, final String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, block, offset, bytes.length);
+    }
+}
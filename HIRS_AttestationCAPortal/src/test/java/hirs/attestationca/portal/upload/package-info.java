@@ -0,0 +1,4 @@
+/**
+ * This package contains unit tests for the bulk upload java classes.
+ */
+package hirs.attestationca.portal.upload;
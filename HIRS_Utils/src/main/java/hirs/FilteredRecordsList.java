@@ -1,5 +1,7 @@
 package hirs;
 
+import hirs.persist.OrderedListCursor;
+
 import java.util.ArrayList;
 
 /**
@@ -13,6 +15,7 @@ import java.util.ArrayList;
 public class FilteredRecordsList<T> extends ArrayList<T> {
     private long recordsTotal;
     private long recordsFiltered;
+    private OrderedListCursor nextCursor;
 
     /**
      * Returns the total number of records stored in the table of the entity.
@@ -47,4 +50,22 @@ public class FilteredRecordsList<T> extends ArrayList<T> {
     public final void setRecordsFiltered(final long recordsFiltered) {
         this.recordsFiltered = recordsFiltered;
     }
+
+    /**
+     * Returns the cursor positioned after the last of these records, which can be used to
+     * retrieve the following page of records.
+     * @return the cursor, or null if the records were not retrieved by keyset pagination or
+     * there are no records
+     */
+    public final OrderedListCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Sets the cursor positioned after the last of these records.
+     * @param nextCursor the cursor
+     */
+    public final void setNextCursor(final OrderedListCursor nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
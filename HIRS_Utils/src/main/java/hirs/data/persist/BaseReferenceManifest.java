@@ -1,8 +1,9 @@
 package hirs.data.persist;
 
-import hirs.persist.DBReferenceManifestManager;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import hirs.persist.ReferenceManifestManager;
 import hirs.persist.ReferenceManifestSelector;
+import hirs.utils.SwidProcessingService;
 import hirs.utils.xjc.BaseElement;
 import hirs.utils.xjc.Directory;
 import hirs.utils.xjc.FilesystemItem;
@@ -13,19 +14,22 @@ import hirs.utils.xjc.SoftwareMeta;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
-import javax.xml.bind.JAXBContext;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.UnmarshalException;
-import javax.xml.bind.Unmarshaller;
 import javax.xml.namespace.QName;
-import javax.xml.validation.Schema;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -36,8 +40,6 @@ import java.util.Map;
 public class BaseReferenceManifest extends ReferenceManifest {
     private static final Logger LOGGER = LogManager.getLogger(BaseReferenceManifest.class);
 
-    private static JAXBContext jaxbContext;
-
     @Column
     private String swidName = null;
     @Column
@@ -70,6 +72,12 @@ public class BaseReferenceManifest extends ReferenceManifest {
     private String pcURIGlobal = null;
     @Column
     private String pcURILocal = null;
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "SwidResourceIndex",
+            joinColumns = { @JoinColumn(name = "rimId", nullable = false) },
+            indexes = { @Index(name = "swid_resource_file_name", columnList = "fileName") })
+    @JsonIgnore
+    private List<SwidResourceEntry> swidResources = new ArrayList<>();
 
     private String entityName = null;
     private String entityRegId = null;
@@ -197,7 +205,8 @@ public class BaseReferenceManifest extends ReferenceManifest {
                             }
                             break;
                         case "Payload":
-                            parseResource((ResourceCollection) element.getValue());
+                            indexSwidResources(
+                                    parseResource((ResourceCollection) element.getValue()));
                             break;
                         case "Signature":
                             // left blank for a followup issue enhancement
@@ -321,6 +330,37 @@ public class BaseReferenceManifest extends ReferenceManifest {
         return resources;
     }
 
+    /**
+     * Getter for the files listed in the Payload of this RIM, as indexed when the RIM was
+     * ingested. Use {@link #parseResource()} when the full {@link SwidResource}s are needed.
+     *
+     * @return unmodifiable list of the indexed resources
+     */
+    @JsonIgnore
+    public List<SwidResourceEntry> getSwidResourceEntries() {
+        return Collections.unmodifiableList(swidResources);
+    }
+
+    /**
+     * Indexes the files listed in the Payload of this RIM, parsing them from the stored swidtag.
+     * Only needed for RIMs persisted before the resources were indexed at ingest.
+     *
+     * @return true if any resource was indexed
+     */
+    public boolean indexSwidResources() {
+        return indexSwidResources(parseResource());
+    }
+
+    private boolean indexSwidResources(final List<SwidResource> resources) {
+        swidResources.clear();
+        for (SwidResource resource : resources) {
+            if (resource.getName() != null) {
+                swidResources.add(new SwidResourceEntry(resource));
+            }
+        }
+        return !swidResources.isEmpty();
+    }
+
     /**
      * This method unmarshalls the swidtag found at [path] and validates it
      * according to the schema.
@@ -331,16 +371,9 @@ public class BaseReferenceManifest extends ReferenceManifest {
      */
     private JAXBElement unmarshallSwidTag(final InputStream stream) throws IOException {
         JAXBElement jaxbe = null;
-        Schema schema;
 
         try {
-            schema = DBReferenceManifestManager.getSchemaObject();
-            if (jaxbContext == null) {
-                jaxbContext = JAXBContext.newInstance(SCHEMA_PACKAGE);
-            }
-            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-            unmarshaller.setSchema(schema);
-            jaxbe = (JAXBElement) unmarshaller.unmarshal(stream);
+            jaxbe = (JAXBElement) SwidProcessingService.getInstance().unmarshal(stream);
         } catch (UnmarshalException umEx) {
             LOGGER.error(String.format("Error validating swidtag file!%n%s%n%s",
                     umEx.getMessage(), umEx.toString()));
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import hirs.DeviceGroupSerializer;
 import hirs.foss.XMLCleaner;
+import hirs.persist.SearchIndexed;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -48,6 +49,7 @@ import java.util.Date;
  * the operating system and networking addresses. This information is useful for
  * determining policy and successfully appraising devices.
  */
+@SearchIndexed
 @Entity
 @Table(name = "Device")
 @XmlRootElement(name = "device")
@@ -115,6 +115,17 @@ public final class Digest extends AbstractDigest {
         return Arrays.copyOf(this.digest, this.digest.length);
     }
 
+    /**
+     * Retrieves a single byte of the digest, without copying the digest as
+     * {@link #getDigest()} does.
+     *
+     * @param index the index of the byte, less than the length of the algorithm
+     * @return the byte of the digest at the given index
+     */
+    public byte getDigestByte(final int index) {
+        return this.digest[index];
+    }
+
     /**
      * Returns a new Digest with the same attributes as this instance.
      *
@@ -1,19 +1,27 @@
 package hirs.data.persist;
 
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.UUID;
 import javax.persistence.Access;
 import javax.persistence.AccessType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.Preconditions;
+import hirs.persist.ContentBlob;
+import hirs.persist.ContentBlobHolder;
+import hirs.persist.ContentBlobStore;
+import hirs.persist.SearchIndexed;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.hibernate.annotations.Type;
 
 import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.UniqueConstraint;
 import javax.xml.XMLConstants;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -23,12 +31,21 @@ import javax.xml.bind.annotation.XmlRootElement;
  * This class represents the Reference Integrity Manifest object that will be
  * loaded into the DB and displayed in the ACA.
  */
+@SearchIndexed
 @Entity
-@Table(name = "ReferenceManifest")
+@Table(name = "ReferenceManifest",
+        uniqueConstraints = { @UniqueConstraint(name = "rim_content",
+                columnNames = { "contentDigest", "DTYPE" }) },
+        indexes = {
+        @Index(name = "rim_hash", columnList = "rimHash"),
+        @Index(name = "rim_type", columnList = "rimType"),
+        @Index(name = "rim_file_name", columnList = "fileName"),
+        @Index(name = "rim_platform", columnList = "platformManufacturer, platformModel"),
+        @Index(name = "rim_platform_manufacturer_id", columnList = "platformManufacturerId") })
 @XmlRootElement(name = "ReferenceManifest")
 @XmlAccessorType(XmlAccessType.FIELD)
 @Access(AccessType.FIELD)
-public abstract class ReferenceManifest extends ArchivableEntity {
+public abstract class ReferenceManifest extends ArchivableEntity implements ContentBlobHolder {
     /**
      * String for display of a Base RIM.
      */
@@ -69,9 +86,20 @@ public abstract class ReferenceManifest extends ArchivableEntity {
     @Column(nullable = false)
     @JsonIgnore
     private final int rimHash;
-    @Column(columnDefinition = "blob", nullable = false)
+    /**
+     * The file content, stored in a {@link hirs.persist.ContentBlob} identified by contentDigest
+     * and loaded the first time it is needed.
+     */
+    @Transient
     @JsonIgnore
     private byte[] rimBytes;
+    /**
+     * Holds the name of the 'contentDigest' field.
+     */
+    public static final String CONTENT_DIGEST_FIELD = "contentDigest";
+    @Column(length = ContentBlob.DIGEST_LENGTH)
+    @JsonIgnore
+    private final String contentDigest;
     @Column(nullable = false)
     private String rimType = "Base";
     @Column
@@ -96,6 +124,7 @@ public abstract class ReferenceManifest extends ArchivableEntity {
     protected ReferenceManifest() {
         super();
         this.rimBytes = null;
+        this.contentDigest = null;
         this.rimHash = 0;
         this.rimType = null;
         this.platformManufacturer = null;
@@ -119,6 +148,7 @@ public abstract class ReferenceManifest extends ArchivableEntity {
 
         this.rimBytes = rimBytes.clone();
         this.rimHash = Arrays.hashCode(this.rimBytes);
+        this.contentDigest = ContentBlobStore.digest(this.rimBytes);
     }
 
     /**
@@ -268,12 +298,37 @@ public abstract class ReferenceManifest extends ArchivableEntity {
      */
     @JsonIgnore
     public byte[] getRimBytes() {
+        if (this.rimBytes == null && this.contentDigest != null) {
+            this.rimBytes = ContentBlobStore.load(this.contentDigest);
+        }
         if (this.rimBytes != null) {
             return this.rimBytes.clone();
         }
         return null;
     }
 
+    /**
+     * Getter for the file content, loading it from the blob store if needed.
+     *
+     * @return array of bytes
+     */
+    @Override
+    @JsonIgnore
+    public byte[] getContent() {
+        return getRimBytes();
+    }
+
+    /**
+     * Getter for the hex encoded SHA-256 digest of the file content.
+     *
+     * @return the digest of the file content
+     */
+    @Override
+    @JsonIgnore
+    public String getContentDigest() {
+        return contentDigest;
+    }
+
     /**
      * Getter for the Reference Integrity Manifest hash value.
      *
@@ -301,7 +356,7 @@ public abstract class ReferenceManifest extends ArchivableEntity {
         }
         ReferenceManifest that = (ReferenceManifest) object;
         return rimHash == that.rimHash
-                && Arrays.equals(rimBytes, that.rimBytes)
+                && Objects.equals(contentDigest, that.contentDigest)
                 && rimType.equals(that.rimType)
                 && tagId.equals(that.tagId)
                 && platformManufacturer.equals(that.platformManufacturer)
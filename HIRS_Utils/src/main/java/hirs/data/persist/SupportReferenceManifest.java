@@ -133,7 +133,7 @@ public class SupportReferenceManifest extends ReferenceManifest {
      */
     public String[] getExpectedPCRList() {
         try {
-            TCGEventLog logProcessor = new TCGEventLog(this.getRimBytes());
+            TCGEventLog logProcessor = new TCGEventLog(this.getRimBytes(), true);
             this.pcrHash = Arrays.hashCode(logProcessor.getExpectedPCRValues());
             return logProcessor.getExpectedPCRValues();
         } catch (CertificateException cEx) {
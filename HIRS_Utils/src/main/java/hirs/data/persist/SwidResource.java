@@ -121,6 +121,26 @@ public class SwidResource {
         }
     }
 
+    /**
+     * Constructor for a resource indexed when its RIM was ingested. The PCR values of the
+     * resource are not read from its support RIM, and are set to the initial values of an empty
+     * event log until they are replaced by those of the imported support RIM.
+     *
+     * @param entry the indexed resource
+     */
+    public SwidResource(final SwidResourceEntry entry) {
+        Preconditions.checkArgument(entry != null,
+                "Cannot construct a RIM Resource from a null SwidResourceEntry");
+
+        this.name = entry.getFileName();
+        this.size = entry.getFileSize();
+        this.rimFormat = entry.getRimFormat();
+        this.rimType = entry.getRimType();
+        this.rimUriGlobal = entry.getRimUriGlobal();
+        this.hashValue = entry.getHashValue();
+        this.pcrValues = Arrays.asList(new TCGEventLog().getExpectedPCRValues());
+    }
+
     /**
      * Getter for the file name.
      *
@@ -0,0 +1,138 @@
+package hirs.data.persist;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.util.Objects;
+
+/**
+ * A file listed in the Payload of a {@link BaseReferenceManifest}. The entries are persisted
+ * with the base RIM when it is ingested, so that the RIMs listing a given file can be looked up
+ * without parsing the swidtag of every base RIM again.
+ *
+ * @see hirs.persist.ReferenceManifestManager#getBaseRimsByResourceName(String)
+ */
+@Embeddable
+public class SwidResourceEntry {
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column
+    private String fileSize;
+
+    @Column
+    private String hashValue;
+
+    @Column
+    private String rimFormat;
+
+    @Column
+    private String rimType;
+
+    @Column
+    private String rimUriGlobal;
+
+    /**
+     * Constructor for an entry describing the given resource.
+     *
+     * @param resource the resource parsed from the Payload of the swidtag
+     */
+    public SwidResourceEntry(final SwidResource resource) {
+        this.fileName = resource.getName();
+        this.fileSize = resource.getSize();
+        this.hashValue = resource.getHashValue();
+        this.rimFormat = resource.getRimFormat();
+        this.rimType = resource.getRimType();
+        this.rimUriGlobal = resource.getRimUriGlobal();
+    }
+
+    /**
+     * Default constructor for Hibernate.
+     */
+    protected SwidResourceEntry() {
+
+    }
+
+    /**
+     * Getter for the name of the file.
+     *
+     * @return the file name
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Getter for the size of the file.
+     *
+     * @return the file size, as listed in the swidtag
+     */
+    public String getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Getter for the hash of the file.
+     *
+     * @return the hash value, as listed in the swidtag
+     */
+    public String getHashValue() {
+        return hashValue;
+    }
+
+    /**
+     * Getter for the format of the support RIM file.
+     *
+     * @return the support RIM format, as listed in the swidtag
+     */
+    public String getRimFormat() {
+        return rimFormat;
+    }
+
+    /**
+     * Getter for the type of the support RIM file.
+     *
+     * @return the support RIM type, as listed in the swidtag
+     */
+    public String getRimType() {
+        return rimType;
+    }
+
+    /**
+     * Getter for the global URI of the support RIM file.
+     *
+     * @return the support RIM global URI, as listed in the swidtag
+     */
+    public String getRimUriGlobal() {
+        return rimUriGlobal;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SwidResourceEntry that = (SwidResourceEntry) o;
+        return Objects.equals(fileName, that.fileName)
+                && Objects.equals(fileSize, that.fileSize)
+                && Objects.equals(hashValue, that.hashValue)
+                && Objects.equals(rimFormat, that.rimFormat)
+                && Objects.equals(rimType, that.rimType)
+                && Objects.equals(rimUriGlobal, that.rimUriGlobal);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fileName, fileSize, hashValue, rimFormat, rimType, rimUriGlobal);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SwidResourceEntry{fileName=%s, fileSize=%s, hashValue=%s,"
+                        + " rimFormat=%s, rimType=%s, rimUriGlobal=%s}",
+                fileName, fileSize, hashValue, rimFormat, rimType, rimUriGlobal);
+    }
+}
@@ -98,6 +98,8 @@ public class BroadRepoImaBaseline extends QueryableRecordImaBaseline
         synchronized (cachedBaselineRecords) {
             this.shouldUpdateCache = true;
         }
+
+        rebuildRecordFilter(repositoryManager);
     }
 
     @Override
@@ -0,0 +1,113 @@
+package hirs.data.persist.baseline;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import hirs.data.persist.Digest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * A Bloom filter of the paths, partial paths and hashes of the records of a baseline. It answers
+ * whether a baseline may hold a record of a path or hash: a negative answer is certain, while a
+ * positive answer is wrong with a probability of about {@link #FALSE_POSITIVE_PROBABILITY}. An
+ * appraisal may therefore skip looking up the measurements the filter rules out, which are most
+ * of the unknown files measured by a device.
+ * <p>
+ * The filter takes about 10 bits per record key, so that it can be persisted with its baseline.
+ */
+public final class ImaBaselineRecordFilter {
+
+    /**
+     * The probability of a path or hash that is not in the baseline being reported as possibly
+     * in it.
+     */
+    public static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private static final int KEYS_PER_RECORD = 3;
+    private static final String PATH_PREFIX = "path:";
+    private static final String HASH_PREFIX = "hash:";
+
+    private final BloomFilter<CharSequence> filter;
+
+    private ImaBaselineRecordFilter(final BloomFilter<CharSequence> filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Creates the filter of the given records.
+     *
+     * @param records the records of the baseline
+     * @return the filter
+     */
+    public static ImaBaselineRecordFilter create(final Collection<IMABaselineRecord> records) {
+        BloomFilter<CharSequence> filter = BloomFilter.create(
+                Funnels.stringFunnel(StandardCharsets.UTF_8),
+                Math.max(1, records.size() * KEYS_PER_RECORD),
+                FALSE_POSITIVE_PROBABILITY
+        );
+        for (IMABaselineRecord record : records) {
+            filter.put(PATH_PREFIX + record.getPath());
+            filter.put(PATH_PREFIX + record.getPartialPath());
+            filter.put(HASH_PREFIX + record.getHash());
+        }
+        return new ImaBaselineRecordFilter(filter);
+    }
+
+    /**
+     * Reads a filter written by {@link #toByteArray()}.
+     *
+     * @param bytes the serialized filter
+     * @return the filter
+     * @throws IOException if the bytes do not hold a filter
+     */
+    public static ImaBaselineRecordFilter fromByteArray(final byte[] bytes) throws IOException {
+        return new ImaBaselineRecordFilter(BloomFilter.readFrom(new ByteArrayInputStream(bytes),
+                Funnels.stringFunnel(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Serializes this filter.
+     *
+     * @return the serialized filter
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            filter.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Determines whether the baseline may hold a record whose path or partial path is one of the
+     * given paths.
+     *
+     * @param paths the paths to look for
+     * @return false if the baseline certainly holds no such record
+     */
+    public boolean mightContainAnyPath(final Collection<String> paths) {
+        for (String path : paths) {
+            if (filter.mightContain(PATH_PREFIX + path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether the baseline may hold a record of the given hash.
+     *
+     * @param hash the hash to look for
+     * @return false if the baseline certainly holds no record of the hash
+     */
+    public boolean mightContainHash(final Digest hash) {
+        return filter.mightContain(HASH_PREFIX + hash);
+    }
+}
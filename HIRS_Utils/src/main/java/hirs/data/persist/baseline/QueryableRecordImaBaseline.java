@@ -10,21 +10,70 @@ import hirs.ima.matching.ImaAcceptableHashRecordMatcher;
 import hirs.ima.matching.ImaAcceptablePathAndHashRecordMatcher;
 import hirs.ima.matching.ImaRecordMatcher;
 import hirs.persist.ImaBaselineRecordManager;
-import hirs.utils.Callback;
+import hirs.persist.ImaBaselineSnapshot;
+import hirs.persist.ImaBaselineSnapshotCache;
+import hirs.persist.RepositoryManager;
+import hirs.repository.RepoPackage;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.hibernate.Criteria;
 
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Column;
+import javax.persistence.Lob;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Transient;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This class defines the basis of operation for a baseline that supports querying
  * a persistence layer for its component {@link IMABaselineRecord}s.  A QueryableRecordImaBaseline
  * uses this functionality to implement its <code>contains</code> method.
+ * <p>
+ * Once saved, the records of a baseline are looked up in an {@link ImaBaselineSnapshot}, built
+ * when the repository packages of the baseline change and shared by every appraisal, rather than
+ * streamed out of the database by each appraisal.
+ * <p>
+ * An {@link ImaBaselineRecordFilter} of the records is rebuilt and persisted with the baseline
+ * when it is updated.  Measurements the filter rules out are not looked up, and a batch of
+ * measurements that are all ruled out is appraised without reading any baseline record.
  */
+@MappedSuperclass
+@Access(AccessType.FIELD)
 public abstract class QueryableRecordImaBaseline extends ImaAcceptableRecordBaseline {
+    private static final Logger LOGGER = LogManager.getLogger(QueryableRecordImaBaseline.class);
+
+    private static final int MAX_RECORD_FILTER_SIZE = 0x10000000;
+    private static final int RECORDS_VERSION_LENGTH = 16;
+
+    /**
+     * The serialized {@link ImaBaselineRecordFilter} of the records of this baseline.
+     */
+    @Lob
+    @Column(length = MAX_RECORD_FILTER_SIZE)
+    private byte[] recordFilter;
+
+    /**
+     * The version of the records the filter was built from, see {@link #getRecordsVersion()}.
+     */
+    @Column
+    private String recordFilterVersion;
+
+    @Transient
+    private ImaBaselineRecordFilter cachedRecordFilter;
+
     /**
      * Constructor used to initialize an <code>QueryableRecordImaBaseline</code> with a name.
      *
@@ -58,26 +107,42 @@ public abstract class QueryableRecordImaBaseline extends ImaAcceptableRecordBase
         Preconditions.checkArgument(records != null, "records cannot be null");
         Preconditions.checkArgument(recordManager != null, "record manager cannot be null");
 
+        final ImaBaselineRecordFilter filter = getRecordFilter();
         final Collection<String> pathsToFind = new HashSet<>();
         for (IMAMeasurementRecord record : records) {
             if (record != null) {
-                pathsToFind.addAll(ImaRecordMatcher.getMatchingPaths(imaPolicy, record.getPath()));
+                Collection<String> matchingPaths =
+                        ImaRecordMatcher.getMatchingPaths(imaPolicy, record.getPath());
+                if (filter == null || filter.mightContainAnyPath(matchingPaths)) {
+                    pathsToFind.addAll(matchingPaths);
+                }
             }
         }
 
-        Collection<IMABaselineRecord> retrievedRecords = recordManager.iterateOverBaselineRecords(
-                this, new Callback<IMABaselineRecord, IMABaselineRecord>() {
-                    @Override
-                    public IMABaselineRecord call(final IMABaselineRecord baselineRecord) {
-                        if (pathsToFind.contains(baselineRecord.getPath())) {
-                            return baselineRecord;
-                        } else if (imaPolicy.isPartialPathEnable()
-                                && pathsToFind.contains(baselineRecord.getPartialPath())) {
-                            return baselineRecord;
-                        }
-                        return null;
-                    }
-        });
+        if (pathsToFind.isEmpty()) {
+            return new ImaAcceptablePathAndHashRecordMatcher(
+                    Collections.emptyList(), imaPolicy, this
+            ).batchMatch(records);
+        }
+
+        final ImaBaselineSnapshot snapshot =
+                ImaBaselineSnapshotCache.getInstance().get(this, recordManager);
+        if (snapshot != null) {
+            return new ImaAcceptablePathAndHashRecordMatcher(
+                    snapshot.getRecordsByPath(pathsToFind, imaPolicy.isPartialPathEnable()),
+                    imaPolicy, this
+            ).batchMatch(records);
+        }
+
+        Collection<IMABaselineRecord> retrievedRecords;
+        try (Stream<IMABaselineRecord> baselineRecords =
+                     recordManager.streamBaselineRecords(this)) {
+            retrievedRecords = baselineRecords
+                    .filter(baselineRecord -> pathsToFind.contains(baselineRecord.getPath())
+                            || (imaPolicy.isPartialPathEnable()
+                            && pathsToFind.contains(baselineRecord.getPartialPath())))
+                    .collect(Collectors.toList());
+        }
 
         return new ImaAcceptablePathAndHashRecordMatcher(retrievedRecords, imaPolicy, this)
                 .batchMatch(records);
@@ -100,21 +165,34 @@ public abstract class QueryableRecordImaBaseline extends ImaAcceptableRecordBase
         Preconditions.checkArgument(records != null, "records cannot be null");
         Preconditions.checkArgument(recordManager != null, "record manager cannot be null");
 
+        final ImaBaselineRecordFilter filter = getRecordFilter();
         final Set<Digest> hashesToFind = records.stream()
                 .filter(Objects::nonNull)
                 .map(IMAMeasurementRecord::getHash)
+                .filter(hash -> filter == null || filter.mightContainHash(hash))
                 .collect(Collectors.toSet());
 
-        Collection<IMABaselineRecord> retrievedRecords = recordManager.iterateOverBaselineRecords(
-                this, new Callback<IMABaselineRecord, IMABaselineRecord>() {
-                    @Override
-                    public IMABaselineRecord call(final IMABaselineRecord baselineRecord) {
-                        if (hashesToFind.contains(baselineRecord.getHash())) {
-                            return baselineRecord;
-                        }
-                        return null;
-                    }
-                });
+        if (hashesToFind.isEmpty()) {
+            return new ImaAcceptableHashRecordMatcher(
+                    Collections.emptyList(), imaPolicy, this
+            ).batchMatch(records);
+        }
+
+        final ImaBaselineSnapshot snapshot =
+                ImaBaselineSnapshotCache.getInstance().get(this, recordManager);
+        if (snapshot != null) {
+            return new ImaAcceptableHashRecordMatcher(
+                    snapshot.getRecordsByHash(hashesToFind), imaPolicy, this
+            ).batchMatch(records);
+        }
+
+        Collection<IMABaselineRecord> retrievedRecords;
+        try (Stream<IMABaselineRecord> baselineRecords =
+                     recordManager.streamBaselineRecords(this)) {
+            retrievedRecords = baselineRecords
+                    .filter(baselineRecord -> hashesToFind.contains(baselineRecord.getHash()))
+                    .collect(Collectors.toList());
+        }
 
         return new ImaAcceptableHashRecordMatcher(retrievedRecords, imaPolicy, this)
                 .batchMatch(records);
@@ -132,16 +210,18 @@ public abstract class QueryableRecordImaBaseline extends ImaAcceptableRecordBase
             throw new IllegalArgumentException("ImaBaselineRecordManager cannot be null");
         }
 
-        return recordManager.iterateOverBaselineRecords(
-                this, new Callback<IMABaselineRecord, IMABaselineRecord>() {
-            @Override
-            public IMABaselineRecord call(final IMABaselineRecord param) {
-                if (!foundRecords.contains(param)) {
-                    return param;
-                }
-                return null;
-            }
-        });
+        final ImaBaselineSnapshot snapshot =
+                ImaBaselineSnapshotCache.getInstance().get(this, recordManager);
+        if (snapshot != null) {
+            return snapshot.getRecords(record -> !foundRecords.contains(record));
+        }
+
+        try (Stream<IMABaselineRecord> baselineRecords =
+                     recordManager.streamBaselineRecords(this)) {
+            return baselineRecords
+                    .filter(baselineRecord -> !foundRecords.contains(baselineRecord))
+                    .collect(Collectors.toList());
+        }
     }
 
     /**
@@ -153,4 +233,75 @@ public abstract class QueryableRecordImaBaseline extends ImaAcceptableRecordBase
      * @param bucket the bucket that should be configured on the criteria
      */
     public abstract void configureCriteriaForBaselineRecords(Criteria criteria, int bucket);
+
+    /**
+     * Get the <code>Set</code> of <code>RepoPackage</code>s whose records make up this baseline.
+     *
+     * @return the RepoPackages associated with this baseline
+     */
+    public abstract Set<RepoPackage> getRepositoryPackages();
+
+    /**
+     * Computes the version of the records of this baseline.  The records of a baseline are those
+     * of its repository packages, which are immutable once measured, so the version changes with
+     * the ids and measurement dates of the packages.
+     *
+     * @return a short hexadecimal digest of the packages of this baseline
+     */
+    public final String getRecordsVersion() {
+        Collection<String> packages = new TreeSet<>();
+        for (RepoPackage repoPackage : getRepositoryPackages()) {
+            Long measurementTime = null;
+            if (repoPackage.getMeasurementDate() != null) {
+                measurementTime = repoPackage.getMeasurementDate().getTime();
+            }
+            packages.add(String.format("%s:%s", repoPackage.getId(), measurementTime));
+        }
+        return DigestUtils.sha256Hex(String.join(",", packages))
+                .substring(0, RECORDS_VERSION_LENGTH);
+    }
+
+    /**
+     * Rebuilds the {@link ImaBaselineRecordFilter} of this baseline from the records of its
+     * measured repository packages.  Called when the packages of the baseline are updated.
+     *
+     * @param repositoryManager a repository manager to use to load the records of the packages,
+     *                          or null if the packages already hold their records
+     */
+    protected final void rebuildRecordFilter(final RepositoryManager repositoryManager) {
+        List<IMABaselineRecord> records = new ArrayList<>();
+        for (RepoPackage repoPackage : getRepositoryPackages()) {
+            if (!repoPackage.isMeasured()) {
+                continue;
+            }
+            RepoPackage packageWithRecords = repoPackage;
+            if (repositoryManager != null) {
+                packageWithRecords = repositoryManager.getRepoPackage(repoPackage.getId());
+            }
+            records.addAll(packageWithRecords.getPackageRecords());
+        }
+
+        ImaBaselineRecordFilter filter = ImaBaselineRecordFilter.create(records);
+        recordFilter = filter.toByteArray();
+        recordFilterVersion = getRecordsVersion();
+        cachedRecordFilter = filter;
+        LOGGER.debug("Rebuilt the record filter of baseline {} from {} records", getName(),
+                records.size());
+    }
+
+    // the filter is only used if it was built from the current packages of this baseline
+    private ImaBaselineRecordFilter getRecordFilter() {
+        if (recordFilter == null || !getRecordsVersion().equals(recordFilterVersion)) {
+            return null;
+        }
+        if (cachedRecordFilter == null) {
+            try {
+                cachedRecordFilter = ImaBaselineRecordFilter.fromByteArray(recordFilter);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to read the record filter of baseline {}", getName(), e);
+                return null;
+            }
+        }
+        return cachedRecordFilter;
+    }
 }
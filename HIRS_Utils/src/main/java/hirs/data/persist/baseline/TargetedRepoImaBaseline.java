@@ -121,6 +121,8 @@ public class TargetedRepoImaBaseline extends QueryableRecordImaBaseline
         synchronized (cachedBaselineRecords) {
             this.shouldUpdateCache = true;
         }
+
+        rebuildRecordFilter(repositoryManager);
     }
 
     @Override
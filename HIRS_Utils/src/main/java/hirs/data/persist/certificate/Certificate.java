@@ -3,6 +3,10 @@ package hirs.data.persist.certificate;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.Preconditions;
 import hirs.data.persist.ArchivableEntity;
+import hirs.persist.ContentBlob;
+import hirs.persist.ContentBlobHolder;
+import hirs.persist.ContentBlobStore;
+import hirs.persist.SearchIndexed;
 import hirs.utils.HexUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -37,7 +41,10 @@ import org.bouncycastle.x509.extension.X509ExtensionUtil;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import javax.persistence.Transient;
+import javax.persistence.UniqueConstraint;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigInteger;
@@ -74,8 +81,27 @@ import org.bouncycastle.asn1.x509.DistributionPointName;
  * It stores certain attributes separately from the serialized certificate to enable querying on
  * those attributes.
  */
+@SearchIndexed
 @Entity
-public abstract class Certificate extends ArchivableEntity {
+@Table(name = "Certificate",
+        uniqueConstraints = { @UniqueConstraint(name = "certificate_content",
+                columnNames = { "contentDigest", "DTYPE" }) },
+        indexes = {
+        @Index(name = "certificate_serial_number", columnList = "serialNumber"),
+        @Index(name = "certificate_holder_serial_number", columnList = "holderSerialNumber"),
+        @Index(name = "certificate_hash", columnList = "certificateHash"),
+        @Index(name = "certificate_issuer", columnList = "issuer"),
+        @Index(name = "certificate_issuer_sorted", columnList = "issuerSorted"),
+        @Index(name = "certificate_subject", columnList = "subject"),
+        @Index(name = "certificate_subject_sorted", columnList = "subjectSorted"),
+        @Index(name = "certificate_authority_key_id", columnList = "authorityKeyIdentifier"),
+        @Index(name = "certificate_public_key_digest", columnList = "encodedPublicKeyDigest"),
+        @Index(name = "certificate_modulus_digest", columnList = "publicKeyModulusDigest"),
+        @Index(name = "certificate_subject_key_id", columnList = "subjectKeyIdentifier"),
+        @Index(name = "certificate_manufacturer_model", columnList = "manufacturer, model"),
+        @Index(name = "certificate_platform_serial", columnList = "platformSerial"),
+        @Index(name = "certificate_chassis_serial", columnList = "chassisSerialNumber") })
+public abstract class Certificate extends ArchivableEntity implements ContentBlobHolder {
     private static final String PEM_HEADER = "-----BEGIN CERTIFICATE-----";
     private static final String PEM_FOOTER = "-----END CERTIFICATE-----";
     private static final String PEM_ATTRIBUTE_HEADER = "-----BEGIN ATTRIBUTE CERTIFICATE-----";
@@ -199,6 +225,24 @@ public abstract class Certificate extends ArchivableEntity {
     @Column(length = MAX_PUB_KEY_MODULUS_HEX_LENGTH, nullable = true)
     private final String publicKeyModulusHexValue;
 
+    /**
+     * Holds the name of the 'encodedPublicKeyDigest' field, the digest of the encoded public key
+     * through which certificates are looked up by public key.
+     */
+    public static final String ENCODED_PUBLIC_KEY_DIGEST_FIELD = "encodedPublicKeyDigest";
+    @Column(length = ContentBlob.DIGEST_LENGTH, nullable = true)
+    @JsonIgnore
+    private final String encodedPublicKeyDigest;
+
+    /**
+     * Holds the name of the 'publicKeyModulusDigest' field, the digest of the public key modulus
+     * hex value through which certificates are looked up by modulus.
+     */
+    public static final String PUBLIC_KEY_MODULUS_DIGEST_FIELD = "publicKeyModulusDigest";
+    @Column(length = ContentBlob.DIGEST_LENGTH, nullable = true)
+    @JsonIgnore
+    private final String publicKeyModulusDigest;
+
     @Column(length = MAX_CERT_LENGTH_BYTES, nullable = false)
     private final byte[] signature;
 
@@ -208,10 +252,22 @@ public abstract class Certificate extends ArchivableEntity {
     @Column(nullable = false)
     private final Date endValidity;
 
-    @Column(length = MAX_CERT_LENGTH_BYTES, nullable = false)
+    /**
+     * The encoded certificate, stored in a {@link hirs.persist.ContentBlob} identified by
+     * contentDigest and loaded the first time it is needed.
+     */
+    @Transient
     @JsonIgnore
     private byte[] certificateBytes;
 
+    /**
+     * Holds the name of the 'contentDigest' field.
+     */
+    public static final String CONTENT_DIGEST_FIELD = "contentDigest";
+    @Column(length = ContentBlob.DIGEST_LENGTH)
+    @JsonIgnore
+    private final String contentDigest;
+
     /**
      * Holds the name of the 'certificateHash' field.
      */
@@ -274,10 +330,13 @@ public abstract class Certificate extends ArchivableEntity {
 
         this.encodedPublicKey = null;
         this.publicKeyModulusHexValue = null;
+        this.encodedPublicKeyDigest = null;
+        this.publicKeyModulusDigest = null;
         this.signature = null;
         this.beginValidity = null;
         this.endValidity = null;
         this.certificateBytes = null;
+        this.contentDigest = null;
         this.certificateHash = 0;
         this.certAndTypeHash = 0;
         this.holderSerialNumber = BigInteger.ZERO;
@@ -463,6 +522,9 @@ public abstract class Certificate extends ArchivableEntity {
         }
 
         this.certificateHash = Arrays.hashCode(this.certificateBytes);
+        this.contentDigest = ContentBlobStore.digest(this.certificateBytes);
+        this.encodedPublicKeyDigest = getLookupDigest(this.encodedPublicKey);
+        this.publicKeyModulusDigest = getLookupDigest(this.publicKeyModulusHexValue);
         this.certAndTypeHash = Objects.hash(certificateHash, getClass().getSimpleName());
     }
 
@@ -814,7 +876,8 @@ public abstract class Certificate extends ArchivableEntity {
             return parsedX509Cert;
         }
 
-        try (ByteArrayInputStream certInputStream = new ByteArrayInputStream(certificateBytes)) {
+        try (ByteArrayInputStream certInputStream =
+                     new ByteArrayInputStream(getCertificateBytes())) {
             CertificateFactory cf = CertificateFactory.getInstance("X.509");
             parsedX509Cert = (X509Certificate) cf.generateCertificate(certInputStream);
             return parsedX509Cert;
@@ -832,7 +895,7 @@ public abstract class Certificate extends ArchivableEntity {
      */
     @JsonIgnore
     public X509AttributeCertificateHolder getX509AttributeCertificateHolder() throws IOException {
-        return new X509AttributeCertificateHolder(certificateBytes);
+        return new X509AttributeCertificateHolder(getCertificateBytes());
     }
 
     /**
@@ -845,7 +908,7 @@ public abstract class Certificate extends ArchivableEntity {
     @JsonIgnore
     public AttributeCertificate getAttributeCertificate() throws IOException {
         AttributeCertificate attCertificate = AttributeCertificate
-                .getInstance(ASN1Primitive.fromByteArray(certificateBytes));
+                .getInstance(ASN1Primitive.fromByteArray(getCertificateBytes()));
         return attCertificate;
     }
 
@@ -993,6 +1056,36 @@ public abstract class Certificate extends ArchivableEntity {
         return publicKeyModulusHexValue;
     }
 
+    /**
+     * Computes the digest that is stored for a value too long to be indexed, such as an encoded
+     * public key, so that certificates can be looked up by the value through an index on the
+     * digest.
+     *
+     * @param value the value, may be null
+     * @return the hex encoded SHA-256 digest of the value, or null if the value is null
+     */
+    public static String getLookupDigest(final byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        return ContentBlobStore.digest(value);
+    }
+
+    /**
+     * Computes the digest that is stored for a value too long to be indexed, such as a public
+     * key modulus hex value, so that certificates can be looked up by the value through an index
+     * on the digest.
+     *
+     * @param value the value, may be null
+     * @return the hex encoded SHA-256 digest of the value, or null if the value is null
+     */
+    public static String getLookupDigest(final String value) {
+        if (value == null) {
+            return null;
+        }
+        return ContentBlobStore.digest(value.getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * @return this certificate's signature
      */
@@ -1042,12 +1135,42 @@ public abstract class Certificate extends ArchivableEntity {
      */
     @JsonIgnore
     public byte[] getRawBytes() {
-        if (this.certificateBytes != null) {
-            return this.certificateBytes.clone();
+        byte[] bytes = getCertificateBytes();
+        if (bytes != null) {
+            return bytes.clone();
         }
         return null;
     }
 
+    /**
+     * Gets the raw bytes for the certificate, loading them from the blob store if needed.
+     *
+     * @return copy of the certificate bytes
+     */
+    @Override
+    @JsonIgnore
+    public byte[] getContent() {
+        return getRawBytes();
+    }
+
+    /**
+     * Gets the hex encoded SHA-256 digest of the certificate bytes.
+     *
+     * @return the digest of the certificate bytes
+     */
+    @Override
+    @JsonIgnore
+    public String getContentDigest() {
+        return contentDigest;
+    }
+
+    private byte[] getCertificateBytes() {
+        if (certificateBytes == null && contentDigest != null) {
+            certificateBytes = ContentBlobStore.load(contentDigest);
+        }
+        return certificateBytes;
+    }
+
     @Override
     public String toString() {
         return String.format("Certificate{%s, AuthID=%s, serialNumber=%s, "
@@ -1070,12 +1193,13 @@ public abstract class Certificate extends ArchivableEntity {
 
         Certificate that = (Certificate) o;
 
-        return Arrays.equals(certificateBytes, that.certificateBytes);
+        // equal digests identify equal certificate bytes, without loading them
+        return Objects.equals(contentDigest, that.contentDigest);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(certificateBytes);
+        return certificateHash;
     }
 
     /**
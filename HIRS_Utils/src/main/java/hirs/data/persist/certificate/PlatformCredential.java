@@ -11,6 +11,7 @@ import hirs.persist.CertificateManager;
 import hirs.persist.CertificateSelector;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -170,6 +171,17 @@ public class PlatformCredential extends DeviceAssociatedCertificate {
             return this;
         }
 
+        /**
+         * Specify board serial numbers of which certificates must have one to be considered as
+         * matching.
+         * @param boardSerialNumbers the board serial numbers to query, not empty or null
+         * @return this instance (for chaining further calls)
+         */
+        public Selector byBoardSerialNumbers(final Collection<String> boardSerialNumbers) {
+            setFieldValues(PLATFORM_SERIAL_FIELD, boardSerialNumbers);
+            return this;
+        }
+
         /**
          * Specify a chassis serial number that certificates must have to be considered as matching.
          * @param chassisSerialNumber the board serial number to query, not empty or null
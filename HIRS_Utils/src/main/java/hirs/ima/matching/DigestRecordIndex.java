@@ -0,0 +1,161 @@
+package hirs.ima.matching;
+
+import hirs.data.persist.Digest;
+import hirs.data.persist.baseline.AbstractImaBaselineRecord;
+import hirs.data.persist.enums.DigestAlgorithm;
+import hirs.data.persist.enums.DigestComparisonResultType;
+
+import java.util.List;
+
+/**
+ * Compact index of the hashes of baseline records, identified by their position in the list
+ * given at construction. It replaces a map from {@link Digest} objects to records, which costs
+ * several objects per record, with a few primitive arrays:
+ * <ul>
+ *   <li>the digest bytes of all records, packed one after the other, with the offset and
+ *   algorithm of each record,</li>
+ *   <li>an open-addressing table whose slots hold the id of a record of each distinct digest,
+ *   the digest bytes of the record serving as the key,</li>
+ *   <li>the id of the next record with the same digest, for each record.</li>
+ * </ul>
+ * Looking up a digest or comparing it with the digest of a record reads bytes in place and
+ * allocates nothing. Digests are equal if their algorithms and bytes are equal, as with
+ * {@link Digest#equals(Object)}.
+ */
+final class DigestRecordIndex {
+
+    /**
+     * Returned by {@link #first(Digest)} and {@link #next(int)} after the last record.
+     */
+    static final int NONE = -1;
+
+    private static final byte NO_DIGEST = -1;
+    private static final int HASH_MULTIPLIER = 31;
+    private static final DigestAlgorithm[] ALGORITHMS = DigestAlgorithm.values();
+
+    private final byte[] algorithms;
+    private final int[] offsets;
+    private final byte[] digests;
+    private final int[] slots;
+    private final int[] next;
+
+    /**
+     * Indexes the hashes of the given records.
+     *
+     * @param records the records, whose ids are their positions in the list
+     */
+    DigestRecordIndex(final List<? extends AbstractImaBaselineRecord> records) {
+        int count = records.size();
+        algorithms = new byte[count];
+        offsets = new int[count];
+        next = new int[count];
+
+        int length = 0;
+        for (int id = 0; id < count; id++) {
+            Digest digest = records.get(id).getHash();
+            offsets[id] = length;
+            if (digest == null) {
+                algorithms[id] = NO_DIGEST;
+            } else {
+                algorithms[id] = (byte) digest.getAlgorithm().ordinal();
+                length += digest.getAlgorithm().getLengthInBytes();
+            }
+        }
+
+        digests = new byte[length];
+        slots = new int[tableCapacity(count)];
+        for (int id = 0; id < count; id++) {
+            next[id] = NONE;
+            Digest digest = records.get(id).getHash();
+            if (digest != null) {
+                byte[] bytes = digest.getDigest();
+                System.arraycopy(bytes, 0, digests, offsets[id], bytes.length);
+                insert(id, digest);
+            }
+        }
+    }
+
+    /**
+     * Gets the first record with the given digest.
+     *
+     * @param digest the digest to look up
+     * @return the id of the record, or {@link #NONE} if no record has the digest
+     */
+    int first(final Digest digest) {
+        if (digest == null) {
+            return NONE;
+        }
+        int mask = slots.length - 1;
+        for (int slot = hash(digest) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (compare(id, digest) == DigestComparisonResultType.MATCH) {
+                return id;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Gets the record following the given one with the same digest.
+     *
+     * @param id the id of a record returned by {@link #first(Digest)} or this method
+     * @return the id of the next record, or {@link #NONE} if there are no more
+     */
+    int next(final int id) {
+        return next[id];
+    }
+
+    /**
+     * Compares the digest of a record with the given digest, as
+     * {@link hirs.data.persist.AbstractDigest#compare(Digest)} does.
+     *
+     * @param id the id of the record
+     * @param digest the digest to compare with
+     * @return UNKNOWN if either digest is null, MATCH if they are equal, MISMATCH otherwise
+     */
+    DigestComparisonResultType compare(final int id, final Digest digest) {
+        if (digest == null || algorithms[id] == NO_DIGEST) {
+            return DigestComparisonResultType.UNKNOWN;
+        }
+        DigestAlgorithm algorithm = ALGORITHMS[algorithms[id]];
+        if (algorithm != digest.getAlgorithm()) {
+            return DigestComparisonResultType.MISMATCH;
+        }
+        int offset = offsets[id];
+        for (int i = 0; i < algorithm.getLengthInBytes(); i++) {
+            if (digests[offset + i] != digest.getDigestByte(i)) {
+                return DigestComparisonResultType.MISMATCH;
+            }
+        }
+        return DigestComparisonResultType.MATCH;
+    }
+
+    private void insert(final int id, final Digest digest) {
+        int mask = slots.length - 1;
+        int slot = hash(digest) & mask;
+        while (slots[slot] != 0) {
+            int head = slots[slot] - 1;
+            if (compare(head, digest) == DigestComparisonResultType.MATCH) {
+                next[id] = head;
+                slots[slot] = id + 1;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+    }
+
+    // the same hash as Arrays.hashCode, without copying the digest
+    private static int hash(final Digest digest) {
+        int hash = digest.getAlgorithm().ordinal();
+        for (int i = 0; i < digest.getAlgorithm().getLengthInBytes(); i++) {
+            hash = HASH_MULTIPLIER * hash + digest.getDigestByte(i);
+        }
+        return hash ^ (hash >>> (Integer.SIZE / 2));
+    }
+
+    // a power of two keeping the table at most half full
+    private static int tableCapacity(final int count) {
+        return Integer.highestOneBit(Math.max(1, count) * 2 - 1) * 2;
+    }
+}
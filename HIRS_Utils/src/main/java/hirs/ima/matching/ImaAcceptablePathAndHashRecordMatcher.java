@@ -1,28 +1,22 @@
 package hirs.ima.matching;
 
 import com.google.common.base.Preconditions;
-import hirs.data.persist.enums.DigestComparisonResultType;
 import hirs.data.persist.baseline.IMABaselineRecord;
 import hirs.data.persist.IMAMeasurementRecord;
 import hirs.data.persist.IMAPolicy;
 import hirs.data.persist.baseline.ImaBaseline;
 import hirs.data.persist.enums.ReportMatchStatus;
-import org.apache.logging.log4j.Logger;
 
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
-import static org.apache.logging.log4j.LogManager.getLogger;
-
 /**
  * This class extends the base matching functionality of {@link ImaRecordMatcher} to
  * compare {@link IMAMeasurementRecord}s against a collection of {@link IMABaselineRecord}s
  * based on both their paths and hashes.
  */
 public class ImaAcceptablePathAndHashRecordMatcher extends ImaRecordMatcher<IMABaselineRecord> {
-    private static final Logger LOGGER = getLogger(ImaAcceptablePathAndHashRecordMatcher.class);
-
     /**
      * Construct a new ImaAcceptablePathAndHashRecordMatcher.
      *
@@ -53,15 +47,7 @@ public class ImaAcceptablePathAndHashRecordMatcher extends ImaRecordMatcher<IMAB
         final Set<IMABaselineRecord> matchRecords = new HashSet<>();
         final Set<IMABaselineRecord> mismatchRecords = new HashSet<>();
 
-        final Collection<IMABaselineRecord> matchingRecords = getRelatedBaselineRecordsByPath(
-                record
-        );
-
-        for (IMABaselineRecord baselineRecord : matchingRecords) {
-            compareDigestsAndPopulateMatchLists(
-                    baselineRecord, record, matchRecords, mismatchRecords
-            );
-        }
+        getRelatedBaselineRecordsByPathAndHash(record, matchRecords, mismatchRecords);
 
         if (matchRecords.isEmpty() && mismatchRecords.isEmpty()) {
             return new IMAMatchStatus<>(record, ReportMatchStatus.UNKNOWN, getImaBaseline());
@@ -80,27 +66,4 @@ public class ImaAcceptablePathAndHashRecordMatcher extends ImaRecordMatcher<IMAB
                 getImaBaseline()
         );
     }
-
-
-    private static void compareDigestsAndPopulateMatchLists(
-            final IMABaselineRecord baselineRecord,
-            final IMAMeasurementRecord measurementRecord,
-            final Set<IMABaselineRecord> matchRecords,
-            final Set<IMABaselineRecord> mismatchRecords) {
-        DigestComparisonResultType comparison =
-                measurementRecord.getHash().compare(baselineRecord.getHash());
-
-        switch (comparison) {
-            case MATCH:
-                matchRecords.add(baselineRecord);
-                break;
-            case MISMATCH:
-                mismatchRecords.add(baselineRecord);
-                break;
-            default:
-                LOGGER.warn("{} comparison result when comparing {} with {}.",
-                        comparison, baselineRecord, measurementRecord);
-                break;
-        }
-    }
 }
@@ -5,19 +5,20 @@ import hirs.data.persist.IMAPolicy;
 import hirs.data.persist.baseline.ImaBaseline;
 import hirs.data.persist.ImaIgnoreSetRecord;
 import hirs.data.persist.enums.ReportMatchStatus;
-import hirs.utils.RegexFilePathMatcher;
+import hirs.utils.MultiRegexFilePathMatcher;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
 
 /**
  * This class extends the base matching functionality of {@link ImaRecordMatcher} to
  * compare {@link IMAMeasurementRecord}s against a collection of {@link ImaIgnoreSetRecord}s.
+ * The paths of the ignore set records are compiled once into a
+ * {@link MultiRegexFilePathMatcher}, so that matching a measured path does not evaluate every
+ * pattern of the ignore set.
  */
 public class ImaIgnoreSetRecordMatcher extends ImaRecordMatcher<ImaIgnoreSetRecord> {
-    private Map<ImaIgnoreSetRecord, RegexFilePathMatcher> matchers = new HashMap<>();
+    private final MultiRegexFilePathMatcher<ImaIgnoreSetRecord> matcher;
 
     /**
      * Construct a new ImaBlacklistRecordMatcher.
@@ -32,10 +33,7 @@ public class ImaIgnoreSetRecordMatcher extends ImaRecordMatcher<ImaIgnoreSetReco
             final IMAPolicy imaPolicy,
             final ImaBaseline imaBaseline) {
         super(records, imaPolicy, imaBaseline);
-
-        for (ImaIgnoreSetRecord ignoreRecord : records) {
-            matchers.put(ignoreRecord, new RegexFilePathMatcher(ignoreRecord.getPath()));
-        }
+        matcher = new MultiRegexFilePathMatcher<>(records, ImaIgnoreSetRecord::getPath);
     }
 
     /**
@@ -64,13 +62,7 @@ public class ImaIgnoreSetRecordMatcher extends ImaRecordMatcher<ImaIgnoreSetReco
         }
 
         Set<ImaIgnoreSetRecord> matchingRecords = getRelatedBaselineRecordsByPath(record);
-
-        for (Map.Entry<ImaIgnoreSetRecord, RegexFilePathMatcher> recordMatcher
-                : matchers.entrySet()) {
-            if (recordMatcher.getValue().isMatch(record.getPath())) {
-                matchingRecords.add(recordMatcher.getKey());
-            }
-        }
+        matchingRecords.addAll(matcher.getMatches(record.getPath()));
 
         if (matchingRecords.isEmpty()) {
             return new IMAMatchStatus<>(record, ReportMatchStatus.UNKNOWN, getImaBaseline());
@@ -1,13 +1,13 @@
 package hirs.ima.matching;
 
-import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.Multimap;
-import hirs.data.persist.Digest;
 import hirs.data.persist.baseline.IMABaselineRecord;
 import hirs.data.persist.IMAMeasurementRecord;
 import hirs.data.persist.IMAPolicy;
 import hirs.data.persist.baseline.AbstractImaBaselineRecord;
 import hirs.data.persist.baseline.ImaBaseline;
+import hirs.data.persist.enums.DigestComparisonResultType;
+import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -15,22 +15,32 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import static org.apache.logging.log4j.LogManager.getLogger;
+
 /**
  * This class contains the logic used to match IMA measurement records against
  * IMA baseline records.  Given a collection of IMABaselineRecords, an IMAPolicy,
  * and an ImaBaseline, it is able to determine which measurement records should be considered
  * matches, mismatches, or unknown to the given set of baseline records.
+ * <p>
+ * The baseline records are looked up through a {@link PathRecordIndex} and a
+ * {@link DigestRecordIndex}, built the first time they are needed. These identify records by
+ * their position in a list rather than holding them in maps keyed by path and hash, so that
+ * large baselines take little memory beyond the records themselves.
  *
  * @param <T> the type of IMA baseline record that this class matches against
  */
 public abstract class ImaRecordMatcher<T extends AbstractImaBaselineRecord> {
+    private static final Logger LOGGER = getLogger(ImaRecordMatcher.class);
+
     private final IMAPolicy imaPolicy;
     private final ImaBaseline imaBaseline;
     private final Collection<T> records;
 
-    // lookup maps
-    private Multimap<String, T> pathMap = null;
-    private Multimap<String, T> hashMap = null;
+    // lookup indices, identifying records by their position in indexedRecords
+    private List<T> indexedRecords = null;
+    private PathRecordIndex pathIndex = null;
+    private DigestRecordIndex digestIndex = null;
 
     /**
      * Construct a new IMARecordMatcher.
@@ -98,28 +108,31 @@ public abstract class ImaRecordMatcher<T extends AbstractImaBaselineRecord> {
             throw new IllegalArgumentException("Cannot match on null record.");
         }
 
-        if (pathMap == null) {
-            pathMap = createPathMap(this.records);
-        }
-
         final Set<T> matchingRecords = new HashSet<>();
-        matchingRecords.addAll(pathMap.get(record.getPath()));
-
-        if (imaPolicy.isPartialPathEnable() && isFullPath(record.getPath())) {
-            for (T matchingPartialRecord
-                    : pathMap.get(IMABaselineRecord.getPartialPath(record.getPath()))) {
+        addRelatedBaselineRecordsByPath(record, matchingRecords, null);
+        return matchingRecords;
+    }
 
-                // ensure that we're not about to match two unequal full paths
-                if (isFullPath(matchingPartialRecord.getPath())
-                        && !matchingPartialRecord.getPath().equals(record.getPath())) {
-                    continue;
-                } else {
-                    matchingRecords.add(matchingPartialRecord);
-                }
-            }
+    /**
+     * Gets all IMA baseline records that are related to the given IMA measurement record
+     * as determined by path similarity or equivalency, as with
+     * {@link #getRelatedBaselineRecordsByPath(IMAMeasurementRecord)}, and splits them by whether
+     * their hash matches the hash of the measurement record.  The hashes are compared in the
+     * digest index, without copying the hashes of the baseline records.  Records without a hash
+     * are in neither set.
+     *
+     * @param record the record for which all matching IMA baseline records should be returned
+     * @param matchRecords the set to add the related records with a matching hash to
+     * @param mismatchRecords the set to add the related records with a different hash to
+     */
+    protected void getRelatedBaselineRecordsByPathAndHash(final IMAMeasurementRecord record,
+                                                          final Set<T> matchRecords,
+                                                          final Set<T> mismatchRecords) {
+        if (record == null) {
+            throw new IllegalArgumentException("Cannot match on null record.");
         }
 
-        return matchingRecords;
+        addRelatedBaselineRecordsByPath(record, matchRecords, mismatchRecords);
     }
 
     /**
@@ -134,42 +147,96 @@ public abstract class ImaRecordMatcher<T extends AbstractImaBaselineRecord> {
             throw new IllegalArgumentException("Cannot match on null record.");
         }
 
-        if (hashMap == null) {
-            hashMap = createHashMap(this.records);
+        final Set<T> matchingRecords = new HashSet<>();
+        DigestRecordIndex index = getDigestIndex();
+        for (int id = index.first(record.getHash()); id != DigestRecordIndex.NONE;
+                id = index.next(id)) {
+            matchingRecords.add(indexedRecords.get(id));
         }
-
-        return new HashSet<>(hashMap.get(record.getHash().toString()));
+        return matchingRecords;
     }
 
-    private Multimap<String, T> createPathMap(
-            final Collection<T> imaBaselineRecords) {
-        ImmutableListMultimap.Builder<String, T> mapBuilder =
-                ImmutableListMultimap.builder();
+    /**
+     * Adds the related records by path to the first set, or if a set of mismatches is given, to
+     * either set according to the comparison of their hash with the hash of the measurement.
+     */
+    private void addRelatedBaselineRecordsByPath(final IMAMeasurementRecord record,
+                                                 final Set<T> matchRecords,
+                                                 final Set<T> mismatchRecords) {
+        PathRecordIndex index = getPathIndex();
+        String path = record.getPath();
+        for (int entry = index.first(path); entry != PathRecordIndex.NONE;
+                entry = index.next(entry)) {
+            addRelatedBaselineRecord(index.recordId(entry), record, matchRecords, mismatchRecords);
+        }
+
+        if (imaPolicy.isPartialPathEnable() && isFullPath(path)) {
+            for (int entry = index.first(IMABaselineRecord.getPartialPath(path));
+                    entry != PathRecordIndex.NONE; entry = index.next(entry)) {
+                int id = index.recordId(entry);
+                String matchingPartialPath = indexedRecords.get(id).getPath();
 
-        for (T record : imaBaselineRecords) {
-            if (record.getPath() != null) {
-                for (String matchingPath : getMatchingPaths(imaPolicy, record.getPath())) {
-                    mapBuilder.put(matchingPath, record);
+                // ensure that we're not about to match two unequal full paths
+                if (!isFullPath(matchingPartialPath) || matchingPartialPath.equals(path)) {
+                    addRelatedBaselineRecord(id, record, matchRecords, mismatchRecords);
                 }
             }
         }
+    }
 
-        return mapBuilder.build();
+    private void addRelatedBaselineRecord(final int id, final IMAMeasurementRecord record,
+                                          final Set<T> matchRecords,
+                                          final Set<T> mismatchRecords) {
+        T baselineRecord = indexedRecords.get(id);
+        if (mismatchRecords == null) {
+            matchRecords.add(baselineRecord);
+            return;
+        }
+
+        DigestComparisonResultType comparison = getDigestIndex().compare(id, record.getHash());
+        switch (comparison) {
+            case MATCH:
+                matchRecords.add(baselineRecord);
+                break;
+            case MISMATCH:
+                mismatchRecords.add(baselineRecord);
+                break;
+            default:
+                LOGGER.warn("{} comparison result when comparing {} with {}.",
+                        comparison, baselineRecord, record);
+                break;
+        }
     }
 
-    private Multimap<String, T> createHashMap(
-            final Collection<T> imaBaselineRecords) {
-        ImmutableListMultimap.Builder<String, T> mapBuilder =
-                ImmutableListMultimap.builder();
+    private List<T> getIndexedRecords() {
+        if (indexedRecords == null) {
+            indexedRecords = new ArrayList<>(this.records);
+        }
+        return indexedRecords;
+    }
 
-        for (T record : imaBaselineRecords) {
-            Digest hash = record.getHash();
-            if (hash != null) {
-                mapBuilder.put(hash.toString(), record);
+    private PathRecordIndex getPathIndex() {
+        if (pathIndex == null) {
+            List<T> baselineRecords = getIndexedRecords();
+            PathRecordIndex index = new PathRecordIndex(baselineRecords.size());
+            for (int id = 0; id < baselineRecords.size(); id++) {
+                String path = baselineRecords.get(id).getPath();
+                if (path != null) {
+                    for (String matchingPath : getMatchingPaths(imaPolicy, path)) {
+                        index.add(matchingPath, id);
+                    }
+                }
             }
+            pathIndex = index;
         }
+        return pathIndex;
+    }
 
-        return mapBuilder.build();
+    private DigestRecordIndex getDigestIndex() {
+        if (digestIndex == null) {
+            digestIndex = new DigestRecordIndex(getIndexedRecords());
+        }
+        return digestIndex;
     }
 
     /**
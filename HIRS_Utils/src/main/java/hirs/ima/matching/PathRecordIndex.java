@@ -0,0 +1,127 @@
+package hirs.ima.matching;
+
+import java.util.Arrays;
+
+/**
+ * Compact index of baseline records by path, the records being identified by their position in
+ * the list they were taken from. A record may be indexed under several paths, such as its
+ * partial path and the paths equivalent to it under an IMA policy.
+ * <p>
+ * Each distinct path is held once, as the key of an open-addressing table whose slots lead to a
+ * chain of entries, and the entries are kept as pairs of ints rather than map entries. Looking
+ * up a path reads the arrays in place and allocates nothing.
+ */
+final class PathRecordIndex {
+
+    /**
+     * Returned by {@link #first(String)} and {@link #next(int)} after the last entry.
+     */
+    static final int NONE = -1;
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private String[] keys;
+    private int[] heads;
+    private int keyCount;
+
+    private int[] entryRecords;
+    private int[] entryNext;
+    private int entryCount;
+
+    /**
+     * Creates an empty index sized for the given number of paths.
+     *
+     * @param expectedPaths the number of paths expected to be added
+     */
+    PathRecordIndex(final int expectedPaths) {
+        int capacity = Integer.highestOneBit(Math.max(MINIMUM_CAPACITY, expectedPaths * 2 - 1))
+                * 2;
+        keys = new String[capacity];
+        heads = new int[capacity];
+        entryRecords = new int[Math.max(MINIMUM_CAPACITY, expectedPaths)];
+        entryNext = new int[entryRecords.length];
+    }
+
+    /**
+     * Indexes a record under the given path.
+     *
+     * @param path the path
+     * @param id the id of the record
+     */
+    void add(final String path, final int id) {
+        if (entryCount == entryRecords.length) {
+            entryRecords = Arrays.copyOf(entryRecords, entryCount * 2);
+            entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+        }
+        int slot = findSlot(path);
+        if (keys[slot] == null) {
+            keys[slot] = path;
+            heads[slot] = NONE;
+            keyCount++;
+        }
+        entryRecords[entryCount] = id;
+        entryNext[entryCount] = heads[slot];
+        heads[slot] = entryCount++;
+        if (keyCount * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * Gets the first entry of the given path.
+     *
+     * @param path the path to look up
+     * @return the entry, or {@link #NONE} if no record is indexed under the path
+     */
+    int first(final String path) {
+        int slot = findSlot(path);
+        if (keys[slot] == null) {
+            return NONE;
+        }
+        return heads[slot];
+    }
+
+    /**
+     * Gets the entry following the given one under the same path.
+     *
+     * @param entry an entry returned by {@link #first(String)} or this method
+     * @return the next entry, or {@link #NONE} if there are no more
+     */
+    int next(final int entry) {
+        return entryNext[entry];
+    }
+
+    /**
+     * Gets the record of an entry.
+     *
+     * @param entry an entry returned by {@link #first(String)} or {@link #next(int)}
+     * @return the id of the record
+     */
+    int recordId(final int entry) {
+        return entryRecords[entry];
+    }
+
+    private int findSlot(final String path) {
+        int mask = keys.length - 1;
+        int hash = path.hashCode();
+        int slot = (hash ^ (hash >>> (Integer.SIZE / 2))) & mask;
+        while (keys[slot] != null && !keys[slot].equals(path)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        String[] oldKeys = keys;
+        int[] oldHeads = heads;
+        keys = new String[oldKeys.length * 2];
+        heads = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+            }
+        }
+    }
+}
@@ -4,12 +4,15 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import hirs.FilteredRecordsList;
+import hirs.utils.Callback;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.hibernate.Criteria;
 import org.hibernate.Hibernate;
 import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.StatelessSession;
@@ -20,9 +23,12 @@ import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.internal.CriteriaImpl;
 import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.sql.JoinType;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -32,11 +38,15 @@ import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -57,6 +67,12 @@ public abstract class AbstractDbManager<T> implements CrudManager<T> {
     private static final Logger LOGGER = LogManager.getLogger(AbstractDbManager.class);
     private static final int MAX_CLASS_CACHE_ENTRIES = 500;
 
+    /**
+     * Number of objects saved by {@link #doSaveAll(Collection)} between flushes of the session,
+     * matching the JDBC batch size configured by {@link HibernateConfiguration}.
+     */
+    protected static final int SAVE_BATCH_SIZE = HibernateConfiguration.JDBC_BATCH_SIZE;
+
     private final Class<T> clazz;
 
     private SessionFactory factory;
@@ -83,6 +99,7 @@ public abstract class AbstractDbManager<T> implements CrudManager<T> {
         }
         this.clazz = clazz;
         this.factory = sessionFactory;
+        ContentBlobStore.setSessionFactory(sessionFactory);
     }
 
     private static final LoadingCache<Class, Set<Field>> PERSISTED_FIELDS =
@@ -202,7 +219,9 @@ public abstract class AbstractDbManager<T> implements CrudManager<T> {
             if (o != null && clazz.isInstance(o)) {
                 T objectOfTypeT = clazz.cast(o);
                 LOGGER.debug("found object, deleting it");
+                SearchIndex.remove(session, objectOfTypeT);
                 session.delete(objectOfTypeT);
+                ContentBlobStore.release(session, objectOfTypeT);
                 deleted = true;
             } else {
                 LOGGER.debug("object not found");
@@ -250,7 +269,9 @@ public abstract class AbstractDbManager<T> implements CrudManager<T> {
             if (object != null && clazz.isInstance(object)) {
                 T objectOfTypeT = clazz.cast(object);
                 LOGGER.debug("found object, deleting it");
+                SearchIndex.remove(session, objectOfTypeT);
                 session.delete(objectOfTypeT);
+                ContentBlobStore.release(session, objectOfTypeT);
                 deleted = true;
             }
             tx.commit();
@@ -290,7 +311,9 @@ public abstract class AbstractDbManager<T> implements CrudManager<T> {
         try {
             LOGGER.debug("deleting object from db");
             tx = session.beginTransaction();
+            SearchIndex.remove(session, object);
             session.delete(object);
+            ContentBlobStore.release(session, object);
             tx.commit();
             return true;
         } catch (Exception e) {
@@ -321,7 +344,9 @@ public abstract class AbstractDbManager<T> implements CrudManager<T> {
                     .setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY).list();
             for (Object instance : instances) {
                 if (instance != null && clazz.isInstance(instance)) {
+                    SearchIndex.remove(session, instance);
                     session.delete(clazz.cast(instance));
+                    ContentBlobStore.release(session, instance);
                     numEntitiesDeleted++;
                 }
             }
@@ -427,8 +452,10 @@ public abstract class AbstractDbManager<T> implements CrudManager<T> {
         try {
             LOGGER.debug("saving object in db");
             tx = session.beginTransaction();
+            ContentBlobStore.store(session, object);
             final Serializable id = session.save(object);
             Object o = session.get(object.getClass(), id);
+            SearchIndex.index(session, o);
             session.getTransaction().commit();
             return clazz.cast(o);
         } catch (Exception e) {
@@ -442,6 +469,53 @@ public abstract class AbstractDbManager<T> implements CrudManager<T> {
         }
     }
 
+    /**
+     * Saves the given objects in the database within a single transaction. The content blobs
+     * of the objects are stored first, in batches, and the session is flushed and cleared every
+     * {@link #SAVE_BATCH_SIZE} objects, so that the inserts are sent in JDBC batches and the
+     * session does not hold every saved object. If any object cannot be saved, none are.
+     *
+     * @param objects objects to save
+     * @return the saved objects, in the given order
+     * @throws DBManagerException if an object has previously been saved or an
+     * error occurs while trying to save it to the database
+     */
+    protected List<T> doSaveAll(final Collection<? extends T> objects)
+            throws DBManagerException {
+        LOGGER.debug("saving {} objects", objects.size());
+        List<T> saved = new ArrayList<>(objects.size());
+        if (objects.isEmpty()) {
+            return saved;
+        }
+
+        Transaction tx = null;
+        Session session = factory.getCurrentSession();
+        try {
+            LOGGER.debug("saving objects in db");
+            tx = session.beginTransaction();
+            ContentBlobStore.storeAll(session, objects);
+            for (T object : objects) {
+                session.save(object);
+                SearchIndex.index(session, object);
+                saved.add(object);
+                if (saved.size() % SAVE_BATCH_SIZE == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            tx.commit();
+            return saved;
+        } catch (Exception e) {
+            final String msg = "unable to save objects";
+            LOGGER.error(msg, e);
+            if (tx != null) {
+                LOGGER.debug("rolling back transaction");
+                tx.rollback();
+            }
+            throw new DBManagerException(msg, e);
+        }
+    }
+
     /**
      * Updates an object stored in the database. This updates the database
      * entries to reflect the new values that should be set.
@@ -461,7 +535,8 @@ public abstract class AbstractDbManager<T> implements CrudManager<T> {
         try {
             LOGGER.debug("updating object in db");
             tx = session.beginTransaction();
-            session.merge(object);
+            ContentBlobStore.store(session, object);
+            SearchIndex.index(session, session.merge(object));
             tx.commit();
         } catch (Exception e) {
             final String msg = "unable to update object";
@@ -784,26 +859,8 @@ public abstract class AbstractDbManager<T> implements CrudManager<T> {
             Long totalResultCount = (Long) criteria.uniqueResult();
 
             Long recordsFiltered = totalResultCount;
-            Conjunction and = Restrictions.conjunction();
+            Criterion and = searchCriterion(session, searchClass, search, searchableColumns);
             if (totalResultCount != 0) {
-                //Builds the search criteria from all of the searchable columns
-                if (searchableColumns != null) {
-                    // Search for all words in all searchable columns
-                    String[] searchWords = search.split(" ");
-                    for (String word : searchWords) {
-                        // Every word must be in at least one column
-                        Disjunction or = Restrictions.disjunction();
-                        for (Map.Entry<String, Boolean> entry : searchableColumns.entrySet()) {
-                            if (entry.getValue()) {
-                                or.add(ilike(entry.getKey(), word, MatchMode.ANYWHERE));
-                            } else {
-                                or.add(ilikeCast(entry.getKey(), word));
-                            }
-                        }
-                        and.add(or);
-                    }
-                }
-
                 //Retrieves a count of all the records after being filtered
                 criteria.setProjection(Projections.countDistinct("id"))
                         .add(and);
@@ -870,6 +927,421 @@ public abstract class AbstractDbManager<T> implements CrudManager<T> {
         return aqr;
     }
 
+    /**
+     * Returns the page of <code>T</code>s that follows the given cursor, ordered by a column and
+     * direction (ASC, DESC) that is provided by the user, and then by id. The page is selected
+     * with a restriction on the sort value and id of the last record of the previous page rather
+     * than an offset, so the records preceding the page are not scanned. The record counts are
+     * only queried when the cursor does not hold them.
+     *
+     * @param clazz class type of <code>T</code>s to search for (may be null to
+     * use Class&lt;T&gt;)
+     * @param columnToOrder - Column to be ordered
+     * @param ascending - direction of sort
+     * @param cursor cursor returned with the previous page, null to retrieve the first page
+     * @param maxResults total number we want returned for display in table
+     * @param search string of criteria to be matched to visible columns
+     * @param searchableColumns Map of String and boolean values with column
+     * headers and whether they should be searched. Boolean is true if field provides a
+     * typical String that can be searched by Hibernate without transformation.
+     * @param criteriaModifier - a way to modify the criteria used in the query
+     * @return FilteredRecordsList object with query data
+     * @throws DBManagerException if unable to create the list
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    protected FilteredRecordsList<T> doGetOrderedListAfter(final Class<? extends T> clazz,
+            final String columnToOrder, final boolean ascending, final OrderedListCursor cursor,
+            final int maxResults, final String search, final Map<String, Boolean> searchableColumns,
+            final CriteriaModifier criteriaModifier) throws DBManagerException {
+        LOGGER.debug("Getting object list after cursor {}", cursor);
+        Class<? extends T> searchClass = clazz;
+        if (clazz == null) {
+            searchClass = this.clazz;
+        }
+
+        FilteredRecordsList<T> aqr = new FilteredRecordsList<>();
+        Transaction tx = null;
+        Session session = factory.getCurrentSession();
+        try {
+            tx = session.beginTransaction();
+            List<Serializable> ids = selectPage(session, searchClass, columnToOrder, ascending,
+                    cursor, 0, maxResults, search, searchableColumns, criteriaModifier, aqr);
+
+            if (!ids.isEmpty()) {
+                Criteria finalCriteria = session.createCriteria(searchClass)
+                        .add(Restrictions.in("id", ids))
+                        .setResultTransformer(CriteriaSpecification.DISTINCT_ROOT_ENTITY);
+                criteriaModifier.modify(finalCriteria);
+                addOrders(finalCriteria, columnToOrder, ascending);
+                for (Object o : finalCriteria.list()) {
+                    if (searchClass.isInstance(o)) {
+                        aqr.add(searchClass.cast(o));
+                    }
+                }
+            }
+            tx.commit();
+        } catch (HibernateException e) {
+            final String msg = "unable to retrieve object list";
+            LOGGER.error(msg, e);
+            if (tx != null) {
+                LOGGER.debug("rolling back transaction");
+                tx.rollback();
+            }
+            throw e;
+        }
+        return aqr;
+    }
+
+    /**
+     * Returns a page of <code>T</code>s, selected like
+     * {@link #doGetOrderedListAfter(Class, String, boolean, OrderedListCursor, int, String, Map,
+     * CriteriaModifier)} or by offset when there is no cursor, holding only the given properties
+     * of each record. The properties of a referenced entity are named by their path and are
+     * retrieved through a left outer join on the association, unless the criteria modifier
+     * already joins it under an alias named after it.
+     *
+     * @param clazz class type of <code>T</code>s to search for (may be null to
+     * use Class&lt;T&gt;)
+     * @param columnToOrder - Column to be ordered
+     * @param ascending - direction of sort
+     * @param cursor cursor returned with the previous page, null to retrieve the page starting
+     * at firstResult
+     * @param firstResult starting point of first result in set, when there is no cursor
+     * @param maxResults total number we want returned for display in table
+     * @param search string of criteria to be matched to visible columns
+     * @param searchableColumns Map of String and boolean values with column
+     * headers and whether they should be searched. Boolean is true if field provides a
+     * typical String that can be searched by Hibernate without transformation.
+     * @param criteriaModifier - a way to modify the criteria used in the query
+     * @param properties the properties to retrieve
+     * @return FilteredRecordsList object with a map of property values per record
+     * @throws DBManagerException if unable to create the list
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    protected FilteredRecordsList<Map<String, Object>> doGetProjectedList(
+            final Class<? extends T> clazz, final String columnToOrder, final boolean ascending,
+            final OrderedListCursor cursor, final int firstResult, final int maxResults,
+            final String search, final Map<String, Boolean> searchableColumns,
+            final CriteriaModifier criteriaModifier, final Collection<String> properties)
+            throws DBManagerException {
+        LOGGER.debug("Getting projected list of {}", properties);
+        Class<? extends T> searchClass = clazz;
+        if (clazz == null) {
+            searchClass = this.clazz;
+        }
+        List<String> columns = new ArrayList<>();
+        columns.add("id");
+        for (String property : properties) {
+            if (!columns.contains(property)) {
+                columns.add(property);
+            }
+        }
+
+        FilteredRecordsList<Map<String, Object>> aqr = new FilteredRecordsList<>();
+        Transaction tx = null;
+        Session session = factory.getCurrentSession();
+        try {
+            tx = session.beginTransaction();
+            List<Serializable> ids = selectPage(session, searchClass, columnToOrder, ascending,
+                    cursor, firstResult, maxResults, search, searchableColumns,
+                    criteriaModifier, aqr);
+
+            if (!ids.isEmpty()) {
+                Criteria finalCriteria = session.createCriteria(searchClass)
+                        .add(Restrictions.in("id", ids));
+                criteriaModifier.modify(finalCriteria);
+                Set<String> aliases = new HashSet<>();
+                Iterator<CriteriaImpl.Subcriteria> subcriteria =
+                        ((CriteriaImpl) finalCriteria).iterateSubcriteria();
+                while (subcriteria.hasNext()) {
+                    aliases.add(subcriteria.next().getAlias());
+                }
+                ProjectionList projection = Projections.projectionList();
+                for (String column : columns) {
+                    int dot = column.indexOf('.');
+                    if (dot > 0 && aliases.add(column.substring(0, dot))) {
+                        finalCriteria.createAlias(column.substring(0, dot),
+                                column.substring(0, dot), JoinType.LEFT_OUTER_JOIN);
+                    }
+                    projection.add(Projections.property(column));
+                }
+                finalCriteria.setProjection(projection);
+                addOrders(finalCriteria, columnToOrder, ascending);
+                Set<Object> retrievedIds = new HashSet<>();
+                for (Object row : finalCriteria.list()) {
+                    // rows are repeated when the criteria modifier joins a collection
+                    if (retrievedIds.add(((Object[]) row)[0])) {
+                        aqr.add(toPropertyMap(columns, (Object[]) row));
+                    }
+                }
+            }
+            tx.commit();
+        } catch (HibernateException e) {
+            final String msg = "unable to retrieve projected list";
+            LOGGER.error(msg, e);
+            if (tx != null) {
+                LOGGER.debug("rolling back transaction");
+                tx.rollback();
+            }
+            throw e;
+        }
+        return aqr;
+    }
+
+    /**
+     * Streams the given properties of every <code>T</code> selected by the criteria modifier to
+     * the callback, one record at a time, over a forward-only cursor on a stateless session.
+     * The properties are named and mapped like those of
+     * {@link #doGetProjectedList(Class, String, boolean, OrderedListCursor, int, int, String, Map,
+     * CriteriaModifier, Collection)}. The criteria modifier must not join collections, as the
+     * records are not deduplicated. An {@link UncheckedIOException} thrown by the callback rolls
+     * back the transaction and is rethrown as is.
+     *
+     * @param clazz class type of <code>T</code>s to stream (may be null to use Class&lt;T&gt;)
+     * @param criteriaModifier a way to modify the criteria used in the query, may be null
+     * @param properties the properties to retrieve
+     * @param callback called with the map of property values of each record
+     * @return the number of records streamed
+     * @throws DBManagerException if unable to stream the records
+     */
+    protected long doStreamProjectedList(final Class<? extends T> clazz,
+            final CriteriaModifier criteriaModifier, final Collection<String> properties,
+            final Callback<Map<String, Object>, ?> callback) throws DBManagerException {
+        LOGGER.debug("Streaming projected list of {}", properties);
+        Class<? extends T> searchClass = clazz;
+        if (clazz == null) {
+            searchClass = this.clazz;
+        }
+        List<String> columns = new ArrayList<>();
+        columns.add("id");
+        for (String property : properties) {
+            if (!columns.contains(property)) {
+                columns.add(property);
+            }
+        }
+
+        Transaction tx = null;
+        StatelessSession session = getStatelessSession();
+        try {
+            tx = session.beginTransaction();
+            Criteria criteria = session.createCriteria(searchClass);
+            if (criteriaModifier != null) {
+                criteriaModifier.modify(criteria);
+            }
+            Set<String> aliases = new HashSet<>();
+            Iterator<CriteriaImpl.Subcriteria> subcriteria =
+                    ((CriteriaImpl) criteria).iterateSubcriteria();
+            while (subcriteria.hasNext()) {
+                aliases.add(subcriteria.next().getAlias());
+            }
+            ProjectionList projection = Projections.projectionList();
+            for (String column : columns) {
+                int dot = column.indexOf('.');
+                if (dot > 0 && aliases.add(column.substring(0, dot))) {
+                    criteria.createAlias(column.substring(0, dot),
+                            column.substring(0, dot), JoinType.LEFT_OUTER_JOIN);
+                }
+                projection.add(Projections.property(column));
+            }
+            criteria.setProjection(projection);
+            criteria.setReadOnly(true);
+            criteria.setFetchSize(getStreamingFetchSize());
+
+            long count = 0;
+            ScrollableResults records = criteria.scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (records.next()) {
+                    callback.call(toPropertyMap(columns, records.get()));
+                    count++;
+                }
+            } finally {
+                records.close();
+            }
+            tx.commit();
+            return count;
+        } catch (HibernateException e) {
+            final String msg = "unable to stream projected list";
+            LOGGER.error(msg, e);
+            if (tx != null) {
+                LOGGER.debug("rolling back transaction");
+                tx.rollback();
+            }
+            throw new DBManagerException(msg, e);
+        } catch (UncheckedIOException e) {
+            // the callback failed to write a record, which its caller reports
+            if (tx != null) {
+                LOGGER.debug("rolling back transaction");
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Selects the ids of a page of records, in order, starting after the cursor or, when there
+     * is no cursor, at the given offset. Sets the record counts of the list, along with the
+     * cursor positioned after the page, and returns the ids.
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    private List<Serializable> selectPage(final Session session, final Class<?> searchClass,
+            final String columnToOrder, final boolean ascending, final OrderedListCursor cursor,
+            final int firstResult, final int maxResults, final String search,
+            final Map<String, Boolean> searchableColumns, final CriteriaModifier criteriaModifier,
+            final FilteredRecordsList<?> aqr) {
+        Criterion and = searchCriterion(session, searchClass, search, searchableColumns);
+
+        long totalResultCount;
+        long recordsFiltered;
+        if (cursor != null && cursor.hasCounts()) {
+            totalResultCount = cursor.getRecordsTotal();
+            recordsFiltered = cursor.getRecordsFiltered();
+        } else {
+            Criteria criteria = session.createCriteria(searchClass)
+                    .setProjection(Projections.countDistinct("id"));
+            criteriaModifier.modify(criteria);
+            totalResultCount = (Long) criteria.uniqueResult();
+            recordsFiltered = totalResultCount;
+            if (totalResultCount != 0) {
+                criteria.add(and);
+                recordsFiltered = (Long) criteria.uniqueResult();
+            }
+        }
+        aqr.setRecordsTotal(totalResultCount);
+        aqr.setRecordsFiltered(recordsFiltered);
+
+        //Selects the ids and sort values of the page, starting after the cursor
+        Criteria pageCriteria = session.createCriteria(searchClass)
+                .setProjection(Projections.distinct(Projections.projectionList()
+                        .add(Projections.property("id"))
+                        .add(Projections.property(columnToOrder))))
+                .add(and)
+                .setMaxResults(maxResults);
+        criteriaModifier.modify(pageCriteria);
+        if (cursor != null) {
+            pageCriteria.add(afterCursor(columnToOrder, ascending, cursor));
+        } else {
+            pageCriteria.setFirstResult(firstResult);
+        }
+        addOrders(pageCriteria, columnToOrder, ascending);
+
+        List<Serializable> ids = new ArrayList<>();
+        Object[] last = null;
+        for (Object row : pageCriteria.list()) {
+            last = (Object[]) row;
+            ids.add((Serializable) last[0]);
+        }
+        if (last != null) {
+            aqr.setNextCursor(new OrderedListCursor(last[1], (Serializable) last[0],
+                    totalResultCount, recordsFiltered));
+        }
+        return ids;
+    }
+
+    /**
+     * Maps the values of a projected record to the names of their properties, nesting the
+     * properties of referenced entities. A referenced entity whose properties are all null is
+     * mapped to null.
+     */
+    private static Map<String, Object> toPropertyMap(final List<String> columns,
+                                                     final Object[] row) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i);
+            int dot = column.indexOf('.');
+            if (dot < 0) {
+                record.put(column, row[i]);
+                continue;
+            }
+            String association = column.substring(0, dot);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> nested = (Map<String, Object>) record.get(association);
+            if (nested == null) {
+                nested = new LinkedHashMap<>();
+                record.put(association, nested);
+            }
+            nested.put(column.substring(dot + 1), row[i]);
+        }
+        for (Map.Entry<String, Object> entry : record.entrySet()) {
+            if (entry.getValue() instanceof Map) {
+                Collection<?> values = ((Map<?, ?>) entry.getValue()).values();
+                if (Collections.frequency(values, null) == values.size()) {
+                    entry.setValue(null);
+                }
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Builds the search criteria from all of the searchable columns: every word of the search
+     * must be found in at least one of the columns. Entities kept in the {@link SearchIndex} are
+     * searched through the index.
+     */
+    private Criterion searchCriterion(final Session session, final Class<?> searchClass,
+                                      final String search,
+                                      final Map<String, Boolean> searchableColumns) {
+        if (searchableColumns != null && SearchIndex.isIndexed(searchClass)) {
+            return SearchIndex.search(session, searchClass, search, searchableColumns.keySet());
+        }
+        Conjunction and = Restrictions.conjunction();
+        if (searchableColumns != null) {
+            // Search for all words in all searchable columns
+            String[] searchWords = search.split(" ");
+            for (String word : searchWords) {
+                // Every word must be in at least one column
+                Disjunction or = Restrictions.disjunction();
+                for (Map.Entry<String, Boolean> entry : searchableColumns.entrySet()) {
+                    if (entry.getValue()) {
+                        or.add(ilike(entry.getKey(), word, MatchMode.ANYWHERE));
+                    } else {
+                        or.add(ilikeCast(entry.getKey(), word));
+                    }
+                }
+                and.add(or);
+            }
+        }
+        return and;
+    }
+
+    /**
+     * Restricts a keyset page to the records that are ordered after the cursor. Null sort values
+     * are ordered first when ascending and last when descending, as MySQL and HSQLDB do.
+     */
+    private static Criterion afterCursor(final String columnToOrder, final boolean ascending,
+                                         final OrderedListCursor cursor) {
+        Object value = cursor.getSortValue();
+        Serializable lastId = cursor.getLastId();
+        if (value == null) {
+            if (ascending) {
+                return Restrictions.or(Restrictions.isNotNull(columnToOrder),
+                        Restrictions.and(Restrictions.isNull(columnToOrder),
+                                Restrictions.gt("id", lastId)));
+            }
+            return Restrictions.and(Restrictions.isNull(columnToOrder),
+                    Restrictions.lt("id", lastId));
+        }
+        if (ascending) {
+            return Restrictions.or(Restrictions.gt(columnToOrder, value),
+                    Restrictions.and(Restrictions.eq(columnToOrder, value),
+                            Restrictions.gt("id", lastId)));
+        }
+        return Restrictions.or(Restrictions.lt(columnToOrder, value),
+                Restrictions.and(Restrictions.eq(columnToOrder, value),
+                        Restrictions.lt("id", lastId)),
+                Restrictions.isNull(columnToOrder));
+    }
+
+    private static void addOrders(final Criteria criteria, final String columnToOrder,
+                                  final boolean ascending) {
+        if (ascending) {
+            criteria.addOrder(Order.asc(columnToOrder)).addOrder(Order.asc("id"));
+        } else {
+            criteria.addOrder(Order.desc(columnToOrder)).addOrder(Order.desc("id"));
+        }
+    }
+
     /**
      * Returns the <code>SessionFactory</code>. The <code>SessionFactory</code>
      * can be used by sub-classes to make database calls.
@@ -889,6 +1361,19 @@ public abstract class AbstractDbManager<T> implements CrudManager<T> {
         return factory.openStatelessSession();
     }
 
+    /**
+     * Returns the fetch size to scroll through large results with. On MySQL, it hints the JDBC
+     * connector to stream the rows rather than read them all into memory.
+     *
+     * @return the fetch size
+     */
+    protected final int getStreamingFetchSize() {
+        if (getConfiguredImplementation() == DBManager.DBImpl.MYSQL) {
+            return Integer.MIN_VALUE;
+        }
+        return 1;
+    }
+
 
     /**
      * Helper method in order to properly cast columns that are not Strings into
@@ -0,0 +1,201 @@
+package hirs.persist;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams the records of a baseline that are read in buckets, such as the records of a
+ * {@link hirs.data.persist.baseline.QueryableRecordImaBaseline}. The buckets are read in
+ * parallel on a worker pool shared by every scan of the process, and the records are handed
+ * over to the thread consuming the stream through a bounded queue. A reader that gets ahead of
+ * the consumer waits for it, so a scan never buffers more than {@link #QUEUE_CAPACITY} records.
+ * <p>
+ * The stream returned by {@link #stream(int, BucketReader)} must be closed, which stops the
+ * readers of a stream that is not consumed to its end. A reader that has been unable to hand
+ * over a record for {@link #IDLE_TIMEOUT_MINUTES} minutes gives up, so that an abandoned stream
+ * does not hold on to a worker forever.
+ */
+final class BaselineRecordScanner {
+
+    private static final Logger LOGGER = LogManager.getLogger(BaselineRecordScanner.class);
+
+    /**
+     * The number of records a scan may read ahead of its consumer.
+     */
+    static final int QUEUE_CAPACITY = 1024;
+
+    /**
+     * The number of minutes a reader waits for the consumer of a scan before giving up.
+     */
+    static final long IDLE_TIMEOUT_MINUTES = 10;
+
+    private static final int LOGGING_INTERVAL = 500;
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final int WORKER_COUNT = Runtime.getRuntime().availableProcessors();
+
+    // the task queue is not bounded: a task run by the caller would wait for its own consumer
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private static final Object END_OF_BUCKET = new Object();
+
+    /**
+     * Reads the records of one bucket.
+     *
+     * @param <R> the type of the records
+     */
+    interface BucketReader<R> {
+        /**
+         * Reads the records of the given bucket, passing each one to the given sink.
+         *
+         * @param bucket the bucket to read
+         * @param sink the consumer of the records, which blocks while the scan is full
+         * @throws Exception if the bucket cannot be read
+         */
+        void read(int bucket, Consumer<R> sink) throws Exception;
+    }
+
+    private BaselineRecordScanner() {
+    }
+
+    /**
+     * Starts reading the given buckets and returns the stream of their records, in no particular
+     * order. A failure to read a bucket is thrown as a {@link DBManagerException} by the
+     * operation consuming the stream.
+     *
+     * @param bucketCount the number of buckets to read, numbered from 0
+     * @param reader the reader of a bucket
+     * @param <R> the type of the records
+     * @return the stream of the records, which must be closed
+     */
+    static <R> Stream<R> stream(final int bucketCount, final BucketReader<R> reader) {
+        Scan<R> scan = new Scan<>(bucketCount, reader);
+        return StreamSupport.stream(scan, false).onClose(scan::close);
+    }
+
+    private static ExecutorService createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT,
+                1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("baseline-record-scan-%d")
+                        .setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * The state of one scan, consumed as a {@link Spliterator}.
+     *
+     * @param <R> the type of the records
+     */
+    private static final class Scan<R> extends Spliterators.AbstractSpliterator<R> {
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Future<?>[] tasks;
+        private final int bucketCount;
+        private volatile boolean closed;
+        private int finishedBuckets;
+        private int recordCount;
+
+        Scan(final int bucketCount, final BucketReader<R> reader) {
+            super(Long.MAX_VALUE, Spliterator.NONNULL);
+            this.bucketCount = bucketCount;
+            this.tasks = new Future<?>[bucketCount];
+            for (int i = 0; i < bucketCount; i++) {
+                final int bucket = i;
+                tasks[i] = EXECUTOR.submit(() -> readBucket(reader, bucket));
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(final Consumer<? super R> action) {
+            while (finishedBuckets < bucketCount) {
+                Object item;
+                try {
+                    item = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    throw new DBManagerException(e);
+                }
+
+                if (item == END_OF_BUCKET) {
+                    finishedBuckets++;
+                    Throwable cause = failure.get();
+                    if (cause != null) {
+                        close();
+                        throw new DBManagerException(cause);
+                    }
+                } else {
+                    recordCount++;
+                    if (recordCount % LOGGING_INTERVAL == 0) {
+                        LOGGER.debug("IMA record iteration: examined {} records", recordCount);
+                    }
+                    action.accept((R) item);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // stops the readers, which may be waiting for room in the queue
+        void close() {
+            closed = true;
+            for (Future<?> task : tasks) {
+                task.cancel(true);
+            }
+            queue.clear();
+        }
+
+        private void readBucket(final BucketReader<R> reader, final int bucket) {
+            LOGGER.debug("IMA record iteration: reading bucket {}", bucket);
+            try {
+                reader.read(bucket, this::hand);
+            } catch (Exception e) {
+                if (!closed) {
+                    failure.compareAndSet(null, e);
+                }
+            } finally {
+                try {
+                    hand(END_OF_BUCKET);
+                } catch (DBManagerException e) {
+                    LOGGER.debug("IMA record iteration: bucket {} abandoned", bucket);
+                }
+            }
+        }
+
+        // waits for room in the queue, until the scan is closed or the consumer is gone
+        private void hand(final Object item) {
+            long idleLimit = System.nanoTime() + TimeUnit.MINUTES.toNanos(IDLE_TIMEOUT_MINUTES);
+            try {
+                while (!closed) {
+                    if (queue.offer(item, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                    if (System.nanoTime() - idleLimit > 0) {
+                        throw new DBManagerException("IMA record iteration: the consumer did "
+                                + "not take a record for " + IDLE_TIMEOUT_MINUTES + " minutes");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new DBManagerException("IMA record iteration: the scan was closed");
+        }
+    }
+}
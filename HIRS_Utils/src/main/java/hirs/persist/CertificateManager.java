@@ -1,8 +1,14 @@
 package hirs.persist;
 
 import hirs.data.persist.certificate.Certificate;
+import hirs.data.persist.certificate.EndorsementCredential;
 
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * This class facilitates the persistence of {@link Certificate}s, including storage, retrieval,
@@ -17,6 +23,24 @@ public interface CertificateManager {
      */
     Certificate save(Certificate certificate);
 
+    /**
+     * Persists a new Certificate, or, if a Certificate of the same class with the same content
+     * was persisted concurrently, retrieves the persisted one instead.
+     *
+     * @param certificate the Certificate
+     * @return the persisted Certificate, or the one already persisted with the same content
+     */
+    Certificate saveOrGetExisting(Certificate certificate);
+
+    /**
+     * Persists new Certificates within a single transaction. If any Certificate cannot be
+     * persisted, none are.
+     *
+     * @param certificates the Certificates
+     * @return the persisted Certificates, in the given order
+     */
+    List<Certificate> saveAll(Collection<? extends Certificate> certificates);
+
     /**
      * Updates an existing certificate.
      * @param certificate the cert to update
@@ -32,6 +56,36 @@ public interface CertificateManager {
      */
     <T extends Certificate> Set<T> get(CertificateSelector certificateSelector);
 
+    /**
+     * Retrieve the unarchived {@link EndorsementCredential}s having the given serial numbers,
+     * such as the holder serial numbers of a page of platform credentials, with as few queries
+     * as possible instead of one query per serial number.
+     *
+     * @param serialNumbers the serial numbers to resolve
+     * @return the endorsement credentials, keyed by serial number; serial numbers without an
+     * endorsement credential are absent from the map
+     */
+    Map<BigInteger, EndorsementCredential> getEndorsementCredentialsBySerialNumber(
+            Collection<BigInteger> serialNumbers);
+
+    /**
+     * Retrieve the summaries of the certificates associated with the given devices. Only the
+     * fields of a {@link CertificateSummary} are queried, not the whole certificates.
+     *
+     * @param deviceIds the ids of the devices
+     * @return the summaries of the certificates of the devices, which may be empty
+     */
+    List<CertificateSummary> getCertificateSummariesByDeviceIds(Collection<UUID> deviceIds);
+
+    /**
+     * Retrieve the {@link CertificateStamp} of the certificates of the given type, which changes
+     * whenever one of them is stored, archived or restored.
+     *
+     * @param certificateType the type of the certificates
+     * @return the stamp of the certificates
+     */
+    CertificateStamp getStamp(Class<? extends Certificate> certificateType);
+
     /**
      * Delete the given Certificate.
      *
@@ -15,7 +15,9 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -141,6 +143,30 @@ public abstract class CertificateSelector<T extends Certificate> {
         return this;
     }
 
+    /**
+     * Specify the SHA-256 digest of the bytes that certificates must match. Unlike the hash code
+     * of the bytes, the digest identifies a certificate of a given type.
+     *
+     * @param contentDigest the hex encoded digest to query for, as returned by
+     *                      {@link Certificate#getContentDigest()}
+     * @return this instance (for chaining further calls)
+     */
+    public CertificateSelector<T> byContentDigest(final String contentDigest) {
+        setFieldValue(Certificate.CONTENT_DIGEST_FIELD, contentDigest);
+        return this;
+    }
+
+    /**
+     * Specify the SHA-256 digests of the bytes of which certificates must match one.
+     *
+     * @param contentDigests the hex encoded digests to query for, not empty or null
+     * @return this instance (for chaining further calls)
+     */
+    public CertificateSelector<T> byContentDigests(final Collection<String> contentDigests) {
+        setFieldValues(Certificate.CONTENT_DIGEST_FIELD, contentDigests);
+        return this;
+    }
+
     /**
      * Specify a serial number that certificates must have to be considered
      * as matching.
@@ -153,6 +179,18 @@ public abstract class CertificateSelector<T extends Certificate> {
         return this;
     }
 
+    /**
+     * Specify serial numbers of which certificates must have one to be considered as matching.
+     * This allows the certificates of many serial numbers to be retrieved with a single query.
+     *
+     * @param serialNumbers the serial numbers to query, not empty or null
+     * @return this instance (for chaining further calls)
+     */
+    public CertificateSelector<T> bySerialNumbers(final Collection<BigInteger> serialNumbers) {
+        setFieldValues(Certificate.SERIAL_NUMBER_FIELD, serialNumbers);
+        return this;
+    }
+
     /**
      * Specify a holder serial number that certificates must have to be considered
      * as matching.
@@ -239,7 +277,8 @@ public abstract class CertificateSelector<T extends Certificate> {
 
     /**
      * Specify a public key that certificates must have to be considered
-     * as matching.
+     * as matching. The certificates are looked up through the index on the
+     * digest of their public key.
      *
      * @param encodedPublicKey the binary-encoded public key to query, not empty or null
      * @return this instance (for chaining further calls)
@@ -251,6 +290,10 @@ public abstract class CertificateSelector<T extends Certificate> {
                         this.certificateClass.toString())
         );
 
+        setFieldValue(
+                Certificate.ENCODED_PUBLIC_KEY_DIGEST_FIELD,
+                Certificate.getLookupDigest(encodedPublicKey)
+        );
         setFieldValue(
                 Certificate.ENCODED_PUBLIC_KEY_FIELD,
                 Arrays.copyOf(encodedPublicKey, encodedPublicKey.length)
@@ -278,7 +321,8 @@ public abstract class CertificateSelector<T extends Certificate> {
 
     /**
      * Specify a public key modulus that certificates must have to be considered
-     * as matching.
+     * as matching. The certificates are looked up through the index on the
+     * digest of their public key modulus.
      *
      * @param publicKeyModulus a BigInteger representing a public key's modulus to query not null
      * @return this instance (for chaining further calls)
@@ -290,10 +334,12 @@ public abstract class CertificateSelector<T extends Certificate> {
                         this.certificateClass.toString())
         );
 
+        String publicKeyModulusHexValue = publicKeyModulus.toString(Certificate.HEX_BASE);
         setFieldValue(
-                Certificate.PUBLIC_KEY_MODULUS_FIELD,
-                publicKeyModulus.toString(Certificate.HEX_BASE)
+                Certificate.PUBLIC_KEY_MODULUS_DIGEST_FIELD,
+                Certificate.getLookupDigest(publicKeyModulusHexValue)
         );
+        setFieldValue(Certificate.PUBLIC_KEY_MODULUS_FIELD, publicKeyModulusHexValue);
 
         return this;
     }
@@ -333,6 +379,21 @@ public abstract class CertificateSelector<T extends Certificate> {
         fieldValueSelections.put(name, valueToAssign);
     }
 
+    /**
+     * Set a field name and values of which the field must match one.
+     *
+     * @param name the field name to query
+     * @param values the values to query
+     */
+    protected void setFieldValues(final String name, final Collection<?> values) {
+        Preconditions.checkArgument(
+                values != null && !values.isEmpty(),
+                String.format("field values (%s) cannot be null or empty.", name)
+        );
+
+        fieldValueSelections.put(name, new ArrayList<>(values));
+    }
+
     /**
      * Retrieve the result set as a single {@link Certificate}.
      * This method is best used when selecting on a unique attribute.
@@ -421,6 +482,18 @@ public abstract class CertificateSelector<T extends Certificate> {
         return keyStore;
     }
 
+    /**
+     * @return the content digest that certificates must match, or null if not selecting by
+     *         content digest
+     */
+    String getContentDigest() {
+        Object contentDigest = fieldValueSelections.get(Certificate.CONTENT_DIGEST_FIELD);
+        if (contentDigest instanceof String) {
+            return (String) contentDigest;
+        }
+        return null;
+    }
+
     /**
      * Construct the criterion that can be used to query for certificates matching the configuration
      * of this {@link CertificateSelector}.
@@ -432,7 +505,12 @@ public abstract class CertificateSelector<T extends Certificate> {
         Conjunction conj = new Conjunction();
 
         for (Map.Entry<String, Object> fieldValueEntry : fieldValueSelections.entrySet()) {
-            conj.add(Restrictions.eq(fieldValueEntry.getKey(), fieldValueEntry.getValue()));
+            if (fieldValueEntry.getValue() instanceof Collection) {
+                conj.add(Restrictions.in(fieldValueEntry.getKey(),
+                        (Collection) fieldValueEntry.getValue()));
+            } else {
+                conj.add(Restrictions.eq(fieldValueEntry.getKey(), fieldValueEntry.getValue()));
+            }
         }
 
         if (this.excludeArchivedCertificates) {
@@ -0,0 +1,76 @@
+package hirs.persist;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Summarizes the state of the certificates of one type with a single aggregate query: the
+ * number of certificates that are not archived, and the latest time a certificate was created
+ * and archived. A certificate being stored, archived or restored changes the stamp, so a cache
+ * of the certificates of the type is stale when the stamp it was loaded with no longer matches.
+ *
+ * @see CertificateManager#getStamp
+ */
+public final class CertificateStamp {
+
+    private final long unarchivedCount;
+    private final Long latestCreateTime;
+    private final Long latestArchivedTime;
+
+    /**
+     * Constructor.
+     *
+     * @param unarchivedCount the number of certificates that are not archived
+     * @param latestCreateTime the latest creation time of a certificate, may be null
+     * @param latestArchivedTime the latest archival time of a certificate, may be null
+     */
+    public CertificateStamp(final long unarchivedCount, final Date latestCreateTime,
+                            final Date latestArchivedTime) {
+        this.unarchivedCount = unarchivedCount;
+        this.latestCreateTime = millis(latestCreateTime);
+        this.latestArchivedTime = millis(latestArchivedTime);
+    }
+
+    /**
+     * Getter for the number of certificates that are not archived.
+     *
+     * @return the number of certificates
+     */
+    public long getUnarchivedCount() {
+        return unarchivedCount;
+    }
+
+    // the dates may be timestamps, which are not equal to dates of the same time
+    private static Long millis(final Date date) {
+        if (date == null) {
+            return null;
+        }
+        return date.getTime();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CertificateStamp that = (CertificateStamp) o;
+        return unarchivedCount == that.unarchivedCount
+                && Objects.equals(latestCreateTime, that.latestCreateTime)
+                && Objects.equals(latestArchivedTime, that.latestArchivedTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(unarchivedCount, latestCreateTime, latestArchivedTime);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CertificateStamp{unarchivedCount=%d, latestCreateTime=%s, "
+                + "latestArchivedTime=%s}", unarchivedCount, latestCreateTime,
+                latestArchivedTime);
+    }
+}
@@ -0,0 +1,124 @@
+package hirs.persist;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * The fields of a {@link hirs.data.persist.certificate.Certificate} shown in list views,
+ * retrieved by a projection query rather than by loading the certificate itself, which carries
+ * its encoded bytes and every parsed attribute.
+ *
+ * @see CertificateManager#getCertificateSummariesByDeviceIds
+ */
+public final class CertificateSummary {
+
+    private final UUID id;
+    private final String certificateType;
+    private final String subject;
+    private final BigInteger serialNumber;
+    private final Date beginValidity;
+    private final Date endValidity;
+    private final UUID deviceId;
+
+    /**
+     * Constructor.
+     *
+     * @param id the id of the certificate
+     * @param certificateType the simple class name of the certificate (e.g.
+     *                        "EndorsementCredential")
+     * @param subject the subject of the certificate, may be null
+     * @param serialNumber the serial number of the certificate
+     * @param beginValidity the start of the validity period of the certificate
+     * @param endValidity the end of the validity period of the certificate
+     * @param deviceId the id of the device associated with the certificate, may be null
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    public CertificateSummary(final UUID id, final String certificateType, final String subject,
+                              final BigInteger serialNumber, final Date beginValidity,
+                              final Date endValidity, final UUID deviceId) {
+        this.id = id;
+        this.certificateType = certificateType;
+        this.subject = subject;
+        this.serialNumber = serialNumber;
+        this.beginValidity = copy(beginValidity);
+        this.endValidity = copy(endValidity);
+        this.deviceId = deviceId;
+    }
+
+    /**
+     * Getter for the id of the certificate.
+     *
+     * @return the id
+     */
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * Getter for the simple class name of the certificate.
+     *
+     * @return the certificate type
+     */
+    public String getCertificateType() {
+        return certificateType;
+    }
+
+    /**
+     * Getter for the subject of the certificate.
+     *
+     * @return the subject, may be null
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Getter for the serial number of the certificate.
+     *
+     * @return the serial number
+     */
+    public BigInteger getSerialNumber() {
+        return serialNumber;
+    }
+
+    /**
+     * Getter for the start of the validity period of the certificate.
+     *
+     * @return the begin validity date
+     */
+    public Date getBeginValidity() {
+        return copy(beginValidity);
+    }
+
+    /**
+     * Getter for the end of the validity period of the certificate.
+     *
+     * @return the end validity date
+     */
+    public Date getEndValidity() {
+        return copy(endValidity);
+    }
+
+    /**
+     * Getter for the id of the device associated with the certificate.
+     *
+     * @return the device id, may be null
+     */
+    public UUID getDeviceId() {
+        return deviceId;
+    }
+
+    private static Date copy(final Date date) {
+        if (date == null) {
+            return null;
+        }
+        return new Date(date.getTime());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CertificateSummary{id=%s, certificateType=%s, serialNumber=%s, "
+                + "deviceId=%s}", id, certificateType, serialNumber, deviceId);
+    }
+}
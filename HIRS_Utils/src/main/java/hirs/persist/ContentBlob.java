@@ -0,0 +1,66 @@
+package hirs.persist;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The content of a {@link ContentBlobHolder}, such as the encoded bytes of a certificate, stored
+ * apart from the entity and keyed by its SHA-256 digest. Entities with the same content share a
+ * single blob.
+ *
+ * @see ContentBlobStore
+ */
+@Entity
+@Table(name = "ContentBlob")
+public class ContentBlob {
+
+    /**
+     * Length of the hex encoded SHA-256 digest identifying a blob.
+     */
+    public static final int DIGEST_LENGTH = 64;
+
+    @Id
+    @Column(name = "digest", length = DIGEST_LENGTH)
+    private String digest;
+
+    @Column(columnDefinition = "blob", nullable = false)
+    private byte[] content;
+
+    /**
+     * Constructor.
+     *
+     * @param digest the hex encoded SHA-256 digest of the content
+     * @param content the content
+     */
+    public ContentBlob(final String digest, final byte[] content) {
+        this.digest = digest;
+        this.content = content.clone();
+    }
+
+    /**
+     * Default constructor for Hibernate.
+     */
+    protected ContentBlob() {
+
+    }
+
+    /**
+     * Getter for the hex encoded SHA-256 digest of the content.
+     *
+     * @return the digest
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * Getter for the content.
+     *
+     * @return a copy of the content
+     */
+    public byte[] getContent() {
+        return content.clone();
+    }
+}
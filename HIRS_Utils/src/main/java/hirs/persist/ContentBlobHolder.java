@@ -0,0 +1,26 @@
+package hirs.persist;
+
+/**
+ * An entity whose content is kept in a {@link ContentBlob} rather than in its own row, so that
+ * queries on the entity do not load the content. The entity persists the digest of its content
+ * and loads the content from the {@link ContentBlobStore} the first time it is needed.
+ * <p>
+ * The blobs are stored and released by {@link AbstractDbManager} when an entity is saved,
+ * updated or deleted.
+ */
+public interface ContentBlobHolder {
+
+    /**
+     * Getter for the hex encoded SHA-256 digest of the content of the entity.
+     *
+     * @return the digest, or null if the entity has no content
+     */
+    String getContentDigest();
+
+    /**
+     * Getter for the content of the entity, loading it if needed.
+     *
+     * @return the content, or null if the entity has no content
+     */
+    byte[] getContent();
+}
@@ -0,0 +1,335 @@
+package hirs.persist;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Restrictions;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Savepoint;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores the content of the {@link ContentBlobHolder} entities in {@link ContentBlob}s, keyed by
+ * the SHA-256 digest of the content so that identical content is stored once. Holders persist
+ * the digest of their content and load the content through {@link #load(String)} when it is
+ * first needed, so that queries on the holders do not load the content.
+ * <p>
+ * The blobs are loaded using the session factory of the most recently created
+ * {@link AbstractDbManager}.
+ */
+public final class ContentBlobStore {
+
+    private static final Logger LOGGER = LogManager.getLogger(ContentBlobStore.class);
+
+    private static final String REFERENCE_QUERY = "select count(*) from "
+            + ContentBlobHolder.class.getName() + " h where h.contentDigest = :digest";
+
+    private static final String INSERT_STATEMENT =
+            "insert into ContentBlob (digest, content) values (?, ?)";
+
+    private static final String EXISTING_QUERY =
+            "select b.digest from ContentBlob b where b.digest in (:digests)";
+
+    // number of blobs looked up and inserted together by storeAll
+    private static final int STORE_BATCH_SIZE = HibernateConfiguration.JDBC_BATCH_SIZE;
+
+    // SQLSTATE class of the integrity constraint violations, such as a duplicate key
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION_CLASS = "23";
+
+    private static volatile SessionFactory sessionFactory;
+
+    private ContentBlobStore() {
+        // do not construct
+    }
+
+    /**
+     * Computes the digest identifying the blob of the given content.
+     *
+     * @param content the content
+     * @return the hex encoded SHA-256 digest of the content
+     */
+    public static String digest(final byte[] content) {
+        return DigestUtils.sha256Hex(content);
+    }
+
+    /**
+     * Sets the session factory used to load blobs.
+     *
+     * @param factory the session factory
+     */
+    static void setSessionFactory(final SessionFactory factory) {
+        sessionFactory = factory;
+    }
+
+    /**
+     * Loads the content of a blob. The blob is read within the transaction of the current
+     * session if there is one, or else within a transaction of its own.
+     *
+     * @param digest the digest of the content
+     * @return the content, or null if there is no blob with the given digest
+     * @throws IllegalStateException if no session factory was set
+     */
+    public static byte[] load(final String digest) {
+        SessionFactory factory = sessionFactory;
+        if (factory == null) {
+            throw new IllegalStateException("No session factory to load content blobs with");
+        }
+        LOGGER.debug("loading content blob {}", digest);
+
+        Session session = factory.getCurrentSession();
+        if (session.getTransaction().isActive()) {
+            return content(session, digest);
+        }
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+            byte[] content = content(session, digest);
+            tx.commit();
+            return content;
+        } catch (HibernateException e) {
+            final String msg = "unable to load content blob";
+            LOGGER.error(msg, e);
+            if (tx != null) {
+                LOGGER.debug("rolling back transaction");
+                tx.rollback();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Loads the content of several blobs with a single query, such as the contents of a batch
+     * of entities being exported. The blobs are read within the transaction of the current
+     * session if there is one, or else within a transaction of its own.
+     *
+     * @param digests the digests of the contents
+     * @return the contents by digest, without the digests that have no blob
+     * @throws IllegalStateException if no session factory was set
+     */
+    public static Map<String, byte[]> loadAll(final Collection<String> digests) {
+        SessionFactory factory = sessionFactory;
+        if (factory == null) {
+            throw new IllegalStateException("No session factory to load content blobs with");
+        }
+        Map<String, byte[]> contents = new HashMap<>();
+        if (digests.isEmpty()) {
+            return contents;
+        }
+        LOGGER.debug("loading {} content blobs", digests.size());
+
+        Session session = factory.getCurrentSession();
+        if (session.getTransaction().isActive()) {
+            contents(session, digests, contents);
+            return contents;
+        }
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+            contents(session, digests, contents);
+            tx.commit();
+            return contents;
+        } catch (HibernateException e) {
+            final String msg = "unable to load content blobs";
+            LOGGER.error(msg, e);
+            if (tx != null) {
+                LOGGER.debug("rolling back transaction");
+                tx.rollback();
+            }
+            throw e;
+        }
+    }
+
+    private static void contents(final Session session, final Collection<String> digests,
+                                 final Map<String, byte[]> contents) {
+        for (Object blob : session.createCriteria(ContentBlob.class)
+                .add(Restrictions.in("digest", digests)).list()) {
+            contents.put(((ContentBlob) blob).getDigest(), ((ContentBlob) blob).getContent());
+            session.evict(blob);
+        }
+    }
+
+    private static byte[] content(final Session session, final String digest) {
+        ContentBlob blob = (ContentBlob) session.get(ContentBlob.class, digest);
+        if (blob == null) {
+            LOGGER.warn("content blob {} not found", digest);
+            return null;
+        }
+        return blob.getContent();
+    }
+
+    /**
+     * Stores the content of the given entity, unless a blob with the same content exists. Must be
+     * called within a transaction.
+     *
+     * @param session the session of the transaction
+     * @param entity the entity being saved or updated
+     */
+    static void store(final Session session, final Object entity) {
+        if (!(entity instanceof ContentBlobHolder)) {
+            return;
+        }
+        String digest = ((ContentBlobHolder) entity).getContentDigest();
+        if (digest == null || session.get(ContentBlob.class, digest) != null) {
+            return;
+        }
+        byte[] content = ((ContentBlobHolder) entity).getContent();
+        if (content != null) {
+            insertIfAbsent(session, digest, content);
+        }
+    }
+
+    /**
+     * Stores the contents of the given entities, such as a batch of entities being saved
+     * together, unless blobs with the same contents exist. The blobs that exist are found with a
+     * single query per batch of contents, and the others are inserted in a single JDBC batch.
+     * Another transaction storing the same content may insert it concurrently, so if the batch
+     * violates a constraint, it is rolled back to a savepoint and its blobs are inserted one by
+     * one through {@link #insertIfAbsent(Session, String, byte[])}. Must be called within a
+     * transaction.
+     *
+     * @param session the session of the transaction
+     * @param entities the entities being saved
+     */
+    static void storeAll(final Session session, final Collection<?> entities) {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            if (!(entity instanceof ContentBlobHolder)) {
+                continue;
+            }
+            String digest = ((ContentBlobHolder) entity).getContentDigest();
+            if (digest == null || contents.containsKey(digest)) {
+                continue;
+            }
+            byte[] content = ((ContentBlobHolder) entity).getContent();
+            if (content != null) {
+                contents.put(digest, content);
+            }
+            if (contents.size() == STORE_BATCH_SIZE) {
+                storeBatch(session, contents);
+                contents.clear();
+            }
+        }
+        if (!contents.isEmpty()) {
+            storeBatch(session, contents);
+        }
+    }
+
+    private static void storeBatch(final Session session, final Map<String, byte[]> contents) {
+        for (Object digest : session.createQuery(EXISTING_QUERY)
+                .setParameterList("digests", contents.keySet()).list()) {
+            contents.remove(digest);
+        }
+        if (contents.isEmpty()) {
+            return;
+        }
+        LOGGER.debug("inserting {} content blobs", contents.size());
+        session.doWork(connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_STATEMENT)) {
+                for (Map.Entry<String, byte[]> content : contents.entrySet()) {
+                    insert.setString(1, content.getKey());
+                    insert.setBytes(2, content.getValue());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            } catch (SQLException e) {
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+                LOGGER.debug("content blobs were stored concurrently, inserting them one by one");
+                connection.rollback(savepoint);
+                for (Map.Entry<String, byte[]> content : contents.entrySet()) {
+                    insertIfAbsent(connection, content.getKey(), content.getValue());
+                }
+                return;
+            }
+            connection.releaseSavepoint(savepoint);
+        });
+    }
+
+    /**
+     * Inserts a blob, unless a blob with the same digest exists. Another transaction storing the
+     * same content may insert it between the lookup in {@link #store(Session, Object)} and this
+     * insert, so a duplicate key is rolled back to a savepoint and taken as the blob already
+     * being stored, leaving the transaction usable.
+     *
+     * @param session the session of the transaction
+     * @param digest the digest of the content
+     * @param content the content
+     */
+    static void insertIfAbsent(final Session session, final String digest,
+                               final byte[] content) {
+        session.doWork(connection -> insertIfAbsent(connection, digest, content));
+    }
+
+    private static void insertIfAbsent(final Connection connection, final String digest,
+                                       final byte[] content) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_STATEMENT)) {
+            insert.setString(1, digest);
+            insert.setBytes(2, content);
+            insert.executeUpdate();
+        } catch (SQLException e) {
+            if (!isConstraintViolation(e)) {
+                throw e;
+            }
+            LOGGER.debug("content blob {} was stored concurrently", digest);
+            connection.rollback(savepoint);
+            return;
+        }
+        connection.releaseSavepoint(savepoint);
+    }
+
+    // a failed batch may report the violation on the exception chained to it
+    private static boolean isConstraintViolation(final SQLException e) {
+        for (SQLException cause = e; cause != null; cause = cause.getNextException()) {
+            if (cause instanceof SQLIntegrityConstraintViolationException
+                    || (cause.getSQLState() != null
+                    && cause.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION_CLASS))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Deletes the blob of the given deleted entity, unless it is still referenced by another
+     * entity. Must be called within a transaction, after the entity has been deleted.
+     *
+     * @param session the session of the transaction
+     * @param entity the deleted entity
+     */
+    static void release(final Session session, final Object entity) {
+        if (entity instanceof ContentBlobHolder) {
+            release(session, ((ContentBlobHolder) entity).getContentDigest());
+        }
+    }
+
+    private static void release(final Session session, final String digest) {
+        if (digest == null) {
+            return;
+        }
+        session.flush();
+        long references = 0;
+        for (Object count : session.createQuery(REFERENCE_QUERY)
+                .setString("digest", digest).list()) {
+            references += ((Number) count).longValue();
+        }
+        if (references == 0) {
+            session.createQuery("delete from ContentBlob where digest = :digest")
+                    .setString("digest", digest)
+                    .executeUpdate();
+        }
+    }
+}
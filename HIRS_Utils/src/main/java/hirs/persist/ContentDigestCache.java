@@ -0,0 +1,103 @@
+package hirs.persist;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.util.UUID;
+
+/**
+ * Process wide cache of the ids of the {@link ContentBlobHolder} entities known to be stored,
+ * keyed by the entity type and the SHA-256 digest of their content. It lets the managers answer
+ * whether content is already stored, such as the RIMs and credentials sent by every device of
+ * the same model, with a lookup by id instead of a query on the digest.
+ * <p>
+ * An entry may outlive the entity it names, so a cached id is only a hint: the managers select
+ * the entity by both its id and its digest, and invalidate the entry if it is not found. The
+ * cache is bounded, evicting the least recently used entries first.
+ */
+public final class ContentDigestCache {
+
+    /**
+     * Default upper bound of the number of entries held by the cache.
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private static final ContentDigestCache INSTANCE =
+            new ContentDigestCache(DEFAULT_MAXIMUM_SIZE);
+
+    private final Cache<String, UUID> ids;
+
+    /**
+     * Constructor.
+     *
+     * @param maximumSize the maximum number of entries held by the cache
+     */
+    ContentDigestCache(final long maximumSize) {
+        ids = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Getter for the process wide instance.
+     *
+     * @return the cache
+     */
+    public static ContentDigestCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the id of the stored entity of the given type with the given content digest.
+     *
+     * @param type the type of the entity
+     * @param digest the hex encoded SHA-256 digest of the content
+     * @return the id of the entity, or null if it is not cached
+     */
+    public UUID get(final Class<?> type, final String digest) {
+        return ids.getIfPresent(key(type, digest));
+    }
+
+    /**
+     * Records the id of a stored entity of the given type with the given content digest.
+     *
+     * @param type the type of the entity
+     * @param digest the hex encoded SHA-256 digest of the content
+     * @param id the id of the entity
+     */
+    public void put(final Class<?> type, final String digest, final UUID id) {
+        ids.put(key(type, digest), id);
+    }
+
+    /**
+     * Drops the entry of the given type and content digest.
+     *
+     * @param type the type of the entity
+     * @param digest the hex encoded SHA-256 digest of the content
+     */
+    public void invalidate(final Class<?> type, final String digest) {
+        ids.invalidate(key(type, digest));
+    }
+
+    /**
+     * Drops all entries.
+     */
+    public void invalidateAll() {
+        ids.invalidateAll();
+    }
+
+    /**
+     * Getter for the hit and miss statistics of the cache.
+     *
+     * @return the statistics
+     */
+    public CacheStats stats() {
+        return ids.stats();
+    }
+
+    private static String key(final Class<?> type, final String digest) {
+        return type.getName() + ':' + digest;
+    }
+}
@@ -1,14 +1,34 @@
 package hirs.persist;
 
+import com.google.common.collect.Iterables;
 import hirs.data.persist.certificate.Certificate;
+import hirs.data.persist.certificate.EndorsementCredential;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.LongType;
+import org.hibernate.type.StringType;
+import org.hibernate.type.Type;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * This class is used to persist and retrieve {@link Certificate}s into and from a database.
@@ -17,6 +37,22 @@ public class DBCertificateManager extends DBManager<Certificate>
         implements CertificateManager {
 
     private static final Logger LOGGER = LogManager.getLogger(DBCertificateManager.class);
+    private static final String DEVICE_ID_FIELD = "device.id";
+
+    /**
+     * Maximum number of values in the IN restriction of a single batched query.
+     */
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private static final String LOOKUP_DIGEST_UPDATE = "update Certificate set "
+            + Certificate.ENCODED_PUBLIC_KEY_DIGEST_FIELD + " = :encodedPublicKeyDigest, "
+            + Certificate.PUBLIC_KEY_MODULUS_DIGEST_FIELD + " = :publicKeyModulusDigest "
+            + "where id = :id";
+
+    private static final String UNARCHIVED_COUNT_PROJECTION = "sum(case when "
+            + "{alias}.archived_time is null then 1 else 0 end) as unarchivedCount";
+
+    private volatile boolean lookupDigestsBackfilled = false;
 
     /**
      * Creates a new {@link DBCertificateManager} that uses the default
@@ -28,6 +64,18 @@ public class DBCertificateManager extends DBManager<Certificate>
         super(Certificate.class, sessionFactory);
     }
 
+    /**
+     * Persists a new Certificate, or, if one of the same class with the same content was persisted
+     * concurrently, retrieves it by its content digest instead.
+     *
+     * @param certificate the Certificate
+     * @return the persisted Certificate, or the one already persisted with the same content
+     */
+    @Override
+    public Certificate saveOrGetExisting(final Certificate certificate) {
+        return saveWithContentDigest(certificate, certificate.getContentDigest());
+    }
+
     /**
      * This method does not need to be used directly as it is used by {@link CertificateSelector}'s
      * get* methods.  Regardless, it may be used to retrieve certificates by other code in this
@@ -51,6 +99,17 @@ public class DBCertificateManager extends DBManager<Certificate>
     @Override
     @SuppressWarnings("unchecked")
     public <T extends Certificate> Set<T> get(final CertificateSelector certificateSelector) {
+        backfillLookupDigests();
+        String contentDigest = certificateSelector.getContentDigest();
+        if (contentDigest != null) {
+            return new HashSet<>(
+                    (List<T>) getWithContentDigest(
+                        certificateSelector.getCertificateClass(),
+                        contentDigest,
+                        certificateSelector.getCriterion()
+                    )
+            );
+        }
         return new HashSet<>(
                 (List<T>) getWithCriteria(
                     certificateSelector.getCertificateClass(),
@@ -59,6 +118,201 @@ public class DBCertificateManager extends DBManager<Certificate>
         );
     }
 
+    /**
+     * Retrieve the unarchived {@link EndorsementCredential}s having the given serial numbers.
+     * The serial numbers are resolved in batches of at most {@link #MAX_BATCH_SIZE}, with one
+     * query per batch.
+     *
+     * @param serialNumbers the serial numbers to resolve
+     * @return the endorsement credentials, keyed by serial number
+     */
+    @Override
+    public Map<BigInteger, EndorsementCredential> getEndorsementCredentialsBySerialNumber(
+            final Collection<BigInteger> serialNumbers) {
+        Set<BigInteger> distinctSerialNumbers = new LinkedHashSet<>(serialNumbers);
+        distinctSerialNumbers.remove(null);
+        Map<BigInteger, EndorsementCredential> credentials = new HashMap<>();
+        for (List<BigInteger> batch
+                : Iterables.partition(distinctSerialNumbers, MAX_BATCH_SIZE)) {
+            for (EndorsementCredential ec
+                    : EndorsementCredential.select(this).bySerialNumbers(batch).getCertificates()) {
+                credentials.putIfAbsent(ec.getSerialNumber(), ec);
+            }
+        }
+        LOGGER.debug("Resolved {} of {} endorsement credential serial numbers",
+                credentials.size(), distinctSerialNumbers.size());
+        return credentials;
+    }
+
+    /**
+     * Retrieve the summaries of the certificates associated with the given devices, with one
+     * projection query per batch of at most {@link #MAX_BATCH_SIZE} devices.
+     *
+     * @param deviceIds the ids of the devices
+     * @return the summaries of the certificates of the devices
+     */
+    @Override
+    public List<CertificateSummary> getCertificateSummariesByDeviceIds(
+            final Collection<UUID> deviceIds) {
+        List<CertificateSummary> summaries = new ArrayList<>();
+        if (deviceIds.isEmpty()) {
+            return summaries;
+        }
+
+        Transaction tx = null;
+        Session session = getFactory().getCurrentSession();
+        try {
+            tx = session.beginTransaction();
+            for (List<UUID> batch : Iterables.partition(deviceIds, MAX_BATCH_SIZE)) {
+                List<?> rows = session.createCriteria(Certificate.class)
+                        .add(Restrictions.in(DEVICE_ID_FIELD, batch))
+                        .setProjection(Projections.projectionList()
+                                .add(Projections.id())
+                                .add(Projections.sqlProjection(
+                                        "{alias}.DTYPE as certificateType",
+                                        new String[] {"certificateType"},
+                                        new Type[] {StringType.INSTANCE}))
+                                .add(Projections.property("subject"))
+                                .add(Projections.property(Certificate.SERIAL_NUMBER_FIELD))
+                                .add(Projections.property("beginValidity"))
+                                .add(Projections.property("endValidity"))
+                                .add(Projections.property(DEVICE_ID_FIELD)))
+                        .list();
+                for (Object row : rows) {
+                    // the values are in the order of the projection
+                    Iterator<Object> values = Arrays.asList((Object[]) row).iterator();
+                    summaries.add(new CertificateSummary((UUID) values.next(),
+                            (String) values.next(), (String) values.next(),
+                            (BigInteger) values.next(), (Date) values.next(),
+                            (Date) values.next(), (UUID) values.next()));
+                }
+            }
+            tx.commit();
+        } catch (HibernateException e) {
+            final String msg = "unable to retrieve certificate summaries";
+            LOGGER.error(msg, e);
+            if (tx != null) {
+                LOGGER.debug("rolling back transaction");
+                tx.rollback();
+            }
+            throw e;
+        }
+        return summaries;
+    }
+
+    /**
+     * Retrieve the {@link CertificateStamp} of the certificates of the given type with a single
+     * aggregate query, which counts the certificates that are not archived and finds the latest
+     * times a certificate was created and archived.
+     *
+     * @param certificateType the type of the certificates
+     * @return the stamp of the certificates
+     */
+    @Override
+    public CertificateStamp getStamp(final Class<? extends Certificate> certificateType) {
+        Transaction tx = null;
+        Session session = getFactory().getCurrentSession();
+        try {
+            tx = session.beginTransaction();
+            Object[] row = (Object[]) session.createCriteria(certificateType)
+                    .setProjection(Projections.projectionList()
+                            .add(Projections.sqlProjection(UNARCHIVED_COUNT_PROJECTION,
+                                    new String[] {"unarchivedCount"},
+                                    new Type[] {LongType.INSTANCE}))
+                            .add(Projections.max("createTime"))
+                            .add(Projections.max("archivedTime")))
+                    .uniqueResult();
+            tx.commit();
+            // the sum is null when there are no certificates
+            long unarchivedCount = 0;
+            if (row[0] != null) {
+                unarchivedCount = ((Number) row[0]).longValue();
+            }
+            return new CertificateStamp(unarchivedCount, (Date) row[1], (Date) row[2]);
+        } catch (HibernateException e) {
+            final String msg = "unable to retrieve the certificate stamp";
+            LOGGER.error(msg, e);
+            if (tx != null) {
+                LOGGER.debug("rolling back transaction");
+                tx.rollback();
+            }
+            throw new DBManagerException(msg, e);
+        }
+    }
+
+    /**
+     * Sets the lookup digests of the certificates that were persisted before their public key
+     * and public key modulus were looked up through digests, in batches of at most
+     * {@link #MAX_BATCH_SIZE} certificates. This is done once, before the first certificates are
+     * selected.
+     */
+    private void backfillLookupDigests() {
+        if (lookupDigestsBackfilled) {
+            return;
+        }
+        synchronized (this) {
+            if (lookupDigestsBackfilled) {
+                return;
+            }
+            int backfilled = 0;
+            Transaction tx = null;
+            Session session = getFactory().getCurrentSession();
+            try {
+                tx = session.beginTransaction();
+                List<?> rows;
+                do {
+                    rows = session.createCriteria(Certificate.class)
+                            .add(Restrictions.or(
+                                    Restrictions.and(
+                                            Restrictions.isNull(
+                                                    Certificate.ENCODED_PUBLIC_KEY_DIGEST_FIELD),
+                                            Restrictions.isNotNull(
+                                                    Certificate.ENCODED_PUBLIC_KEY_FIELD)),
+                                    Restrictions.and(
+                                            Restrictions.isNull(
+                                                    Certificate.PUBLIC_KEY_MODULUS_DIGEST_FIELD),
+                                            Restrictions.isNotNull(
+                                                    Certificate.PUBLIC_KEY_MODULUS_FIELD))))
+                            .setProjection(Projections.projectionList()
+                                    .add(Projections.id())
+                                    .add(Projections.property(
+                                            Certificate.ENCODED_PUBLIC_KEY_FIELD))
+                                    .add(Projections.property(
+                                            Certificate.PUBLIC_KEY_MODULUS_FIELD)))
+                            .setMaxResults(MAX_BATCH_SIZE)
+                            .list();
+                    for (Object row : rows) {
+                        // the values are in the order of the projection
+                        Iterator<Object> values = Arrays.asList((Object[]) row).iterator();
+                        UUID id = (UUID) values.next();
+                        session.createQuery(LOOKUP_DIGEST_UPDATE)
+                                .setString("encodedPublicKeyDigest",
+                                        Certificate.getLookupDigest((byte[]) values.next()))
+                                .setString("publicKeyModulusDigest",
+                                        Certificate.getLookupDigest((String) values.next()))
+                                .setParameter("id", id)
+                                .executeUpdate();
+                    }
+                    backfilled += rows.size();
+                } while (rows.size() == MAX_BATCH_SIZE);
+                tx.commit();
+            } catch (HibernateException e) {
+                final String msg = "unable to set certificate lookup digests";
+                LOGGER.error(msg, e);
+                if (tx != null) {
+                    LOGGER.debug("rolling back transaction");
+                    tx.rollback();
+                }
+                throw e;
+            }
+            if (backfilled > 0) {
+                LOGGER.info(String.format("Set the lookup digests of %d certificates",
+                        backfilled));
+            }
+            lookupDigestsBackfilled = true;
+        }
+    }
+
     /**
      * Remove a certificate from the database.
      *
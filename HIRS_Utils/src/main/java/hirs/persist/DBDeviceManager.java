@@ -107,7 +107,7 @@ public class DBDeviceManager extends DBManager<Device> implements
         Transaction tx = session.beginTransaction();
         try {
             for (final Device device : deviceList) {
-                session.merge(device);
+                SearchIndex.index(session, session.merge(device));
             }
             session.getTransaction().commit();
         } catch (Exception e) {
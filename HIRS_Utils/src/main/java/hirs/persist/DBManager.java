@@ -1,13 +1,18 @@
 package hirs.persist;
 
 import hirs.FilteredRecordsList;
+import hirs.data.persist.AbstractEntity;
 import hirs.data.persist.ArchivableEntity;
+import hirs.utils.Callback;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.hibernate.Criteria;
 import org.hibernate.SessionFactory;
 import org.hibernate.StaleObjectStateException;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.exception.ConstraintViolationException;
 import org.hibernate.exception.LockAcquisitionException;
 import org.springframework.retry.RetryCallback;
 import org.springframework.retry.RetryContext;
@@ -17,10 +22,13 @@ import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.RetryTemplate;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Generic database manager for managing objects in a database. This provides create, read, update,
@@ -40,6 +48,8 @@ public class DBManager<T> extends AbstractDbManager<T> {
      */
     private static final long DEFAULT_RETRY_WAIT_TIME_MS = 3000;
 
+    private static final String CONTENT_DIGEST_FIELD = "contentDigest";
+
     // structure for retrying methods in the database
     private RetryTemplate retryTemplate;
 
@@ -153,6 +163,43 @@ public class DBManager<T> extends AbstractDbManager<T> {
                 });
     }
 
+    /**
+     * Retrieves the entities of the given class that match the given criterion, which selects
+     * them by the SHA-256 digest of their content. The id of the entity is looked up in the
+     * {@link ContentDigestCache} first, so that content known to be stored is retrieved by id;
+     * otherwise the entities are queried by the criterion and their ids are cached.
+     *
+     * @param <U> the specific type of class to retrieve
+     * @param clazzToGet the class of object to retrieve
+     * @param contentDigest the hex encoded SHA-256 digest of the content
+     * @param criterion the criterion selecting the entities, including their content digest
+     * @return the list of matching entities
+     * @throws DBManagerException if an error is encountered while performing the query
+     */
+    protected final <U extends T> List<U> getWithContentDigest(
+            final Class<U> clazzToGet,
+            final String contentDigest,
+            final Criterion criterion) throws DBManagerException {
+        ContentDigestCache cache = ContentDigestCache.getInstance();
+        UUID id = cache.get(clazzToGet, contentDigest);
+        if (id != null) {
+            List<U> cached = getWithCriteria(clazzToGet,
+                    Arrays.asList(Restrictions.idEq(id), criterion));
+            if (!cached.isEmpty()) {
+                return cached;
+            }
+            cache.invalidate(clazzToGet, contentDigest);
+        }
+
+        List<U> results = getWithCriteria(clazzToGet, Collections.singleton(criterion));
+        for (U result : results) {
+            if (result instanceof AbstractEntity) {
+                cache.put(clazzToGet, contentDigest, ((AbstractEntity) result).getId());
+            }
+        }
+        return results;
+    }
+
     /**
      * Deletes all instances of the associated class.
      *
@@ -189,6 +236,70 @@ public class DBManager<T> extends AbstractDbManager<T> {
         });
     }
 
+    /**
+     * Saves the given entity, whose content is stored at most once for each class of entity. If
+     * an entity of the same class and content was saved concurrently, after the caller looked
+     * it up, the unique constraint on the content digest rejects the entity and the stored one
+     * is selected by its content digest and returned instead.
+     *
+     * @param object the entity to save
+     * @param contentDigest the hex encoded SHA-256 digest of the content of the entity
+     * @return the saved entity, or the stored entity with the same content
+     * @throws DBManagerException if an error occurs while trying to save the entity
+     */
+    protected final T saveWithContentDigest(final T object, final String contentDigest)
+            throws DBManagerException {
+        try {
+            return save(object);
+        } catch (DBManagerException e) {
+            if (contentDigest == null
+                    || ExceptionUtils.indexOfType(e, ConstraintViolationException.class) < 0) {
+                throw e;
+            }
+            @SuppressWarnings("unchecked")
+            Class<? extends T> clazzToGet = (Class<? extends T>) object.getClass();
+            T stored = getStoredWithContentDigest(clazzToGet, contentDigest);
+            if (stored == null) {
+                throw e;
+            }
+            LOGGER.info("{} with content digest {} was saved concurrently, using the stored one",
+                    object.getClass().getSimpleName(), contentDigest);
+            return stored;
+        }
+    }
+
+    // the criteria query includes subclasses, which may store the same content
+    private <U extends T> U getStoredWithContentDigest(final Class<U> clazzToGet,
+            final String contentDigest) {
+        List<U> results = getWithContentDigest(clazzToGet, contentDigest,
+                Restrictions.eq(CONTENT_DIGEST_FIELD, contentDigest));
+        for (U result : results) {
+            if (result.getClass().equals(clazzToGet)) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Saves the given objects in the database within a single transaction, sending the inserts
+     * in JDBC batches. If any object cannot be saved, none are.
+     *
+     * @param objects objects to save
+     * @return the saved objects, in the given order
+     * @throws DBManagerException if an object has previously been saved or an
+     * error occurs while trying to save it to the database
+     */
+    public final List<T> saveAll(final Collection<? extends T> objects)
+            throws DBManagerException {
+        return retryTemplate.execute(new RetryCallback<List<T>, DBManagerException>() {
+            @Override
+            public List<T> doWithRetry(final RetryContext context) throws DBManagerException {
+                return doSaveAll(objects);
+            }
+        });
+    }
+
     /**
      * Updates an object stored in the database. This updates the database
      * entries to reflect the new values that should be set.
@@ -409,6 +520,69 @@ public class DBManager<T> extends AbstractDbManager<T> {
                 });
     }
 
+    @Override
+    @SuppressWarnings("checkstyle:parameternumber")
+    public final FilteredRecordsList<T> getOrderedListAfter(
+            final Class<? extends T> clazz, final String columnToOrder,
+            final boolean ascending, final OrderedListCursor cursor,
+            final int maxResults, final String search,
+            final Map<String, Boolean> searchableColumns, final CriteriaModifier criteriaModifier)
+            throws DBManagerException {
+
+        return retryTemplate.execute(
+                new RetryCallback<FilteredRecordsList<T>, DBManagerException>() {
+                    @Override
+                    public FilteredRecordsList<T> doWithRetry(final RetryContext context)
+                            throws DBManagerException {
+                        return doGetOrderedListAfter(clazz, columnToOrder, ascending,
+                                cursor, maxResults,
+                                search, searchableColumns, criteriaModifier);
+                    }
+                });
+    }
+
+    @Override
+    @SuppressWarnings("checkstyle:parameternumber")
+    public final FilteredRecordsList<Map<String, Object>> getProjectedList(
+            final Class<? extends T> clazz, final String columnToOrder,
+            final boolean ascending, final OrderedListCursor cursor, final int firstResult,
+            final int maxResults, final String search,
+            final Map<String, Boolean> searchableColumns, final CriteriaModifier criteriaModifier,
+            final Collection<String> properties)
+            throws DBManagerException {
+
+        return retryTemplate.execute(
+                new RetryCallback<FilteredRecordsList<Map<String, Object>>, DBManagerException>() {
+                    @Override
+                    public FilteredRecordsList<Map<String, Object>> doWithRetry(
+                            final RetryContext context) throws DBManagerException {
+                        return doGetProjectedList(clazz, columnToOrder, ascending,
+                                cursor, firstResult, maxResults,
+                                search, searchableColumns, criteriaModifier, properties);
+                    }
+                });
+    }
+
+    /**
+     * Streams the given properties of every <code>T</code> selected by the criteria modifier to
+     * the callback, one record at a time, over a forward-only cursor on a stateless session.
+     * Unlike the other queries, this is not retried, as the callback may already have consumed
+     * records when the query fails.
+     *
+     * @param clazz class type of <code>T</code>s to stream (may be null to use Class&lt;T&gt;)
+     * @param criteriaModifier a way to modify the criteria used in the query, may be null
+     * @param properties the properties to retrieve
+     * @param callback called with the map of property values of each record
+     * @return the number of records streamed
+     * @throws DBManagerException if unable to stream the records
+     */
+    @Override
+    public final long streamProjectedList(final Class<? extends T> clazz,
+            final CriteriaModifier criteriaModifier, final Collection<String> properties,
+            final Callback<Map<String, Object>, ?> callback) throws DBManagerException {
+        return doStreamProjectedList(clazz, criteriaModifier, properties, callback);
+    }
+
     /**
      * Deletes the object from the database. This removes all of the database
      * entries that stored information with regards to the this object.
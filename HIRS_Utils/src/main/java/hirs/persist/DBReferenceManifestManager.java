@@ -1,20 +1,22 @@
 package hirs.persist;
 
+import hirs.data.persist.BaseReferenceManifest;
 import hirs.data.persist.ReferenceManifest;
+import hirs.utils.SwidProcessingService;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.StringType;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.io.InputStream;
-import java.io.IOException;
-import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.xml.sax.SAXException;
 
 /**
  * This class is used to persist and retrieve {@link ReferenceManifest}s into
@@ -30,7 +32,10 @@ public class DBReferenceManifestManager extends DBManager<ReferenceManifest>
     public static final SchemaFactory SCHEMA_FACTORY
             = SchemaFactory.newInstance(ReferenceManifest.SCHEMA_LANGUAGE);
 
-    private static Schema schema;
+    private static final String RESOURCE_NAME_RESTRICTION = "{alias}.id in "
+            + "(select rimId from SwidResourceIndex where fileName = ?)";
+
+    private volatile boolean swidResourcesIndexed = false;
 
     /**
      * Default Constructor.
@@ -43,35 +48,26 @@ public class DBReferenceManifestManager extends DBManager<ReferenceManifest>
     }
 
     /**
-     * This method sets the xml schema for processing RIMs.
+     * This method returns the xml schema for processing RIMs. The schema is compiled once and
+     * shared through {@link SwidProcessingService}.
      *
      * @return the schema
      */
     public static final Schema getSchemaObject() {
-        if (schema == null) {
-            InputStream is = null;
-            try {
-                is = ReferenceManifest.class
-                        .getClassLoader()
-                        .getResourceAsStream(ReferenceManifest.SCHEMA_URL);
-                schema = SCHEMA_FACTORY.newSchema(new StreamSource(is));
-            } catch (SAXException saxEx) {
-                LOGGER.error(String.format("Error setting schema for validation!%n%s",
-                    saxEx.getMessage()));
-            } finally {
-                if (is != null) {
-                    try {
-                        is.close();
-                    } catch (IOException ioEx) {
-                        LOGGER.error(String.format("Error closing input stream%n%s",
-                                ioEx.getMessage()));
-                    }
-                } else {
-                    LOGGER.error("Input stream variable is null");
-                }
-            }
-        }
-        return schema;
+        return SwidProcessingService.getInstance().getSchema();
+    }
+
+    /**
+     * Persists a new ReferenceManifest, or, if one of the same class with the same content was
+     * persisted concurrently, retrieves it by its content digest instead.
+     *
+     * @param referenceManifest the ReferenceManifest
+     * @return the persisted ReferenceManifest, or the one already persisted with the same
+     * content
+     */
+    @Override
+    public ReferenceManifest saveOrGetExisting(final ReferenceManifest referenceManifest) {
+        return saveWithContentDigest(referenceManifest, referenceManifest.getContentDigest());
     }
 
     /**
@@ -89,6 +85,16 @@ public class DBReferenceManifestManager extends DBManager<ReferenceManifest>
     public <T extends  ReferenceManifest> Set<T> get(
             final ReferenceManifestSelector referenceManifestSelector) {
         LOGGER.info("Getting the full set of Reference Manifest files.");
+        String contentDigest = referenceManifestSelector.getContentDigest();
+        if (contentDigest != null) {
+            return new HashSet<>(
+                    (List<T>) getWithContentDigest(
+                            referenceManifestSelector.getReferenceManifestClass(),
+                            contentDigest,
+                            referenceManifestSelector.getCriterion()
+                    )
+            );
+        }
         return new HashSet<>(
                 (List<T>) getWithCriteria(
                         referenceManifestSelector.getReferenceManifestClass(),
@@ -97,6 +103,44 @@ public class DBReferenceManifestManager extends DBManager<ReferenceManifest>
         );
     }
 
+    /**
+     * Retrieves the base RIMs whose Payload lists a file with the given name, using the indexed
+     * resources. Base RIMs persisted before the resources were indexed at ingest are indexed the
+     * first time this method is called.
+     *
+     * @param fileName the name of the file listed in the Payload
+     * @return the resulting set of base RIMs, possibly empty
+     */
+    @Override
+    public Set<BaseReferenceManifest> getBaseRimsByResourceName(final String fileName) {
+        if (!swidResourcesIndexed) {
+            indexSwidResources();
+        }
+        List<Criterion> criteria = Arrays.asList(
+                Restrictions.sqlRestriction(RESOURCE_NAME_RESTRICTION, fileName,
+                        StringType.INSTANCE),
+                Restrictions.isNull("archivedTime"));
+        return new HashSet<>(getWithCriteria(BaseReferenceManifest.class, criteria));
+    }
+
+    private synchronized void indexSwidResources() {
+        if (swidResourcesIndexed) {
+            return;
+        }
+        int count = 0;
+        for (BaseReferenceManifest rim : BaseReferenceManifest.select(this)
+                .includeArchived().getRIMs()) {
+            if (rim.getSwidResourceEntries().isEmpty() && rim.indexSwidResources()) {
+                update(rim);
+                count++;
+            }
+        }
+        if (count > 0) {
+            LOGGER.info(String.format("Indexed the resources of %d base RIMs", count));
+        }
+        swidResourcesIndexed = true;
+    }
+
     /**
      * Remove a ReferenceManifest from the database.
      *
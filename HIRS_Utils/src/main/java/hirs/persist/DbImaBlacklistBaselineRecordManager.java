@@ -7,8 +7,6 @@ import hirs.data.persist.baseline.QueryableRecordImaBaseline;
 import hirs.data.persist.baseline.ImaBlacklistBaseline;
 
 import hirs.utils.Callback;
-import hirs.utils.Job;
-import hirs.utils.JobExecutor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.hibernate.Criteria;
@@ -22,14 +20,12 @@ import org.hibernate.Transaction;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.transform.Transformers;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  *
@@ -39,7 +35,6 @@ public class DbImaBlacklistBaselineRecordManager extends DBManager<ImaBlacklistR
 
     private static final Logger LOGGER =
             LogManager.getLogger(DbImaBlacklistBaselineRecordManager.class);
-    private static final int LOGGING_INTERVAL = 500;
 
     /**
      * Creates a new <code>DBImaBaselineRecordManager</code>. The optional
@@ -235,7 +230,9 @@ public class DbImaBlacklistBaselineRecordManager extends DBManager<ImaBlacklistR
     /**
      * Iterates over the {@link ImaBlacklistRecord}s in the given baseline, and calls the given
      * Callback on each record.  If the callback returns a non-null value, the returned value will
-     * be added to a collection, which is returned when iteration is finished.
+     * be added to a collection, which is returned when iteration is finished.  The callback is
+     * called by the calling thread, as the records are streamed by
+     * {@link #streamBaselineRecords(QueryableRecordImaBaseline)}.
      *
      * @param baseline    the baseline whose {@link ImaBlacklistRecord}s we should iterate over
      * @param callback    the callback to run on each record
@@ -245,100 +242,54 @@ public class DbImaBlacklistBaselineRecordManager extends DBManager<ImaBlacklistR
     public final <T> Collection<T> iterateOverBaselineRecords(
             final QueryableRecordImaBaseline baseline,
             final Callback<ImaBlacklistRecord, T> callback) {
-        final Collection<T> allResults = new ConcurrentLinkedQueue<>();
-        Collection<Callable<Void>> tasks = new ArrayList<>();
-
-        int fetchSize;
-        switch (getConfiguredImplementation()) {
-            case MYSQL:
-                fetchSize = Integer.MIN_VALUE;
-                break;
-            case HSQL:
-            default:
-                fetchSize = 1;
-        }
-
-        DBImpl impl = getConfiguredImplementation();
-        if (impl == DBImpl.MYSQL) {
-            // provides a hint to the JDBC connector that records should be streamed
-            fetchSize = Integer.MIN_VALUE;
-        } else if (impl == DBImpl.HSQL) {
-            fetchSize = 1;
-        }
-
-        final AtomicInteger recCounter = new AtomicInteger();
-        for (int i = 0; i < ImaBlacklistRecord.FILENAME_HASH_BUCKET_COUNT; i++) {
-            final int bucket = i;
-            final int finalFetchSize = fetchSize;
-            tasks.add(new Callable<Void>() {
-                @Override
-                public Void call() throws Exception {
-                    LOGGER.debug(String.format(
-                            "IMA record iteration: starting examiner thread %d",
-                            bucket
-                    ));
-                    List<T> results = new LinkedList<>();
-
-                    StatelessSession statelessSession = getStatelessSession();
-                    try {
-                        Transaction tx = statelessSession.beginTransaction();
-                        Criteria criteria = statelessSession.createCriteria(baseline.getClass());
-                        baseline.configureCriteriaForBaselineRecords(criteria, bucket);
-                        criteria.setResultTransformer(Transformers.ALIAS_TO_ENTITY_MAP);
-                        criteria.setReadOnly(true);
-                        criteria.setFetchSize(finalFetchSize);
-                        ScrollableResults records = criteria.scroll(ScrollMode.FORWARD_ONLY);
-
-                        Map entry;
-                        ImaBlacklistRecord baselineRecord;
-                        while (records.next()) {
-                            // get(0) guarantees other rows won't be initialized
-                            entry = (Map) records.get(0);
-                            String path = (String) entry.get(ImaBlacklistRecord.PATH_FIELD);
-                            OptionalDigest digest =
-                                    (OptionalDigest) entry.get(ImaBlacklistRecord.HASH_FIELD);
-                            baselineRecord = new ImaBlacklistRecord(path, digest.asDigest());
-                            T result = callback.call(baselineRecord);
-                            if (result != null) {
-                                results.add(result);
-                            }
-                            int count = recCounter.incrementAndGet();
-                            if (count % LOGGING_INTERVAL == 0) {
-                                LOGGER.debug(String.format(
-                                        "IMA record iteration: examined %d records", count
-                                ));
-                            }
-                        }
-                        tx.commit();
-                    } catch (Exception e) {
-                        throw e;
-                    } finally {
-                        statelessSession.close();
-                    }
-
-                    allResults.addAll(results);
-                    return null;
-                }
-            });
+        try (Stream<ImaBlacklistRecord> records = streamBaselineRecords(baseline)) {
+            return records.map(callback::call)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
         }
+    }
 
-        JobExecutor executor = new JobExecutor();
-        Job<Void> job = new Job<>(tasks);
-        executor.scheduleJob(job);
+    /**
+     * Streams the {@link ImaBlacklistRecord}s in the given baseline.  The buckets of the baseline
+     * are read in parallel on a worker pool shared by all scans, and only a bounded number of
+     * records is read ahead of the consumer of the stream.  The stream must be closed, preferably
+     * with a try-with-resources statement.
+     *
+     * @param baseline the baseline whose {@link ImaBlacklistRecord}s should be streamed
+     * @return the records of the baseline, in no particular order
+     */
+    @Override
+    public final Stream<ImaBlacklistRecord> streamBaselineRecords(
+            final QueryableRecordImaBaseline baseline) {
+        final int fetchSize = getStreamingFetchSize();
+        return BaselineRecordScanner.stream(ImaBlacklistRecord.FILENAME_HASH_BUCKET_COUNT,
+                (bucket, sink) -> readBucket(baseline, bucket, fetchSize, sink));
+    }
 
+    // scrolls over the records of a bucket in their own stateless session
+    private void readBucket(final QueryableRecordImaBaseline baseline, final int bucket,
+                            final int fetchSize, final Consumer<ImaBlacklistRecord> sink) {
+        StatelessSession statelessSession = getStatelessSession();
         try {
-            executor.shutdown();
-        } catch (InterruptedException e) {
-            throw new DBManagerException(e);
-        }
+            Transaction tx = statelessSession.beginTransaction();
+            Criteria criteria = statelessSession.createCriteria(baseline.getClass());
+            baseline.configureCriteriaForBaselineRecords(criteria, bucket);
+            criteria.setResultTransformer(Transformers.ALIAS_TO_ENTITY_MAP);
+            criteria.setReadOnly(true);
+            criteria.setFetchSize(fetchSize);
+            ScrollableResults records = criteria.scroll(ScrollMode.FORWARD_ONLY);
 
-        if (job.getState() != Job.State.COMPLETED) {
-            LOGGER.error("Appraisal job finished in state {}", job.getState().toString());
-            for (String s : job.getAllFailures()) {
-                throw new DBManagerException(s);
+            Map entry;
+            while (records.next()) {
+                // get(0) guarantees other rows won't be initialized
+                entry = (Map) records.get(0);
+                String path = (String) entry.get(ImaBlacklistRecord.PATH_FIELD);
+                OptionalDigest digest = (OptionalDigest) entry.get(ImaBlacklistRecord.HASH_FIELD);
+                sink.accept(new ImaBlacklistRecord(path, digest.asDigest()));
             }
+            tx.commit();
+        } finally {
+            statelessSession.close();
         }
-
-        return allResults;
     }
 }
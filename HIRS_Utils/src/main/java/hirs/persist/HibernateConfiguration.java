@@ -30,6 +30,11 @@ import java.util.Properties;
 })
 public class HibernateConfiguration {
 
+    /**
+     * Number of statements sent to the database in a single JDBC batch.
+     */
+    public static final int JDBC_BATCH_SIZE = 50;
+
     @Value("${persistence.db.url}")
     private String url;
 
@@ -108,6 +113,8 @@ public class HibernateConfiguration {
         properties.put("hibernate.hbm2ddl.auto", ddl);
         properties.put("hibernate.dialect", dialect);
         properties.put("hibernate.current_session_context_class", "thread");
+        properties.put("hibernate.jdbc.batch_size", String.valueOf(JDBC_BATCH_SIZE));
+        properties.put("hibernate.order_inserts", "true");
         return properties;
     }
 
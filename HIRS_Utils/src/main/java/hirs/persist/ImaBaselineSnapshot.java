@@ -0,0 +1,367 @@
+package hirs.persist;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.UnsignedBytes;
+import hirs.data.persist.Digest;
+import hirs.data.persist.baseline.AbstractImaBaselineRecord;
+import hirs.data.persist.baseline.IMABaselineRecord;
+import hirs.data.persist.enums.DigestAlgorithm;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A read-only snapshot of the {@link IMABaselineRecord}s of a baseline, held in a file that is
+ * memory-mapped rather than read onto the heap. A snapshot lets an appraisal find the records of
+ * the measured paths or hashes by binary search, instead of streaming every record of the
+ * baseline out of the database.
+ * <p>
+ * The file holds, after a header of its magic number, format version and record count:
+ * <ul>
+ *   <li>one fixed-width entry per record, sorted by the hash of its path: the 64-bit hash of the
+ *   path, the 64-bit hash of the partial path, the SHA-1 digest and the offset of the path,</li>
+ *   <li>the entry numbers sorted by the hash of the partial path,</li>
+ *   <li>the entry numbers sorted by digest,</li>
+ *   <li>the paths, each as its length followed by its UTF-8 bytes.</li>
+ * </ul>
+ * The paths found through their hashes are compared with the paths looked up, so that hash
+ * collisions cannot produce false matches. Lookups read the mapped buffer by absolute position,
+ * so a snapshot may be shared by concurrent appraisals.
+ */
+public final class ImaBaselineSnapshot {
+
+    private static final int MAGIC = 0x48494D41;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    private static final int DIGEST_LENGTH = DigestAlgorithm.SHA1.getLengthInBytes();
+    private static final int PARTIAL_PATH_HASH_OFFSET = Long.BYTES;
+    private static final int DIGEST_OFFSET = 2 * Long.BYTES;
+    private static final int PATH_OFFSET_OFFSET = DIGEST_OFFSET + DIGEST_LENGTH;
+    private static final int ENTRY_SIZE = PATH_OFFSET_OFFSET + Integer.BYTES;
+
+    private static final HashFunction PATH_HASH = Hashing.murmur3_128();
+    private static final Comparator<byte[]> DIGEST_ORDER =
+            UnsignedBytes.lexicographicalComparator();
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int partialPathIndexStart;
+    private final int digestIndexStart;
+    private final int pathsStart;
+
+    private ImaBaselineSnapshot(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+                || buffer.getInt(Integer.BYTES) != FORMAT_VERSION) {
+            throw new IOException("Not an IMA baseline snapshot of version " + FORMAT_VERSION);
+        }
+        count = buffer.getInt(2 * Integer.BYTES);
+        if (count < 0 || HEADER_SIZE + (long) count * (ENTRY_SIZE + 2 * Integer.BYTES)
+                > buffer.capacity()) {
+            throw new IOException("IMA baseline snapshot is truncated");
+        }
+        partialPathIndexStart = HEADER_SIZE + count * ENTRY_SIZE;
+        digestIndexStart = partialPathIndexStart + count * Integer.BYTES;
+        pathsStart = digestIndexStart + count * Integer.BYTES;
+    }
+
+    /**
+     * Maps the snapshot held in the given file.
+     *
+     * @param file the file written by {@link #write(Path, Collection)}
+     * @return the snapshot
+     * @throws IOException if the file cannot be mapped or is not a snapshot
+     */
+    public static ImaBaselineSnapshot open(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("IMA baseline snapshot is too large to map: " + file);
+            }
+            return new ImaBaselineSnapshot(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given records to a file, replacing its contents.
+     *
+     * @param file the file to write
+     * @param records the records of the baseline
+     * @throws IOException if the file cannot be written, or if the snapshot would be too large
+     *                     to map
+     */
+    public static void write(final Path file, final Collection<IMABaselineRecord> records)
+            throws IOException {
+        final List<Entry> entries = new ArrayList<>(records.size());
+        long size = HEADER_SIZE;
+        for (IMABaselineRecord record : records) {
+            Entry entry = new Entry(record);
+            entries.add(entry);
+            size += ENTRY_SIZE + 2 * Integer.BYTES + Integer.BYTES + entry.path.length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("IMA baseline snapshot is too large to map: " + size + " bytes");
+        }
+
+        entries.sort(Comparator.comparingLong(entry -> entry.pathHash));
+        Integer[] byPartialPath = entryNumbers(entries.size());
+        Arrays.sort(byPartialPath,
+                Comparator.comparingLong(number -> entries.get(number).partialPathHash));
+        Integer[] byDigest = entryNumbers(entries.size());
+        Arrays.sort(byDigest,
+                (first, second) -> DIGEST_ORDER.compare(entries.get(first).digest,
+                        entries.get(second).digest));
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(entries.size());
+            int pathOffset = 0;
+            for (Entry entry : entries) {
+                out.writeLong(entry.pathHash);
+                out.writeLong(entry.partialPathHash);
+                out.write(entry.digest);
+                out.writeInt(pathOffset);
+                pathOffset += Integer.BYTES + entry.path.length;
+            }
+            for (Integer number : byPartialPath) {
+                out.writeInt(number);
+            }
+            for (Integer number : byDigest) {
+                out.writeInt(number);
+            }
+            for (Entry entry : entries) {
+                out.writeInt(entry.path.length);
+                out.write(entry.path);
+            }
+        }
+    }
+
+    /**
+     * Getter for the number of records in the snapshot.
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Finds the records with the given paths, as well as those whose partial path (file name) is
+     * one of the given paths if partial paths are to be matched.
+     *
+     * @param paths the paths to look up
+     * @param matchPartialPaths whether records may match by their partial path
+     * @return the matching records, each record being returned once
+     */
+    public Collection<IMABaselineRecord> getRecordsByPath(final Collection<String> paths,
+                                                          final boolean matchPartialPaths) {
+        Set<Integer> matches = new LinkedHashSet<>();
+        for (String path : paths) {
+            long hash = hashPath(path);
+            for (int entry = findFirstByPathHash(hash);
+                    entry < count && getPathHash(entry) == hash; entry++) {
+                if (path.equals(readPath(entry))) {
+                    matches.add(entry);
+                }
+            }
+
+            if (matchPartialPaths) {
+                for (int i = findFirstByPartialPathHash(hash);
+                        i < count && getPartialPathHash(getPartialPathIndex(i)) == hash; i++) {
+                    int entry = getPartialPathIndex(i);
+                    String recordPath = readPath(entry);
+                    if (path.equals(AbstractImaBaselineRecord.getPartialPath(recordPath))) {
+                        matches.add(entry);
+                    }
+                }
+            }
+        }
+        return readRecords(matches);
+    }
+
+    /**
+     * Finds the records with the given hashes.
+     *
+     * @param hashes the hashes to look up
+     * @return the matching records
+     */
+    public Collection<IMABaselineRecord> getRecordsByHash(final Collection<Digest> hashes) {
+        Set<Integer> matches = new LinkedHashSet<>();
+        for (Digest hash : hashes) {
+            if (hash == null || hash.getAlgorithm() != DigestAlgorithm.SHA1) {
+                continue;
+            }
+            byte[] digest = hash.getDigest();
+            for (int i = findFirstByDigest(digest);
+                    i < count && compareDigest(getDigestIndex(i), digest) == 0; i++) {
+                matches.add(getDigestIndex(i));
+            }
+        }
+        return readRecords(matches);
+    }
+
+    /**
+     * Reads every record of the snapshot accepted by the given filter.
+     *
+     * @param filter the filter to apply to the records
+     * @return the accepted records
+     */
+    public Collection<IMABaselineRecord> getRecords(final Predicate<IMABaselineRecord> filter) {
+        List<IMABaselineRecord> records = new ArrayList<>();
+        for (int entry = 0; entry < count; entry++) {
+            IMABaselineRecord record = readRecord(entry);
+            if (filter.test(record)) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private int findFirstByPathHash(final long hash) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getPathHash(middle) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int findFirstByPartialPathHash(final long hash) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getPartialPathHash(getPartialPathIndex(middle)) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int findFirstByDigest(final byte[] digest) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareDigest(getDigestIndex(middle), digest) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int entryPosition(final int entry) {
+        return HEADER_SIZE + entry * ENTRY_SIZE;
+    }
+
+    private long getPathHash(final int entry) {
+        return buffer.getLong(entryPosition(entry));
+    }
+
+    private long getPartialPathHash(final int entry) {
+        return buffer.getLong(entryPosition(entry) + PARTIAL_PATH_HASH_OFFSET);
+    }
+
+    private int getPartialPathIndex(final int i) {
+        return buffer.getInt(partialPathIndexStart + i * Integer.BYTES);
+    }
+
+    private int getDigestIndex(final int i) {
+        return buffer.getInt(digestIndexStart + i * Integer.BYTES);
+    }
+
+    private int compareDigest(final int entry, final byte[] digest) {
+        int position = entryPosition(entry) + DIGEST_OFFSET;
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            int comparison = UnsignedBytes.compare(buffer.get(position + i), digest[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private String readPath(final int entry) {
+        int position = pathsStart + buffer.getInt(entryPosition(entry) + PATH_OFFSET_OFFSET);
+        return new String(readBytes(position + Integer.BYTES, buffer.getInt(position)),
+                StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(final int position, final int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return bytes;
+    }
+
+    private IMABaselineRecord readRecord(final int entry) {
+        byte[] digest = readBytes(entryPosition(entry) + DIGEST_OFFSET, DIGEST_LENGTH);
+        return new IMABaselineRecord(readPath(entry), new Digest(DigestAlgorithm.SHA1, digest));
+    }
+
+    private Collection<IMABaselineRecord> readRecords(final Collection<Integer> entries) {
+        List<IMABaselineRecord> records = new ArrayList<>(entries.size());
+        for (int entry : entries) {
+            records.add(readRecord(entry));
+        }
+        return records;
+    }
+
+    private static long hashPath(final String path) {
+        return PATH_HASH.hashString(path, StandardCharsets.UTF_8).asLong();
+    }
+
+    private static Integer[] entryNumbers(final int size) {
+        Integer[] numbers = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            numbers[i] = i;
+        }
+        return numbers;
+    }
+
+    /**
+     * A record being written to a snapshot.
+     */
+    private static final class Entry {
+        private final long pathHash;
+        private final long partialPathHash;
+        private final byte[] digest;
+        private final byte[] path;
+
+        Entry(final IMABaselineRecord record) {
+            pathHash = hashPath(record.getPath());
+            partialPathHash = hashPath(record.getPartialPath());
+            digest = record.getHash().getDigest();
+            path = record.getPath().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
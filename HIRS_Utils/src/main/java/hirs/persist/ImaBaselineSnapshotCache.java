@@ -0,0 +1,160 @@
+package hirs.persist;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import hirs.data.persist.baseline.IMABaselineRecord;
+import hirs.data.persist.baseline.QueryableRecordImaBaseline;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Process wide cache of the {@link ImaBaselineSnapshot}s of {@link QueryableRecordImaBaseline}s.
+ * A snapshot is named by the id of its baseline and the version of its records, see
+ * {@link QueryableRecordImaBaseline#getRecordsVersion()}. The snapshot of a baseline is
+ * therefore built, from the records streamed out of the database, the first time the baseline
+ * is appraised after its packages changed, and is reused by every later appraisal, including
+ * those of other processes sharing the snapshot directory.
+ * <p>
+ * The snapshots are written to the directory named by the {@value #DIRECTORY_PROPERTY} system
+ * property, or to a directory under the temporary directory by default. Older snapshots of a
+ * baseline are deleted when a new one is built. The cache keeps the most recently used snapshots
+ * mapped.
+ */
+public final class ImaBaselineSnapshotCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(ImaBaselineSnapshotCache.class);
+
+    /**
+     * Name of the system property holding the directory the snapshots are written to.
+     */
+    public static final String DIRECTORY_PROPERTY = "hirs.ima.snapshot.dir";
+
+    /**
+     * Default upper bound of the number of snapshots kept mapped by the cache.
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 16;
+
+    private static final String DEFAULT_DIRECTORY_NAME = "hirs-ima-baseline-snapshots";
+    private static final String FILE_EXTENSION = ".snapshot";
+
+    private static final ImaBaselineSnapshotCache INSTANCE = new ImaBaselineSnapshotCache(
+            Paths.get(System.getProperty(DIRECTORY_PROPERTY,
+                    Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_DIRECTORY_NAME)
+                            .toString())),
+            DEFAULT_MAXIMUM_SIZE);
+
+    private final Path directory;
+    private final Cache<String, ImaBaselineSnapshot> snapshots;
+
+    /**
+     * Constructor.
+     *
+     * @param directory the directory the snapshots are written to
+     * @param maximumSize the maximum number of snapshots kept mapped
+     */
+    ImaBaselineSnapshotCache(final Path directory, final long maximumSize) {
+        this.directory = directory;
+        this.snapshots = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Getter for the process wide instance.
+     *
+     * @return the cache
+     */
+    public static ImaBaselineSnapshotCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the snapshot of the current records of the given baseline, building it if needed.
+     * Appraisals should fall back to iterating over the records of the baseline if no snapshot
+     * is returned.
+     *
+     * @param baseline the baseline
+     * @param recordManager the manager used to iterate over the records of the baseline when
+     *                      the snapshot is built
+     * @return the snapshot, or null if the baseline has not been saved or the snapshot cannot be
+     *         built or read
+     */
+    public ImaBaselineSnapshot get(final QueryableRecordImaBaseline baseline,
+                                   final ImaBaselineRecordManager recordManager) {
+        if (baseline.getId() == null) {
+            return null;
+        }
+
+        final String name = String.format("%s-%s", baseline.getId(),
+                baseline.getRecordsVersion());
+        try {
+            return snapshots.get(name, () -> load(name, baseline, recordManager));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            LOGGER.warn("Unable to use a snapshot of IMA baseline {}", baseline.getName(),
+                    e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Drops all mapped snapshots. The snapshot files are kept.
+     */
+    public void invalidateAll() {
+        snapshots.invalidateAll();
+    }
+
+    private ImaBaselineSnapshot load(final String name,
+                                     final QueryableRecordImaBaseline baseline,
+                                     final ImaBaselineRecordManager recordManager)
+            throws IOException {
+        Path file = directory.resolve(name + FILE_EXTENSION);
+        if (!Files.exists(file)) {
+            build(file, baseline, recordManager);
+        }
+        return ImaBaselineSnapshot.open(file);
+    }
+
+    private void build(final Path file, final QueryableRecordImaBaseline baseline,
+                       final ImaBaselineRecordManager recordManager) throws IOException {
+        LOGGER.info("Building a snapshot of IMA baseline {}", baseline.getName());
+        Collection<IMABaselineRecord> records;
+        try (Stream<IMABaselineRecord> baselineRecords =
+                     recordManager.streamBaselineRecords(baseline)) {
+            records = baselineRecords.collect(Collectors.toList());
+        }
+
+        Files.createDirectories(directory);
+        // written aside and moved into place, so that other processes never see a partial file
+        Path temporaryFile = Files.createTempFile(directory, baseline.getId().toString(), null);
+        try {
+            ImaBaselineSnapshot.write(temporaryFile, records);
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        LOGGER.info("Built a snapshot of the {} records of IMA baseline {}", records.size(),
+                baseline.getName());
+
+        String glob = String.format("%s-*%s", baseline.getId(), FILE_EXTENSION);
+        try (DirectoryStream<Path> olderFiles = Files.newDirectoryStream(directory, glob)) {
+            for (Path olderFile : olderFiles) {
+                if (!olderFile.equals(file)) {
+                    Files.deleteIfExists(olderFile);
+                }
+            }
+        }
+    }
+}
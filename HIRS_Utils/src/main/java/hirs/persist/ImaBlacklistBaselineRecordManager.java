@@ -7,6 +7,7 @@ import hirs.data.persist.baseline.ImaBlacklistBaseline;
 import hirs.utils.Callback;
 
 import java.util.Collection;
+import java.util.stream.Stream;
 
 /**
  * A <code>ImaBaselineRecordManager</code> manages <code>ImaBlacklistRecord</code>s. It has support
@@ -87,4 +88,14 @@ public interface ImaBlacklistBaselineRecordManager {
      */
     <T> Collection<T> iterateOverBaselineRecords(QueryableRecordImaBaseline baseline,
                                                  Callback<ImaBlacklistRecord, T> callback);
+
+    /**
+     * Streams the {@link ImaBlacklistRecord}s in the given baseline, reading only a bounded
+     * number of records ahead of the consumer of the stream.  The stream must be closed once
+     * consumed.
+     *
+     * @param baseline the baseline whose {@link ImaBlacklistRecord}s should be streamed
+     * @return the records of the baseline, in no particular order
+     */
+    Stream<ImaBlacklistRecord> streamBaselineRecords(QueryableRecordImaBaseline baseline);
 }
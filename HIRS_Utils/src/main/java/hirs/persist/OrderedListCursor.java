@@ -0,0 +1,94 @@
+package hirs.persist;
+
+import java.io.Serializable;
+
+/**
+ * Position in an ordered list, used to retrieve the page following a previously retrieved page
+ * without counting the records that precede it (keyset pagination). A cursor holds the sort
+ * value and the id of the last record of the previous page, along with the record counts of the
+ * list when they are known, so that the following pages do not have to count the records again.
+ *
+ * @see OrderedListQuerier#getOrderedListAfter
+ */
+public final class OrderedListCursor {
+
+    /**
+     * Record count of a cursor whose counts are not known.
+     */
+    public static final long UNKNOWN_COUNT = -1;
+
+    private final Object sortValue;
+    private final Serializable lastId;
+    private final long recordsTotal;
+    private final long recordsFiltered;
+
+    /**
+     * Constructor.
+     *
+     * @param sortValue the value of the ordered column of the last record, may be null
+     * @param lastId the id of the last record
+     * @param recordsTotal the total number of records, or {@link #UNKNOWN_COUNT}
+     * @param recordsFiltered the number of records matching the search, or
+     *                        {@link #UNKNOWN_COUNT}
+     */
+    public OrderedListCursor(final Object sortValue, final Serializable lastId,
+                             final long recordsTotal, final long recordsFiltered) {
+        if (lastId == null) {
+            throw new IllegalArgumentException("Cursor id cannot be null");
+        }
+        this.sortValue = sortValue;
+        this.lastId = lastId;
+        this.recordsTotal = recordsTotal;
+        this.recordsFiltered = recordsFiltered;
+    }
+
+    /**
+     * Getter for the value of the ordered column of the last record.
+     *
+     * @return the sort value, may be null
+     */
+    public Object getSortValue() {
+        return sortValue;
+    }
+
+    /**
+     * Getter for the id of the last record.
+     *
+     * @return the id
+     */
+    public Serializable getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Getter for the total number of records.
+     *
+     * @return the total number of records, or {@link #UNKNOWN_COUNT}
+     */
+    public long getRecordsTotal() {
+        return recordsTotal;
+    }
+
+    /**
+     * Getter for the number of records matching the search.
+     *
+     * @return the number of records matching the search, or {@link #UNKNOWN_COUNT}
+     */
+    public long getRecordsFiltered() {
+        return recordsFiltered;
+    }
+
+    /**
+     * Returns whether the record counts of the list are known.
+     *
+     * @return true if both counts are known
+     */
+    public boolean hasCounts() {
+        return recordsTotal != UNKNOWN_COUNT && recordsFiltered != UNKNOWN_COUNT;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OrderedListCursor{sortValue=%s, lastId=%s}", sortValue, lastId);
+    }
+}
@@ -1,7 +1,9 @@
 package hirs.persist;
 
 import hirs.FilteredRecordsList;
+import hirs.utils.Callback;
 
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -64,4 +66,94 @@ public interface OrderedListQuerier<T> {
             int maxResults, String search,
             Map<String, Boolean> searchableColumns, CriteriaModifier criteriaModifier)
             throws DBManagerException;
+
+    /**
+     * Returns the page of <code>T</code>s that follows the given cursor, ordered by a column and
+     * direction (ASC, DESC) that is provided by the user. Unlike
+     * {@link #getOrderedList(Class, String, boolean, int, int, String, Map, CriteriaModifier)},
+     * the records preceding the page are not scanned, so the cost of retrieving a page does not
+     * depend on its depth. Records are ordered by the given column and then by id, and the
+     * returned list holds the cursor to pass to retrieve the following page.
+     * <p>
+     * The record counts of the list are only computed when the cursor does not hold them, so
+     * the counts returned for the following pages are the counts at the time the first page was
+     * retrieved.
+     *
+     * @param clazz class type of <code>T</code>s to search for (may be null to
+     * use Class&lt;T&gt;)
+     * @param columnToOrder Column to be ordered
+     * @param ascending direction of sort
+     * @param cursor cursor returned with the previous page, null to retrieve the first page
+     * @param maxResults total number we want returned for display in table
+     * @param search string of criteria to be matched to visible columns
+     * @param searchableColumns Map of String and boolean values with column
+     * headers and whether they should be searched. Boolean is true if field provides a
+     * typical String that can be searched by Hibernate without transformation.
+     * @param criteriaModifier a way to modify the criteria used in the query
+     * @return FilteredRecordsList object with query data
+     * @throws DBManagerException if unable to create the list
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    FilteredRecordsList<T> getOrderedListAfter(
+            Class<? extends T> clazz, String columnToOrder,
+            boolean ascending, OrderedListCursor cursor,
+            int maxResults, String search,
+            Map<String, Boolean> searchableColumns, CriteriaModifier criteriaModifier)
+            throws DBManagerException;
+
+    /**
+     * Returns a page of <code>T</code>s like
+     * {@link #getOrderedListAfter(Class, String, boolean, OrderedListCursor, int, String, Map,
+     * CriteriaModifier)}, but with only the given properties of each record rather than the
+     * whole entities, so that list views do not load the columns they do not display (such as
+     * the encoded bytes of certificates). Each record is returned as a map from property name to
+     * value, which always holds the id. The properties of a referenced entity are named by their
+     * path (e.g. "device.name") and are returned in a nested map, which is null when the
+     * referenced entity is null.
+     *
+     * @param clazz class type of <code>T</code>s to search for (may be null to
+     * use Class&lt;T&gt;)
+     * @param columnToOrder Column to be ordered
+     * @param ascending direction of sort
+     * @param cursor cursor returned with the previous page, null to retrieve the page starting
+     * at firstResult
+     * @param firstResult starting point of first result in set, when there is no cursor
+     * @param maxResults total number we want returned for display in table
+     * @param search string of criteria to be matched to visible columns
+     * @param searchableColumns Map of String and boolean values with column
+     * headers and whether they should be searched. Boolean is true if field provides a
+     * typical String that can be searched by Hibernate without transformation.
+     * @param criteriaModifier a way to modify the criteria used in the query
+     * @param properties the properties to retrieve
+     * @return FilteredRecordsList object with query data
+     * @throws DBManagerException if unable to create the list
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    FilteredRecordsList<Map<String, Object>> getProjectedList(
+            Class<? extends T> clazz, String columnToOrder,
+            boolean ascending, OrderedListCursor cursor, int firstResult,
+            int maxResults, String search,
+            Map<String, Boolean> searchableColumns, CriteriaModifier criteriaModifier,
+            Collection<String> properties)
+            throws DBManagerException;
+
+    /**
+     * Streams the given properties of every <code>T</code> selected by the criteria modifier to
+     * the callback, one record at a time, like
+     * {@link #getProjectedList(Class, String, boolean, OrderedListCursor, int, int, String, Map,
+     * CriteriaModifier, Collection)} but without paging. The records are read over a
+     * forward-only cursor on a stateless session, so that memory use does not grow with the
+     * number of records, as when exporting a whole table. The criteria modifier must not join
+     * collections. The query is not retried, as the callback may already have consumed records.
+     *
+     * @param clazz class type of <code>T</code>s to stream (may be null to use Class&lt;T&gt;)
+     * @param criteriaModifier a way to modify the criteria used in the query, may be null
+     * @param properties the properties to retrieve
+     * @param callback called with the map of property values of each record
+     * @return the number of records streamed
+     * @throws DBManagerException if unable to stream the records
+     */
+    long streamProjectedList(Class<? extends T> clazz, CriteriaModifier criteriaModifier,
+            Collection<String> properties, Callback<Map<String, Object>, ?> callback)
+            throws DBManagerException;
 }
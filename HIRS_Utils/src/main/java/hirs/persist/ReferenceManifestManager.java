@@ -1,8 +1,11 @@
 
 package hirs.persist;
 
+import hirs.data.persist.BaseReferenceManifest;
 import hirs.data.persist.ReferenceManifest;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -19,6 +22,24 @@ public interface ReferenceManifestManager extends OrderedListQuerier<ReferenceMa
      */
     ReferenceManifest save(ReferenceManifest referenceManifest);
 
+    /**
+     * Persists a new Reference Manifest, or, if a Reference Manifest of the same class with the
+     * same content was persisted concurrently, retrieves the persisted one instead.
+     *
+     * @param referenceManifest the ReferenceManifest
+     * @return the persisted ReferenceManifest, or the one already persisted with the same content
+     */
+    ReferenceManifest saveOrGetExisting(ReferenceManifest referenceManifest);
+
+    /**
+     * Persists new Reference Manifests within a single transaction. If any Reference Manifest
+     * cannot be persisted, none are.
+     *
+     * @param referenceManifests the ReferenceManifests
+     * @return the persisted ReferenceManifests, in the given order
+     */
+    List<ReferenceManifest> saveAll(Collection<? extends ReferenceManifest> referenceManifests);
+
     /**
      * Updates an existing ReferenceManifest.
      * @param referenceManifest the rim to update
@@ -34,6 +55,16 @@ public interface ReferenceManifestManager extends OrderedListQuerier<ReferenceMa
      */
     <T extends ReferenceManifest> Set<T> get(ReferenceManifestSelector referenceManifestSelector);
 
+    /**
+     * Retrieve the base RIMs whose Payload lists a file with the given name. The lookup uses the
+     * resources indexed when the base RIMs were ingested, rather than parsing every base RIM.
+     * Archived RIMs are not included.
+     *
+     * @param fileName the name of the file listed in the Payload
+     * @return a Set of matching base RIMs, which may be empty
+     */
+    Set<BaseReferenceManifest> getBaseRimsByResourceName(String fileName);
+
     /**
      * Delete the given RIM.
      *
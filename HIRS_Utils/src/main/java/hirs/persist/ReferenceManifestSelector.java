@@ -9,7 +9,9 @@ import org.hibernate.criterion.Conjunction;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Restrictions;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -105,6 +107,31 @@ public abstract class ReferenceManifestSelector<T extends ReferenceManifest> {
         return this;
     }
 
+    /**
+     * Specify the SHA-256 digest of the bytes that rim must match. Unlike the hash code of the
+     * bytes, the digest identifies a rim of a given type.
+     *
+     * @param contentDigest the hex encoded digest to query for, as returned by
+     *                      {@link hirs.persist.ContentBlobStore#digest(byte[])}
+     * @return this instance (for chaining further calls)
+     */
+    public ReferenceManifestSelector<T> byContentDigest(final String contentDigest) {
+        setFieldValue(hirs.data.persist.ReferenceManifest.CONTENT_DIGEST_FIELD, contentDigest);
+        return this;
+    }
+
+    /**
+     * Specify the SHA-256 digests of the bytes of which rims must match one.
+     *
+     * @param contentDigests the hex encoded digests to query for, not empty or null
+     * @return this instance (for chaining further calls)
+     */
+    public ReferenceManifestSelector<T> byContentDigests(
+            final Collection<String> contentDigests) {
+        setFieldValues(hirs.data.persist.ReferenceManifest.CONTENT_DIGEST_FIELD, contentDigests);
+        return this;
+    }
+
     /**
      * Specify the file name of the object to grab.
      * @param fileName the name of the file associated with the rim
@@ -160,6 +187,21 @@ public abstract class ReferenceManifestSelector<T extends ReferenceManifest> {
         fieldValueSelections.put(name, valueToAssign);
     }
 
+    /**
+     * Set a field name and values of which the field must match one.
+     *
+     * @param name the field name to query
+     * @param values the values to query
+     */
+    protected void setFieldValues(final String name, final Collection<?> values) {
+        Preconditions.checkArgument(
+                values != null && !values.isEmpty(),
+                String.format("field values (%s) cannot be null or empty.", name)
+        );
+
+        fieldValueSelections.put(name, new ArrayList<>(values));
+    }
+
     /**
      * Retrieve the result set as a single
      * {@link hirs.data.persist.ReferenceManifest}. This method is best used
@@ -190,6 +232,19 @@ public abstract class ReferenceManifestSelector<T extends ReferenceManifest> {
         return Collections.unmodifiableSet(new HashSet<>(execute()));
     }
 
+    /**
+     * @return the content digest that rims must match, or null if not selecting by
+     * content digest
+     */
+    String getContentDigest() {
+        Object contentDigest = fieldValueSelections.get(
+                hirs.data.persist.ReferenceManifest.CONTENT_DIGEST_FIELD);
+        if (contentDigest instanceof String) {
+            return (String) contentDigest;
+        }
+        return null;
+    }
+
     /**
      * Construct the criterion that can be used to query for rims matching the
      * configuration of this {@link ReferenceManifestSelector}.
@@ -201,7 +256,12 @@ public abstract class ReferenceManifestSelector<T extends ReferenceManifest> {
         Conjunction conj = new Conjunction();
 
         for (Map.Entry<String, Object> fieldValueEntry : fieldValueSelections.entrySet()) {
-            conj.add(Restrictions.eq(fieldValueEntry.getKey(), fieldValueEntry.getValue()));
+            if (fieldValueEntry.getValue() instanceof Collection) {
+                conj.add(Restrictions.in(fieldValueEntry.getKey(),
+                        (Collection) fieldValueEntry.getValue()));
+            } else {
+                conj.add(Restrictions.eq(fieldValueEntry.getKey(), fieldValueEntry.getValue()));
+            }
         }
 
         if (this.excludeArchivedRims) {
@@ -0,0 +1,301 @@
+package hirs.persist;
+
+import hirs.data.persist.AbstractEntity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.criterion.Conjunction;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.StringType;
+import org.hibernate.type.Type;
+
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToOne;
+import javax.persistence.Transient;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Tokenized search index of the {@link SearchIndexed} entities, kept in the {@link SearchToken}
+ * table. The string, number, enum and date fields of an entity, as well as the name of the
+ * entities it references, are split into lower case alphanumeric tokens that are stored along
+ * with the name of their field. A search word then matches the entities having, in one of the
+ * searched fields, a token starting with each of the tokens of the word. Unlike matching the
+ * word anywhere in every column, such a lookup can use the index on the tokens.
+ * <p>
+ * The tokens are maintained by {@link AbstractDbManager} when an entity is saved, updated or
+ * deleted. Entities persisted before they were indexed are indexed the first time their class
+ * is searched.
+ */
+final class SearchIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger(SearchIndex.class);
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{Alnum}]+");
+    private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    private static final String NAME_FIELD = "name";
+    private static final int BACKFILL_BATCH_SIZE = 100;
+
+    private static final String TOKEN_RESTRICTION = "{alias}.id in (select t.entityId from "
+            + "SearchToken t where t.token like ? and t.fieldName in (%s))";
+    private static final String UNINDEXED_RESTRICTION =
+            "{alias}.id not in (select t.entityId from SearchToken t)";
+
+    private static final Map<Class<?>, List<Field>> INDEXED_FIELDS = new ConcurrentHashMap<>();
+    private static final Set<Class<?>> BACKFILLED_CLASSES = ConcurrentHashMap.newKeySet();
+
+    private SearchIndex() {
+        // do not construct
+    }
+
+    /**
+     * Returns whether the entities of the given class are kept in the search index.
+     *
+     * @param clazz the entity class
+     * @return true if the class is indexed
+     */
+    static boolean isIndexed(final Class<?> clazz) {
+        return clazz != null && AbstractEntity.class.isAssignableFrom(clazz)
+                && clazz.isAnnotationPresent(SearchIndexed.class);
+    }
+
+    /**
+     * Splits a value into lower case alphanumeric tokens, truncated to
+     * {@link SearchToken#MAX_TOKEN_LENGTH}.
+     *
+     * @param value the value to tokenize, may be null
+     * @return the distinct tokens of the value, in order
+     */
+    static Set<String> tokenize(final String value) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (value != null) {
+            for (String token : TOKEN_SEPARATOR.split(value.toLowerCase(Locale.ROOT))) {
+                if (token.length() > SearchToken.MAX_TOKEN_LENGTH) {
+                    tokens.add(token.substring(0, SearchToken.MAX_TOKEN_LENGTH));
+                } else if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Replaces the tokens of the given entity with the tokens of its current field values. Must
+     * be called within a transaction.
+     *
+     * @param session the session of the transaction
+     * @param entity the entity to index
+     */
+    static void index(final Session session, final Object entity) {
+        if (!isIndexed(entity.getClass())) {
+            return;
+        }
+        String entityId = entityId(entity);
+        remove(session, entityId);
+        for (Field field : indexedFields(entity.getClass())) {
+            String fieldName = field.getName();
+            Object value = fieldValue(field, entity);
+            if (value != null && isAssociation(field)) {
+                fieldName = fieldName + "." + NAME_FIELD;
+                Object referenced = unproxy(value);
+                if (referenced == null) {
+                    value = null;
+                } else {
+                    value = fieldValue(nameField(field.getType()), referenced);
+                }
+            }
+            for (String token : tokenize(stringValue(value))) {
+                session.save(new SearchToken(entityId, fieldName, token));
+            }
+        }
+    }
+
+    /**
+     * Removes the tokens of the given entity. Must be called within a transaction.
+     *
+     * @param session the session of the transaction
+     * @param entity the deleted entity
+     */
+    static void remove(final Session session, final Object entity) {
+        if (isIndexed(entity.getClass())) {
+            remove(session, entityId(entity));
+        }
+    }
+
+    private static void remove(final Session session, final String entityId) {
+        session.createQuery("delete from SearchToken where entityId = :entityId")
+                .setString("entityId", entityId)
+                .executeUpdate();
+    }
+
+    /**
+     * Builds the criterion matching the entities for which every word of the search is found in
+     * at least one of the given fields. Must be called within a transaction, as the entities of
+     * the class that were not indexed yet are indexed the first time it is searched.
+     *
+     * @param session the session of the transaction
+     * @param clazz the class of the searched entities
+     * @param search the search, with words separated by spaces
+     * @param fields the names of the searched fields
+     * @return the criterion
+     */
+    static Criterion search(final Session session, final Class<?> clazz, final String search,
+                            final Collection<String> fields) {
+        Conjunction and = Restrictions.conjunction();
+        Set<String> tokens = tokenize(search);
+        if (tokens.isEmpty() || fields.isEmpty()) {
+            return and;
+        }
+        backfill(session, clazz);
+
+        StringBuilder placeholders = new StringBuilder("?");
+        for (int i = 1; i < fields.size(); i++) {
+            placeholders.append(", ?");
+        }
+        String sql = String.format(TOKEN_RESTRICTION, placeholders);
+        Type[] types = new Type[fields.size() + 1];
+        Arrays.fill(types, StringType.INSTANCE);
+        for (String token : tokens) {
+            List<Object> values = new ArrayList<>();
+            values.add(token + "%");
+            values.addAll(fields);
+            and.add(Restrictions.sqlRestriction(sql, values.toArray(), types));
+        }
+        return and;
+    }
+
+    /**
+     * Indexes the entities of the given class that were persisted before they were indexed.
+     * This is done once per class.
+     */
+    private static void backfill(final Session session, final Class<?> clazz) {
+        if (BACKFILLED_CLASSES.contains(clazz)) {
+            return;
+        }
+        synchronized (SearchIndex.class) {
+            if (BACKFILLED_CLASSES.contains(clazz)) {
+                return;
+            }
+            List<?> ids = session.createCriteria(clazz)
+                    .add(Restrictions.sqlRestriction(UNINDEXED_RESTRICTION))
+                    .setProjection(Projections.id())
+                    .list();
+            for (int i = 0; i < ids.size(); i += BACKFILL_BATCH_SIZE) {
+                List<?> batch = ids.subList(i, Math.min(ids.size(), i + BACKFILL_BATCH_SIZE));
+                for (Object entity : session.createCriteria(clazz)
+                        .add(Restrictions.in("id", batch)).list()) {
+                    index(session, entity);
+                }
+                session.flush();
+            }
+            if (!ids.isEmpty()) {
+                LOGGER.info(String.format("Indexed %d %s entities for search", ids.size(),
+                        clazz.getSimpleName()));
+            }
+            BACKFILLED_CLASSES.add(clazz);
+        }
+    }
+
+    private static String entityId(final Object entity) {
+        return ((AbstractEntity) entity).getId().toString();
+    }
+
+    private static List<Field> indexedFields(final Class<?> clazz) {
+        List<Field> fields = INDEXED_FIELDS.get(clazz);
+        if (fields == null) {
+            fields = new ArrayList<>();
+            for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (isIndexable(field)) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            fields = Collections.unmodifiableList(fields);
+            INDEXED_FIELDS.put(clazz, fields);
+        }
+        return fields;
+    }
+
+    private static boolean isIndexable(final Field field) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+                || field.isAnnotationPresent(Transient.class)) {
+            return false;
+        }
+        Class<?> type = field.getType();
+        if (isAssociation(field)) {
+            return nameField(type) != null;
+        }
+        return type == String.class || type.isEnum() || Number.class.isAssignableFrom(type)
+                || Date.class.isAssignableFrom(type) || field.getName().equals("id");
+    }
+
+    private static boolean isAssociation(final Field field) {
+        return field.isAnnotationPresent(ManyToOne.class)
+                || field.isAnnotationPresent(OneToOne.class);
+    }
+
+    private static Field nameField(final Class<?> clazz) {
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.getName().equals(NAME_FIELD) && field.getType() == String.class) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Object fieldValue(final Field field, final Object object) {
+        try {
+            return field.get(object);
+        } catch (IllegalAccessException e) {
+            LOGGER.warn("Unable to read field " + field.getName(), e);
+            return null;
+        }
+    }
+
+    private static Object unproxy(final Object value) {
+        if (value instanceof HibernateProxy) {
+            try {
+                return ((HibernateProxy) value).getHibernateLazyInitializer()
+                        .getImplementation();
+            } catch (HibernateException e) {
+                LOGGER.debug("Unable to initialize referenced entity", e);
+                return null;
+            }
+        }
+        return value;
+    }
+
+    private static String stringValue(final Object value) {
+        if (value instanceof Date) {
+            return new SimpleDateFormat(DATE_FORMAT, Locale.ROOT).format((Date) value);
+        }
+        if (value == null) {
+            return null;
+        }
+        return value.toString();
+    }
+}
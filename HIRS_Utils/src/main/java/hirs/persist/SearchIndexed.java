@@ -0,0 +1,19 @@
+package hirs.persist;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an entity whose fields are kept in the {@link SearchIndex}, so that the ordered lists
+ * of the entity are searched through the index rather than by matching every column.
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SearchIndexed {
+}
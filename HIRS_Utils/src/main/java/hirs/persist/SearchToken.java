@@ -0,0 +1,88 @@
+package hirs.persist;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * A token found in a field of a {@link SearchIndexed} entity. The tokens of an entity are
+ * maintained by the {@link SearchIndex} whenever the entity is saved, updated or deleted.
+ */
+@Entity
+@Table(name = "SearchToken", indexes = {
+        @Index(name = "search_token", columnList = "token, fieldName"),
+        @Index(name = "search_token_entity", columnList = "entityId") })
+public class SearchToken {
+
+    /**
+     * Maximum length of a token, longer tokens are truncated.
+     */
+    public static final int MAX_TOKEN_LENGTH = 64;
+
+    private static final int ENTITY_ID_LENGTH = 36;
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(nullable = false, length = ENTITY_ID_LENGTH)
+    private String entityId;
+
+    @Column(nullable = false)
+    private String fieldName;
+
+    @Column(nullable = false, length = MAX_TOKEN_LENGTH)
+    private String token;
+
+    /**
+     * Constructor.
+     *
+     * @param entityId the id of the entity the token was found in
+     * @param fieldName the name of the field the token was found in
+     * @param token the token
+     */
+    public SearchToken(final String entityId, final String fieldName, final String token) {
+        this.entityId = entityId;
+        this.fieldName = fieldName;
+        this.token = token;
+    }
+
+    /**
+     * Default constructor for Hibernate.
+     */
+    protected SearchToken() {
+
+    }
+
+    /**
+     * Getter for the id of the entity the token was found in.
+     *
+     * @return the entity id
+     */
+    public String getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * Getter for the name of the field the token was found in.
+     *
+     * @return the field name
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * Getter for the token.
+     *
+     * @return the token
+     */
+    public String getToken() {
+        return token;
+    }
+}
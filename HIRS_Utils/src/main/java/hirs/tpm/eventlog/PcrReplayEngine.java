@@ -0,0 +1,256 @@
+package hirs.tpm.eventlog;
+
+import java.io.IOException;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Replays TCG Event Log measurements into one or more PCR banks.
+ * <p>
+ * PCRs are extended directly on byte arrays (PCR_new = H(PCR_old || digest)) using
+ * {@link MessageDigest} instances that are cached per thread, so a replay does not hex encode
+ * values or look up a digest implementation per event. A single engine can hold the SHA1,
+ * SHA256 and SHA384 banks at the same time, in which case each bank is extended with the
+ * matching TPMT_HA digest of every event in a crypto agile log.
+ * <p>
+ * Engines are not thread safe, but any number of engines may replay logs concurrently.
+ */
+public final class PcrReplayEngine {
+    /** TCG algorithm identifiers of the banks an engine can replay. */
+    private static final int[] SUPPORTED_ALGORITHMS = {
+            TcgTpmtHa.TPM_ALG_SHA1, TcgTpmtHa.TPM_ALG_SHA256, TcgTpmtHa.TPM_ALG_SHA384};
+    /** JCA names of the supported algorithms, in the same order. */
+    private static final String[] DIGEST_NAMES = {"SHA-1", "SHA-256", "SHA-384"};
+    /** Per thread digest instances, in the same order as SUPPORTED_ALGORITHMS. */
+    private static final ThreadLocal<MessageDigest[]> DIGESTS = new ThreadLocal<MessageDigest[]>() {
+        @Override
+        protected MessageDigest[] initialValue() {
+            return new MessageDigest[SUPPORTED_ALGORITHMS.length];
+        }
+    };
+    /** Value the locality 4 PCRs are initialized to. */
+    private static final byte LOCALITY4_INIT_VALUE = (byte) 0xff;
+
+    /** TCG algorithm identifiers of the banks held by this engine. */
+    private final int[] algIds;
+    /** PCR values, indexed by bank then PCR. */
+    private final byte[][][] banks;
+
+    /**
+     * Creates an engine holding the given banks, each initialized to the PFP defined
+     * starting values.
+     *
+     * @param bankAlgIds TCG algorithm identifiers (TPM_ALG_SHA1, TPM_ALG_SHA256 or
+     *                   TPM_ALG_SHA384) of the banks to replay.
+     * @throws NoSuchAlgorithmException if an algorithm is not supported.
+     */
+    public PcrReplayEngine(final int... bankAlgIds) throws NoSuchAlgorithmException {
+        if (bankAlgIds.length == 0) {
+            throw new IllegalArgumentException("At least one PCR bank is required");
+        }
+        algIds = Arrays.copyOf(bankAlgIds, bankAlgIds.length);
+        banks = new byte[algIds.length][][];
+        for (int i = 0; i < algIds.length; i++) {
+            getMessageDigest(algIds[i]);
+            banks[i] = new byte[TCGEventLog.PCR_COUNT][TcgTpmtHa.tcgAlgLength(algIds[i])];
+        }
+        reset();
+    }
+
+    /**
+     * Creates an engine for the hash algorithm used by a log and replays the log into it.
+     *
+     * @param reader the log to replay
+     * @return an engine holding the replayed PCR values
+     * @throws IOException if an event is truncated or malformed.
+     * @throws NoSuchAlgorithmException if the log's hash algorithm is not supported.
+     */
+    public static PcrReplayEngine replayLog(final TCGEventLogReader reader)
+            throws IOException, NoSuchAlgorithmException {
+        PcrReplayEngine engine = new PcrReplayEngine(
+                TcgTpmtHa.tcgAlgStringtoId(reader.getEventLogHashAlgorithm()));
+        engine.replay(reader);
+        return engine;
+    }
+
+    /**
+     * Returns the thread's cached MessageDigest for a TCG algorithm identifier. The digest is
+     * reset before it is returned; callers must not hold on to it across calls that may use
+     * the same algorithm.
+     *
+     * @param algId TCG defined algorithm identifier
+     * @return a reset MessageDigest for the algorithm
+     * @throws NoSuchAlgorithmException if the algorithm is not supported.
+     */
+    public static MessageDigest getMessageDigest(final int algId)
+            throws NoSuchAlgorithmException {
+        int slot = slotOf(algId);
+        if (slot < 0) {
+            throw new NoSuchAlgorithmException("PCR replay does not support "
+                    + TcgTpmtHa.tcgAlgIdtoString(algId));
+        }
+        MessageDigest[] digests = DIGESTS.get();
+        if (digests[slot] == null) {
+            digests[slot] = MessageDigest.getInstance(DIGEST_NAMES[slot]);
+        } else {
+            digests[slot].reset();
+        }
+        return digests[slot];
+    }
+
+    /**
+     * Sets every PCR back to its starting value: zeros, or all ones for the locality 4
+     * PCRs.
+     */
+    public void reset() {
+        for (byte[][] bank : banks) {
+            for (int i = 0; i < TCGEventLog.PCR_COUNT; i++) {
+                byte init = 0;
+                if (i >= TCGEventLog.PCR_LOCALITY4_MIN && i < TCGEventLog.PCR_LOCALITY4_MAX) {
+                    init = LOCALITY4_INIT_VALUE;
+                }
+                Arrays.fill(bank[i], init);
+            }
+        }
+    }
+
+    /**
+     * Replays every remaining event of a log into the banks held by this engine. EV_NO_ACTION
+     * events, events that are not associated with a PCR and digests of algorithms that are
+     * not held by the engine are skipped.
+     *
+     * @param reader the log to replay
+     * @throws IOException if an event is truncated or malformed.
+     */
+    public void replay(final TCGEventLogReader reader) throws IOException {
+        while (reader.hasNext()) {
+            extend(reader.next());
+        }
+    }
+
+    /**
+     * Extends every bank held by this engine with the matching digest of an event.
+     *
+     * @param event the event to extend with
+     */
+    public void extend(final TpmPcrEventView event) {
+        int pcrIndex = event.getPcrIndex();
+        if (!isExtended(pcrIndex, event.getEventType())) {
+            return;
+        }
+        for (int i = 0; i < algIds.length; i++) {
+            if (event.hasDigest(algIds[i])) {
+                MessageDigest md = digestFor(algIds[i]);
+                byte[] pcr = banks[i][pcrIndex];
+                md.update(pcr);
+                event.updateDigest(algIds[i], md);
+                complete(md, pcr);
+            }
+        }
+    }
+
+    /**
+     * Extends a bank with an event that has already been parsed.
+     *
+     * @param event the event to extend with
+     * @param algId TCG algorithm identifier of the bank the event digest belongs to
+     */
+    public void extend(final TpmPcrEvent event, final int algId) {
+        if (isExtended(event.getPcrIndex(), event.getEventType())) {
+            extend(algId, event.getPcrIndex(), event.getEventDigest());
+        }
+    }
+
+    /**
+     * Extends a single PCR: PCR_new = H(PCR_old || digest).
+     *
+     * @param algId    TCG algorithm identifier of the bank
+     * @param pcrIndex index of the PCR to extend
+     * @param digest   digest to extend the PCR with
+     */
+    public void extend(final int algId, final int pcrIndex, final byte[] digest) {
+        byte[] pcr = banks[bankOf(algId)][pcrIndex];
+        MessageDigest md = digestFor(algId);
+        md.update(pcr);
+        md.update(digest);
+        complete(md, pcr);
+    }
+
+    /**
+     * Returns a copy of a single PCR value.
+     *
+     * @param algId    TCG algorithm identifier of the bank
+     * @param pcrIndex index of the PCR
+     * @return PCR value
+     */
+    public byte[] getPcrValue(final int algId, final int pcrIndex) {
+        byte[] pcr = banks[bankOf(algId)][pcrIndex];
+        return Arrays.copyOf(pcr, pcr.length);
+    }
+
+    /**
+     * Returns all 24 PCR values of a bank as lower case hex strings, in the same form as
+     * {@link TCGEventLog#getExpectedPCRValues()}.
+     *
+     * @param algId TCG algorithm identifier of the bank
+     * @return Returns an array of strings representing the hash values for all 24 PCRs
+     */
+    public String[] getExpectedPCRValues(final int algId) {
+        byte[][] bank = banks[bankOf(algId)];
+        String[] pcrs = new String[TCGEventLog.PCR_COUNT];
+        for (int i = 0; i < TCGEventLog.PCR_COUNT; i++) {
+            pcrs[i] = Hex.encodeHexString(bank[i]);
+        }
+        return pcrs;
+    }
+
+    /**
+     * Checks whether an event extends a PCR. EV_NO_ACTION events and events that can
+     * have a PCR of -1 are not extended.
+     */
+    private static boolean isExtended(final int pcrIndex, final long eventType) {
+        return pcrIndex >= 0 && pcrIndex < TCGEventLog.PCR_COUNT
+                && eventType != TCGEventLog.NO_ACTION_EVENT;
+    }
+
+    private int bankOf(final int algId) {
+        for (int i = 0; i < algIds.length; i++) {
+            if (algIds[i] == algId) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No PCR bank held for "
+                + TcgTpmtHa.tcgAlgIdtoString(algId));
+    }
+
+    private static int slotOf(final int algId) {
+        for (int i = 0; i < SUPPORTED_ALGORITHMS.length; i++) {
+            if (SUPPORTED_ALGORITHMS[i] == algId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static MessageDigest digestFor(final int algId) {
+        try {
+            return getMessageDigest(algId);
+        } catch (NoSuchAlgorithmException e) {
+            // every bank's algorithm was looked up when the engine was created
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void complete(final MessageDigest md, final byte[] pcr) {
+        try {
+            md.digest(pcr, 0, pcr.length);
+        } catch (DigestException e) {
+            // the PCR is always exactly the length of the bank's digest
+            throw new IllegalStateException(e);
+        }
+    }
+}
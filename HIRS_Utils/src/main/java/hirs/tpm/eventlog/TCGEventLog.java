@@ -4,7 +4,6 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.util.Collection;
@@ -13,7 +12,6 @@ import java.util.LinkedHashMap;
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
 
-import hirs.data.persist.AbstractDigest;
 import hirs.data.persist.Digest;
 import hirs.data.persist.TPMMeasurementRecord;
 import hirs.data.persist.baseline.TpmWhiteListBaseline;
@@ -79,6 +77,8 @@ public final class TCGEventLog {
     private boolean bEvent = false;
     /** Event Output Flag use. */
     private boolean bCryptoAgile = false;
+    /** Defers decoding of event content until an event is displayed. */
+    private boolean bValidationOnly = false;
 
     /**
      * Default blank object constructor.
@@ -105,6 +105,23 @@ public final class TCGEventLog {
         this(rawlog, false, false, false);
     }
 
+    /**
+     * Constructor for an Event Log that is only used for validation.
+     * When bValidationOnlyFlag is set, the PCR index, type, digest and content of each event
+     * are parsed but the UEFI structures within the content are only decoded, and the
+     * human readable description only rendered, when an event is displayed. This keeps
+     * firmware validation from paying for descriptions it never reads.
+     * @param rawlog data for the event log file.
+     * @param bValidationOnlyFlag if true event descriptions are rendered on first use.
+     * @throws NoSuchAlgorithmException if an unknown algorithm is encountered.
+     * @throws CertificateException if a certificate in the log cannot be parsed.
+     * @throws IOException IO Stream if event cannot be parsed.
+     */
+    public TCGEventLog(final byte[] rawlog, final boolean bValidationOnlyFlag)
+                       throws CertificateException, NoSuchAlgorithmException, IOException {
+        this(rawlog, false, false, false, bValidationOnlyFlag);
+    }
+
     /**
      * Default constructor for just the rawlog that'll set up SHA1 Log.
      * @param rawlog data for the event log file.
@@ -118,6 +135,24 @@ public final class TCGEventLog {
     public TCGEventLog(final byte[] rawlog, final boolean bEventFlag,
                        final boolean bContentFlag, final boolean bHexEventFlag)
                        throws CertificateException, NoSuchAlgorithmException, IOException {
+        this(rawlog, bEventFlag, bContentFlag, bHexEventFlag, false);
+    }
+
+    /**
+     * Constructor that sets both the output flags and the parsing mode.
+     * @param rawlog data for the event log file.
+     * @param bEventFlag if true provides human readable event descriptions.
+     * @param bContentFlag if true provides hex output for Content in the description.
+     * @param bHexEventFlag if true provides hex event structure in the description.
+     * @param bValidationOnlyFlag if true event descriptions are rendered on first use.
+     * @throws NoSuchAlgorithmException if an unknown algorithm is encountered.
+     * @throws CertificateException if a certificate in the log cannot be parsed.
+     * @throws IOException IO Stream if event cannot be parsed.
+     */
+    private TCGEventLog(final byte[] rawlog, final boolean bEventFlag,
+                        final boolean bContentFlag, final boolean bHexEventFlag,
+                        final boolean bValidationOnlyFlag)
+                        throws CertificateException, NoSuchAlgorithmException, IOException {
 
         bCryptoAgile = isLogCrytoAgile(rawlog);
         if (bCryptoAgile) {
@@ -138,16 +173,17 @@ public final class TCGEventLog {
         bContent = bContentFlag;
         bEvent = bEventFlag;
         bHexEvent = bHexEventFlag;
+        bValidationOnly = bValidationOnlyFlag;
         ByteArrayInputStream is = new ByteArrayInputStream(rawlog);
         // Process the 1st entry as a SHA1 format (per the spec)
-        eventList.put(eventNumber, new TpmPcrEvent1(is, eventNumber++));
+        eventList.put(eventNumber, new TpmPcrEvent1(is, eventNumber++, bValidationOnly));
         // put all events into an event list for further processing
 
         while (is.available() > 0) {
             if (bCryptoAgile) {
-                eventList.put(eventNumber, new TpmPcrEvent2(is, eventNumber++));
+                eventList.put(eventNumber, new TpmPcrEvent2(is, eventNumber++, bValidationOnly));
             } else {
-                eventList.put(eventNumber, new TpmPcrEvent1(is, eventNumber++));
+                eventList.put(eventNumber, new TpmPcrEvent1(is, eventNumber++, bValidationOnly));
             }
         }
         calculatePcrValues();
@@ -204,46 +240,19 @@ public final class TCGEventLog {
      * Uses the algorithm and eventList passed into the constructor,
      */
     private void calculatePcrValues() {
-        byte[] extendedPCR;
-        initPcrList();
-        for (TpmPcrEvent currentEvent : eventList.values()) {
-            if (currentEvent.getPcrIndex() >= 0) {   // Ignore NO_EVENTS which can have a PCR=-1
-                try {
-                    if (currentEvent.getEventType() != NO_ACTION_EVENT) {
-                        // Don't include EV_NO_ACTION event
-                        extendedPCR = extendPCR(pcrList[currentEvent.getPcrIndex()],
-                                currentEvent.getEventDigest());
-                        System.arraycopy(extendedPCR, 0, pcrList[currentEvent.getPcrIndex()],
-                                0, currentEvent.getDigestLength());
-                    }
-                } catch (NoSuchAlgorithmException e) {
-                    LOGGER.error(e);
-                }
-            }
-        }
-    }
-
-    /**
-     * Extends a hash with a hash of new data.
-     *
-     * @param currentValue value to extend
-     * @param newEvent     value to extend with
-     * @return new hash resultant hash
-     * @throws NoSuchAlgorithmException if hash algorithm not supported
-     */
-    private byte[] extendPCR(final byte[] currentValue, final byte[] newEvent)
-            throws NoSuchAlgorithmException {
-        MessageDigest md = MessageDigest.getInstance(hashType);
-        StringBuilder sb = new StringBuilder(AbstractDigest.SHA512_DIGEST_LENGTH);
-        sb.append(Hex.encodeHexString(currentValue).toCharArray());
-        sb.append(Hex.encodeHexString(newEvent).toCharArray());
-
+        int algId = TcgTpmtHa.tcgAlgStringtoId(algorithm);
         try {
-            md.update(Hex.decodeHex(sb.toString().toCharArray()));
-        } catch (DecoderException deEx) {
-            LOGGER.error(deEx);
+            PcrReplayEngine replay = new PcrReplayEngine(algId);
+            for (TpmPcrEvent currentEvent : eventList.values()) {
+                replay.extend(currentEvent, algId);
+            }
+            for (int i = 0; i < PCR_COUNT; i++) {
+                pcrList[i] = replay.getPcrValue(algId, i);
+            }
+        } catch (NoSuchAlgorithmException e) {
+            LOGGER.error(e);
+            initPcrList();
         }
-        return md.digest();
     }
 
     /**
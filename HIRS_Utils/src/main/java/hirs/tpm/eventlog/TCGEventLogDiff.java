@@ -0,0 +1,315 @@
+package hirs.tpm.eventlog;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import hirs.tpm.eventlog.TCGEventLogDiffReport.Difference;
+import hirs.tpm.eventlog.TCGEventLogDiffReport.DifferenceType;
+
+/**
+ * Compares measured TCG Event Logs against a reference log, such as the one held by a
+ * Support RIM.
+ * <p>
+ * Events are matched on their (PCR index, event type, digest) key rather than on their position
+ * in the log, so a single inserted or dropped event does not cause every following event to be
+ * reported. The reference log is indexed once by a hash of that key; each comparison then
+ * streams the measured log and runs in time proportional to the size of both logs (plus a
+ * per PCR ordering check). Events that are left unmatched are paired on (PCR index, event type)
+ * to tell digest mismatches apart from missing and extra events.
+ * <p>
+ * An instance only holds the reference index, which is never modified after construction, so
+ * the same instance may be used to compare any number of measured logs, concurrently.
+ */
+public final class TCGEventLogDiff {
+    /** Mask used to combine an unsigned event type into a long key. */
+    private static final long UINT32_MASK = 0xFFFFFFFFL;
+    /** Number of bits to shift a PCR index by when combining it with an event type. */
+    private static final int PCR_SHIFT = 32;
+
+    /** PCR to compare, -1 for all. */
+    private final int pcrFilter;
+    /** Events of the reference log, in log order. */
+    private final Entry[] reference;
+    /** Identifier of every distinct key found in the reference log. */
+    private final Map<Entry, Integer> keyIds;
+    /** Positions within the reference log of the events of each key, in log order. */
+    private final int[][] keyPositions;
+
+    /**
+     * Indexes every event of a reference log.
+     *
+     * @param referenceLog the reference log
+     * @throws IOException if an event is truncated or malformed.
+     */
+    public TCGEventLogDiff(final TCGEventLogReader referenceLog) throws IOException {
+        this(referenceLog, -1);
+    }
+
+    /**
+     * Indexes the events of a single PCR of a reference log.
+     *
+     * @param referenceLog the reference log
+     * @param pcr          PCR to compare, -1 for all
+     * @throws IOException if an event is truncated or malformed.
+     */
+    public TCGEventLogDiff(final TCGEventLogReader referenceLog, final int pcr)
+            throws IOException {
+        pcrFilter = pcr;
+        List<Entry> entries = readEntries(referenceLog, pcr);
+        reference = entries.toArray(new Entry[entries.size()]);
+        keyIds = new HashMap<>();
+        int[] counts = new int[reference.length];
+        int[] ids = new int[reference.length];
+        for (int i = 0; i < reference.length; i++) {
+            Integer id = keyIds.get(reference[i]);
+            if (id == null) {
+                id = keyIds.size();
+                keyIds.put(reference[i], id);
+            }
+            ids[i] = id;
+            counts[id]++;
+        }
+        keyPositions = new int[keyIds.size()][];
+        for (int id = 0; id < keyPositions.length; id++) {
+            keyPositions[id] = new int[counts[id]];
+            counts[id] = 0;
+        }
+        for (int i = 0; i < reference.length; i++) {
+            keyPositions[ids[i]][counts[ids[i]]++] = i;
+        }
+    }
+
+    /**
+     * Convenience method comparing two logs held in byte arrays.
+     *
+     * @param referenceLog the reference log
+     * @param measuredLog  the measured log
+     * @param pcr          PCR to compare, -1 for all
+     * @return the differences between the logs
+     * @throws IOException if an event is truncated or malformed.
+     */
+    public static TCGEventLogDiffReport diff(final byte[] referenceLog, final byte[] measuredLog,
+                                             final int pcr) throws IOException {
+        return new TCGEventLogDiff(new TCGEventLogReader(referenceLog), pcr)
+                .compare(new TCGEventLogReader(measuredLog));
+    }
+
+    /**
+     * Returns the number of reference events that measured logs are compared against.
+     * @return number of indexed events
+     */
+    public int getReferenceEventCount() {
+        return reference.length;
+    }
+
+    /**
+     * Compares a measured log against the reference log.
+     *
+     * @param measuredLog the measured log, read from its current position
+     * @return the differences between the logs
+     * @throws IOException if an event is truncated or malformed.
+     */
+    public TCGEventLogDiffReport compare(final TCGEventLogReader measuredLog) throws IOException {
+        List<Entry> measured = readEntries(measuredLog, pcrFilter);
+        int[] cursors = new int[keyPositions.length];
+        int[] matchedRef = new int[measured.size()];
+        boolean[] refMatched = new boolean[reference.length];
+        int matchedCount = 0;
+
+        // pass 1: exact matches, consuming reference events of the same key in log order
+        for (int i = 0; i < matchedRef.length; i++) {
+            matchedRef[i] = -1;
+            Integer id = keyIds.get(measured.get(i));
+            if (id != null && cursors[id] < keyPositions[id].length) {
+                int r = keyPositions[id][cursors[id]++];
+                matchedRef[i] = r;
+                refMatched[r] = true;
+                matchedCount++;
+            }
+        }
+
+        boolean[] reordered = findReordered(measured, matchedRef);
+
+        // pass 2: pair what is left on (PCR, event type) to find digest mismatches
+        Map<Long, ArrayDeque<Integer>> unmatchedRefs = new HashMap<>();
+        for (int r = 0; r < reference.length; r++) {
+            if (!refMatched[r]) {
+                ArrayDeque<Integer> queue = unmatchedRefs.get(reference[r].slot());
+                if (queue == null) {
+                    queue = new ArrayDeque<>();
+                    unmatchedRefs.put(reference[r].slot(), queue);
+                }
+                queue.add(r);
+            }
+        }
+
+        List<Difference> differences = new ArrayList<>();
+        for (int i = 0; i < matchedRef.length; i++) {
+            Entry event = measured.get(i);
+            if (matchedRef[i] >= 0) {
+                if (reordered[i]) {
+                    differences.add(difference(DifferenceType.REORDERED,
+                            reference[matchedRef[i]], event));
+                }
+                continue;
+            }
+            ArrayDeque<Integer> queue = unmatchedRefs.get(event.slot());
+            if (queue != null && !queue.isEmpty()) {
+                int r = queue.poll();
+                refMatched[r] = true;
+                differences.add(difference(DifferenceType.DIGEST_MISMATCH, reference[r], event));
+            } else {
+                differences.add(difference(DifferenceType.EXTRA, null, event));
+            }
+        }
+        for (int r = 0; r < reference.length; r++) {
+            if (!refMatched[r]) {
+                differences.add(difference(DifferenceType.MISSING, reference[r], null));
+            }
+        }
+        return new TCGEventLogDiffReport(differences, matchedCount);
+    }
+
+    /**
+     * Flags the matched measured events that are out of order. For each PCR, the reference
+     * positions of its matched events are taken in measured order; the events outside of the
+     * longest increasing run of positions are the ones that moved.
+     */
+    private static boolean[] findReordered(final List<Entry> measured, final int[] matchedRef) {
+        boolean[] reordered = new boolean[matchedRef.length];
+        Map<Integer, List<Integer>> byPcr = new HashMap<>();
+        for (int i = 0; i < matchedRef.length; i++) {
+            if (matchedRef[i] >= 0) {
+                List<Integer> events = byPcr.get(measured.get(i).pcrIndex);
+                if (events == null) {
+                    events = new ArrayList<>();
+                    byPcr.put(measured.get(i).pcrIndex, events);
+                }
+                events.add(i);
+            }
+        }
+        for (List<Integer> events : byPcr.values()) {
+            int n = events.size();
+            // patience sort: tails[k] is the index (in events) ending the best run of length k+1
+            int[] tails = new int[n];
+            int[] previous = new int[n];
+            int length = 0;
+            for (int j = 0; j < n; j++) {
+                int position = matchedRef[events.get(j)];
+                int low = 0;
+                int high = length;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (matchedRef[events.get(tails[mid])] < position) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                previous[j] = -1;
+                if (low > 0) {
+                    previous[j] = tails[low - 1];
+                }
+                tails[low] = j;
+                if (low == length) {
+                    length++;
+                }
+            }
+            boolean[] inOrder = new boolean[n];
+            if (length > 0) {
+                for (int j = tails[length - 1]; j >= 0; j = previous[j]) {
+                    inOrder[j] = true;
+                }
+            }
+            for (int j = 0; j < n; j++) {
+                if (!inOrder[j]) {
+                    reordered[events.get(j)] = true;
+                }
+            }
+        }
+        return reordered;
+    }
+
+    private static Difference difference(final DifferenceType type, final Entry referenceEvent,
+                                         final Entry measuredEvent) {
+        Entry event = measuredEvent;
+        int referenceNumber = -1;
+        int measuredNumber = -1;
+        byte[] referenceDigest = null;
+        byte[] measuredDigest = null;
+        if (referenceEvent != null) {
+            event = referenceEvent;
+            referenceNumber = referenceEvent.eventNumber;
+            referenceDigest = referenceEvent.digest;
+        }
+        if (measuredEvent != null) {
+            event = measuredEvent;
+            measuredNumber = measuredEvent.eventNumber;
+            measuredDigest = measuredEvent.digest;
+        }
+        return new Difference(type, event.pcrIndex, event.eventType, referenceNumber,
+                measuredNumber, referenceDigest, measuredDigest);
+    }
+
+    private static List<Entry> readEntries(final TCGEventLogReader log, final int pcr)
+            throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        while (log.hasNext()) {
+            TpmPcrEventView view = log.next();
+            if (pcr < 0 || view.getPcrIndex() == pcr) {
+                entries.add(new Entry(view));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Compact copy of the parts of an event used for matching. Equality only considers the
+     * (PCR index, event type, digest) key.
+     */
+    private static final class Entry {
+        private final int eventNumber;
+        private final int pcrIndex;
+        private final long eventType;
+        private final byte[] digest;
+        private final int hash;
+
+        private Entry(final TpmPcrEventView view) {
+            eventNumber = view.getEventNumber();
+            pcrIndex = view.getPcrIndex();
+            eventType = view.getEventType();
+            digest = view.getEventDigest();
+            hash = Arrays.hashCode(digest) + Long.hashCode(slot());
+        }
+
+        /**
+         * Combines the PCR index and event type into a single key.
+         */
+        private long slot() {
+            return ((long) pcrIndex << PCR_SHIFT) | (eventType & UINT32_MASK);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            Entry other = (Entry) obj;
+            return pcrIndex == other.pcrIndex && eventType == other.eventType
+                    && Arrays.equals(digest, other.digest);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package hirs.tpm.eventlog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Result of comparing a measured TCG Event Log against a reference log with
+ * {@link TCGEventLogDiff}. Lists every event that is missing from, extra in, out of order in,
+ * or carries a different digest in the measured log.
+ */
+public final class TCGEventLogDiffReport {
+
+    /**
+     * The ways in which a measured event can differ from the reference log.
+     */
+    public enum DifferenceType {
+        /** An event of the reference log has no counterpart in the measured log. */
+        MISSING,
+        /** An event of the measured log has no counterpart in the reference log. */
+        EXTRA,
+        /** A matching event was measured out of order relative to other events of its PCR. */
+        REORDERED,
+        /** The measured event has the PCR index and type of a reference event but not its
+         * digest. */
+        DIGEST_MISMATCH
+    }
+
+    /**
+     * A single difference between the two logs.
+     */
+    public static final class Difference {
+        private final DifferenceType type;
+        private final int pcrIndex;
+        private final long eventType;
+        private final int referenceEventNumber;
+        private final int measuredEventNumber;
+        private final byte[] referenceDigest;
+        private final byte[] measuredDigest;
+
+        /**
+         * Constructor.
+         *
+         * @param type                 kind of difference
+         * @param pcrIndex             PCR index of the event
+         * @param eventType            event type of the event
+         * @param referenceEventNumber number of the event in the reference log, -1 if none
+         * @param measuredEventNumber  number of the event in the measured log, -1 if none
+         * @param referenceDigest      digest of the reference event, null if none
+         * @param measuredDigest       digest of the measured event, null if none
+         */
+        Difference(final DifferenceType type, final int pcrIndex, final long eventType,
+                   final int referenceEventNumber, final int measuredEventNumber,
+                   final byte[] referenceDigest, final byte[] measuredDigest) {
+            this.type = type;
+            this.pcrIndex = pcrIndex;
+            this.eventType = eventType;
+            this.referenceEventNumber = referenceEventNumber;
+            this.measuredEventNumber = measuredEventNumber;
+            this.referenceDigest = referenceDigest;
+            this.measuredDigest = measuredDigest;
+        }
+
+        /**
+         * Getter for the kind of difference.
+         * @return difference type
+         */
+        public DifferenceType getType() {
+            return type;
+        }
+
+        /**
+         * Gets the PCR index of the event.
+         * @return PCR index as defined in the PFP
+         */
+        public int getPcrIndex() {
+            return pcrIndex;
+        }
+
+        /**
+         * Returns the EventType for the Event.
+         * @return event type
+         */
+        public long getEventType() {
+            return eventType;
+        }
+
+        /**
+         * Returns a formatted string of the type for the event.
+         * @return a string formatted to be human readable
+         */
+        public String getEventTypeStr() {
+            return String.format("0x%s %s", Long.toHexString(eventType),
+                    TpmPcrEvent.eventString((int) eventType));
+        }
+
+        /**
+         * Getter for the number of the event in the reference log.
+         * @return event number, -1 for an EXTRA event
+         */
+        public int getReferenceEventNumber() {
+            return referenceEventNumber;
+        }
+
+        /**
+         * Getter for the number of the event in the measured log.
+         * @return event number, -1 for a MISSING event
+         */
+        public int getMeasuredEventNumber() {
+            return measuredEventNumber;
+        }
+
+        /**
+         * Returns a hex representation of the reference event digest.
+         * @return hex string, empty for an EXTRA event
+         */
+        public String getReferenceDigestStr() {
+            return digestString(referenceDigest);
+        }
+
+        /**
+         * Returns a hex representation of the measured event digest.
+         * @return hex string, empty for a MISSING event
+         */
+        public String getMeasuredDigestStr() {
+            return digestString(measuredDigest);
+        }
+
+        /**
+         * Human readable description of the difference.
+         * @return description of the difference
+         */
+        @Override
+        public String toString() {
+            switch (type) {
+                case MISSING:
+                    return String.format("Missing event %d - %s in PCR[%d]",
+                            referenceEventNumber, getEventTypeStr(), pcrIndex);
+                case EXTRA:
+                    return String.format("Extra event %d - %s in PCR[%d]",
+                            measuredEventNumber, getEventTypeStr(), pcrIndex);
+                case REORDERED:
+                    return String.format("Event %d - %s in PCR[%d] was measured out of order"
+                            + " as event %d", referenceEventNumber, getEventTypeStr(), pcrIndex,
+                            measuredEventNumber);
+                default:
+                    return String.format("Event %d - %s in PCR[%d] digest %s does not match"
+                            + " measured event %d digest %s", referenceEventNumber,
+                            getEventTypeStr(), pcrIndex, getReferenceDigestStr(),
+                            measuredEventNumber, getMeasuredDigestStr());
+            }
+        }
+
+        private static String digestString(final byte[] digest) {
+            if (digest == null) {
+                return "";
+            }
+            return Hex.encodeHexString(digest);
+        }
+    }
+
+    private final List<Difference> differences;
+    private final int matchedCount;
+
+    /**
+     * Constructor.
+     *
+     * @param differences  differences found, in the order they were found
+     * @param matchedCount number of measured events that matched a reference event
+     */
+    TCGEventLogDiffReport(final List<Difference> differences, final int matchedCount) {
+        this.differences = Collections.unmodifiableList(differences);
+        this.matchedCount = matchedCount;
+    }
+
+    /**
+     * Returns true if the measured log holds exactly the events of the reference log, in the
+     * same order per PCR.
+     * @return true if no differences were found
+     */
+    public boolean isMatch() {
+        return differences.isEmpty();
+    }
+
+    /**
+     * Returns every difference found.
+     * @return unmodifiable list of differences
+     */
+    public List<Difference> getDifferences() {
+        return differences;
+    }
+
+    /**
+     * Returns the differences of a single kind.
+     *
+     * @param type kind of difference
+     * @return list of differences
+     */
+    public List<Difference> getDifferences(final DifferenceType type) {
+        List<Difference> result = new ArrayList<>();
+        for (Difference difference : differences) {
+            if (difference.getType() == type) {
+                result.add(difference);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of measured events that matched a reference event on PCR index,
+     * event type and digest, including the ones that were reordered.
+     * @return number of matched events
+     */
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    /**
+     * Returns a one line count of the differences by kind.
+     * @return summary of the report
+     */
+    public String getSummary() {
+        return String.format("%d matched, %d missing, %d extra, %d reordered,"
+                        + " %d digest mismatches", matchedCount,
+                getDifferences(DifferenceType.MISSING).size(),
+                getDifferences(DifferenceType.EXTRA).size(),
+                getDifferences(DifferenceType.REORDERED).size(),
+                getDifferences(DifferenceType.DIGEST_MISMATCH).size());
+    }
+
+    /**
+     * Lists every difference, one per line.
+     * @return description of the differences
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Difference difference : differences) {
+            sb.append(String.format("%s%n", difference));
+        }
+        return sb.toString();
+    }
+}
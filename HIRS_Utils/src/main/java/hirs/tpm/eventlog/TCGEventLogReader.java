@@ -0,0 +1,246 @@
+package hirs.tpm.eventlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.NoSuchElementException;
+
+import hirs.tpm.eventlog.events.EvConstants;
+import hirs.tpm.eventlog.uefi.UefiConstants;
+
+/**
+ * Streaming parser for TCG Event Logs.
+ * <p>
+ * Unlike {@link TCGEventLog}, which copies every event into a {@link TpmPcrEvent} and renders
+ * its description up front, this class walks a {@link ByteBuffer} (heap, direct or memory
+ * mapped from disk) with a cursor and exposes each event through a single, reused
+ * {@link TpmPcrEventView}. Replaying or comparing a log therefore only costs one pass over the
+ * data and does not allocate per event.
+ * <p>
+ * Instances are not thread safe. A reader may be rewound with {@link #reset()}.
+ */
+public final class TCGEventLogReader {
+    /** Offset of the Spec ID Event signature within the first event. */
+    private static final int SIG_OFFSET = 32;
+    /** TEV_NO_ACTION signature size. */
+    private static final int SIG_SIZE = 16;
+    /** Signature of the EfiSpecIdEvent that identifies a crypto agile log. */
+    private static final String SPEC_ID_SIGNATURE = "Spec ID Event03";
+    /** Size of the fixed part of a TCG_PCR_EVENT: index, type, SHA1 digest and event size. */
+    private static final int EVENT1_HEADER_SIZE = UefiConstants.SIZE_4 + UefiConstants.SIZE_4
+            + EvConstants.SHA1_LENGTH + UefiConstants.SIZE_4;
+    /** Size of the fixed part of a TCG_PCR_EVENT2: index, type and digest count. */
+    private static final int EVENT2_HEADER_SIZE = UefiConstants.SIZE_4 + UefiConstants.SIZE_4
+            + UefiConstants.SIZE_4;
+    /** Size of the algorithm identifier of a TPMT_HA structure. */
+    private static final int ALG_ID_SIZE = UefiConstants.SIZE_2;
+    /** Upper bound on the number of TPMT_HA structures accepted in a single event. */
+    private static final int MAX_DIGEST_COUNT = 16;
+    /** Mask used to read a UINT32 as a long. */
+    private static final long UINT32_MASK = 0xFFFFFFFFL;
+    /** Mask used to read a UINT16 as an int. */
+    private static final int UINT16_MASK = 0xFFFF;
+
+    /** Little endian view of the log, starting at index 0. */
+    private final ByteBuffer log;
+    /** True if the log follows the Crypto Agile format. */
+    private final boolean bCryptoAgile;
+    /** Flyweight handed out for every event. */
+    private final TpmPcrEventView view;
+    /** Offset of the next event to parse. */
+    private int position = 0;
+    /** Number of the next event to parse. */
+    private int eventNumber = 0;
+
+    /**
+     * Constructor for a log held in a byte array. The array is not copied.
+     *
+     * @param rawlog data for the event log file.
+     */
+    public TCGEventLogReader(final byte[] rawlog) {
+        this(ByteBuffer.wrap(rawlog));
+    }
+
+    /**
+     * Constructor for a log held in a buffer. The log is read from the buffer's position to its
+     * limit; the buffer itself is not modified.
+     *
+     * @param buffer buffer holding the event log.
+     */
+    public TCGEventLogReader(final ByteBuffer buffer) {
+        log = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        view = new TpmPcrEventView(log);
+        bCryptoAgile = isLogCryptoAgile(log);
+    }
+
+    /**
+     * Memory maps an event log file and returns a reader over it.
+     *
+     * @param path path of the event log file.
+     * @return a reader over the mapped file
+     * @throws IOException if the file cannot be mapped.
+     */
+    public static TCGEventLogReader map(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Event log is too large to be mapped: " + path);
+            }
+            return new TCGEventLogReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Returns a flag which is set if the event log follows the "Crypto Agile" Format Type.
+     * A false implies the type is SHA1 format.
+     * @return true if log follows the Crypto Agile format.
+     */
+    public boolean isCryptoAgile() {
+        return bCryptoAgile;
+    }
+
+    /**
+     * Returns the TCG Algorithm Registry defined string for the Digest Algorithm
+     * used in the event log.
+     * @return TCG Defined Algorithm name
+     */
+    public String getEventLogHashAlgorithm() {
+        if (bCryptoAgile) {
+            return "TPM_ALG_SHA256";
+        }
+        return "TPM_ALG_SHA1";
+    }
+
+    /**
+     * Returns the size of the log in bytes.
+     * @return size of the log
+     */
+    public int size() {
+        return log.limit();
+    }
+
+    /**
+     * Rewinds the reader to the first event of the log.
+     */
+    public void reset() {
+        position = 0;
+        eventNumber = 0;
+    }
+
+    /**
+     * Returns true if there is room left in the log for another event.
+     * @return true if {@link #next()} can be called
+     */
+    public boolean hasNext() {
+        int headerSize = EVENT1_HEADER_SIZE;
+        if (bCryptoAgile && eventNumber > 0) {
+            headerSize = EVENT2_HEADER_SIZE;
+        }
+        return log.limit() - position >= headerSize;
+    }
+
+    /**
+     * Parses the next event of the log. The returned view is reused by subsequent calls.
+     *
+     * @return view of the next event
+     * @throws IOException if the event is truncated or malformed.
+     */
+    public TpmPcrEventView next() throws IOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No events left in the event log");
+        }
+        int offset = position;
+        int cursor = offset;
+        int pcrIndex = log.getInt(cursor);
+        cursor += UefiConstants.SIZE_4;
+        long eventType = log.getInt(cursor) & UINT32_MASK;
+        cursor += UefiConstants.SIZE_4;
+        view.reset(eventNumber, offset, pcrIndex, eventType);
+
+        // the 1st entry of a crypto agile log is in the SHA1 format (per the spec)
+        if (bCryptoAgile && eventNumber > 0) {
+            int digestCount = log.getInt(cursor);
+            cursor += UefiConstants.SIZE_4;
+            if (digestCount < 0 || digestCount > MAX_DIGEST_COUNT) {
+                throw new IOException(String.format("Event# %d has an invalid digest count of %d",
+                        eventNumber, digestCount));
+            }
+            for (int i = 0; i < digestCount; i++) {
+                checkAvailable(cursor, ALG_ID_SIZE);
+                int algId = log.getShort(cursor) & UINT16_MASK;
+                cursor += ALG_ID_SIZE;
+                int digestLength = TcgTpmtHa.tcgAlgLength(algId);
+                if (digestLength == 0 && algId != TcgTpmtHa.TPM_ALG_NULL) {
+                    throw new IOException(String.format(
+                            "Event# %d uses an unknown hash algorithm 0x%x", eventNumber, algId));
+                }
+                checkAvailable(cursor, digestLength);
+                view.addDigest(algId, cursor, digestLength, algId == TcgTpmtHa.TPM_ALG_SHA256);
+                cursor += digestLength;
+            }
+        } else {
+            view.addDigest(TcgTpmtHa.TPM_ALG_SHA1, cursor, EvConstants.SHA1_LENGTH, true);
+            cursor += EvConstants.SHA1_LENGTH;
+        }
+
+        checkAvailable(cursor, UefiConstants.SIZE_4);
+        int eventSize = log.getInt(cursor);
+        cursor += UefiConstants.SIZE_4;
+        if (eventSize < 0) {
+            throw new IOException(String.format("Event# %d has an invalid size", eventNumber));
+        }
+        checkAvailable(cursor, eventSize);
+        view.setContent(cursor, eventSize);
+
+        position = cursor + eventSize;
+        eventNumber++;
+        return view;
+    }
+
+    /**
+     * Replays every event of the log and returns the expected values of all 24 PCRs, in the
+     * same form as {@link TCGEventLog#getExpectedPCRValues()}. The reader is rewound first and
+     * is left at the end of the log.
+     *
+     * @return Returns an array of strings representing the expected hash values for all 24 PCRs
+     * @throws IOException if an event is truncated or malformed.
+     * @throws NoSuchAlgorithmException if the log's hash algorithm is not supported.
+     */
+    public String[] getExpectedPCRValues() throws IOException, NoSuchAlgorithmException {
+        reset();
+        return PcrReplayEngine.replayLog(this).getExpectedPCRValues(
+                TcgTpmtHa.tcgAlgStringtoId(getEventLogHashAlgorithm()));
+    }
+
+    private void checkAvailable(final int offset, final int length) throws IOException {
+        if (length > log.limit() - offset) {
+            throw new IOException(String.format("Event# %d is truncated at offset %d",
+                    eventNumber, offset));
+        }
+    }
+
+    /**
+     * Determines if the first event is an EfiSpecIdEvent indicating that the log format is
+     * crypto agile.
+     *
+     * @param buffer The Event Log
+     * @return true if EfiSpecIDEvent is found and indicates that the format is crypto agile
+     */
+    private static boolean isLogCryptoAgile(final ByteBuffer buffer) {
+        if (buffer.limit() < SIG_OFFSET + SIG_SIZE
+                || buffer.getInt(UefiConstants.SIZE_4) != TCGEventLog.NO_ACTION_EVENT) {
+            return false;
+        }
+        // should be "Spec ID Event03" followed by a null char
+        byte[] signature = new byte[SIG_SIZE - 1];
+        for (int i = 0; i < signature.length; i++) {
+            signature[i] = buffer.get(SIG_OFFSET + i);
+        }
+        return SPEC_ID_SIGNATURE.equals(new String(signature, StandardCharsets.UTF_8));
+    }
+}
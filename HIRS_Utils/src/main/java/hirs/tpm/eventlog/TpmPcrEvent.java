@@ -102,9 +102,12 @@ public class TpmPcrEvent {
      * Event hash for Crypto Agile events.
      */
     private byte[] eventDataSha256hash;
-    private EvPostCode evPostCode;
     private int eventNumber;
     private boolean error = false;
+    /**
+     * True once processEvent has decoded the event content and rendered the description.
+     */
+    private boolean processed = false;
 
     /**
      * Constructor.
@@ -218,6 +221,7 @@ public class TpmPcrEvent {
      * @return specification version
      */
     public String getSpecVersion() {
+        renderDescription();
         return version;
     }
 
@@ -228,6 +232,7 @@ public class TpmPcrEvent {
      * @return Errata version
      */
     public String getSpecErrataVersion() {
+        renderDescription();
         return errata;
     }
 
@@ -274,7 +279,6 @@ public class TpmPcrEvent {
      */
     protected void setEventContent(final byte[] eventData) {
         eventContent = new byte[eventData.length];
-        evPostCode = new EvPostCode(eventContent);
         System.arraycopy(eventData, 0, eventContent, 0, eventData.length);
     }
 
@@ -470,6 +474,7 @@ public class TpmPcrEvent {
             throws CertificateException, NoSuchAlgorithmException, IOException {
         int eventID = (int) eventType;
         this.eventNumber = eventNumber;
+        processed = true;
         description += "Event# " + eventNumber + ": ";
         description += "Index PCR[" + getPcrIndex() + "]\n";
         description += "Event Type: 0x" + Long.toHexString(eventType) + " " + eventString(eventID);
@@ -484,10 +489,10 @@ public class TpmPcrEvent {
         }
         // Calculate both the SHA1 and SHA256 on the event since this will equal the digest
         // field of about half the log messages.
-        MessageDigest md1 = MessageDigest.getInstance("SHA-1");
+        MessageDigest md1 = PcrReplayEngine.getMessageDigest(TcgTpmtHa.TPM_ALG_SHA1);
         md1.update(event);
         eventDataSha1hash = md1.digest();
-        MessageDigest md2 = MessageDigest.getInstance("SHA-256");
+        MessageDigest md2 = PcrReplayEngine.getMessageDigest(TcgTpmtHa.TPM_ALG_SHA256);
         md2.update(event);
         eventDataSha256hash = md2.digest();
 
@@ -604,6 +609,29 @@ public class TpmPcrEvent {
         return description;
     }
 
+    /**
+     * Decodes the event content and renders the description if that was deferred while
+     * parsing (see {@link TCGEventLog#TCGEventLog(byte[], boolean)}).
+     * Errors are added to the description rather than thrown, as in getEventContentStr().
+     */
+    private void renderDescription() {
+        if (processed) {
+            return;
+        }
+        try {
+            processEvent(event, eventContent, eventNumber);
+        } catch (CertificateException cEx) {
+            LOGGER.error(cEx);
+            description += cEx.toString();
+        } catch (NoSuchAlgorithmException noSaEx) {
+            LOGGER.error(noSaEx);
+            description += noSaEx.toString();
+        } catch (IOException ioEx) {
+            LOGGER.error(ioEx);
+            description += ioEx.toString();
+        }
+    }
+
     /**
      * Converts the Event ID into a String As defined in the TCG PC Client FW Profile.
      * Event IDs have values larger than an integer,so a Long is used hold the value.
@@ -611,7 +639,7 @@ public class TpmPcrEvent {
      * @param event the event id.
      * @return TCG defined String that represents the event id
      */
-    private static String eventString(final long event) {
+    static String eventString(final long event) {
 
         if (event == EvConstants.EV_PREBOOT_CERT) {
             return "EV_PREBOOT_CERT";
@@ -686,6 +714,7 @@ public class TpmPcrEvent {
      * @return human readable string.
      */
     private String eventHashCheck() {
+        renderDescription();
         String result = "";
         if (logFormat == 1) {
             if (Arrays.equals(this.digest, eventDataSha1hash)) {
@@ -756,6 +785,7 @@ public class TpmPcrEvent {
      * @return Description of the log.
      */
     public String toString() {
+        renderDescription();
         return description + "\n";
     }
 
@@ -770,6 +800,7 @@ public class TpmPcrEvent {
     public String toString(final boolean bEvent, final boolean bContent, final boolean bHexEvent) {
         StringBuilder sb = new StringBuilder();
         if (bEvent) {
+            renderDescription();
             sb.append(description);
         }
         if (bHexEvent) {
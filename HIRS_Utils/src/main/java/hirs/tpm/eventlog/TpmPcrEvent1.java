@@ -39,6 +39,23 @@ public class TpmPcrEvent1 extends TpmPcrEvent {
      */
     public TpmPcrEvent1(final ByteArrayInputStream is, final int eventNumber)
             throws IOException, CertificateException, NoSuchAlgorithmException {
+        this(is, eventNumber, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param is          ByteArrayInputStream holding the TCG Log event.
+     * @param eventNumber event position within the event log.
+     * @param bValidationOnly if true the event content is only decoded, and the
+     *                        description rendered, on first use.
+     * @throws IOException              if an error occurs in parsing the event.
+     * @throws NoSuchAlgorithmException if an undefined algorithm is encountered.
+     * @throws CertificateException     If a certificate within an event can't be processed.
+     */
+    public TpmPcrEvent1(final ByteArrayInputStream is, final int eventNumber,
+                        final boolean bValidationOnly)
+            throws IOException, CertificateException, NoSuchAlgorithmException {
         super(is);
         setDigestLength(EvConstants.SHA1_LENGTH);
         setLogFormat(1);
@@ -78,7 +95,11 @@ public class TpmPcrEvent1 extends TpmPcrEvent {
             offset += rawEventSize.length;
             setEventData(event);
             //System.arraycopy(eventContent, 0, event, offset, eventContent.length);
-            this.processEvent(event, eventContent, eventNumber);
+            if (bValidationOnly) {
+                setEventNumber(eventNumber);
+            } else {
+                this.processEvent(event, eventContent, eventNumber);
+            }
         }
     }
 }
@@ -74,6 +74,23 @@ public class TpmPcrEvent2 extends TpmPcrEvent {
      */
     public TpmPcrEvent2(final ByteArrayInputStream is, final int eventNumber)
             throws IOException, CertificateException, NoSuchAlgorithmException {
+        this(is, eventNumber, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param is          ByteArrayInputStream holding the TCG Log event
+     * @param eventNumber event position within the event log.
+     * @param bValidationOnly if true the event content is only decoded, and the
+     *                        description rendered, on first use.
+     * @throws IOException              if an error occurs in parsing the event
+     * @throws NoSuchAlgorithmException if an undefined algorithm is encountered.
+     * @throws CertificateException     If a certificate within an event can't be processed.
+     */
+    public TpmPcrEvent2(final ByteArrayInputStream is, final int eventNumber,
+                        final boolean bValidationOnly)
+            throws IOException, CertificateException, NoSuchAlgorithmException {
         super(is);
         setDigestLength(EvConstants.SHA256_LENGTH);
         setLogFormat(2);
@@ -126,7 +143,11 @@ public class TpmPcrEvent2 extends TpmPcrEvent {
             offset += rawEventSize.length;
             //System.arraycopy(eventContent, 0, event, offset, eventContent.length);
             setEventData(event);
-            this.processEvent(event, eventContent, eventNumber);
+            if (bValidationOnly) {
+                setEventNumber(eventNumber);
+            } else {
+                this.processEvent(event, eventContent, eventNumber);
+            }
         }
     }
 }
@@ -0,0 +1,346 @@
+package hirs.tpm.eventlog;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Flyweight view of a single TCG_PCR_EVENT or TCG_PCR_EVENT2 held within the buffer of a
+ * {@link TCGEventLogReader}. The view does not copy the digest or the event content out of the
+ * log; it only records where they are located. The same instance is repositioned by the reader
+ * for every event, so the values returned by a view are only valid until the next call to
+ * {@link TCGEventLogReader#next()}. Callers that need to keep an event should copy the data
+ * they need (e.g. with {@link #getEventDigest()}) or parse the log with {@link TCGEventLog}.
+ */
+public final class TpmPcrEventView {
+    /** Initial number of TPMT_HA entries a view can describe before growing. */
+    private static final int INITIAL_DIGEST_CAPACITY = 4;
+
+    /** Little endian view of the whole event log. */
+    private final ByteBuffer log;
+    /** Reusable window over the log, used to feed digest bytes without copying. */
+    private final ByteBuffer window;
+    /** Position of the event within the log. */
+    private int eventNumber = -1;
+    /** Offset of the start of the event within the log. */
+    private int eventOffset;
+    /** Total length of the event, including content. */
+    private int eventLength;
+    /** PCR index. */
+    private int pcrIndex = -1;
+    /** Event Type (unsigned 32 bit value). */
+    private long eventType;
+    /** Offset of the digest used by the log's hash algorithm. */
+    private int digestOffset;
+    /** Length of the digest used by the log's hash algorithm, 0 if not present. */
+    private int digestLength;
+    /** Number of TPMT_HA entries in the event (1 for SHA1 formatted events). */
+    private int digestCount;
+    /** TCG algorithm identifiers of each TPMT_HA entry. */
+    private int[] digestAlgIds = new int[INITIAL_DIGEST_CAPACITY];
+    /** Offsets of each TPMT_HA digest. */
+    private int[] digestOffsets = new int[INITIAL_DIGEST_CAPACITY];
+    /** Offset of the event content. */
+    private int contentOffset;
+    /** Length of the event content. */
+    private int contentLength;
+
+    /**
+     * Constructor.
+     *
+     * @param log little endian buffer holding the event log
+     */
+    TpmPcrEventView(final ByteBuffer log) {
+        this.log = log;
+        this.window = log.duplicate();
+    }
+
+    /**
+     * Repositions the view on a new event.
+     *
+     * @param number     event position within the event log
+     * @param offset     offset of the event within the log
+     * @param index      PCR index of the event
+     * @param type       event type of the event
+     */
+    void reset(final int number, final int offset, final int index, final long type) {
+        eventNumber = number;
+        eventOffset = offset;
+        pcrIndex = index;
+        eventType = type;
+        digestLength = 0;
+        digestCount = 0;
+    }
+
+    /**
+     * Records a digest found in the event.
+     *
+     * @param algId   TCG defined algorithm identifier of the digest
+     * @param offset  offset of the digest within the log
+     * @param length  length of the digest
+     * @param primary true if this is the digest used by the log's hash algorithm
+     */
+    void addDigest(final int algId, final int offset, final int length, final boolean primary) {
+        if (digestCount == digestAlgIds.length) {
+            digestAlgIds = Arrays.copyOf(digestAlgIds, digestCount * 2);
+            digestOffsets = Arrays.copyOf(digestOffsets, digestCount * 2);
+        }
+        digestAlgIds[digestCount] = algId;
+        digestOffsets[digestCount++] = offset;
+        if (primary) {
+            digestOffset = offset;
+            digestLength = length;
+        }
+    }
+
+    /**
+     * Records where the event content is located and completes the view.
+     *
+     * @param offset offset of the content within the log
+     * @param length length of the content
+     */
+    void setContent(final int offset, final int length) {
+        contentOffset = offset;
+        contentLength = length;
+        eventLength = offset + length - eventOffset;
+    }
+
+    /**
+     * Getter for the event number for this event.
+     * @return the # for this event
+     */
+    public int getEventNumber() {
+        return eventNumber;
+    }
+
+    /**
+     * Gets the PCR index of the event.
+     * @return PCR index as defined in the PFP
+     */
+    public int getPcrIndex() {
+        return pcrIndex;
+    }
+
+    /**
+     * Returns the EventType for the Event.
+     * @return event type
+     */
+    public long getEventType() {
+        return eventType;
+    }
+
+    /**
+     * Returns a formatted string of the type for the event.
+     * @return a string formatted to be human readable
+     */
+    public String getEventTypeStr() {
+        return String.format("0x%s %s", Long.toHexString(eventType),
+                TpmPcrEvent.eventString((int) eventType));
+    }
+
+    /**
+     * Returns the offset of this event within the log.
+     * @return offset in bytes
+     */
+    public int getEventOffset() {
+        return eventOffset;
+    }
+
+    /**
+     * Returns the size of this event within the log, including its content.
+     * @return size in bytes
+     */
+    public int getEventLength() {
+        return eventLength;
+    }
+
+    /**
+     * Gets the length of the digest used by the log's hash algorithm.
+     * @return number of bytes in the digest, 0 if the event does not carry such a digest
+     */
+    public int getDigestLength() {
+        return digestLength;
+    }
+
+    /**
+     * Returns a copy of the digest used by the log's hash algorithm.
+     * @return the digest data for the event
+     */
+    public byte[] getEventDigest() {
+        byte[] digestCopy = new byte[digestLength];
+        copyBytes(digestOffset, digestCopy, digestLength);
+        return digestCopy;
+    }
+
+    /**
+     * Returns a hex representation of the event digest.
+     * @return hex string
+     */
+    public String getEventDigestStr() {
+        return Hex.encodeHexString(getEventDigest());
+    }
+
+    /**
+     * Feeds the digest used by the log's hash algorithm into a MessageDigest without
+     * copying it out of the log.
+     *
+     * @param md digest to update
+     */
+    public void updateDigest(final MessageDigest md) {
+        updateDigest(md, digestOffset, digestLength);
+    }
+
+    /**
+     * Returns the number of TPMT_HA entries held by the event.
+     * @return digest count
+     */
+    public int getDigestCount() {
+        return digestCount;
+    }
+
+    /**
+     * Returns the TCG algorithm identifier of a TPMT_HA entry.
+     *
+     * @param i index of the entry
+     * @return TCG defined algorithm identifier
+     */
+    public int getDigestAlgId(final int i) {
+        return digestAlgIds[i];
+    }
+
+    /**
+     * Returns true if the event holds a digest for the given algorithm.
+     *
+     * @param algId TCG defined algorithm identifier
+     * @return true if a digest is present
+     */
+    public boolean hasDigest(final int algId) {
+        return indexOf(algId) >= 0;
+    }
+
+    /**
+     * Feeds the digest for the given algorithm into a MessageDigest without copying it out of
+     * the log.
+     *
+     * @param algId TCG defined algorithm identifier
+     * @param md    digest to update
+     * @return false if the event does not hold a digest for the algorithm
+     */
+    public boolean updateDigest(final int algId, final MessageDigest md) {
+        int i = indexOf(algId);
+        if (i < 0) {
+            return false;
+        }
+        updateDigest(md, digestOffsets[i], TcgTpmtHa.tcgAlgLength(algId));
+        return true;
+    }
+
+    /**
+     * Compares the digest used by the log's hash algorithm against a byte array.
+     *
+     * @param other digest to compare
+     * @return true if the digests are identical
+     */
+    public boolean digestEquals(final byte[] other) {
+        if (other == null || other.length != digestLength) {
+            return false;
+        }
+        for (int i = 0; i < digestLength; i++) {
+            if (log.get(digestOffset + i) != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method takes in an event and compares the PCR index and digest to verify that
+     * they match, in the same way as {@link TpmPcrEvent#eventCompare(TpmPcrEvent)}.
+     *
+     * @param other an event to match.
+     * @return true if the PCR index matches and the digests are identical.
+     */
+    public boolean eventCompare(final TpmPcrEventView other) {
+        if (other == null || other.pcrIndex != pcrIndex || other.digestLength != digestLength) {
+            return false;
+        }
+        for (int i = 0; i < digestLength; i++) {
+            if (log.get(digestOffset + i) != other.log.get(other.digestOffset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the length of the event content.
+     * @return content size in bytes
+     */
+    public int getEventContentSize() {
+        return contentLength;
+    }
+
+    /**
+     * Returns a copy of the event content.
+     * @return byte array holding the events content field
+     */
+    public byte[] getEventContent() {
+        byte[] content = new byte[contentLength];
+        copyBytes(contentOffset, content, contentLength);
+        return content;
+    }
+
+    /**
+     * Returns a read only buffer over the event content, without copying it.
+     * @return read only buffer positioned on the content
+     */
+    public ByteBuffer getEventContentBuffer() {
+        ByteBuffer content = log.asReadOnlyBuffer();
+        content.position(contentOffset);
+        content.limit(contentOffset + contentLength);
+        return content.slice();
+    }
+
+    /**
+     * Returns a copy of the entire event, as stored in the log.
+     * @return byte array holding the raw event
+     */
+    public byte[] getRawEvent() {
+        byte[] raw = new byte[eventLength];
+        copyBytes(eventOffset, raw, eventLength);
+        return raw;
+    }
+
+    /**
+     * Short human readable description of the event.
+     * @return description of the event
+     */
+    @Override
+    public String toString() {
+        return String.format("Event# %d: Index PCR[%d] Event Type: %s digest: %s",
+                eventNumber, pcrIndex, getEventTypeStr(), getEventDigestStr());
+    }
+
+    private int indexOf(final int algId) {
+        for (int i = 0; i < digestCount; i++) {
+            if (digestAlgIds[i] == algId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void updateDigest(final MessageDigest md, final int offset, final int length) {
+        window.limit(offset + length);
+        window.position(offset);
+        md.update(window);
+    }
+
+    private void copyBytes(final int offset, final byte[] dest, final int length) {
+        window.limit(offset + length);
+        window.position(offset);
+        window.get(dest, 0, length);
+    }
+}
@@ -0,0 +1,232 @@
+package hirs.utils;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Matches file paths against many patterns at once, with the same semantics as a
+ * {@link RegexFilePathMatcher} per pattern: a path matches a pattern if the pattern is an initial
+ * substring of the path, or if the pattern is a regular expression matching the whole path.
+ * <p>
+ * The patterns are compiled once into a trie of characters. Every pattern is inserted whole, so
+ * that walking a path down the trie finds the patterns it starts with. The regular expressions
+ * are also hung from the node of their literal prefix (the characters a match must start with),
+ * so that only the expressions whose prefix the path starts with are evaluated. The expressions
+ * hung from the same node are first evaluated together as a single alternation, which rejects
+ * most paths with one evaluation.
+ *
+ * @param <T> the type of the values associated with the patterns
+ */
+public class MultiRegexFilePathMatcher<T> {
+
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+    private static final String QUANTIFIERS = "*?+{";
+
+    private final Node<T> root = new Node<>();
+
+    /**
+     * Constructs a matcher for the patterns of the given values.
+     *
+     * @param values the values to match paths to
+     * @param patternOf gets the pattern of a value
+     * @throws IllegalArgumentException if a pattern is null or malformed
+     */
+    public MultiRegexFilePathMatcher(final Collection<T> values,
+                                     final Function<T, String> patternOf)
+            throws IllegalArgumentException {
+        List<Node<T>> regexNodes = new ArrayList<>();
+        for (T value : values) {
+            String pattern = patternOf.apply(value);
+            if (pattern == null) {
+                throw new IllegalArgumentException("a pattern cannot be null");
+            }
+            Pattern regex = Pattern.compile(pattern);
+
+            root.descend(pattern).prefixValues.add(value);
+
+            String literalPrefix = getLiteralPrefix(pattern);
+            if (!literalPrefix.equals(pattern)) {
+                Node<T> node = root.descend(literalPrefix);
+                if (node.regexes.isEmpty()) {
+                    regexNodes.add(node);
+                }
+                node.regexes.add(new RegexEntry<>(regex, value));
+            }
+        }
+        for (Node<T> node : regexNodes) {
+            node.combineRegexes();
+        }
+    }
+
+    /**
+     * Finds the values whose pattern matches the given path.
+     *
+     * @param path the path to match
+     * @return the matching values, empty if none match or if the path is null or empty
+     */
+    public Set<T> getMatches(final String path) {
+        Set<T> matches = new LinkedHashSet<>();
+        if (StringUtils.isEmpty(path)) {
+            return matches;
+        }
+
+        Node<T> node = root;
+        int depth = 0;
+        while (node != null) {
+            matches.addAll(node.prefixValues);
+            node.matchRegexes(path, matches);
+            if (depth == path.length()) {
+                break;
+            }
+            node = node.children.get(path.charAt(depth++));
+        }
+        return matches;
+    }
+
+    /**
+     * Determines whether the given path matches any of the patterns.
+     *
+     * @param path the path to match
+     * @return true if at least one pattern matches the path
+     */
+    public boolean isMatch(final String path) {
+        return !getMatches(path).isEmpty();
+    }
+
+    /**
+     * Gets the characters a match of the given regular expression must start with. The prefix
+     * ends before the first metacharacter, before a quantified character, and is empty if the
+     * expression holds an alternation.
+     *
+     * @param pattern the regular expression
+     * @return the literal prefix, equal to the pattern if the pattern holds no metacharacters
+     */
+    static String getLiteralPrefix(final String pattern) {
+        if (pattern.indexOf('|') >= 0) {
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            char literal;
+            int next;
+            if (c == '\\') {
+                // only escaped punctuation is literal, \d, \Q, \1 and the like are not
+                if (i + 1 == pattern.length()
+                        || Character.isLetterOrDigit(pattern.charAt(i + 1))) {
+                    break;
+                }
+                literal = pattern.charAt(i + 1);
+                next = i + 2;
+            } else if (REGEX_METACHARACTERS.indexOf(c) >= 0) {
+                break;
+            } else {
+                literal = c;
+                next = i + 1;
+            }
+            if (next < pattern.length() && QUANTIFIERS.indexOf(pattern.charAt(next)) >= 0) {
+                break;
+            }
+            prefix.append(literal);
+            i = next;
+        }
+        return prefix.toString();
+    }
+
+    /**
+     * A regular expression and the value it belongs to.
+     */
+    private static final class RegexEntry<T> {
+        private final Pattern regex;
+        private final T value;
+
+        RegexEntry(final Pattern regex, final T value) {
+            this.regex = regex;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A node of the trie, reached by the characters of a path from the root.
+     */
+    private static final class Node<T> {
+        private final Map<Character, Node<T>> children = new HashMap<>();
+
+        /**
+         * Values whose pattern is the path to this node.
+         */
+        private final List<T> prefixValues = new ArrayList<>();
+
+        /**
+         * Regular expressions whose literal prefix is the path to this node.
+         */
+        private final List<RegexEntry<T>> regexes = new ArrayList<>();
+
+        /**
+         * Alternation of the regular expressions, null if there is only one or if they cannot
+         * be combined.
+         */
+        private Pattern combinedRegex;
+
+        Node<T> descend(final String key) {
+            Node<T> node = this;
+            for (int i = 0; i < key.length(); i++) {
+                Node<T> child = node.children.get(key.charAt(i));
+                if (child == null) {
+                    child = new Node<>();
+                    node.children.put(key.charAt(i), child);
+                }
+                node = child;
+            }
+            return node;
+        }
+
+        void combineRegexes() {
+            if (regexes.size() < 2) {
+                return;
+            }
+            StringBuilder alternation = new StringBuilder();
+            for (RegexEntry<T> entry : regexes) {
+                String pattern = entry.regex.pattern();
+                // back references are numbered across the alternation, quotes and comments
+                // would swallow the closing parenthesis
+                if (pattern.matches("(?s).*(\\\\[0-9]|\\\\k<|\\\\Q|#).*")) {
+                    return;
+                }
+                if (alternation.length() > 0) {
+                    alternation.append('|');
+                }
+                alternation.append("(?:").append(pattern).append(')');
+            }
+            try {
+                combinedRegex = Pattern.compile(alternation.toString());
+            } catch (PatternSyntaxException e) {
+                // e.g. named groups defined by several expressions
+                combinedRegex = null;
+            }
+        }
+
+        void matchRegexes(final String path, final Set<T> matches) {
+            if (regexes.isEmpty()
+                    || (combinedRegex != null && !combinedRegex.matcher(path).matches())) {
+                return;
+            }
+            for (RegexEntry<T> entry : regexes) {
+                if (entry.regex.matcher(path).matches()) {
+                    matches.add(entry.value);
+                }
+            }
+        }
+    }
+}
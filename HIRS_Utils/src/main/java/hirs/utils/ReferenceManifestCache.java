@@ -0,0 +1,274 @@
+package hirs.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import hirs.data.persist.BaseReferenceManifest;
+import hirs.data.persist.ReferenceManifest;
+import hirs.data.persist.SupportReferenceManifest;
+import hirs.data.persist.SwidResource;
+import hirs.tpm.eventlog.TCGEventLogDiff;
+import hirs.tpm.eventlog.TCGEventLogReader;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Process wide cache of the work done to verify Reference Integrity Manifests during supply
+ * chain validation: the signature status and resource list of a Base RIM, and the expected PCR
+ * values and event index of a Support RIM.
+ * <p>
+ * Entries are keyed by the RIM type and the SHA-256 digest of the RIM bytes, so a RIM that is
+ * replaced by one with different content is never served from the cache; only identical RIMs
+ * (such as those of devices of the same model) share an entry. The cache is bounded by the
+ * total size of the RIMs it holds results for, evicting the least recently used entries first.
+ * <p>
+ * Entries are never invalidated when a RIM is archived or deleted: an entry only describes the
+ * content it is keyed by, and the supply chain validation selects the RIMs of a device,
+ * excluding the archived ones, before the cache is consulted. The entries of RIMs that are no
+ * longer selected are evicted once they are the least recently used.
+ */
+public final class ReferenceManifestCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(ReferenceManifestCache.class);
+
+    /**
+     * Default upper bound, in bytes of RIM content, of the entries held by the cache.
+     */
+    public static final long DEFAULT_MAXIMUM_WEIGHT = 64L * 1024 * 1024;
+
+    private static final ReferenceManifestCache INSTANCE =
+            new ReferenceManifestCache(DEFAULT_MAXIMUM_WEIGHT);
+
+    /**
+     * Verified content of a Base RIM.
+     */
+    public static final class VerifiedBaseRim {
+        private final boolean signatureValid;
+        private final List<SwidResource> resources;
+        private final int weight;
+
+        private VerifiedBaseRim(final boolean signatureValid, final List<SwidResource> resources,
+                                final int weight) {
+            this.signatureValid = signatureValid;
+            this.resources = Collections.unmodifiableList(resources);
+            this.weight = weight;
+        }
+
+        /**
+         * Getter for the result of the signature validation.
+         *
+         * @return true if the signature of the Base RIM is valid
+         */
+        public boolean isSignatureValid() {
+            return signatureValid;
+        }
+
+        /**
+         * Getter for the payload resources listed by the Base RIM.
+         *
+         * @return unmodifiable list of resources
+         */
+        public List<SwidResource> getResources() {
+            return resources;
+        }
+
+        /**
+         * Checks a Support RIM against the hash recorded for it by this Base RIM, in the same
+         * way as {@link ReferenceManifestValidator#validateSupportRimHash(byte[], String)}.
+         *
+         * @param supportRim the Support RIM
+         * @return true if a resource of the same name records the Support RIM's SHA-256
+         */
+        public boolean isSupportRimValid(final SupportReferenceManifest supportRim) {
+            boolean supportRimValid = false;
+            String supportRimHash = null;
+            for (SwidResource swidRes : resources) {
+                if (swidRes.getName().equals(supportRim.getFileName())) {
+                    if (supportRimHash == null) {
+                        supportRimHash = DigestUtils.sha256Hex(supportRim.getRimBytes());
+                    }
+                    supportRimValid = supportRimHash.equals(swidRes.getHashValue());
+                }
+            }
+            return supportRimValid;
+        }
+    }
+
+    /**
+     * Replayed content of a Support RIM.
+     */
+    public static final class VerifiedSupportRim {
+        private final String[] expectedPcrValues;
+        private final TCGEventLogDiff eventLogIndex;
+        private final int weight;
+
+        private VerifiedSupportRim(final String[] expectedPcrValues,
+                                   final TCGEventLogDiff eventLogIndex, final int weight) {
+            this.expectedPcrValues = expectedPcrValues;
+            this.eventLogIndex = eventLogIndex;
+            this.weight = weight;
+        }
+
+        /**
+         * Getter for the PCR values expected from replaying the Support RIM event log.
+         *
+         * @return a copy of the 24 expected PCR values
+         */
+        public String[] getExpectedPcrValues() {
+            return Arrays.copyOf(expectedPcrValues, expectedPcrValues.length);
+        }
+
+        /**
+         * Getter for the index of the Support RIM event log, used to compare device
+         * measurement logs against it. The index is immutable and may be shared.
+         *
+         * @return the event log index
+         */
+        public TCGEventLogDiff getEventLogIndex() {
+            return eventLogIndex;
+        }
+    }
+
+    private final Cache<String, Object> cache;
+
+    /**
+     * Creates a cache bounded to the given size.
+     *
+     * @param maximumWeight upper bound, in bytes of RIM content, of the entries held
+     */
+    public ReferenceManifestCache(final long maximumWeight) {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(new Weigher<String, Object>() {
+                    @Override
+                    public int weigh(final String key, final Object value) {
+                        if (value instanceof VerifiedBaseRim) {
+                            return ((VerifiedBaseRim) value).weight;
+                        }
+                        return ((VerifiedSupportRim) value).weight;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cache shared by the application.
+     *
+     * @return the shared cache
+     */
+    public static ReferenceManifestCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the verified content of a Base RIM, parsing its resources and validating its
+     * signature if the RIM has not been seen before.
+     *
+     * @param baseRim the Base RIM
+     * @return the verified content of the RIM
+     */
+    public VerifiedBaseRim getBaseRim(final BaseReferenceManifest baseRim) {
+        try {
+            return (VerifiedBaseRim) cache.get(keyOf(baseRim), new Callable<Object>() {
+                @Override
+                public Object call() {
+                    byte[] rimBytes = baseRim.getRimBytes();
+                    ReferenceManifestValidator referenceManifestValidator =
+                            new ReferenceManifestValidator(new ByteArrayInputStream(rimBytes));
+                    return new VerifiedBaseRim(referenceManifestValidator.isSignatureValid(),
+                            baseRim.parseResource(), rimBytes.length);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the replayed content of a Support RIM, replaying its event log if the RIM has
+     * not been seen before.
+     *
+     * @param supportRim the Support RIM
+     * @return the replayed content of the RIM
+     * @throws IOException if the event log is malformed
+     * @throws NoSuchAlgorithmException if the event log uses an unsupported hash algorithm
+     */
+    public VerifiedSupportRim getSupportRim(final SupportReferenceManifest supportRim)
+            throws IOException, NoSuchAlgorithmException {
+        try {
+            return (VerifiedSupportRim) cache.get(keyOf(supportRim), new Callable<Object>() {
+                @Override
+                public Object call() throws IOException, NoSuchAlgorithmException {
+                    byte[] rimBytes = supportRim.getRimBytes();
+                    TCGEventLogReader reader = new TCGEventLogReader(rimBytes);
+                    String[] expectedPcrValues = reader.getExpectedPCRValues();
+                    reader.reset();
+                    return new VerifiedSupportRim(expectedPcrValues,
+                            new TCGEventLogDiff(reader), rimBytes.length);
+                }
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof NoSuchAlgorithmException) {
+                throw (NoSuchAlgorithmException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns the number of cached RIMs.
+     *
+     * @return number of entries
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the hit, miss, load time and eviction counts of the cache.
+     *
+     * @return cache statistics
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Logs the current cache statistics at the debug level.
+     */
+    public void logStats() {
+        if (LOGGER.isDebugEnabled()) {
+            CacheStats stats = cache.stats();
+            LOGGER.debug(String.format("RIM cache: %d entries, %d hits, %d misses (%.2f hit rate),"
+                            + " %d evictions", cache.size(), stats.hitCount(), stats.missCount(),
+                    stats.hitRate(), stats.evictionCount()));
+        }
+    }
+
+    private static String keyOf(final ReferenceManifest referenceManifest) {
+        return referenceManifest.getRimType() + ":"
+                + DigestUtils.sha256Hex(referenceManifest.getRimBytes());
+    }
+}
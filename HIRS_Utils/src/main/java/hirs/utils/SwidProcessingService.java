@@ -0,0 +1,206 @@
+package hirs.utils;
+
+import hirs.data.persist.ReferenceManifest;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Process wide, thread-safe holder of the expensive objects used to process SWID tags.
+ * <p>
+ * The SWID schema, the JAXB context of the generated SWID classes and the identity transform
+ * used to strip whitespace are compiled once, when the service is first used. The
+ * {@link Unmarshaller}s and {@link XMLSignatureFactory}s built from them are not thread-safe,
+ * so they are kept in bounded pools: a caller borrows an instance for the duration of a single
+ * call and returns it afterwards, so concurrent RIM uploads and validations only pay for the
+ * creation of as many instances as there are threads using them at the same time.
+ */
+public final class SwidProcessingService {
+
+    private static final Logger LOGGER = LogManager.getLogger(SwidProcessingService.class);
+
+    private static final String IDENTITY_TRANSFORM = "identity_transform.xslt";
+    private static final String SIGNATURE_FACTORY_TYPE = "DOM";
+
+    /**
+     * Upper bound of the idle instances kept in each pool.
+     */
+    private static final int MAXIMUM_IDLE = Math.max(2,
+            Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * Lazily initialized holder of the shared instance.
+     */
+    private static final class Holder {
+        private static final SwidProcessingService INSTANCE = new SwidProcessingService();
+    }
+
+    private final Schema schema;
+    private final JAXBContext jaxbContext;
+    private final Templates identityTransform;
+    private final BlockingQueue<Unmarshaller> unmarshallers =
+            new ArrayBlockingQueue<>(MAXIMUM_IDLE);
+    private final BlockingQueue<XMLSignatureFactory> signatureFactories =
+            new ArrayBlockingQueue<>(MAXIMUM_IDLE);
+
+    private SwidProcessingService() {
+        schema = compileSchema();
+        jaxbContext = createJaxbContext();
+        identityTransform = compileIdentityTransform();
+    }
+
+    /**
+     * Returns the service shared by the application.
+     *
+     * @return the shared service
+     */
+    public static SwidProcessingService getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Getter for the compiled SWID schema. The returned object is thread-safe.
+     *
+     * @return the schema, or null if it could not be compiled
+     */
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Unmarshalls a swidtag, validating it against the SWID schema.
+     *
+     * @param stream the swidtag
+     * @return the unmarshalled root element
+     * @throws JAXBException if the swidtag can not be unmarshalled or is not valid
+     */
+    public Object unmarshal(final InputStream stream) throws JAXBException {
+        Unmarshaller unmarshaller = borrowUnmarshaller();
+        try {
+            return unmarshaller.unmarshal(stream);
+        } finally {
+            unmarshallers.offer(unmarshaller);
+        }
+    }
+
+    /**
+     * Unmarshalls a swidtag that has already been parsed, validating it against the SWID
+     * schema.
+     *
+     * @param node the swidtag
+     * @return the unmarshalled root element
+     * @throws JAXBException if the swidtag can not be unmarshalled or is not valid
+     */
+    public Object unmarshal(final Node node) throws JAXBException {
+        Unmarshaller unmarshaller = borrowUnmarshaller();
+        try {
+            return unmarshaller.unmarshal(node);
+        } finally {
+            unmarshallers.offer(unmarshaller);
+        }
+    }
+
+    /**
+     * Parses an xml source into a Document, stripping all whitespace added for
+     * human-readability.
+     *
+     * @param source the xml source
+     * @return Document representation of the xml
+     * @throws TransformerException if the source can not be transformed
+     */
+    public Document removeXMLWhitespace(final Source source) throws TransformerException {
+        if (identityTransform == null) {
+            throw new TransformerConfigurationException("Identity transform is unavailable");
+        }
+        DOMResult result = new DOMResult();
+        identityTransform.newTransformer().transform(source, result);
+        return (Document) result.getNode();
+    }
+
+    /**
+     * Unmarshalls the XML signature referenced by a validation context.
+     *
+     * @param context the validation context
+     * @return the signature, ready to be validated against the context
+     * @throws MarshalException if the signature can not be unmarshalled
+     */
+    public XMLSignature unmarshalXMLSignature(final DOMValidateContext context)
+            throws MarshalException {
+        XMLSignatureFactory signatureFactory = signatureFactories.poll();
+        if (signatureFactory == null) {
+            signatureFactory = XMLSignatureFactory.getInstance(SIGNATURE_FACTORY_TYPE);
+        }
+        try {
+            return signatureFactory.unmarshalXMLSignature(context);
+        } finally {
+            signatureFactories.offer(signatureFactory);
+        }
+    }
+
+    private Unmarshaller borrowUnmarshaller() throws JAXBException {
+        Unmarshaller unmarshaller = unmarshallers.poll();
+        if (unmarshaller == null) {
+            if (jaxbContext == null) {
+                throw new JAXBException("JAXB context for " + ReferenceManifest.SCHEMA_PACKAGE
+                        + " is unavailable");
+            }
+            unmarshaller = jaxbContext.createUnmarshaller();
+            unmarshaller.setSchema(schema);
+        }
+        return unmarshaller;
+    }
+
+    private static Schema compileSchema() {
+        try (InputStream is = SwidProcessingService.class.getClassLoader()
+                .getResourceAsStream(ReferenceManifest.SCHEMA_URL)) {
+            return SchemaFactory.newInstance(ReferenceManifest.SCHEMA_LANGUAGE)
+                    .newSchema(new StreamSource(is));
+        } catch (SAXException | IOException e) {
+            LOGGER.error(String.format("Error setting schema for validation!%n%s",
+                    e.getMessage()));
+        }
+        return null;
+    }
+
+    private static JAXBContext createJaxbContext() {
+        try {
+            return JAXBContext.newInstance(ReferenceManifest.SCHEMA_PACKAGE);
+        } catch (JAXBException e) {
+            LOGGER.error("Error initializing JAXBContext: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static Templates compileIdentityTransform() {
+        try (InputStream is = SwidProcessingService.class.getClassLoader()
+                .getResourceAsStream(IDENTITY_TRANSFORM)) {
+            return TransformerFactory.newInstance().newTemplates(new StreamSource(is));
+        } catch (TransformerConfigurationException | IOException e) {
+            LOGGER.error("Error configuring transformer: " + e.getMessage());
+        }
+        return null;
+    }
+}
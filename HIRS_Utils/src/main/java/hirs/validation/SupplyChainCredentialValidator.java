@@ -3,6 +3,8 @@ package hirs.validation;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import hirs.data.persist.AppraisalStatus;
 import hirs.data.persist.info.ComponentInfo;
 import hirs.data.persist.DeviceInfoReport;
@@ -36,6 +38,7 @@ import java.security.NoSuchProviderException;
 import java.security.PublicKey;
 import java.security.Security;
 import java.security.SignatureException;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateExpiredException;
 import java.security.cert.CertificateNotYetValidException;
@@ -95,6 +98,18 @@ public final class SupplyChainCredentialValidator implements CredentialValidator
      */
     public static final String FIRMWARE_VALID = "Firmware validated";
 
+    private static final int VERIFIED_SIGNATURE_CACHE_SIZE = 10000;
+
+    /**
+     * Results of verifying the signature of a certificate against the public key of a CA
+     * certificate, keyed by the digests of both certificates. Devices share the same CAs, so
+     * this avoids verifying every intermediate CA signature again for every device; the chain
+     * itself is still walked through the trust store given for each validation.
+     */
+    private static final Cache<String, Boolean> VERIFIED_SIGNATURES = CacheBuilder.newBuilder()
+            .maximumSize(VERIFIED_SIGNATURE_CACHE_SIZE)
+            .build();
+
     /*
      * Ensure that BouncyCastle is configured as a javax.security.Security provider, as this
      * class expects it to be available.
@@ -1335,7 +1350,7 @@ public final class SupplyChainCredentialValidator implements CredentialValidator
             trustedCert = certIterator.next();
             if (issuerMatchesSubjectDN(cert, trustedCert)
                     && signatureMatchesPublicKey(cert, trustedCert)) {
-                if (isSelfSigned(trustedCert)) {
+                if (isSignedBy(trustedCert, trustedCert)) {
                     LOGGER.info("CA Root found.");
                     foundRootOfCertChain = true;
                 } else {
@@ -1379,8 +1394,8 @@ public final class SupplyChainCredentialValidator implements CredentialValidator
         while (!foundRootOfCertChain && certIterator.hasNext()) {
             trustedCert = certIterator.next();
             if (issuerMatchesSubjectDN(cert, trustedCert)
-                    && signatureMatchesPublicKey(cert, trustedCert)) {
-                if (isSelfSigned(trustedCert)) {
+                    && isSignedBy(cert, trustedCert)) {
+                if (isSignedBy(trustedCert, trustedCert)) {
                     LOGGER.info("CA Root found.");
                     foundRootOfCertChain = true;
                 } else if (!cert.equals(trustedCert)) {
@@ -1643,6 +1658,47 @@ public final class SupplyChainCredentialValidator implements CredentialValidator
         }
     }
 
+    /**
+     * Checks if the signature of a public-key cert is validated against the signing cert's public
+     * key, reusing the result of a previous check of the same pair of certificates. A certificate
+     * is self-signed if it is signed by itself.
+     *
+     * @param cert
+     *            the public-key certificate with the signature to validate
+     * @param signingCert
+     *            the certificate with the public key to validate
+     * @return boolean indicating if the validation passed
+     * @throws SupplyChainValidatorException tried to validate using null certificates
+     */
+    private static boolean isSignedBy(final X509Certificate cert,
+            final X509Certificate signingCert) throws SupplyChainValidatorException {
+        if (cert == null || signingCert == null) {
+            throw new SupplyChainValidatorException("Certificate or signing certificate is null");
+        }
+        String key;
+        try {
+            key = DigestUtils.sha256Hex(cert.getEncoded()) + ":"
+                    + DigestUtils.sha256Hex(signingCert.getEncoded());
+        } catch (CertificateEncodingException e) {
+            LOGGER.warn("Unable to encode certificate, its signature will not be cached", e);
+            return verifySignedBy(cert, signingCert);
+        }
+        Boolean verified = VERIFIED_SIGNATURES.getIfPresent(key);
+        if (verified == null) {
+            verified = verifySignedBy(cert, signingCert);
+            VERIFIED_SIGNATURES.put(key, verified);
+        }
+        return verified;
+    }
+
+    private static boolean verifySignedBy(final X509Certificate cert,
+            final X509Certificate signingCert) throws SupplyChainValidatorException {
+        if (cert == signingCert) {
+            return isSelfSigned(cert);
+        }
+        return signatureMatchesPublicKey(cert, signingCert);
+    }
+
     /**
      * Checks whether given X.509 public-key certificate is self-signed. If the cert can be
      * verified using its own public key, that means it was self-signed.
@@ -25,12 +25,16 @@ import hirs.persist.DBBaselineManagerTest;
 import hirs.persist.DBRepositoryManager;
 import hirs.persist.DBUtility;
 import hirs.persist.DbImaBaselineRecordManager;
+import hirs.persist.ImaBaselineRecordManager;
 import hirs.repository.RPMRepoPackage;
 import hirs.repository.RepoPackage;
 import hirs.repository.RepoPackageTest;
 import hirs.repository.Repository;
 import hirs.repository.TestRepository;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
 /**
  * Unit tests for the <code>BroadRepoImaBaseline</code> class.
  */
@@ -485,4 +489,62 @@ public class BroadRepoImaBaselineTest extends SpringPersistenceTest {
         Assert.assertEquals(updatedBaseline.getRepositories(),
                 savedBaseline.getRepositories());
     }
+
+    /**
+     * Tests that the record filter built by update() is persisted with the baseline, and that
+     * measurements it rules out are appraised as unknown without iterating over the records of
+     * the baseline.
+     *
+     * @throws UnsupportedEncodingException
+     *             if an error is encountered while getting the test digest
+     */
+    @Test
+    public final void testContainsSkipsFilteredRecords() throws UnsupportedEncodingException {
+        BroadRepoImaBaseline testBaseline = new BroadRepoImaBaseline(BASELINE_NAME);
+        Repository testRepo = new TestRepository("Test Repository", 0);
+        DBRepositoryManager repoManager = new DBRepositoryManager(sessionFactory);
+        testRepo = repoManager.saveRepository(testRepo);
+        RepoPackage testRepoPackage =
+                new RPMRepoPackage(NAME, VERSION1, RELEASE1, ARCHITECTURE, testRepo);
+        Set<IMABaselineRecord> imaRecords = new HashSet<>();
+        imaRecords.add(SimpleImaBaselineTest.createTestIMARecord(FILEPATH1));
+        testRepoPackage.setAllMeasurements(imaRecords, RepoPackageTest.getTestDigest());
+        repoManager.saveRepoPackage(testRepoPackage);
+        Set<Repository<?>> originalRepositories = new HashSet<>();
+        originalRepositories.add(testRepo);
+        testBaseline.setRepositories(originalRepositories);
+        testBaseline.update(repoManager);
+
+        DBBaselineManager baselineManager = new DBBaselineManager(sessionFactory);
+        baselineManager.save(testBaseline);
+        BroadRepoImaBaseline savedBaseline =
+                (BroadRepoImaBaseline) baselineManager.getBaseline(BASELINE_NAME);
+
+        IMAMeasurementRecord unknownRecord = new IMAMeasurementRecord(FILEPATH2,
+                SimpleImaBaselineTest.getDigest("00000c2f7f3003d2e4baddc46ed4763a49543333"));
+        ImaBaselineRecordManager recordManager = mock(ImaBaselineRecordManager.class);
+        Assert.assertEquals(
+                savedBaseline.contains(
+                        Collections.singletonList(unknownRecord),
+                        recordManager,
+                        SimpleImaBaselineTest.getTestImaPolicy(false)
+                ).getIMAMatchStatuses(unknownRecord),
+                Collections.singleton(
+                        new IMAMatchStatus<>(unknownRecord, ReportMatchStatus.UNKNOWN,
+                                savedBaseline)
+                )
+        );
+        Assert.assertEquals(
+                savedBaseline.containsHashes(
+                        Collections.singletonList(unknownRecord),
+                        recordManager,
+                        SimpleImaBaselineTest.getTestImaPolicy(false)
+                ).getIMAMatchStatuses(unknownRecord),
+                Collections.singleton(
+                        new IMAMatchStatus<>(unknownRecord, ReportMatchStatus.UNKNOWN,
+                                savedBaseline)
+                )
+        );
+        verifyZeroInteractions(recordManager);
+    }
 }
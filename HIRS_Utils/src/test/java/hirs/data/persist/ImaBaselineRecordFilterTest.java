@@ -0,0 +1,107 @@
+package hirs.data.persist;
+
+import hirs.data.persist.baseline.IMABaselineRecord;
+import hirs.data.persist.baseline.ImaBaselineRecordFilter;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for the {@link ImaBaselineRecordFilter}.
+ */
+public class ImaBaselineRecordFilterTest {
+
+    private static final Digest HASH_1 =
+            SimpleImaBaselineTest.getDigest("33333c2f7f3003d2e4baddc46ed4763a49543333");
+    private static final Digest HASH_2 =
+            SimpleImaBaselineTest.getDigest("44443c2f7f3003d2e4baddc46ed4763a49544444");
+
+    private static final IMABaselineRecord LS = new IMABaselineRecord("/bin/ls", HASH_1);
+
+    private static final int RECORD_COUNT = 10000;
+    private static final int MAXIMUM_FALSE_POSITIVES = 300;
+
+    /**
+     * Tests that a record is reported as possibly contained by its path, its partial path and its
+     * hash, and that other paths and hashes are not.
+     */
+    @Test
+    public void testMightContain() {
+        ImaBaselineRecordFilter filter = ImaBaselineRecordFilter.create(
+                Collections.singletonList(LS));
+
+        Assert.assertTrue(filter.mightContainAnyPath(Collections.singleton("/bin/ls")));
+        Assert.assertTrue(filter.mightContainAnyPath(Collections.singleton("ls")));
+        Assert.assertTrue(filter.mightContainAnyPath(Arrays.asList("/usr/bin/cat", "/bin/ls")));
+        Assert.assertFalse(filter.mightContainAnyPath(Collections.singleton("/usr/bin/cat")));
+        Assert.assertFalse(filter.mightContainAnyPath(Collections.emptyList()));
+        Assert.assertTrue(filter.mightContainHash(HASH_1));
+        Assert.assertFalse(filter.mightContainHash(HASH_2));
+    }
+
+    /**
+     * Tests that a filter of no records contains nothing.
+     */
+    @Test
+    public void testEmptyFilter() {
+        ImaBaselineRecordFilter filter = ImaBaselineRecordFilter.create(Collections.emptyList());
+        Assert.assertFalse(filter.mightContainAnyPath(Collections.singleton("/bin/ls")));
+        Assert.assertFalse(filter.mightContainHash(HASH_1));
+    }
+
+    /**
+     * Tests that a filter of many records holds all of them, with few false positives.
+     */
+    @Test
+    public void testManyRecords() {
+        List<IMABaselineRecord> records = new ArrayList<>();
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            records.add(new IMABaselineRecord("/usr/lib/file" + i, getDigest(i)));
+        }
+        ImaBaselineRecordFilter filter = ImaBaselineRecordFilter.create(records);
+
+        int falsePositives = 0;
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            Assert.assertTrue(filter.mightContainAnyPath(Collections.singleton("file" + i)));
+            Assert.assertTrue(filter.mightContainHash(getDigest(i)));
+            if (filter.mightContainAnyPath(Collections.singleton("/usr/lib64/file" + i))) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue(falsePositives < MAXIMUM_FALSE_POSITIVES);
+    }
+
+    /**
+     * Tests that a serialized filter is read back.
+     *
+     * @throws IOException if the filter cannot be read
+     */
+    @Test
+    public void testSerialization() throws IOException {
+        ImaBaselineRecordFilter filter = ImaBaselineRecordFilter.fromByteArray(
+                ImaBaselineRecordFilter.create(Collections.singletonList(LS)).toByteArray());
+        Assert.assertTrue(filter.mightContainAnyPath(Collections.singleton("ls")));
+        Assert.assertTrue(filter.mightContainHash(HASH_1));
+        Assert.assertFalse(filter.mightContainHash(HASH_2));
+    }
+
+    /**
+     * Tests that bytes that do not hold a filter are rejected.
+     *
+     * @throws IOException if the bytes do not hold a filter
+     */
+    @Test(expectedExceptions = IOException.class)
+    public void testReadInvalidFilter() throws IOException {
+        ImaBaselineRecordFilter.fromByteArray(new byte[] {1, 2});
+    }
+
+    private static Digest getDigest(final int value) {
+        return SimpleImaBaselineTest.getDigest(
+                String.format("33333c2f7f3003d2e4baddc46ed4763a%08x", value));
+    }
+}
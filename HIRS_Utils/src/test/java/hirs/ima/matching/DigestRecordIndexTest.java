@@ -0,0 +1,133 @@
+package hirs.ima.matching;
+
+import hirs.data.persist.Digest;
+import hirs.data.persist.ImaBlacklistRecord;
+import hirs.data.persist.SimpleImaBaselineTest;
+import hirs.data.persist.baseline.IMABaselineRecord;
+import hirs.data.persist.enums.DigestAlgorithm;
+import hirs.data.persist.enums.DigestComparisonResultType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests for the DigestRecordIndex and PathRecordIndex used by {@link ImaRecordMatcher}.
+ */
+public class DigestRecordIndexTest {
+    private static final Digest HASH_1 =
+            SimpleImaBaselineTest.getDigest("33333c2f7f3003d2e4baddc46ed4763a49543333");
+    private static final Digest HASH_2 =
+            SimpleImaBaselineTest.getDigest("00000c2f7f3003d2e4baddc46ed4763a49543333");
+    private static final Digest HASH_3 =
+            SimpleImaBaselineTest.getDigest("33333c2f7f3003d2e4baddc46ed4763a49540000");
+    private static final int RECORD_COUNT = 10000;
+
+    /**
+     * Tests that all the records with a digest are found, and none with another digest.
+     */
+    @Test
+    public void testFindRecordsByDigest() {
+        List<IMABaselineRecord> records = Arrays.asList(
+                new IMABaselineRecord("/bin/ls", HASH_1),
+                new IMABaselineRecord("/bin/cat", HASH_2),
+                new IMABaselineRecord("/bin/ls_copy", HASH_1),
+                new IMABaselineRecord("/bin/dd", HASH_3)
+        );
+        DigestRecordIndex index = new DigestRecordIndex(records);
+
+        Assert.assertEquals(getIds(index, HASH_1), new HashSet<>(Arrays.asList(0, 2)));
+        Assert.assertEquals(getIds(index, HASH_2), Collections.singleton(1));
+        Assert.assertEquals(getIds(index, HASH_3), Collections.singleton(3));
+        Assert.assertEquals(getIds(index, Digest.SHA1_ZERO), Collections.emptySet());
+        Assert.assertEquals(getIds(index, null), Collections.emptySet());
+    }
+
+    /**
+     * Tests that comparing the digest of a record gives the same result as
+     * {@link Digest#compare(Digest)}, including for other algorithms and missing digests.
+     */
+    @Test
+    public void testCompare() {
+        Digest sha256 = new Digest(DigestAlgorithm.SHA256, new byte[DigestAlgorithm.SHA256
+                .getLengthInBytes()]);
+        List<ImaBlacklistRecord> records = Arrays.asList(
+                new ImaBlacklistRecord("/bin/ls", HASH_1),
+                new ImaBlacklistRecord("/bin/cat")
+        );
+        DigestRecordIndex index = new DigestRecordIndex(records);
+
+        Assert.assertEquals(index.compare(0, HASH_1), DigestComparisonResultType.MATCH);
+        Assert.assertEquals(index.compare(0, HASH_3), DigestComparisonResultType.MISMATCH);
+        Assert.assertEquals(index.compare(0, sha256), DigestComparisonResultType.MISMATCH);
+        Assert.assertEquals(index.compare(0, null), DigestComparisonResultType.UNKNOWN);
+        Assert.assertEquals(index.compare(1, HASH_1), DigestComparisonResultType.UNKNOWN);
+        Assert.assertEquals(index.first(sha256), DigestRecordIndex.NONE);
+    }
+
+    /**
+     * Tests that every record of a large baseline is found by its digest.
+     */
+    @Test
+    public void testManyRecords() {
+        List<IMABaselineRecord> records = new ArrayList<>();
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            records.add(new IMABaselineRecord("/usr/lib/file" + i, getDigest(i)));
+        }
+        DigestRecordIndex index = new DigestRecordIndex(records);
+
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            Assert.assertEquals(getIds(index, getDigest(i)), Collections.singleton(i));
+        }
+        Assert.assertEquals(getIds(index, getDigest(RECORD_COUNT)), Collections.emptySet());
+    }
+
+    /**
+     * Tests that records are found under each of the paths they were indexed under, across the
+     * growth of the table.
+     */
+    @Test
+    public void testPathIndex() {
+        PathRecordIndex index = new PathRecordIndex(1);
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            index.add("/usr/lib/file" + i, i);
+            index.add("file" + i, i);
+        }
+        index.add("file0", RECORD_COUNT);
+
+        Assert.assertEquals(getIds(index, "/usr/lib/file1"), Collections.singleton(1));
+        Assert.assertEquals(getIds(index, "file1"), Collections.singleton(1));
+        Assert.assertEquals(getIds(index, "file0"),
+                new HashSet<>(Arrays.asList(0, RECORD_COUNT)));
+        Assert.assertEquals(getIds(index, "/usr/lib/file"), Collections.emptySet());
+    }
+
+    private static Digest getDigest(final int value) {
+        byte[] bytes = new byte[DigestAlgorithm.SHA1.getLengthInBytes()];
+        ByteBuffer.wrap(bytes).putInt(bytes.length - Integer.BYTES, value);
+        return new Digest(DigestAlgorithm.SHA1, bytes);
+    }
+
+    private static Set<Integer> getIds(final DigestRecordIndex index, final Digest digest) {
+        Set<Integer> ids = new HashSet<>();
+        for (int id = index.first(digest); id != DigestRecordIndex.NONE; id = index.next(id)) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static Set<Integer> getIds(final PathRecordIndex index, final String path) {
+        Set<Integer> ids = new HashSet<>();
+        for (int entry = index.first(path); entry != PathRecordIndex.NONE;
+                entry = index.next(entry)) {
+            ids.add(index.recordId(entry));
+        }
+        return ids;
+    }
+}
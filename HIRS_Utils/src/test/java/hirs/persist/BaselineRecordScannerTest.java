@@ -0,0 +1,94 @@
+package hirs.persist;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Tests for the {@link BaselineRecordScanner}.
+ */
+public class BaselineRecordScannerTest {
+
+    private static final int BUCKET_COUNT = 16;
+    private static final int RECORDS_PER_BUCKET = 2000;
+    private static final long TIMEOUT_MS = 10000;
+
+    /**
+     * Tests that the records of every bucket are streamed, including more records than the scan
+     * buffers.
+     */
+    @Test
+    public void testStreamAllBuckets() {
+        List<Integer> records;
+        try (Stream<Integer> stream = BaselineRecordScanner.stream(BUCKET_COUNT,
+                (bucket, sink) -> {
+                    for (int i = 0; i < RECORDS_PER_BUCKET; i++) {
+                        sink.accept(bucket * RECORDS_PER_BUCKET + i);
+                    }
+                })) {
+            records = stream.collect(Collectors.toList());
+        }
+
+        Assert.assertEquals(records.size(), BUCKET_COUNT * RECORDS_PER_BUCKET);
+        Set<Integer> expected = IntStream.range(0, BUCKET_COUNT * RECORDS_PER_BUCKET)
+                .boxed().collect(Collectors.toSet());
+        Assert.assertEquals(new HashSet<>(records), expected);
+    }
+
+    /**
+     * Tests that a scan of empty buckets is empty.
+     */
+    @Test
+    public void testStreamEmptyBuckets() {
+        try (Stream<Integer> stream = BaselineRecordScanner.stream(BUCKET_COUNT,
+                (bucket, sink) -> { })) {
+            Assert.assertEquals(stream.count(), 0);
+        }
+    }
+
+    /**
+     * Tests that a failure to read a bucket is thrown to the consumer of the stream.
+     */
+    @Test(expectedExceptions = DBManagerException.class)
+    public void testReaderFailure() {
+        try (Stream<Integer> stream = BaselineRecordScanner.stream(BUCKET_COUNT,
+                (bucket, sink) -> {
+                    sink.accept(bucket);
+                    if (bucket == 1) {
+                        throw new IllegalStateException("cannot read bucket");
+                    }
+                })) {
+            stream.count();
+        }
+    }
+
+    /**
+     * Tests that closing a stream that is not consumed to its end stops its readers, which are
+     * waiting for the consumer, so that later scans get the shared workers.
+     */
+    @Test(timeOut = TIMEOUT_MS)
+    public void testCloseStopsReaders() {
+        try (Stream<Integer> stream = BaselineRecordScanner.stream(BUCKET_COUNT,
+                (bucket, sink) -> {
+                    for (int i = 0; i < RECORDS_PER_BUCKET; i++) {
+                        sink.accept(i);
+                    }
+                })) {
+            Iterator<Integer> records = stream.iterator();
+            Assert.assertTrue(records.hasNext());
+            records.next();
+        }
+
+        try (Stream<Integer> stream = BaselineRecordScanner.stream(1,
+                (bucket, sink) -> sink.accept(bucket))) {
+            Assert.assertEquals(stream.count(), 1);
+        }
+    }
+}
@@ -13,9 +13,27 @@ import hirs.data.persist.certificate.IssuedAttestationCertificate;
 import hirs.data.persist.certificate.PlatformCredential;
 import hirs.data.persist.certificate.PlatformCredentialTest;
 
+import hirs.utils.Callback;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.RSAPublicKey;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.DefaultSignatureAlgorithmIdentifierFinder;
+import org.hibernate.Criteria;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.AfterMethod;
@@ -24,18 +42,27 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.math.BigInteger;
 import java.security.KeyStoreException;
+import java.security.SecureRandom;
 import java.security.cert.CertificateException;
+import java.security.spec.RSAKeyGenParameterSpec;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static hirs.data.persist.certificate.CertificateTest.ISSUED_CLIENT_CERT;
 
@@ -44,6 +71,7 @@ import static hirs.data.persist.certificate.CertificateTest.ISSUED_CLIENT_CERT;
  */
 public class DBCertificateManagerTest extends SpringPersistenceTest {
     private static final Logger LOGGER = LogManager.getLogger(DBCertificateManagerTest.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     private Certificate rootCert;
     private Certificate intelIntermediateCert;
@@ -160,7 +188,7 @@ public class DBCertificateManagerTest extends SpringPersistenceTest {
         Session session = sessionFactory.getCurrentSession();
         session.beginTransaction();
         final Class<?>[] clazzes =
-                {Certificate.class, Device.class, DeviceGroup.class};
+                {Certificate.class, ContentBlob.class, Device.class, DeviceGroup.class};
         for (Class<?> clazz : clazzes) {
             final List<?> objects = session.createCriteria(clazz).list();
             for (Object o : objects) {
@@ -418,6 +446,44 @@ public class DBCertificateManagerTest extends SpringPersistenceTest {
         }
     }
 
+    /**
+     * Tests that the summaries of the certificates of devices are retrieved.
+     *
+     * @throws IOException if there is a problem creating the certificate
+     */
+    @Test
+    public void testGetCertificateSummariesByDeviceIds() throws IOException {
+        CertificateManager certMan = new DBCertificateManager(sessionFactory);
+        DeviceManager deviceManager = new DBDeviceManager(sessionFactory);
+        DeviceGroupManager deviceGroupManager = new DBDeviceGroupManager(sessionFactory);
+
+        Device device = new Device("test_device");
+        device.setDeviceGroup(deviceGroupManager.saveDeviceGroup(new DeviceGroup("Default")));
+        Device savedDevice = deviceManager.saveDevice(device);
+
+        EndorsementCredential endorsementCredential =
+                (EndorsementCredential) testCertificates.get(EndorsementCredential.class);
+        endorsementCredential.setDevice(savedDevice);
+        saveTestCertsToDb(certMan);
+
+        List<CertificateSummary> summaries = certMan.getCertificateSummariesByDeviceIds(
+                Arrays.asList(savedDevice.getId(), UUID.randomUUID()));
+        Assert.assertEquals(summaries.size(), 1);
+        CertificateSummary summary = summaries.get(0);
+        Assert.assertEquals(summary.getId(), endorsementCredential.getId());
+        Assert.assertEquals(summary.getCertificateType(), "EndorsementCredential");
+        Assert.assertEquals(summary.getSubject(), endorsementCredential.getSubject());
+        Assert.assertEquals(summary.getSerialNumber(), endorsementCredential.getSerialNumber());
+        Assert.assertEquals(summary.getBeginValidity().getTime(),
+                endorsementCredential.getBeginValidity().getTime());
+        Assert.assertEquals(summary.getEndValidity().getTime(),
+                endorsementCredential.getEndValidity().getTime());
+        Assert.assertEquals(summary.getDeviceId(), savedDevice.getId());
+
+        Assert.assertTrue(certMan.getCertificateSummariesByDeviceIds(
+                Collections.<UUID>emptyList()).isEmpty());
+    }
+
     /**
      * Tests that an Endorsement Credential can be retrieved by its deviceId.
      * @throws IOException if there is a problem creating the certificate
@@ -527,6 +593,113 @@ public class DBCertificateManagerTest extends SpringPersistenceTest {
         Assert.assertEquals(retrievedCerts, Collections.singleton(savedIntelIntermediateCert));
     }
 
+    /**
+     * Tests that the bytes of certificates are stored once per content in the blob store, loaded
+     * when first needed, and removed along with the last certificate referencing them.
+     *
+     * @throws IOException if there is a problem creating the certificate
+     */
+    @Test
+    public void testContentBlobs() throws IOException {
+        CertificateManager certMan = new DBCertificateManager(sessionFactory);
+        Certificate caCert = CertificateTest.getTestCertificate(
+                CertificateAuthorityCredential.class, CertificateTest.FAKE_ROOT_CA_FILE);
+        Certificate conformanceCert = CertificateTest.getTestCertificate(
+                ConformanceCredential.class, CertificateTest.FAKE_ROOT_CA_FILE);
+        String digest = caCert.getContentDigest();
+        Assert.assertEquals(conformanceCert.getContentDigest(), digest);
+
+        certMan.save(caCert);
+        certMan.save(conformanceCert);
+        Assert.assertEquals(blobCount(digest), 1);
+
+        CertificateAuthorityCredential retrieved =
+                CertificateAuthorityCredential.select(certMan).getCertificate();
+        Assert.assertEquals(retrieved, caCert);
+        Assert.assertEquals(retrieved.hashCode(), caCert.hashCode());
+        Assert.assertEquals(retrieved.getRawBytes(), caCert.getRawBytes());
+        Assert.assertEquals(retrieved.getX509Certificate(), caCert.getX509Certificate());
+
+        certMan.delete(retrieved);
+        Assert.assertEquals(blobCount(digest), 1);
+        Assert.assertEquals(ConformanceCredential.select(certMan).getCertificate().getRawBytes(),
+                caCert.getRawBytes());
+
+        certMan.delete(conformanceCert);
+        Assert.assertEquals(blobCount(digest), 0);
+    }
+
+    /**
+     * Tests that inserting a blob that another transaction has already stored, as when the same
+     * content is saved concurrently, leaves the stored blob and the transaction intact.
+     *
+     * @throws IOException if there is a problem creating the certificate
+     */
+    @Test
+    public void testInsertContentBlobStoredConcurrently() throws IOException {
+        CertificateManager certMan = new DBCertificateManager(sessionFactory);
+        Certificate caCert = CertificateTest.getTestCertificate(
+                CertificateAuthorityCredential.class, CertificateTest.FAKE_ROOT_CA_FILE);
+        certMan.save(caCert);
+        String digest = caCert.getContentDigest();
+        byte[] otherContent = "other content".getBytes(StandardCharsets.UTF_8);
+        String otherDigest = ContentBlobStore.digest(otherContent);
+
+        Session session = sessionFactory.getCurrentSession();
+        session.beginTransaction();
+        ContentBlobStore.insertIfAbsent(session, digest, caCert.getRawBytes());
+        ContentBlobStore.insertIfAbsent(session, otherDigest, otherContent);
+        session.getTransaction().commit();
+
+        Assert.assertEquals(blobCount(digest), 1);
+        Assert.assertEquals(blobCount(otherDigest), 1);
+        Assert.assertEquals(ContentBlobStore.load(digest), caCert.getRawBytes());
+        Assert.assertEquals(ContentBlobStore.load(otherDigest), otherContent);
+    }
+
+    private long blobCount(final String digest) {
+        Session session = sessionFactory.getCurrentSession();
+        session.beginTransaction();
+        long count = (Long) session.createCriteria(ContentBlob.class)
+                .add(Restrictions.idEq(digest))
+                .setProjection(Projections.rowCount())
+                .uniqueResult();
+        session.getTransaction().commit();
+        return count;
+    }
+
+    /**
+     * Tests that the endorsement credentials of many serial numbers are resolved at once, and
+     * that serial numbers without an unarchived endorsement credential are left out.
+     *
+     * @throws IOException if there is a problem creating the certificate
+     */
+    @Test
+    public void testGetEndorsementCredentialsBySerialNumber() throws IOException {
+        CertificateManager certMan = new DBCertificateManager(sessionFactory);
+        saveTestCertsToDb(certMan);
+        Certificate savedStmEkCert = certMan.save(stmEkCert);
+        Certificate savedSelfSignedCert = certMan.save(anotherSelfSignedCert);
+        EndorsementCredential testEc =
+                (EndorsementCredential) testCertificates.get(EndorsementCredential.class);
+
+        Map<BigInteger, EndorsementCredential> ecs =
+                certMan.getEndorsementCredentialsBySerialNumber(Arrays.asList(
+                        savedStmEkCert.getSerialNumber(), testEc.getSerialNumber(),
+                        savedSelfSignedCert.getSerialNumber(), BigInteger.valueOf(12345), null,
+                        testEc.getSerialNumber()));
+        Assert.assertEquals(ecs.size(), 2);
+        Assert.assertEquals(ecs.get(savedStmEkCert.getSerialNumber()), savedStmEkCert);
+        Assert.assertEquals(ecs.get(testEc.getSerialNumber()), testEc);
+
+        savedStmEkCert.archive();
+        certMan.update(savedStmEkCert);
+        Assert.assertEquals(certMan.getEndorsementCredentialsBySerialNumber(
+                Collections.singleton(savedStmEkCert.getSerialNumber())), Collections.emptyMap());
+        Assert.assertTrue(certMan.getEndorsementCredentialsBySerialNumber(
+                Collections.<BigInteger>emptyList()).isEmpty());
+    }
+
     /**
      * Tests that a single Certificate can be retrieved amongst many stored Certificates according
      * to its type and encoded public key.
@@ -574,6 +747,58 @@ public class DBCertificateManagerTest extends SpringPersistenceTest {
         Assert.assertEquals(retrievedCerts, Collections.singleton(savedIntelIntermediateCert));
     }
 
+    /**
+     * Tests that certificates persisted without the digests of their public key and public key
+     * modulus get them set before they are first selected, so that they are found by public key
+     * and by modulus.
+     *
+     * @throws IOException if there is a problem creating the certificate
+     */
+    @Test
+    public void testGetByPublicKeyWithoutLookupDigests() throws IOException {
+        Certificate savedIntelIntermediateCert =
+                new DBCertificateManager(sessionFactory).save(intelIntermediateCert);
+
+        Session session = sessionFactory.getCurrentSession();
+        session.beginTransaction();
+        session.createQuery("update Certificate set encodedPublicKeyDigest = null, "
+                + "publicKeyModulusDigest = null").executeUpdate();
+        session.getTransaction().commit();
+
+        CertificateManager certMan = new DBCertificateManager(sessionFactory);
+        Assert.assertEquals(
+                CertificateAuthorityCredential.select(certMan)
+                        .byEncodedPublicKey(savedIntelIntermediateCert.getEncodedPublicKey())
+                        .getCertificates(),
+                Collections.singleton(savedIntelIntermediateCert));
+        Assert.assertEquals(
+                CertificateAuthorityCredential.select(certMan)
+                        .byPublicKeyModulus(Certificate.getPublicKeyModulus(
+                                savedIntelIntermediateCert.getX509Certificate()))
+                        .getCertificates(),
+                Collections.singleton(savedIntelIntermediateCert));
+    }
+
+    /**
+     * Tests that the columns that certificates are selected by are indexed.
+     */
+    @Test
+    public void testLookupColumnsAreIndexed() {
+        Session session = sessionFactory.getCurrentSession();
+        session.beginTransaction();
+        List<?> indexNames = session.createSQLQuery("select index_name from "
+                + "information_schema.system_indexinfo where table_name = 'CERTIFICATE'").list();
+        session.getTransaction().commit();
+
+        for (String indexName : Arrays.asList("CERTIFICATE_SERIAL_NUMBER",
+                "CERTIFICATE_HOLDER_SERIAL_NUMBER", "CERTIFICATE_HASH",
+                "CERTIFICATE_SUBJECT_SORTED", "CERTIFICATE_MODULUS_DIGEST",
+                "CERTIFICATE_PUBLIC_KEY_DIGEST", "CERTIFICATE_SUBJECT_KEY_ID",
+                "CERTIFICATE_PLATFORM_SERIAL")) {
+            Assert.assertTrue(indexNames.contains(indexName), indexName);
+        }
+    }
+
     /**
      * Tests that a single certificate can be retrieved amongst many other stored certificates, only
      * according to its type.
@@ -802,6 +1027,60 @@ public class DBCertificateManagerTest extends SpringPersistenceTest {
         certMan.save(rootCert);
     }
 
+    /**
+     * Tests that the stamp of a certificate type changes when a certificate of that type is
+     * stored or archived, and does not change when a certificate of another type is stored.
+     *
+     * @throws IOException if there is a problem creating the certificate
+     */
+    @Test
+    public void testGetStamp() throws IOException {
+        CertificateManager certMan = new DBCertificateManager(sessionFactory);
+        CertificateStamp empty = certMan.getStamp(CertificateAuthorityCredential.class);
+        Assert.assertEquals(empty.getUnarchivedCount(), 0);
+
+        Certificate savedRootCert = certMan.save(rootCert);
+        CertificateStamp stored = certMan.getStamp(CertificateAuthorityCredential.class);
+        Assert.assertEquals(stored.getUnarchivedCount(), 1);
+        Assert.assertNotEquals(stored, empty);
+
+        certMan.save(stmEkCert);
+        Assert.assertEquals(certMan.getStamp(CertificateAuthorityCredential.class), stored);
+
+        savedRootCert.archive();
+        certMan.update(savedRootCert);
+        CertificateStamp archived = certMan.getStamp(CertificateAuthorityCredential.class);
+        Assert.assertEquals(archived.getUnarchivedCount(), 0);
+        Assert.assertNotEquals(archived, stored);
+        Assert.assertNotEquals(archived, empty);
+    }
+
+    /**
+     * Tests that saving a certificate whose content was stored concurrently, after it was looked
+     * up, returns the stored certificate instead of failing on the content digest constraint.
+     *
+     * @throws IOException if there is a problem creating the certificate
+     */
+    @Test
+    public void testSaveOrGetExistingStoredConcurrently() throws IOException {
+        CertificateManager certMan = new DBCertificateManager(sessionFactory);
+        Certificate stored = certMan.save(CertificateTest.getTestCertificate(
+                CertificateAuthorityCredential.class, CertificateTest.FAKE_ROOT_CA_FILE));
+
+        Certificate duplicate = CertificateTest.getTestCertificate(
+                CertificateAuthorityCredential.class, CertificateTest.FAKE_ROOT_CA_FILE);
+        Certificate saved = certMan.saveOrGetExisting(duplicate);
+
+        Assert.assertEquals(saved.getId(), stored.getId());
+        Assert.assertEquals(
+                CertificateAuthorityCredential.select(certMan).getCertificates().size(), 1);
+
+        Certificate otherClass = certMan.saveOrGetExisting(CertificateTest.getTestCertificate(
+                EndorsementCredential.class, CertificateTest.FAKE_ROOT_CA_FILE));
+        Assert.assertNotEquals(otherClass.getId(), stored.getId());
+        Assert.assertTrue(otherClass instanceof EndorsementCredential);
+    }
+
     /**
      * Tests that a certificate can be stored twice under different roles in the database.
      * @throws IOException if there is a problem creating the certificate
@@ -839,6 +1118,213 @@ public class DBCertificateManagerTest extends SpringPersistenceTest {
         );
     }
 
+    /**
+     * Tests that certificates are selected by the digest of their bytes and type, that content
+     * known to be stored is then found through the {@link ContentDigestCache}, and that a
+     * deleted certificate is no longer found.
+     * @throws IOException if there is a problem creating the certificate
+     */
+    @Test
+    public void testGetByContentDigest() throws IOException {
+        CertificateManager certMan = new DBCertificateManager(sessionFactory);
+        Certificate caCert = certMan.save(CertificateTest.getTestCertificate(
+                CertificateAuthorityCredential.class, CertificateTest.FAKE_ROOT_CA_FILE
+        ));
+        Certificate ecCert = certMan.save(CertificateTest.getTestCertificate(
+                EndorsementCredential.class, CertificateTest.FAKE_ROOT_CA_FILE
+        ));
+        Assert.assertEquals(caCert.getContentDigest(), ecCert.getContentDigest());
+
+        Assert.assertEquals(
+                CertificateAuthorityCredential.select(certMan).includeArchived()
+                        .byContentDigest(caCert.getContentDigest()).getCertificate(),
+                caCert);
+        long hits = ContentDigestCache.getInstance().stats().hitCount();
+        Assert.assertEquals(
+                CertificateAuthorityCredential.select(certMan).includeArchived()
+                        .byContentDigest(caCert.getContentDigest()).getCertificate(),
+                caCert);
+        Assert.assertEquals(ContentDigestCache.getInstance().stats().hitCount(), hits + 1);
+        Assert.assertEquals(
+                EndorsementCredential.select(certMan)
+                        .byContentDigest(ecCert.getContentDigest()).getCertificate(),
+                ecCert);
+
+        certMan.delete(ecCert);
+        Assert.assertNull(EndorsementCredential.select(certMan)
+                .byContentDigest(ecCert.getContentDigest()).getCertificate());
+        Assert.assertNotNull(CertificateAuthorityCredential.select(certMan)
+                .byContentDigest(caCert.getContentDigest()).getCertificate());
+    }
+
+    /**
+     * Tests that certificates saved together with saveAll are stored, along with their content,
+     * and are found together by their content digests.
+     * @throws IOException if there is a problem creating the certificates
+     */
+    @Test
+    public void testSaveAllAndGetByContentDigests() throws IOException {
+        CertificateManager certMan = new DBCertificateManager(sessionFactory);
+        List<Certificate> certificates = certMan.saveAll(Arrays.asList(
+                CertificateTest.getTestCertificate(
+                        CertificateAuthorityCredential.class, CertificateTest.FAKE_ROOT_CA_FILE),
+                CertificateTest.getTestCertificate(
+                        CertificateAuthorityCredential.class,
+                        CertificateTest.FAKE_INTEL_INT_CA_FILE),
+                CertificateTest.getTestCertificate(
+                        CertificateAuthorityCredential.class,
+                        CertificateTest.FAKE_SGI_INT_CA_FILE)
+        ));
+        Assert.assertEquals(certificates.size(), 3);
+
+        Set<CertificateAuthorityCredential> retrieved = CertificateAuthorityCredential
+                .select(certMan)
+                .byContentDigests(Arrays.asList(
+                        certificates.get(0).getContentDigest(),
+                        certificates.get(2).getContentDigest()))
+                .getCertificates();
+        Assert.assertEquals(retrieved, new HashSet<>(Arrays.asList(
+                certificates.get(0), certificates.get(2))));
+        for (CertificateAuthorityCredential certificate : retrieved) {
+            Assert.assertNotNull(certificate.getX509Certificate());
+        }
+    }
+
+    /**
+     * Tests that certificates saved together with saveAll share the content blobs that are
+     * already stored, and store a single blob for the content they share with each other.
+     * @throws IOException if there is a problem creating the certificates
+     */
+    @Test
+    public void testSaveAllSharedContent() throws IOException {
+        CertificateManager certMan = new DBCertificateManager(sessionFactory);
+        certMan.save(CertificateTest.getTestCertificate(
+                EndorsementCredential.class, CertificateTest.FAKE_ROOT_CA_FILE));
+
+        List<Certificate> certificates = certMan.saveAll(Arrays.asList(
+                CertificateTest.getTestCertificate(
+                        CertificateAuthorityCredential.class, CertificateTest.FAKE_ROOT_CA_FILE),
+                CertificateTest.getTestCertificate(
+                        CertificateAuthorityCredential.class,
+                        CertificateTest.FAKE_INTEL_INT_CA_FILE),
+                CertificateTest.getTestCertificate(
+                        EndorsementCredential.class, CertificateTest.FAKE_INTEL_INT_CA_FILE)
+        ));
+        Assert.assertEquals(certificates.size(), 3);
+
+        Session session = sessionFactory.getCurrentSession();
+        session.beginTransaction();
+        long blobs = (Long) session.createCriteria(ContentBlob.class)
+                .setProjection(Projections.rowCount()).uniqueResult();
+        session.getTransaction().commit();
+        Assert.assertEquals(blobs, 2);
+
+        for (Certificate certificate : CertificateAuthorityCredential.select(certMan)
+                .getCertificates()) {
+            Assert.assertNotNull(certificate.getX509Certificate());
+        }
+    }
+
+    /**
+     * Tests that streamProjectedList streams the requested properties of the certificates
+     * selected by the criteria modifier, and that their contents are then loaded together.
+     * @throws IOException if there is a problem creating the certificates
+     */
+    @Test
+    public void testStreamProjectedList() throws IOException {
+        CertificateManager certMan = new DBCertificateManager(sessionFactory);
+        Certificate savedRootCert = certMan.save(CertificateTest.getTestCertificate(
+                CertificateAuthorityCredential.class, CertificateTest.FAKE_ROOT_CA_FILE));
+        Certificate intelCert = certMan.save(CertificateTest.getTestCertificate(
+                CertificateAuthorityCredential.class, CertificateTest.FAKE_INTEL_INT_CA_FILE));
+        certMan.save(CertificateTest.getTestCertificate(
+                EndorsementCredential.class, CertificateTest.FAKE_SGI_INT_CA_FILE));
+        Certificate archivedCert = certMan.save(CertificateTest.getTestCertificate(
+                CertificateAuthorityCredential.class, CertificateTest.FAKE_SGI_INT_CA_FILE));
+        archivedCert.archive();
+        certMan.update(archivedCert);
+
+        final Map<String, String> digests = new HashMap<>();
+        long count = new DBCertificateManager(sessionFactory).streamProjectedList(
+                CertificateAuthorityCredential.class,
+                new CriteriaModifier() {
+                    @Override
+                    public void modify(final Criteria criteria) {
+                        criteria.add(Restrictions.isNull(Certificate.ARCHIVE_FIELD));
+                    }
+                },
+                Collections.singletonList(Certificate.CONTENT_DIGEST_FIELD),
+                new Callback<Map<String, Object>, Void>() {
+                    @Override
+                    public Void call(final Map<String, Object> record) {
+                        digests.put(record.get("id").toString(),
+                                (String) record.get(Certificate.CONTENT_DIGEST_FIELD));
+                        return null;
+                    }
+                });
+
+        Assert.assertEquals(count, 2);
+        Assert.assertEquals(digests.get(savedRootCert.getId().toString()),
+                savedRootCert.getContentDigest());
+        Assert.assertEquals(digests.get(intelCert.getId().toString()),
+                intelCert.getContentDigest());
+
+        Map<String, byte[]> contents = ContentBlobStore.loadAll(digests.values());
+        Assert.assertEquals(contents.get(savedRootCert.getContentDigest()),
+                savedRootCert.getRawBytes());
+        Assert.assertEquals(contents.get(intelCert.getContentDigest()), intelCert.getRawBytes());
+    }
+
+    /**
+     * Tests that a query streamProjectedList cannot run fails with a DBManagerException.
+     */
+    @Test(expectedExceptions = DBManagerException.class)
+    public void testStreamProjectedListInvalidProperty() {
+        new DBCertificateManager(sessionFactory).streamProjectedList(
+                CertificateAuthorityCredential.class, null,
+                Collections.singletonList("noSuchProperty"),
+                new Callback<Map<String, Object>, Void>() {
+                    @Override
+                    public Void call(final Map<String, Object> record) {
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Tests that an UncheckedIOException thrown by the callback of streamProjectedList is
+     * rethrown as is, and that the certificates can still be streamed afterwards.
+     * @throws IOException if there is a problem creating the certificate
+     */
+    @Test
+    public void testStreamProjectedListCallbackFailure() throws IOException {
+        DBCertificateManager certMan = new DBCertificateManager(sessionFactory);
+        certMan.save(CertificateTest.getTestCertificate(
+                CertificateAuthorityCredential.class, CertificateTest.FAKE_ROOT_CA_FILE));
+        List<String> properties = Collections.singletonList(Certificate.CONTENT_DIGEST_FIELD);
+
+        try {
+            certMan.streamProjectedList(CertificateAuthorityCredential.class, null, properties,
+                    new Callback<Map<String, Object>, Void>() {
+                        @Override
+                        public Void call(final Map<String, Object> record) {
+                            throw new UncheckedIOException(new IOException("closed"));
+                        }
+                    });
+            Assert.fail("the exception of the callback was not rethrown");
+        } catch (UncheckedIOException e) {
+            Assert.assertEquals(e.getCause().getMessage(), "closed");
+        }
+
+        Assert.assertEquals(certMan.streamProjectedList(CertificateAuthorityCredential.class,
+                null, properties, new Callback<Map<String, Object>, Void>() {
+                    @Override
+                    public Void call(final Map<String, Object> record) {
+                        return null;
+                    }
+                }), 1);
+    }
+
     /**
      * Tests that a certificate can be deleted from the database.
      *
@@ -876,4 +1362,152 @@ public class DBCertificateManagerTest extends SpringPersistenceTest {
                 .getCertificate();
         Assert.assertEquals(retrievedSGICert, sgiIntermediateCert);
     }
+
+    /**
+     * Tests the latency of the certificate lookups of the supply chain validation as the
+     * certificate table grows. The table is filled with CA credentials with distinct subject key
+     * identifiers and public key moduli until it holds 10^minMagnitude, ..., 10^maxMagnitude
+     * certificates, and at each size the lookups by subject key identifier, by public key modulus
+     * (the EC lookup of the ACA) and by holder serial number are timed. The lookups use indexed
+     * columns, so their latency must grow slower than the square root of the table size. The
+     * filler credentials are inserted without their content blobs and search tokens, which
+     * would not fit in the in-memory test database; a million of them still need about 4 GB of
+     * heap.
+     *
+     * @throws Exception if the certificates cannot be created
+     */
+    @Test(groups = { "performance" })
+    public void testLookupPerformance() throws Exception {
+        final DBCertificateManager certMan = new DBCertificateManager(sessionFactory);
+        final int minMagnitude = 3;
+        final int maxMagnitude = 6;
+        final int lookupCount = 100;
+
+        final EndorsementCredential ec = (EndorsementCredential) certMan.save(stmEkCert);
+        final PlatformCredential platformCredential =
+                (PlatformCredential) certMan.save(intelPlatformCert);
+        final CertificateAuthorityCredential ca =
+                (CertificateAuthorityCredential) certMan.save(createCaCredential(0));
+        final BigInteger modulus = new BigInteger(ec.getPublicKeyModulusHexValue(), 16);
+
+        Map<String, Runnable> lookups = new LinkedHashMap<>();
+        lookups.put("subject key identifier", () -> Assert.assertEquals(
+                CertificateAuthorityCredential.select(certMan)
+                        .bySubjectKeyIdentifier(ca.getSubjectKeyIdentifier())
+                        .getCertificate(), ca));
+        lookups.put("public key modulus", () -> Assert.assertEquals(
+                EndorsementCredential.select(certMan).byPublicKeyModulus(modulus)
+                        .getCertificate(), ec));
+        lookups.put("holder serial number", () -> Assert.assertEquals(
+                PlatformCredential.select(certMan)
+                        .byHolderSerialNumber(platformCredential.getHolderSerialNumber())
+                        .getCertificate(), platformCredential));
+
+        // the certificate hash is unique per type, and 32 bits collide among a million
+        // certificates, so credentials whose hash is taken are created anew
+        Set<Integer> hashes = new HashSet<>();
+        hashes.add(ca.hashCode());
+
+        try {
+            Map<String, Long> firstNanos = new HashMap<>();
+            Map<String, Long> lastNanos = new HashMap<>();
+            int stored = 3;
+            for (int x = minMagnitude; x < maxMagnitude + 1; x++) {
+                long startTime = System.currentTimeMillis();
+                int n = (int) Math.pow((double) 10, (double) x);
+                StatelessSession session = sessionFactory.openStatelessSession();
+                try {
+                    Transaction tx = session.beginTransaction();
+                    while (stored < n) {
+                        Certificate certificate = createCaCredential(stored);
+                        if (hashes.add(certificate.hashCode())) {
+                            session.insert(certificate);
+                            stored++;
+                        }
+                    }
+                    tx.commit();
+                } finally {
+                    session.close();
+                }
+                LOGGER.info("10^{} setup took {} milliseconds", x,
+                        System.currentTimeMillis() - startTime);
+
+                for (Map.Entry<String, Runnable> lookup : lookups.entrySet()) {
+                    // the first lookup warms up the query
+                    lookup.getValue().run();
+                    long start = System.nanoTime();
+                    for (int i = 0; i < lookupCount; i++) {
+                        lookup.getValue().run();
+                    }
+                    long nanos = System.nanoTime() - start;
+                    LOGGER.info("10^{} lookup by {} took {} microseconds", x, lookup.getKey(),
+                            nanos / lookupCount / 1000);
+                    firstNanos.putIfAbsent(lookup.getKey(), nanos);
+                    lastNanos.put(lookup.getKey(), nanos);
+                }
+            }
+
+            // a lookup that scans the table would grow about as fast as the table
+            double rowGrowth = Math.pow((double) 10, (double) (maxMagnitude - minMagnitude));
+            for (String lookup : lookups.keySet()) {
+                double latencyGrowth = (double) lastNanos.get(lookup) / firstNanos.get(lookup);
+                LOGGER.info("lookup by {} grew {} times for {} times the certificates", lookup,
+                        latencyGrowth, rowGrowth);
+                Assert.assertTrue(latencyGrowth < Math.sqrt(rowGrowth),
+                        "lookup by " + lookup + " grew " + latencyGrowth + " times");
+            }
+        } finally {
+            // much faster than the deletion of every certificate after each test
+            Session session = sessionFactory.getCurrentSession();
+            session.beginTransaction();
+            session.createQuery("delete from Certificate").executeUpdate();
+            session.createQuery("delete from ContentBlob").executeUpdate();
+            session.getTransaction().commit();
+        }
+    }
+
+    /**
+     * Creates a CA credential of its own subject, subject key identifier and public key modulus.
+     * The modulus is random and the certificate is not signed, which is enough to store and look
+     * up the credential.
+     *
+     * @param index the index of the credential, distinguishing it from the other credentials
+     * @return the credential
+     * @throws IOException if the certificate cannot be encoded
+     */
+    private static CertificateAuthorityCredential createCaCredential(final int index)
+            throws IOException {
+        final int modulusBits = 512;
+        final int signatureLength = 64;
+        BigInteger modulus = new BigInteger(modulusBits, RANDOM)
+                .setBit(modulusBits - 1).setBit(0);
+        SubjectPublicKeyInfo publicKey = new SubjectPublicKeyInfo(
+                new AlgorithmIdentifier(PKCSObjectIdentifiers.rsaEncryption, DERNull.INSTANCE),
+                new RSAPublicKey(modulus, RSAKeyGenParameterSpec.F4));
+        X500Name subject = new X500Name("CN=Performance CA " + index + ",O=Example");
+        Date notBefore = new Date();
+        Date notAfter = new Date(notBefore.getTime() + TimeUnit.DAYS.toMillis(1));
+        X509v3CertificateBuilder builder = new X509v3CertificateBuilder(subject,
+                BigInteger.valueOf(index + 1), notBefore, notAfter, subject, publicKey);
+        builder.addExtension(Extension.subjectKeyIdentifier, false,
+                new SubjectKeyIdentifier(ByteBuffer.allocate(Integer.BYTES).putInt(index)
+                        .array()));
+        ContentSigner unsigned = new ContentSigner() {
+            @Override
+            public AlgorithmIdentifier getAlgorithmIdentifier() {
+                return new DefaultSignatureAlgorithmIdentifierFinder().find("SHA256withRSA");
+            }
+
+            @Override
+            public OutputStream getOutputStream() {
+                return new NullOutputStream();
+            }
+
+            @Override
+            public byte[] getSignature() {
+                return new byte[signatureLength];
+            }
+        };
+        return new CertificateAuthorityCredential(builder.build(unsigned).getEncoded());
+    }
 }
@@ -1,13 +1,17 @@
 package hirs.persist;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+import hirs.FilteredRecordsList;
 import hirs.data.persist.Device;
 import hirs.data.persist.DeviceGroup;
 import hirs.data.persist.DeviceInfoReport;
@@ -17,6 +21,7 @@ import hirs.data.persist.info.NetworkInfo;
 import hirs.data.persist.SpringPersistenceTest;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hibernate.Criteria;
 
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -425,6 +430,96 @@ public final class DBDeviceManagerTest extends SpringPersistenceTest {
         Assert.assertEquals(devices, devicesList);
     }
 
+    /**
+     * Tests that following the cursors returned by keyset pagination visits every device once,
+     * in order, including devices that share the same sort value.
+     *
+     * @throws Exception
+     *              if any unexpected errors occur in saving a Device
+     */
+    @Test
+    public void testGetOrderedListAfter() throws Exception {
+        final DeviceManager mgr = new DBDeviceManager(sessionFactory);
+        final String[] names = {"Device1", "Device2", "Device3", "Device4", "Device5"};
+        final DeviceGroup group = createGroup(DeviceGroup.DEFAULT_GROUP);
+        for (String name : names) {
+            final Device device = DeviceTest.getTestDevice(name);
+            device.setDeviceGroup(group);
+            mgr.saveDevice(device);
+        }
+        final CriteriaModifier noOp = new CriteriaModifier() {
+            @Override
+            public void modify(final Criteria criteria) {
+            }
+        };
+
+        for (String column : new String[] {"name", "healthStatus"}) {
+            final List<String> pagedNames = new ArrayList<>();
+            OrderedListCursor cursor = null;
+            do {
+                FilteredRecordsList<Device> page = mgr.getOrderedListAfter(Device.class,
+                        column, false, cursor, 2, "", null, noOp);
+                Assert.assertEquals(page.getRecordsTotal(), names.length);
+                Assert.assertEquals(page.getRecordsFiltered(), names.length);
+                for (Device device : page) {
+                    pagedNames.add(device.getName());
+                }
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+
+            Assert.assertEquals(pagedNames.size(), names.length);
+            Assert.assertEquals(new HashSet<>(pagedNames).size(), names.length);
+            if (column.equals("name")) {
+                for (int i = 0; i < names.length; i++) {
+                    Assert.assertEquals(pagedNames.get(i), names[names.length - 1 - i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that a page of devices can be retrieved with only the given properties, including
+     * the properties of the device group, by offset and by cursor.
+     *
+     * @throws Exception
+     *              if any unexpected errors occur in saving a Device
+     */
+    @Test
+    public void testGetProjectedList() throws Exception {
+        final DeviceManager mgr = new DBDeviceManager(sessionFactory);
+        final String[] names = {"Device1", "Device2", "Device3", "Device4", "Device5"};
+        final DeviceGroup group = createGroup(DeviceGroup.DEFAULT_GROUP);
+        for (String name : names) {
+            final Device device = DeviceTest.getTestDevice(name);
+            device.setDeviceGroup(group);
+            mgr.saveDevice(device);
+        }
+        final CriteriaModifier noOp = new CriteriaModifier() {
+            @Override
+            public void modify(final Criteria criteria) {
+            }
+        };
+        final List<String> properties = Arrays.asList("name", "deviceGroup.name");
+
+        FilteredRecordsList<Map<String, Object>> page = mgr.getProjectedList(Device.class,
+                "name", true, null, 1, 2, "", null, noOp, properties);
+        Assert.assertEquals(page.getRecordsTotal(), names.length);
+        Assert.assertEquals(page.size(), 2);
+        Assert.assertEquals(page.get(0).keySet(),
+                new HashSet<>(Arrays.asList("id", "name", "deviceGroup")));
+        Assert.assertEquals(page.get(0).get("id"), mgr.getDevice("Device2").getId());
+        Assert.assertEquals(page.get(0).get("name"), "Device2");
+        Assert.assertEquals(page.get(1).get("name"), "Device3");
+        Assert.assertEquals(page.get(0).get("deviceGroup"),
+                Collections.singletonMap("name", DeviceGroup.DEFAULT_GROUP));
+
+        page = mgr.getProjectedList(Device.class, "name", true, page.getNextCursor(), 0, 2, "",
+                null, noOp, properties);
+        Assert.assertEquals(page.size(), 2);
+        Assert.assertEquals(page.get(0).get("name"), "Device4");
+        Assert.assertEquals(page.get(1).get("name"), "Device5");
+    }
+
     private DeviceGroup createGroup(final String name) throws Exception {
         DeviceGroup group = new DeviceGroup(name);
         final DeviceGroupManager groupManager = new DBDeviceGroupManager(sessionFactory);
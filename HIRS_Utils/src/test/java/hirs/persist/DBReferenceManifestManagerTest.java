@@ -0,0 +1,100 @@
+package hirs.persist;
+
+import hirs.data.persist.BaseReferenceManifest;
+import hirs.data.persist.ReferenceManifest;
+import hirs.data.persist.SpringPersistenceTest;
+import hirs.data.persist.SwidResource;
+import hirs.data.persist.SwidResourceEntry;
+import org.apache.commons.io.IOUtils;
+import org.hibernate.Session;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests the storage and retrieval of {@link ReferenceManifest}s by {@link DBReferenceManifestManager}.
+ */
+public class DBReferenceManifestManagerTest extends SpringPersistenceTest {
+    private static final String BASE_RIM = "/rims/generated_with_cert.swidtag";
+    private static final String RESOURCE_NAME = "Example.com.BIOS.01.rimel";
+
+    private byte[] baseRimBytes;
+
+    /**
+     * Reads the test swidtag.
+     *
+     * @throws IOException if the swidtag can not be read
+     */
+    @BeforeClass
+    public void setup() throws IOException {
+        try (InputStream is = this.getClass().getResourceAsStream(BASE_RIM)) {
+            baseRimBytes = IOUtils.toByteArray(is);
+        }
+    }
+
+    /**
+     * Removes the reference manifests stored by the tests.
+     */
+    @AfterMethod
+    public void resetTestState() {
+        Session session = sessionFactory.getCurrentSession();
+        session.beginTransaction();
+        for (Object o : session.createCriteria(ReferenceManifest.class).list()) {
+            session.delete(o);
+        }
+        session.getTransaction().commit();
+    }
+
+    /**
+     * Tests that the Payload of a base RIM is indexed when it is parsed.
+     *
+     * @throws IOException if the swidtag can not be parsed
+     */
+    @Test
+    public void testSwidResourceEntries() throws IOException {
+        BaseReferenceManifest rim = new BaseReferenceManifest("base.swidtag", baseRimBytes);
+        List<SwidResourceEntry> entries = rim.getSwidResourceEntries();
+        Assert.assertEquals(entries.size(), rim.parseResource().size());
+        Assert.assertEquals(entries.get(0).getFileName(), RESOURCE_NAME);
+        SwidResource parsed = rim.parseResource().get(0);
+        Assert.assertEquals(entries.get(0).getHashValue(), parsed.getHashValue());
+        Assert.assertEquals(entries.get(0).getRimFormat(), parsed.getRimFormat());
+        Assert.assertEquals(entries.get(0).getRimUriGlobal(), parsed.getRimUriGlobal());
+
+        SwidResource displayed = new SwidResource(entries.get(0));
+        Assert.assertEquals(displayed.getName(), parsed.getName());
+        Assert.assertEquals(displayed.getSize(), parsed.getSize());
+        Assert.assertEquals(displayed.getRimType(), parsed.getRimType());
+        Assert.assertEquals(displayed.getPcrValues(), parsed.getPcrValues());
+    }
+
+    /**
+     * Tests that base RIMs are found by the name of a file listed in their Payload, and that
+     * archived base RIMs are not.
+     *
+     * @throws IOException if the swidtag can not be parsed
+     */
+    @Test
+    public void testGetBaseRimsByResourceName() throws IOException {
+        DBReferenceManifestManager manager = new DBReferenceManifestManager(sessionFactory);
+        BaseReferenceManifest rim = (BaseReferenceManifest) manager.save(
+                new BaseReferenceManifest("base.swidtag", baseRimBytes));
+
+        Set<BaseReferenceManifest> rims = manager.getBaseRimsByResourceName(RESOURCE_NAME);
+        Assert.assertEquals(rims.size(), 1);
+        BaseReferenceManifest found = rims.iterator().next();
+        Assert.assertEquals(found.getId(), rim.getId());
+        Assert.assertEquals(found.getSwidResourceEntries(), rim.getSwidResourceEntries());
+        Assert.assertTrue(manager.getBaseRimsByResourceName("unknown.rimel").isEmpty());
+
+        rim.archive();
+        manager.update(rim);
+        Assert.assertTrue(manager.getBaseRimsByResourceName(RESOURCE_NAME).isEmpty());
+    }
+}
@@ -0,0 +1,169 @@
+package hirs.persist;
+
+import hirs.data.persist.Digest;
+import hirs.data.persist.SimpleImaBaselineTest;
+import hirs.data.persist.baseline.IMABaselineRecord;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Tests for the {@link ImaBaselineSnapshot}.
+ */
+public class ImaBaselineSnapshotTest {
+
+    private static final Digest HASH_1 =
+            SimpleImaBaselineTest.getDigest("33333c2f7f3003d2e4baddc46ed4763a49543333");
+    private static final Digest HASH_2 =
+            SimpleImaBaselineTest.getDigest("44443c2f7f3003d2e4baddc46ed4763a49544444");
+    private static final Digest HASH_3 =
+            SimpleImaBaselineTest.getDigest("00003c2f7f3003d2e4baddc46ed4763a49540000");
+
+    private static final IMABaselineRecord LS = new IMABaselineRecord("/bin/ls", HASH_1);
+    private static final IMABaselineRecord USR_LS = new IMABaselineRecord("/usr/bin/ls", HASH_2);
+    private static final IMABaselineRecord GRADLE = new IMABaselineRecord("/bin/gradle", HASH_1);
+    private static final IMABaselineRecord SPACES =
+            new IMABaselineRecord("/opt/my app/my file", HASH_3);
+
+    private static final int RECORD_COUNT = 5000;
+
+    private Path file;
+
+    /**
+     * Creates the file the snapshots are written to.
+     *
+     * @throws IOException if the file cannot be created
+     */
+    @BeforeMethod
+    public void setup() throws IOException {
+        file = Files.createTempFile("ima-baseline", ".snapshot");
+    }
+
+    /**
+     * Deletes the snapshot file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    @AfterMethod
+    public void teardown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Tests that records are found by their full path, and also by their partial path when
+     * partial paths are matched.
+     *
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    @Test
+    public void testGetRecordsByPath() throws IOException {
+        ImaBaselineSnapshot snapshot = writeAndOpen(Arrays.asList(LS, USR_LS, GRADLE, SPACES));
+        Assert.assertEquals(snapshot.size(), 4);
+
+        Assert.assertEquals(snapshot.getRecordsByPath(Collections.singleton("/bin/ls"), false),
+                Collections.singletonList(LS));
+        Assert.assertEquals(
+                new HashSet<>(snapshot.getRecordsByPath(Arrays.asList("/bin/ls", "ls"), true)),
+                new HashSet<>(Arrays.asList(LS, USR_LS)));
+        Assert.assertEquals(snapshot.getRecordsByPath(Collections.singleton("ls"), false),
+                Collections.emptyList());
+        Assert.assertEquals(snapshot.getRecordsByPath(
+                Collections.singleton(SPACES.getPath()), false),
+                Collections.singletonList(SPACES));
+        Assert.assertEquals(snapshot.getRecordsByPath(Collections.singleton("/bin/cat"), true),
+                Collections.emptyList());
+    }
+
+    /**
+     * Tests that records are found by their hash.
+     *
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    @Test
+    public void testGetRecordsByHash() throws IOException {
+        ImaBaselineSnapshot snapshot = writeAndOpen(Arrays.asList(LS, USR_LS, GRADLE, SPACES));
+
+        Assert.assertEquals(
+                new HashSet<>(snapshot.getRecordsByHash(Collections.singleton(HASH_1))),
+                new HashSet<>(Arrays.asList(LS, GRADLE)));
+        Assert.assertEquals(snapshot.getRecordsByHash(Arrays.asList(HASH_3, null)),
+                Collections.singletonList(SPACES));
+        Assert.assertEquals(snapshot.getRecordsByHash(Collections.singleton(Digest.SHA1_ZERO)),
+                Collections.emptyList());
+    }
+
+    /**
+     * Tests that all records are read back, and that a snapshot of no records can be read.
+     *
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    @Test
+    public void testGetRecords() throws IOException {
+        ImaBaselineSnapshot snapshot = writeAndOpen(Arrays.asList(LS, USR_LS, GRADLE, SPACES));
+        Assert.assertEquals(new HashSet<>(snapshot.getRecords(record -> true)),
+                new HashSet<>(Arrays.asList(LS, USR_LS, GRADLE, SPACES)));
+        Assert.assertEquals(
+                snapshot.getRecords(record -> !record.getHash().equals(HASH_1)).size(), 2);
+
+        snapshot = writeAndOpen(Collections.emptyList());
+        Assert.assertEquals(snapshot.size(), 0);
+        Assert.assertEquals(snapshot.getRecordsByPath(Collections.singleton("ls"), true),
+                Collections.emptyList());
+    }
+
+    /**
+     * Tests lookups among many records, whose hashes share most of their bytes.
+     *
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    @Test
+    public void testManyRecords() throws IOException {
+        List<IMABaselineRecord> records = new ArrayList<>();
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            records.add(new IMABaselineRecord("/usr/lib/file" + i, getDigest(i)));
+        }
+        ImaBaselineSnapshot snapshot = writeAndOpen(records);
+
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            IMABaselineRecord record = records.get(i);
+            Assert.assertEquals(
+                    snapshot.getRecordsByPath(Collections.singleton("file" + i), true),
+                    Collections.singletonList(record));
+            Assert.assertEquals(snapshot.getRecordsByHash(Collections.singleton(getDigest(i))),
+                    Collections.singletonList(record));
+        }
+    }
+
+    /**
+     * Tests that a file that is not a snapshot is rejected.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Test(expectedExceptions = IOException.class)
+    public void testOpenInvalidFile() throws IOException {
+        Files.write(file, "not a snapshot".getBytes());
+        ImaBaselineSnapshot.open(file);
+    }
+
+    private ImaBaselineSnapshot writeAndOpen(final Collection<IMABaselineRecord> records)
+            throws IOException {
+        ImaBaselineSnapshot.write(file, records);
+        return ImaBaselineSnapshot.open(file);
+    }
+
+    private static Digest getDigest(final int value) {
+        return SimpleImaBaselineTest.getDigest(
+                String.format("33333c2f7f3003d2e4baddc46ed4763a%08x", value));
+    }
+}
@@ -0,0 +1,154 @@
+package hirs.persist;
+
+import hirs.FilteredRecordsList;
+import hirs.data.persist.Device;
+import hirs.data.persist.DeviceGroup;
+import hirs.data.persist.DeviceInfoReport;
+import hirs.data.persist.DeviceTest;
+import hirs.data.persist.SpringPersistenceTest;
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for the {@link SearchIndex}.
+ */
+public class SearchIndexTest extends SpringPersistenceTest {
+
+    private static final CriteriaModifier NO_OP = new CriteriaModifier() {
+        @Override
+        public void modify(final Criteria criteria) {
+        }
+    };
+
+    /**
+     * Removes the devices and search tokens stored by the tests.
+     */
+    @AfterMethod
+    public void resetTestState() {
+        DBUtility.removeAllInstances(sessionFactory, SearchToken.class);
+        DBUtility.removeAllInstances(sessionFactory, Device.class);
+        DBUtility.removeAllInstances(sessionFactory, DeviceGroup.class);
+        DBUtility.removeAllInstances(sessionFactory, DeviceInfoReport.class);
+    }
+
+    /**
+     * Tests that values are split into distinct lower case alphanumeric tokens.
+     */
+    @Test
+    public void testTokenize() {
+        Assert.assertEquals(SearchIndex.tokenize("CN=Example CA, O=Example_Org"),
+                new HashSet<>(Arrays.asList("cn", "example", "ca", "o", "org")));
+        Assert.assertTrue(SearchIndex.tokenize(" ,; ").isEmpty());
+        Assert.assertTrue(SearchIndex.tokenize(null).isEmpty());
+    }
+
+    /**
+     * Tests that entities are searched by token prefix in the searched fields, and that the
+     * tokens of an entity follow its updates and deletion.
+     *
+     * @throws Exception if a device can not be saved
+     */
+    @Test
+    public void testSearch() throws Exception {
+        final DeviceManager mgr = new DBDeviceManager(sessionFactory);
+        final DeviceGroup group = new DBDeviceGroupManager(sessionFactory)
+                .saveDeviceGroup(new DeviceGroup(DeviceGroup.DEFAULT_GROUP));
+        for (String name : new String[] {"lab-server-01", "lab-server-02", "office-laptop"}) {
+            Device device = DeviceTest.getTestDevice(name);
+            device.setDeviceGroup(group);
+            mgr.saveDevice(device);
+        }
+        Map<String, Boolean> columns = new HashMap<>();
+        columns.put("name", true);
+
+        Assert.assertEquals(search(mgr, "lab", columns),
+                new HashSet<>(Arrays.asList("lab-server-01", "lab-server-02")));
+        Assert.assertEquals(search(mgr, "SERV 02", columns),
+                Collections.singleton("lab-server-02"));
+        Assert.assertEquals(search(mgr, "lab-ser", columns).size(), 2);
+        Assert.assertTrue(search(mgr, "erver", columns).isEmpty());
+        Assert.assertEquals(search(mgr, "", columns).size(), 3);
+        Assert.assertTrue(search(mgr, "lab", Collections.singletonMap("healthStatus", false))
+                .isEmpty());
+
+        Device device = mgr.getDevice("office-laptop");
+        device.setName("office-desktop");
+        mgr.updateDevice(device);
+        Assert.assertTrue(search(mgr, "laptop", columns).isEmpty());
+        Assert.assertEquals(search(mgr, "desk", columns),
+                Collections.singleton("office-desktop"));
+
+        Assert.assertTrue(tokenCount(device) > 0);
+        mgr.deleteDevice("office-desktop");
+        Assert.assertEquals(tokenCount(device), 0);
+        Assert.assertTrue(tokenCount(mgr.getDevice("lab-server-01")) > 0);
+    }
+
+    /**
+     * Tests that devices updated as a list, as when they are moved to another group, are
+     * searched by the name of their new group.
+     *
+     * @throws Exception if a device can not be saved
+     */
+    @Test
+    public void testSearchAfterUpdateDeviceList() throws Exception {
+        final DeviceManager mgr = new DBDeviceManager(sessionFactory);
+        final DeviceGroupManager groupMgr = new DBDeviceGroupManager(sessionFactory);
+        final DeviceGroup defaultGroup =
+                groupMgr.saveDeviceGroup(new DeviceGroup(DeviceGroup.DEFAULT_GROUP));
+        final DeviceGroup labGroup = groupMgr.saveDeviceGroup(new DeviceGroup("lab-group"));
+        for (String name : new String[] {"lab-server-01", "lab-server-02"}) {
+            Device device = DeviceTest.getTestDevice(name);
+            device.setDeviceGroup(defaultGroup);
+            mgr.saveDevice(device);
+        }
+        Map<String, Boolean> columns = Collections.singletonMap("deviceGroup.name", true);
+        Assert.assertTrue(search(mgr, "lab-group", columns).isEmpty());
+
+        Set<Device> devices = new HashSet<>();
+        for (Device device : mgr.getDeviceList()) {
+            device.setDeviceGroup(labGroup);
+            devices.add(device);
+        }
+        mgr.updateDeviceList(devices);
+
+        Assert.assertEquals(search(mgr, "lab-group", columns),
+                new HashSet<>(Arrays.asList("lab-server-01", "lab-server-02")));
+        Assert.assertTrue(search(mgr, DeviceGroup.DEFAULT_GROUP, columns).isEmpty());
+    }
+
+    private long tokenCount(final Device device) {
+        Session session = sessionFactory.getCurrentSession();
+        session.beginTransaction();
+        long count = (Long) session.createCriteria(SearchToken.class)
+                .add(Restrictions.eq("entityId", device.getId().toString()))
+                .setProjection(Projections.rowCount())
+                .uniqueResult();
+        session.getTransaction().commit();
+        return count;
+    }
+
+    private static Set<String> search(final DeviceManager mgr, final String search,
+                                      final Map<String, Boolean> columns) {
+        FilteredRecordsList<Device> devices = mgr.getOrderedListAfter(Device.class, "name",
+                true, null, Integer.MAX_VALUE, search, columns, NO_OP);
+        Set<String> names = new HashSet<>();
+        for (Device device : devices) {
+            names.add(device.getName());
+        }
+        Assert.assertEquals(devices.getRecordsFiltered(), names.size());
+        return names;
+    }
+}
@@ -0,0 +1,141 @@
+package hirs.tpm.eventlog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Class for testing PCR replay of TCG Event Logs.
+ */
+public class PcrReplayEngineTest {
+    private static final String DEFAULT_EVENT_LOG = "/tcgeventlog/TpmLog.bin";
+    private static final String DEFAULT_EXPECTED_PCRS = "/tcgeventlog/TpmLogExpectedPcrs.txt";
+    private static final String SHA1_EVENT_LOG = "/tcgeventlog/TpmLogSHA1.bin";
+    private static final String SHA1_EXPECTED_PCRS = "/tcgeventlog/TpmLogSHA1ExpectedPcrs.txt";
+    private static final int REPLAY_ITERATIONS = 2000;
+    private static final Logger LOGGER = LogManager.getLogger(PcrReplayEngineTest.class);
+
+    /**
+     * Tests that a crypto agile log replayed into several banks at once produces the
+     * expected SHA256 PCR values.
+     * @throws IOException when processing the test fails
+     * @throws NoSuchAlgorithmException if an unknown algorithm is encountered.
+     */
+    @Test
+    public final void testMultiBankReplay() throws IOException, NoSuchAlgorithmException {
+        PcrReplayEngine engine = new PcrReplayEngine(TcgTpmtHa.TPM_ALG_SHA1,
+                TcgTpmtHa.TPM_ALG_SHA256, TcgTpmtHa.TPM_ALG_SHA384);
+        engine.replay(new TCGEventLogReader(readResource(DEFAULT_EVENT_LOG)));
+        assertPcrsMatch(engine.getExpectedPCRValues(TcgTpmtHa.TPM_ALG_SHA256),
+                DEFAULT_EXPECTED_PCRS);
+        Assert.assertEquals(engine.getPcrValue(TcgTpmtHa.TPM_ALG_SHA384, 0).length,
+                TcgTpmtHa.tcgAlgLength(TcgTpmtHa.TPM_ALG_SHA384));
+    }
+
+    /**
+     * Tests that a SHA1 log replays to the expected PCR values.
+     * @throws IOException when processing the test fails
+     * @throws NoSuchAlgorithmException if an unknown algorithm is encountered.
+     */
+    @Test
+    public final void testSHA1Replay() throws IOException, NoSuchAlgorithmException {
+        TCGEventLogReader reader = new TCGEventLogReader(readResource(SHA1_EVENT_LOG));
+        assertPcrsMatch(PcrReplayEngine.replayLog(reader)
+                .getExpectedPCRValues(TcgTpmtHa.TPM_ALG_SHA1), SHA1_EXPECTED_PCRS);
+    }
+
+    /**
+     * Tests a single extend and the locality 4 starting values.
+     * @throws NoSuchAlgorithmException if an unknown algorithm is encountered.
+     */
+    @Test
+    public final void testExtend() throws NoSuchAlgorithmException {
+        PcrReplayEngine engine = new PcrReplayEngine(TcgTpmtHa.TPM_ALG_SHA256);
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(new byte[] {1, 2, 3});
+        engine.extend(TcgTpmtHa.TPM_ALG_SHA256, 0, digest);
+
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(new byte[32]);
+        md.update(digest);
+        Assert.assertEquals(engine.getPcrValue(TcgTpmtHa.TPM_ALG_SHA256, 0), md.digest());
+        Assert.assertEquals(engine.getPcrValue(TcgTpmtHa.TPM_ALG_SHA256, 17)[0], (byte) 0xff);
+        Assert.assertEquals(engine.getPcrValue(TcgTpmtHa.TPM_ALG_SHA256, 23)[0], 0);
+
+        engine.reset();
+        Assert.assertEquals(engine.getPcrValue(TcgTpmtHa.TPM_ALG_SHA256, 0), new byte[32]);
+    }
+
+    /**
+     * Tests that an algorithm without a bank is rejected.
+     * @throws NoSuchAlgorithmException if an unknown algorithm is encountered.
+     */
+    @Test(expectedExceptions = NoSuchAlgorithmException.class)
+    public final void testUnsupportedAlgorithm() throws NoSuchAlgorithmException {
+        new PcrReplayEngine(TcgTpmtHa.TPM_ALG_SHA_512);
+    }
+
+    /**
+     * Measures replay throughput of the streaming engine against a full TCGEventLog parse.
+     * @throws IOException when processing the test fails
+     * @throws NoSuchAlgorithmException if an unknown algorithm is encountered.
+     * @throws CertificateException if a certificate fails to parse.
+     */
+    @Test(groups = { "performance" })
+    public final void testReplayThroughput() throws IOException, NoSuchAlgorithmException,
+            CertificateException {
+        byte[] rawLog = readResource(DEFAULT_EVENT_LOG);
+        int eventCount = new TCGEventLog(rawLog).getEventList().size();
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < REPLAY_ITERATIONS; i++) {
+            new TCGEventLogReader(rawLog).getExpectedPCRValues();
+        }
+        logThroughput("PcrReplayEngine", System.nanoTime() - startTime, eventCount);
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < REPLAY_ITERATIONS; i++) {
+            new TCGEventLog(rawLog, true).getExpectedPCRValues();
+        }
+        logThroughput("TCGEventLog (validation only)", System.nanoTime() - startTime,
+                eventCount);
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < REPLAY_ITERATIONS; i++) {
+            new TCGEventLog(rawLog).getExpectedPCRValues();
+        }
+        logThroughput("TCGEventLog", System.nanoTime() - startTime, eventCount);
+    }
+
+    private void logThroughput(final String name, final long elapsedNanos,
+            final int eventCount) {
+        double seconds = elapsedNanos / 1e9;
+        LOGGER.info("{}: {} logs/sec, {} events/sec", name,
+                (long) (REPLAY_ITERATIONS / seconds),
+                (long) ((double) REPLAY_ITERATIONS * eventCount / seconds));
+    }
+
+    private byte[] readResource(final String resource) throws IOException {
+        try (InputStream is = this.getClass().getResourceAsStream(resource)) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+
+    private void assertPcrsMatch(final String[] pcrFromLog, final String expectedPcrs)
+            throws IOException {
+        try (InputStream pcrs = this.getClass().getResourceAsStream(expectedPcrs)) {
+            Object[] pcrObj = IOUtils.readLines(pcrs).toArray();
+            for (int i = 0; i < TCGEventLog.PCR_COUNT; i++) {
+                Assert.assertEquals(pcrFromLog[i].toLowerCase(),
+                        pcrObj[i].toString().toLowerCase(), "PCR " + i);
+            }
+        }
+    }
+}
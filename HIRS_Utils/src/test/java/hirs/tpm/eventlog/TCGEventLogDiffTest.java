@@ -0,0 +1,157 @@
+package hirs.tpm.eventlog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import hirs.tpm.eventlog.TCGEventLogDiffReport.Difference;
+import hirs.tpm.eventlog.TCGEventLogDiffReport.DifferenceType;
+
+/**
+ * Class for testing the comparison of TCG Event Logs.
+ */
+public class TCGEventLogDiffTest {
+    private static final String DEFAULT_EVENT_LOG = "/tcgeventlog/TpmLog.bin";
+
+    private byte[] rawLog;
+    private List<byte[]> rawEvents;
+    private List<Integer> pcrIndexes;
+
+    /**
+     * Splits the test log into its raw events.
+     * @throws IOException if the log can not be read.
+     */
+    @BeforeClass
+    public final void setup() throws IOException {
+        try (InputStream is = this.getClass().getResourceAsStream(DEFAULT_EVENT_LOG)) {
+            rawLog = IOUtils.toByteArray(is);
+        }
+        rawEvents = new ArrayList<>();
+        pcrIndexes = new ArrayList<>();
+        TCGEventLogReader reader = new TCGEventLogReader(rawLog);
+        while (reader.hasNext()) {
+            TpmPcrEventView view = reader.next();
+            rawEvents.add(view.getRawEvent());
+            pcrIndexes.add(view.getPcrIndex());
+        }
+    }
+
+    /**
+     * Tests that a log matches itself.
+     * @throws IOException when processing the test fails
+     */
+    @Test
+    public final void testIdenticalLogs() throws IOException {
+        TCGEventLogDiffReport report = TCGEventLogDiff.diff(rawLog, rawLog, -1);
+        Assert.assertTrue(report.isMatch());
+        Assert.assertEquals(report.getMatchedCount(), rawEvents.size());
+    }
+
+    /**
+     * Tests that dropped and added events are reported without affecting the events around
+     * them.
+     * @throws IOException when processing the test fails
+     */
+    @Test
+    public final void testMissingAndExtraEvents() throws IOException {
+        List<byte[]> events = new ArrayList<>(rawEvents);
+        events.remove(2);
+        byte[] measured = buildLog(events);
+
+        TCGEventLogDiffReport report = TCGEventLogDiff.diff(rawLog, measured, -1);
+        Assert.assertEquals(report.getDifferences().size(), 1);
+        Difference missing = report.getDifferences().get(0);
+        Assert.assertEquals(missing.getType(), DifferenceType.MISSING);
+        Assert.assertEquals(missing.getReferenceEventNumber(), 2);
+        Assert.assertEquals(missing.getMeasuredEventNumber(), -1);
+
+        report = TCGEventLogDiff.diff(measured, rawLog, -1);
+        Assert.assertEquals(report.getDifferences().size(), 1);
+        Assert.assertEquals(report.getDifferences().get(0).getType(), DifferenceType.EXTRA);
+        Assert.assertEquals(report.getDifferences().get(0).getMeasuredEventNumber(), 2);
+    }
+
+    /**
+     * Tests that swapping two events of the same PCR is reported as a reordering.
+     * @throws IOException when processing the test fails
+     */
+    @Test
+    public final void testReorderedEvents() throws IOException {
+        int first = -1;
+        int second = -1;
+        for (int i = 1; i < pcrIndexes.size() && second < 0; i++) {
+            if (first < 0) {
+                first = i;
+            } else if (pcrIndexes.get(i).equals(pcrIndexes.get(first))
+                    && !Arrays.equals(rawEvents.get(i), rawEvents.get(first))) {
+                second = i;
+            }
+        }
+        Assert.assertTrue(second > 0);
+        List<byte[]> events = new ArrayList<>(rawEvents);
+        events.set(first, rawEvents.get(second));
+        events.set(second, rawEvents.get(first));
+
+        TCGEventLogDiffReport report = TCGEventLogDiff.diff(rawLog, buildLog(events), -1);
+        Assert.assertEquals(report.getDifferences().size(), 1);
+        Assert.assertEquals(report.getDifferences().get(0).getType(), DifferenceType.REORDERED);
+        Assert.assertEquals(report.getMatchedCount(), rawEvents.size());
+    }
+
+    /**
+     * Tests that an event with a modified digest is reported as a digest mismatch, and that
+     * the PCR filter limits the comparison.
+     * @throws IOException when processing the test fails
+     */
+    @Test
+    public final void testDigestMismatch() throws IOException {
+        final int eventNumber = 3;
+        // TCG_PCR_EVENT2: pcr index, event type, digest count, then the first TPMT_HA
+        final int digestOffset = 4 + 4 + 4 + 2;
+        List<byte[]> events = new ArrayList<>(rawEvents);
+        byte[] modified = rawEvents.get(eventNumber).clone();
+        modified[digestOffset] ^= (byte) 0xff;
+        events.set(eventNumber, modified);
+        byte[] measured = buildLog(events);
+
+        TCGEventLogDiffReport report = TCGEventLogDiff.diff(rawLog, measured, -1);
+        Assert.assertEquals(report.getDifferences().size(), 1);
+        Difference mismatch = report.getDifferences().get(0);
+        Assert.assertEquals(mismatch.getType(), DifferenceType.DIGEST_MISMATCH);
+        Assert.assertEquals(mismatch.getReferenceEventNumber(), eventNumber);
+        Assert.assertEquals(mismatch.getMeasuredEventNumber(), eventNumber);
+        Assert.assertNotEquals(mismatch.getReferenceDigestStr(), mismatch.getMeasuredDigestStr());
+
+        int otherPcr = (pcrIndexes.get(eventNumber) + 1) % TCGEventLog.PCR_COUNT;
+        Assert.assertTrue(TCGEventLogDiff.diff(rawLog, measured, otherPcr).isMatch());
+    }
+
+    /**
+     * Tests that one reference index can be shared to compare several logs.
+     * @throws IOException when processing the test fails
+     */
+    @Test
+    public final void testReusedReference() throws IOException {
+        TCGEventLogDiff diff = new TCGEventLogDiff(new TCGEventLogReader(rawLog));
+        Assert.assertEquals(diff.getReferenceEventCount(), rawEvents.size());
+        for (int i = 0; i < 2; i++) {
+            Assert.assertTrue(diff.compare(new TCGEventLogReader(rawLog)).isMatch());
+        }
+    }
+
+    private static byte[] buildLog(final List<byte[]> events) throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        for (byte[] event : events) {
+            log.write(event);
+        }
+        return log.toByteArray();
+    }
+}
@@ -0,0 +1,131 @@
+package hirs.tpm.eventlog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Class for testing the streaming TCG Event Log parser.
+ */
+public class TCGEventLogReaderTest {
+    private static final String DEFAULT_EVENT_LOG = "/tcgeventlog/TpmLog.bin";
+    private static final String DEFAULT_EXPECTED_PCRS = "/tcgeventlog/TpmLogExpectedPcrs.txt";
+    private static final String SHA1_EVENT_LOG = "/tcgeventlog/TpmLogSHA1.bin";
+    private static final String SHA1_EXPECTED_PCRS = "/tcgeventlog/TpmLogSHA1ExpectedPcrs.txt";
+
+    /**
+     * Tests that replaying a crypto agile log produces the expected PCR values.
+     * @throws IOException when processing the test fails
+     * @throws NoSuchAlgorithmException if an unknown algorithm is encountered.
+     */
+    @Test
+    public final void testCryptoAgileReplay() throws IOException, NoSuchAlgorithmException {
+        TCGEventLogReader reader = new TCGEventLogReader(readResource(DEFAULT_EVENT_LOG));
+        Assert.assertTrue(reader.isCryptoAgile());
+        Assert.assertEquals(reader.getEventLogHashAlgorithm(), "TPM_ALG_SHA256");
+        assertPcrsMatch(reader.getExpectedPCRValues(), DEFAULT_EXPECTED_PCRS);
+    }
+
+    /**
+     * Tests that replaying a SHA1 log produces the expected PCR values.
+     * @throws IOException when processing the test fails
+     * @throws NoSuchAlgorithmException if an unknown algorithm is encountered.
+     */
+    @Test
+    public final void testSHA1Replay() throws IOException, NoSuchAlgorithmException {
+        TCGEventLogReader reader = new TCGEventLogReader(readResource(SHA1_EVENT_LOG));
+        Assert.assertFalse(reader.isCryptoAgile());
+        Assert.assertEquals(reader.getEventLogHashAlgorithm(), "TPM_ALG_SHA1");
+        assertPcrsMatch(reader.getExpectedPCRValues(), SHA1_EXPECTED_PCRS);
+    }
+
+    /**
+     * Tests that the views handed out by the reader describe the same events as the
+     * ones parsed by TCGEventLog.
+     * @throws IOException when processing the test fails
+     * @throws NoSuchAlgorithmException if an unknown algorithm is encountered.
+     * @throws CertificateException if a certificate fails to parse.
+     */
+    @Test
+    public final void testViewsMatchParsedEvents() throws IOException, CertificateException,
+            NoSuchAlgorithmException {
+        for (String resource : new String[] {DEFAULT_EVENT_LOG, SHA1_EVENT_LOG}) {
+            byte[] rawLog = readResource(resource);
+            TCGEventLog evlog = new TCGEventLog(rawLog);
+            TCGEventLogReader reader = new TCGEventLogReader(rawLog);
+            Iterator<TpmPcrEvent> events = evlog.getEventList().iterator();
+            while (reader.hasNext()) {
+                TpmPcrEventView view = reader.next();
+                TpmPcrEvent event = events.next();
+                Assert.assertEquals(view.getEventNumber(), event.getEventNumber());
+                Assert.assertEquals(view.getPcrIndex(), event.getPcrIndex());
+                Assert.assertEquals(view.getEventType(), event.getEventType());
+                Assert.assertTrue(view.digestEquals(event.getEventDigest()));
+                Assert.assertEquals(view.getEventTypeStr(), event.getEventTypeStr());
+                Assert.assertEquals(view.getEventContent(), event.getEventContent());
+            }
+            Assert.assertFalse(events.hasNext());
+        }
+    }
+
+    /**
+     * Tests that a memory mapped log is parsed the same way as a heap buffer.
+     * @throws IOException when processing the test fails
+     * @throws NoSuchAlgorithmException if an unknown algorithm is encountered.
+     */
+    @Test
+    public final void testMappedLog() throws IOException, NoSuchAlgorithmException {
+        byte[] rawLog = readResource(DEFAULT_EVENT_LOG);
+        Path logFile = Files.createTempFile("TpmLog", ".bin");
+        try {
+            Files.write(logFile, rawLog);
+            TCGEventLogReader mapped = TCGEventLogReader.map(logFile);
+            Assert.assertEquals(mapped.size(), rawLog.length);
+            Assert.assertEquals(mapped.getExpectedPCRValues(),
+                    new TCGEventLogReader(rawLog).getExpectedPCRValues());
+        } finally {
+            Files.delete(logFile);
+        }
+    }
+
+    /**
+     * Tests that a truncated log is reported rather than silently replayed.
+     * @throws IOException when processing the test fails
+     */
+    @Test(expectedExceptions = IOException.class)
+    public final void testTruncatedLog() throws IOException {
+        byte[] rawLog = readResource(DEFAULT_EVENT_LOG);
+        TCGEventLogReader reader = new TCGEventLogReader(
+                ByteBuffer.wrap(Arrays.copyOf(rawLog, rawLog.length - 1)));
+        while (reader.hasNext()) {
+            reader.next();
+        }
+    }
+
+    private byte[] readResource(final String resource) throws IOException {
+        try (InputStream is = this.getClass().getResourceAsStream(resource)) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+
+    private void assertPcrsMatch(final String[] pcrFromLog, final String expectedPcrs)
+            throws IOException {
+        try (InputStream pcrs = this.getClass().getResourceAsStream(expectedPcrs)) {
+            Object[] pcrObj = IOUtils.readLines(pcrs).toArray();
+            for (int i = 0; i < TCGEventLog.PCR_COUNT; i++) {
+                Assert.assertEquals(pcrFromLog[i].toLowerCase(),
+                        pcrObj[i].toString().toLowerCase(), "PCR " + i);
+            }
+        }
+    }
+}
@@ -151,6 +151,33 @@ public class TCGEventLogTest {
        LOGGER.debug("OK. Parsing of a SHA1 formatted TCG Event Log Success");
       }
 
+    /**
+     * Tests that a log parsed for validation only produces the same PCR values and, once
+     * displayed, the same event descriptions as a fully parsed log.
+     * @throws IOException when processing the test fails
+     * @throws NoSuchAlgorithmException if an unknown algorithm is encountered.
+     * @throws CertificateException if a certificate fails to parse.
+     */
+    @Test
+    public final void testValidationOnlyTCGEventLog() throws IOException, CertificateException,
+                                                              NoSuchAlgorithmException {
+      LOGGER.debug("Testing the deferred parsing of a TCG Event Log");
+      InputStream log = this.getClass().getResourceAsStream(DEFAULT_EVENT_LOG);
+      byte[] rawLogBytes = IOUtils.toByteArray(log);
+      TCGEventLog evlog = new TCGEventLog(rawLogBytes);
+      TCGEventLog validationLog = new TCGEventLog(rawLogBytes, true);
+      Assert.assertEquals(validationLog.getExpectedPCRValues(), evlog.getExpectedPCRValues());
+      Assert.assertEquals(validationLog.getEventList().size(), evlog.getEventList().size());
+      for (TpmPcrEvent event : evlog.getEventList()) {
+          TpmPcrEvent deferred = validationLog.getEventByNumber(event.getEventNumber());
+          Assert.assertTrue(deferred.eventCompare(event));
+          Assert.assertEquals(deferred.getEventNumber(), event.getEventNumber());
+          Assert.assertEquals(deferred.toString(), event.toString());
+          Assert.assertEquals(deferred.getSpecVersion(), event.getSpecVersion());
+      }
+      LOGGER.debug("OK. Deferred parsing of a TCG Event Log Success");
+    }
+
     /**
      * Tests TPM Baseline creation from a EventLog.
      * @throws IOException when processing the test fails
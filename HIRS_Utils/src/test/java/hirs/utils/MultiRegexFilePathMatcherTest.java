@@ -0,0 +1,233 @@
+package hirs.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Unit tests for <code>MultiRegexFilePathMatcher</code>.
+ */
+public class MultiRegexFilePathMatcherTest {
+
+    private static final Logger LOGGER = LogManager.getLogger(MultiRegexFilePathMatcherTest.class);
+
+    private static final int BENCHMARK_PATTERNS = 2000;
+    private static final int BENCHMARK_PATHS = 5000;
+
+    private static final List<String> PATTERNS = Arrays.asList(
+            "/var/lib/my-lib.so",
+            "/var/lib/",
+            ".*foo",
+            ".*\\.foo",
+            "\\/usr\\/lib\\/.*.txt",
+            ".*\\/lib\\/.*.txt",
+            "/usr/bin/(vi|vim)",
+            "/opt/app[0-9]+/bin/.*",
+            "/opt/app1/bin/run",
+            "/etc/(.+)/\\1\\.conf",
+            "/etc/(?<name>[a-z]+)\\.d/.*",
+            "/srv/(?<name>[a-z]+)\\.d/.*",
+            "\\Q/tmp/a+b\\E",
+            "(?i)/home/USER/.*"
+    );
+
+    private static final List<String> PATHS = Arrays.asList(
+            "/var/lib/my-lib.so",
+            "/var/lib/foo/bar",
+            "/var/lib",
+            "/etc/foo",
+            "/etc/bar.foo",
+            "/usr/lib/path2/info2.txt",
+            "/var/lib/path1/info.txt",
+            "/usr/bin/vim",
+            "/usr/bin/vimdiff",
+            "/opt/app12/bin/start",
+            "/opt/app1/bin/run",
+            "/opt/app/bin/start",
+            "/etc/ssh/ssh.conf",
+            "/etc/ssh/sshd.conf",
+            "/etc/cron.d/job",
+            "/srv/www.d/index",
+            "/tmp/a+b",
+            "/tmp/aab",
+            "/home/user/.bashrc",
+            "/root/.bashrc"
+    );
+
+    /**
+     * Tests that every path matches the same patterns as with a
+     * <code>RegexFilePathMatcher</code> per pattern, including patterns that cannot be combined
+     * into a single alternation.
+     */
+    @Test
+    public final void matchesLikeRegexFilePathMatcher() {
+        MultiRegexFilePathMatcher<String> matcher =
+                new MultiRegexFilePathMatcher<>(PATTERNS, Function.identity());
+        for (String path : PATHS) {
+            Assert.assertEquals(matcher.getMatches(path), getExpectedMatches(PATTERNS, path),
+                    path);
+        }
+    }
+
+    /**
+     * Tests that a pattern that is an initial substring of the path matches, whether or not it
+     * holds regex metacharacters.
+     */
+    @Test
+    public final void initialSubstring() {
+        MultiRegexFilePathMatcher<String> matcher = new MultiRegexFilePathMatcher<>(
+                Arrays.asList("/var/lib/", "/usr/lib/lib.so"), Function.identity());
+        Assert.assertEquals(matcher.getMatches("/var/lib/foo/bar"),
+                Collections.singleton("/var/lib/"));
+        Assert.assertEquals(matcher.getMatches("/usr/lib/lib.so.1"),
+                Collections.singleton("/usr/lib/lib.so"));
+        Assert.assertTrue(matcher.isMatch("/usr/lib/libXso"));
+        Assert.assertFalse(matcher.isMatch("/usr/lib/libXso.1"));
+        Assert.assertFalse(matcher.isMatch("/var/li"));
+    }
+
+    /**
+     * Tests that all the values of the matching patterns are returned, including values sharing
+     * the same pattern.
+     */
+    @Test
+    public final void allMatchingValues() {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("first", ".*\\.so");
+        values.put("second", "/usr/lib/");
+        values.put("third", ".*\\.so");
+        values.put("fourth", "/usr/lib64/");
+        MultiRegexFilePathMatcher<String> matcher =
+                new MultiRegexFilePathMatcher<>(values.keySet(), values::get);
+        Assert.assertEquals(matcher.getMatches("/usr/lib/libc.so"),
+                new HashSet<>(Arrays.asList("first", "second", "third")));
+    }
+
+    /**
+     * Tests that null and empty paths match nothing.
+     */
+    @Test
+    public final void nullOrEmptyPath() {
+        MultiRegexFilePathMatcher<String> matcher =
+                new MultiRegexFilePathMatcher<>(PATTERNS, Function.identity());
+        Assert.assertTrue(matcher.getMatches(null).isEmpty());
+        Assert.assertTrue(matcher.getMatches("").isEmpty());
+    }
+
+    /**
+     * Tests that a malformed regex pattern is rejected.
+     */
+    @Test(expectedExceptions = PatternSyntaxException.class)
+    public final void malformedPattern() {
+        new MultiRegexFilePathMatcher<>(Arrays.asList("/var/lib/", "/usr/[lib"),
+                Function.identity());
+    }
+
+    /**
+     * Tests the literal prefixes the regex patterns are indexed by.
+     */
+    @Test
+    public final void literalPrefix() {
+        Assert.assertEquals(MultiRegexFilePathMatcher.getLiteralPrefix("/var/lib/"), "/var/lib/");
+        Assert.assertEquals(MultiRegexFilePathMatcher.getLiteralPrefix("/var/lib.so"), "/var/lib");
+        Assert.assertEquals(MultiRegexFilePathMatcher.getLiteralPrefix("\\/usr\\/lib\\/.*"),
+                "/usr/lib/");
+        Assert.assertEquals(MultiRegexFilePathMatcher.getLiteralPrefix("/opt/apps?/"), "/opt/app");
+        Assert.assertEquals(MultiRegexFilePathMatcher.getLiteralPrefix("/opt/\\d+"), "/opt/");
+        Assert.assertEquals(MultiRegexFilePathMatcher.getLiteralPrefix(".*\\.foo"), "");
+        Assert.assertEquals(MultiRegexFilePathMatcher.getLiteralPrefix("/a|/b"), "");
+    }
+
+    /**
+     * Compares the time taken to match IMA-like paths against a large ignore set with a
+     * <code>MultiRegexFilePathMatcher</code> and with a <code>RegexFilePathMatcher</code> per
+     * pattern, checking that both find the same matches.
+     */
+    @Test(groups = { "performance" })
+    public final void benchmark() {
+        Random random = new Random(0);
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < BENCHMARK_PATTERNS; i++) {
+            switch (i % 4) {
+                case 0:
+                    patterns.add("/usr/lib/package" + i + "/");
+                    break;
+                case 1:
+                    patterns.add("/usr/bin/tool" + i);
+                    break;
+                case 2:
+                    patterns.add("\\/opt\\/app" + i + "\\/.*\\.log");
+                    break;
+                default:
+                    patterns.add(".*\\.ext" + i);
+                    break;
+            }
+        }
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < BENCHMARK_PATHS; i++) {
+            int n = random.nextInt(BENCHMARK_PATTERNS * 2);
+            switch (i % 4) {
+                case 0:
+                    paths.add("/usr/lib/package" + n + "/lib" + i + ".so");
+                    break;
+                case 1:
+                    paths.add("/usr/bin/tool" + n);
+                    break;
+                case 2:
+                    paths.add("/opt/app" + n + "/var/run.log");
+                    break;
+                default:
+                    paths.add("/home/user/file" + i + ".ext" + n);
+                    break;
+            }
+        }
+
+        long startTime = System.nanoTime();
+        List<Set<String>> expected = new ArrayList<>();
+        for (String path : paths) {
+            expected.add(getExpectedMatches(patterns, path));
+        }
+        logThroughput("RegexFilePathMatcher per pattern", System.nanoTime() - startTime);
+
+        startTime = System.nanoTime();
+        MultiRegexFilePathMatcher<String> matcher =
+                new MultiRegexFilePathMatcher<>(patterns, Function.identity());
+        List<Set<String>> actual = new ArrayList<>();
+        for (String path : paths) {
+            actual.add(matcher.getMatches(path));
+        }
+        logThroughput("MultiRegexFilePathMatcher", System.nanoTime() - startTime);
+
+        Assert.assertEquals(actual, expected);
+    }
+
+    private static Set<String> getExpectedMatches(final List<String> patterns,
+                                                  final String path) {
+        Set<String> matches = new HashSet<>();
+        for (String pattern : patterns) {
+            if (new RegexFilePathMatcher(pattern).isMatch(path)) {
+                matches.add(pattern);
+            }
+        }
+        return matches;
+    }
+
+    private void logThroughput(final String name, final long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        LOGGER.info("{}: {} paths/sec against {} patterns", name,
+                (long) (BENCHMARK_PATHS / seconds), BENCHMARK_PATTERNS);
+    }
+}
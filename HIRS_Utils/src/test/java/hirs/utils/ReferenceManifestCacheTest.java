@@ -0,0 +1,111 @@
+package hirs.utils;
+
+import hirs.data.persist.SupportReferenceManifest;
+import hirs.tpm.eventlog.TCGEventLogReader;
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link ReferenceManifestCache}.
+ */
+public class ReferenceManifestCacheTest {
+    private static final String DEFAULT_EVENT_LOG = "/tcgeventlog/TpmLog.bin";
+    private static final String SHA1_EVENT_LOG = "/tcgeventlog/TpmLogSHA1.bin";
+
+    private byte[] rawLog;
+    private byte[] sha1Log;
+
+    /**
+     * Reads the test event logs.
+     * @throws IOException if a log can not be read
+     */
+    @BeforeClass
+    public final void setup() throws IOException {
+        rawLog = readResource(DEFAULT_EVENT_LOG);
+        sha1Log = readResource(SHA1_EVENT_LOG);
+    }
+
+    /**
+     * Tests that identical Support RIMs share an entry and that the cached values are the
+     * replayed ones.
+     * @throws IOException if the log is malformed
+     * @throws NoSuchAlgorithmException if the log's algorithm is not supported
+     */
+    @Test
+    public final void testSupportRimHit() throws IOException, NoSuchAlgorithmException {
+        ReferenceManifestCache cache = new ReferenceManifestCache(
+                ReferenceManifestCache.DEFAULT_MAXIMUM_WEIGHT);
+        ReferenceManifestCache.VerifiedSupportRim first =
+                cache.getSupportRim(new SupportReferenceManifest("first.rimel", rawLog));
+        ReferenceManifestCache.VerifiedSupportRim second =
+                cache.getSupportRim(new SupportReferenceManifest("second.rimel", rawLog.clone()));
+
+        Assert.assertSame(second, first);
+        Assert.assertEquals(first.getExpectedPcrValues(),
+                new TCGEventLogReader(rawLog).getExpectedPCRValues());
+        Assert.assertTrue(first.getEventLogIndex().compare(new TCGEventLogReader(rawLog))
+                .isMatch());
+        Assert.assertEquals(cache.getStats().missCount(), 1);
+        Assert.assertEquals(cache.getStats().hitCount(), 1);
+    }
+
+    /**
+     * Tests that RIMs of the same name but different content are replayed separately, and
+     * that they are replayed again once the cache is invalidated.
+     * @throws IOException if the log is malformed
+     * @throws NoSuchAlgorithmException if the log's algorithm is not supported
+     */
+    @Test
+    public final void testInvalidateAll() throws IOException, NoSuchAlgorithmException {
+        ReferenceManifestCache cache = new ReferenceManifestCache(
+                ReferenceManifestCache.DEFAULT_MAXIMUM_WEIGHT);
+        SupportReferenceManifest rim = new SupportReferenceManifest("test.rimel", rawLog);
+        cache.getSupportRim(rim);
+        cache.getSupportRim(new SupportReferenceManifest("test.rimel", sha1Log));
+        Assert.assertEquals(cache.size(), 2);
+
+        cache.invalidateAll();
+        Assert.assertEquals(cache.size(), 0);
+        cache.getSupportRim(rim);
+        Assert.assertEquals(cache.getStats().missCount(), 3);
+    }
+
+    /**
+     * Tests that the cache is bounded by the size of the RIMs it holds.
+     * @throws IOException if the log is malformed
+     * @throws NoSuchAlgorithmException if the log's algorithm is not supported
+     */
+    @Test
+    public final void testSizeBound() throws IOException, NoSuchAlgorithmException {
+        ReferenceManifestCache cache = new ReferenceManifestCache(rawLog.length - 1);
+        cache.getSupportRim(new SupportReferenceManifest("test.rimel", rawLog));
+        Assert.assertEquals(cache.size(), 0);
+        Assert.assertEquals(cache.getStats().evictionCount(), 1);
+    }
+
+    /**
+     * Tests that a malformed log is reported rather than cached.
+     * @throws IOException if the log is malformed
+     * @throws NoSuchAlgorithmException if the log's algorithm is not supported
+     */
+    @Test(expectedExceptions = IOException.class)
+    public final void testMalformedSupportRim() throws IOException, NoSuchAlgorithmException {
+        ReferenceManifestCache cache = new ReferenceManifestCache(
+                ReferenceManifestCache.DEFAULT_MAXIMUM_WEIGHT);
+        cache.getSupportRim(new SupportReferenceManifest("test.rimel",
+                Arrays.copyOf(rawLog, rawLog.length - 1)));
+    }
+
+    private byte[] readResource(final String resource) throws IOException {
+        try (InputStream is = this.getClass().getResourceAsStream(resource)) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package hirs.utils;
+
+import hirs.utils.xjc.SoftwareIdentity;
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests for {@link SwidProcessingService}.
+ */
+public class SwidProcessingServiceTest {
+    private static final String SIGNED_SWIDTAG = "/rims/generated_with_cert.swidtag";
+    private static final String SWIDTAG_NAME = "Example.com BIOS";
+    private static final int THREADS = 8;
+    private static final int VALIDATIONS = 64;
+
+    private byte[] goodSwidtag;
+    private byte[] badSwidtag;
+
+    /**
+     * Reads the test swidtag and makes a copy of it whose signed content was modified.
+     * @throws IOException if the swidtag can not be read
+     */
+    @BeforeClass
+    public final void setup() throws IOException {
+        try (InputStream is = this.getClass().getResourceAsStream(SIGNED_SWIDTAG)) {
+            goodSwidtag = IOUtils.toByteArray(is);
+        }
+        badSwidtag = new String(goodSwidtag, StandardCharsets.UTF_8)
+                .replace(SWIDTAG_NAME, "Modified BIOS").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests that a swidtag is unmarshalled and that the pooled unmarshallers can be reused.
+     * @throws JAXBException if the swidtag is not valid
+     */
+    @Test
+    public final void testUnmarshal() throws JAXBException {
+        SwidProcessingService service = SwidProcessingService.getInstance();
+        for (int i = 0; i < 2; i++) {
+            JAXBElement element = (JAXBElement) service.unmarshal(
+                    new ByteArrayInputStream(goodSwidtag));
+            Assert.assertEquals(((SoftwareIdentity) element.getValue()).getName(),
+                    SWIDTAG_NAME);
+        }
+    }
+
+    /**
+     * Tests that validators used concurrently report the signature status of their own
+     * swidtag.
+     * @throws Exception if a validation fails
+     */
+    @Test
+    public final void testConcurrentSignatureValidation() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < VALIDATIONS; i++) {
+                final byte[] swidtag = swidtagFor(i);
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        ReferenceManifestValidator validator = new ReferenceManifestValidator();
+                        validator.validateXmlSignature(new ByteArrayInputStream(swidtag));
+                        return validator.isSignatureValid();
+                    }
+                }));
+            }
+            for (int i = 0; i < VALIDATIONS; i++) {
+                Assert.assertEquals(results.get(i).get().booleanValue(),
+                        swidtagFor(i) == goodSwidtag);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private byte[] swidtagFor(final int i) {
+        if (i % 2 == 0) {
+            return goodSwidtag;
+        }
+        return badSwidtag;
+    }
+}
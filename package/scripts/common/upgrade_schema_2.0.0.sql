@@ -0,0 +1,43 @@
+#commands here if there are schema changes in 2.0.0
+DROP PROCEDURE IF EXISTS upgrade_schema_to_2_0_0;
+DELIMITER '//'
+
+CREATE PROCEDURE upgrade_schema_to_2_0_0()
+BEGIN
+IF(NOT EXISTS(SELECT * FROM information_schema.TABLES WHERE TABLE_SCHEMA='hirs_db' AND TABLE_NAME='ContentBlob')) THEN
+CREATE TABLE ContentBlob (digest varchar(64) NOT NULL, content blob NOT NULL, PRIMARY KEY (digest));
+END IF;
+
+# certificate content moves from Certificate.certificateBytes to ContentBlob, keyed by its SHA-256
+IF(EXISTS(SELECT * FROM information_schema.COLUMNS WHERE TABLE_SCHEMA='hirs_db' AND TABLE_NAME='Certificate' AND COLUMN_NAME='certificateBytes')) THEN
+IF(NOT EXISTS(SELECT * FROM information_schema.COLUMNS WHERE TABLE_SCHEMA='hirs_db' AND TABLE_NAME='Certificate' AND COLUMN_NAME='contentDigest')) THEN
+ALTER TABLE Certificate ADD contentDigest varchar(64) DEFAULT NULL;
+END IF;
+UPDATE Certificate SET contentDigest = SHA2(certificateBytes, 256) WHERE contentDigest IS NULL AND certificateBytes IS NOT NULL;
+INSERT INTO ContentBlob (digest, content) SELECT contentDigest, certificateBytes FROM Certificate WHERE certificateBytes IS NOT NULL ON DUPLICATE KEY UPDATE digest = digest;
+IF(NOT EXISTS(SELECT * FROM Certificate c LEFT JOIN ContentBlob b ON b.digest = c.contentDigest WHERE c.certificateBytes IS NOT NULL AND b.digest IS NULL)) THEN
+ALTER TABLE Certificate DROP COLUMN certificateBytes;
+ELSE
+ALTER TABLE Certificate MODIFY certificateBytes varbinary(2048) DEFAULT NULL;
+END IF;
+END IF;
+
+# RIM content moves from ReferenceManifest.rimBytes to ContentBlob, keyed by its SHA-256
+IF(EXISTS(SELECT * FROM information_schema.COLUMNS WHERE TABLE_SCHEMA='hirs_db' AND TABLE_NAME='ReferenceManifest' AND COLUMN_NAME='rimBytes')) THEN
+IF(NOT EXISTS(SELECT * FROM information_schema.COLUMNS WHERE TABLE_SCHEMA='hirs_db' AND TABLE_NAME='ReferenceManifest' AND COLUMN_NAME='contentDigest')) THEN
+ALTER TABLE ReferenceManifest ADD contentDigest varchar(64) DEFAULT NULL;
+END IF;
+UPDATE ReferenceManifest SET contentDigest = SHA2(rimBytes, 256) WHERE contentDigest IS NULL AND rimBytes IS NOT NULL;
+INSERT INTO ContentBlob (digest, content) SELECT contentDigest, rimBytes FROM ReferenceManifest WHERE rimBytes IS NOT NULL ON DUPLICATE KEY UPDATE digest = digest;
+IF(NOT EXISTS(SELECT * FROM ReferenceManifest r LEFT JOIN ContentBlob b ON b.digest = r.contentDigest WHERE r.rimBytes IS NOT NULL AND b.digest IS NULL)) THEN
+ALTER TABLE ReferenceManifest DROP COLUMN rimBytes;
+ELSE
+ALTER TABLE ReferenceManifest MODIFY rimBytes blob DEFAULT NULL;
+END IF;
+END IF;
+
+END//
+DELIMITER ';'
+
+CALL upgrade_schema_to_2_0_0;
+DROP PROCEDURE upgrade_schema_to_2_0_0;
@@ -347,7 +347,8 @@ public class Commander {
                 + " in eventhex format when -event is used.\n"
                 + "  -ex\t--eventhex\t Displays event in hex format when -event is used.\n"
                 + "  -d\t--diff\t\t Compares two TCG Event Logs and outputs a list of events"
-                + " of the second log that differred.\n"
+                + " that are missing, extra, reordered"
+                + "\n\t\t\t or have a different digest in the second log.\n"
                 + "  -o\t--output\t Output to a file. "
                 + "\n\t\t\t Following parameter MUST be a relative path and file name.\n"
                 + "  -p\t--pcr\t\t Output expected PCR value calculated from the "
@@ -9,11 +9,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
 
 import hirs.tpm.eventlog.TCGEventLog;
+import hirs.tpm.eventlog.TCGEventLogDiff;
+import hirs.tpm.eventlog.TCGEventLogDiffReport;
+import hirs.tpm.eventlog.TCGEventLogReader;
 import hirs.tpm.eventlog.TpmPcrEvent;
 import hirs.utils.HexUtils;
 
@@ -94,10 +94,9 @@ final class Main {
             if (eventLog == null) {
                 eventLog = openLog("");
             }
-            // Main Event processing
-            TCGEventLog evLog = new TCGEventLog(eventLog, bEventFlag, bContentFlag, bHexEvent);
+            // PCR replay only needs the digests, so stream the log rather than parse every event
             if (bPcrFlag) {
-                String[] pcrs = evLog.getExpectedPCRValues();
+                String[] pcrs = new TCGEventLogReader(eventLog).getExpectedPCRValues();
                 int count = 0;
                 if (!bHexFlag) {
                     writeOut("Expected Platform Configuration Register (PCR) values"
@@ -119,6 +118,7 @@ final class Main {
 
             // General event log output
             if (bEventFlag) {
+                TCGEventLog evLog = new TCGEventLog(eventLog, bEventFlag, bContentFlag, bHexEvent);
                 if (!bHexFlag) {
                     if (evLog.isCryptoAgile()) {
                         writeOut("\nEvent Log follows the \"Crypto Agile\" format and has "
@@ -224,48 +224,61 @@ final class Main {
 
     /**
      * Compares 2 Event Logs and returns a string based upon the results.
-     * Uses the Events digest field for comparisons.
+     * Events are matched on their PCR index, event type and digest, so the report lists the
+     * events of the reference log that are missing, reordered or carry a different digest in
+     * the second log, and the events of the second log that are extra.
      *
      * @param logFileName1 Log file to use as a reference.
      * @param logFileName2 Log file to compare to the reference.
      * @return A sting containing human readable results.
      */
     public static String compareLogs(final String logFileName1, final String logFileName2) {
-        TCGEventLog eventLog1 = null, eventLog2 = null;
         byte[] evLog = openLog(logFileName1);
         byte[] evLog2 = openLog(logFileName2);
         StringBuilder sb = new StringBuilder();
         bHexFlag = commander.getHexFlag();
+        TCGEventLogDiffReport report = null;
         try {
-            eventLog1 = new TCGEventLog(evLog);
-        } catch (Exception e) {
-            sb.append("\nError processing event log " + logFileName1 + " : " + e.getMessage());
+            report = TCGEventLogDiff.diff(evLog, evLog2, commander.getPcrNumber());
+        } catch (IOException e) {
+            sb.append("\nError processing event logs " + logFileName1 + " and " + logFileName2
+                    + " : " + e.getMessage());
             return sb.toString();
         }
-        try {
-            eventLog2 = new TCGEventLog(evLog2);
-            ArrayList<TpmPcrEvent> errors = diffEventLogs(eventLog1.getEventList(),
-                    eventLog2.getEventList(), commander.getPcrNumber());
-            if (errors.isEmpty() && !bHexFlag) {
+        if (report.isMatch()) {
+            if (!bHexFlag) {
                 sb.append("\nEvent Log " + logFileName1 + " MATCHED EventLog " + logFileName2);
-            } else {
-                if (!errors.isEmpty() && !bHexFlag) {
-                    sb.append("\nEvent Log " + logFileName1
-                            + " did NOT match EventLog " + logFileName2 + "\n");
-                    sb.append("There were " + errors.size() + " event mismatches: \n\n");
+            }
+            return sb.toString();
+        }
+        if (!bHexFlag) {
+            sb.append("\nEvent Log " + logFileName1
+                    + " did NOT match EventLog " + logFileName2 + "\n");
+            sb.append("There were " + report.getDifferences().size() + " event mismatches ("
+                    + report.getSummary() + "): \n\n");
+        }
+        try {
+            // only the events that differ are described, so defer their parsing
+            TCGEventLog eventLog1 = new TCGEventLog(evLog, true);
+            TCGEventLog eventLog2 = new TCGEventLog(evLog2, true);
+            for (TCGEventLogDiffReport.Difference difference : report.getDifferences()) {
+                TpmPcrEvent error;
+                if (difference.getMeasuredEventNumber() >= 0) {
+                    error = eventLog2.getEventByNumber(difference.getMeasuredEventNumber());
+                } else {
+                    error = eventLog1.getEventByNumber(difference.getReferenceEventNumber());
                 }
-                for (TpmPcrEvent error : errors) {
-                    if (bHexFlag) {
-                        if (bEventFlag || bHexEvent) {
-                            sb.append(HexUtils.byteArrayToHexString(error.getEvent()) + "\n");
-                        }
-                        if (bContentFlag) {
-                            sb.append(HexUtils.byteArrayToHexString(error.getEventContent())
-                                    + "\n");
-                        }
-                    } else {
-                        sb.append(error.toString(bEventFlag, bContentFlag, bHexEvent) + "\n");
+                if (bHexFlag) {
+                    if (bEventFlag || bHexEvent) {
+                        sb.append(HexUtils.byteArrayToHexString(error.getEvent()) + "\n");
+                    }
+                    if (bContentFlag) {
+                        sb.append(HexUtils.byteArrayToHexString(error.getEventContent())
+                                + "\n");
                     }
+                } else {
+                    sb.append(difference.toString() + "\n");
+                    sb.append(error.toString(bEventFlag, bContentFlag, bHexEvent) + "\n");
                 }
             }
         } catch (IOException i) {
@@ -283,53 +296,4 @@ final class Main {
         }
         return sb.toString();
     }
-
-    /**
-     * Compare this event log against a second event log.
-     * Returns a String Array of event descriptions in which the digests from the first
-     * did no match the second. Return value is null if all events matched.
-     *
-     * @param eventList  initial events.
-     * @param eventList2 events to compare against.
-     * @param pcr        used as a filter. Use -1 to check all pcrs.
-     * @return array list of strings. Null of no events mismatched.
-     */
-    public static ArrayList<TpmPcrEvent> diffEventLogs(final Collection<TpmPcrEvent> eventList,
-                                                       final Collection<TpmPcrEvent> eventList2,
-                                                       final int pcr) {
-        ArrayList<TpmPcrEvent> results = new ArrayList<TpmPcrEvent>();
-        for (TpmPcrEvent event2 : eventList2) {
-            if (pcr >= 0) {
-                if (event2.getPcrIndex() == pcr) {
-                    if (!digestMatch(eventList, event2)) {
-                        results.add(event2);
-                    }
-                }
-            } else {
-                if (!digestMatch(eventList, event2)) {
-                    results.add(event2);
-                }
-            }
-        }
-        return results;
-    }
-
-    /**
-     * Checks a digest from a single event against all digests with the same index in an Event Log.
-     *
-     * @param eventLog The Reference Event log.
-     * @param event    single event to match.
-     * @return
-     */
-    private static boolean digestMatch(final Collection<TpmPcrEvent> eventLog,
-                                       final TpmPcrEvent event) {
-        boolean matchFound = false;
-        for (TpmPcrEvent event2 : eventLog) {
-            if ((event.getPcrIndex() == event2.getPcrIndex())
-                    && (Arrays.equals(event.getEventDigest(), event2.getEventDigest()))) {
-                matchFound = true;
-            }
-        }
-        return matchFound;
-    }
 }
@@ -0,0 +1,170 @@
+package hirs.swid;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class holds the objects that are expensive to create when processing swidtags:
+ * the schema, the JAXBContext and the identity transform are compiled once and shared by
+ * every SwidTagGateway and SwidTagValidator. Unmarshallers and XMLSignatureFactories are
+ * not thread-safe, so they are borrowed from bounded pools for the duration of a call.
+ */
+public final class SwidProcessingService {
+    private static final String IDENTITY_TRANSFORM = "identity_transform.xslt";
+    private static final int MAXIMUM_IDLE = Math.max(2,
+            Runtime.getRuntime().availableProcessors() * 2);
+
+    private static final class Holder {
+        private static final SwidProcessingService INSTANCE = new SwidProcessingService();
+    }
+
+    private final Schema schema;
+    private final JAXBContext jaxbContext;
+    private final Templates identityTransform;
+    private final BlockingQueue<Unmarshaller> unmarshallers =
+            new ArrayBlockingQueue<>(MAXIMUM_IDLE);
+    private final BlockingQueue<XMLSignatureFactory> signatureFactories =
+            new ArrayBlockingQueue<>(MAXIMUM_IDLE);
+
+    private SwidProcessingService() {
+        schema = compileSchema();
+        jaxbContext = createJaxbContext();
+        identityTransform = compileIdentityTransform();
+    }
+
+    /**
+     * Returns the shared instance.
+     *
+     * @return the shared service
+     */
+    public static SwidProcessingService getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * This method creates a marshaller from the shared JAXBContext. Marshallers are cheap
+     * to create once the context exists, but are not thread-safe.
+     *
+     * @return a new marshaller
+     * @throws JAXBException if the JAXBContext is unavailable
+     */
+    public Marshaller createMarshaller() throws JAXBException {
+        if (jaxbContext == null) {
+            throw new JAXBException("JAXBContext is unavailable");
+        }
+        return jaxbContext.createMarshaller();
+    }
+
+    /**
+     * This method unmarshalls a swidtag Document and validates it against the schema.
+     *
+     * @param node the swidtag
+     * @return the unmarshalled root element
+     * @throws JAXBException if the swidtag cannot be unmarshalled or validated
+     */
+    public Object unmarshal(Node node) throws JAXBException {
+        Unmarshaller unmarshaller = unmarshallers.poll();
+        if (unmarshaller == null) {
+            if (jaxbContext == null) {
+                throw new JAXBException("JAXBContext is unavailable");
+            }
+            unmarshaller = jaxbContext.createUnmarshaller();
+            unmarshaller.setSchema(schema);
+        }
+        try {
+            return unmarshaller.unmarshal(node);
+        } finally {
+            unmarshallers.offer(unmarshaller);
+        }
+    }
+
+    /**
+     * This method strips all whitespace from an xml source, including indents and spaces
+     * added for human-readability.
+     *
+     * @param source the xml source
+     * @return the Document
+     * @throws TransformerException if the source cannot be transformed
+     */
+    public Document removeXMLWhitespace(Source source) throws TransformerException {
+        if (identityTransform == null) {
+            throw new TransformerConfigurationException("Error configuring transformer!");
+        }
+        DOMResult result = new DOMResult();
+        identityTransform.newTransformer().transform(source, result);
+        return (Document) result.getNode();
+    }
+
+    /**
+     * This method unmarshalls the signature referenced by a validation context.
+     *
+     * @param context the validation context
+     * @return the signature
+     * @throws MarshalException if the signature cannot be unmarshalled
+     */
+    public XMLSignature unmarshalXMLSignature(DOMValidateContext context)
+            throws MarshalException {
+        XMLSignatureFactory sigFactory = signatureFactories.poll();
+        if (sigFactory == null) {
+            sigFactory = XMLSignatureFactory.getInstance("DOM");
+        }
+        try {
+            return sigFactory.unmarshalXMLSignature(context);
+        } finally {
+            signatureFactories.offer(sigFactory);
+        }
+    }
+
+    private static Schema compileSchema() {
+        try (InputStream is = SwidProcessingService.class.getClassLoader()
+                .getResourceAsStream(SwidTagConstants.SCHEMA_URL)) {
+            return SchemaFactory.newInstance(SwidTagConstants.SCHEMA_LANGUAGE)
+                    .newSchema(new StreamSource(is));
+        } catch (SAXException | IOException e) {
+            System.out.println("Error setting schema for validation!");
+        }
+        return null;
+    }
+
+    private static JAXBContext createJaxbContext() {
+        try {
+            return JAXBContext.newInstance(SwidTagConstants.SCHEMA_PACKAGE);
+        } catch (JAXBException e) {
+            System.out.println("Error initializing JAXBContext: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static Templates compileIdentityTransform() {
+        try (InputStream is = SwidProcessingService.class.getClassLoader()
+                .getResourceAsStream(IDENTITY_TRANSFORM)) {
+            return TransformerFactory.newInstance().newTemplates(new StreamSource(is));
+        } catch (TransformerConfigurationException | IOException e) {
+            System.out.println("Error configuring transformer!");
+        }
+        return null;
+    }
+}
@@ -4,12 +4,9 @@ import hirs.swid.utils.HashSwid;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.UnmarshalException;
-import javax.xml.bind.Unmarshaller;
 import javax.xml.crypto.AlgorithmMethod;
 import javax.xml.crypto.KeySelector;
 import javax.xml.crypto.KeySelectorException;
@@ -19,22 +16,14 @@ import javax.xml.crypto.XMLCryptoContext;
 import javax.xml.crypto.XMLStructure;
 import javax.xml.crypto.dsig.XMLSignature;
 import javax.xml.crypto.dsig.XMLSignatureException;
-import javax.xml.crypto.dsig.XMLSignatureFactory;
 import javax.xml.crypto.dsig.dom.DOMValidateContext;
 import javax.xml.crypto.dsig.keyinfo.KeyInfo;
 import javax.xml.crypto.dsig.keyinfo.X509Data;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.stream.StreamSource;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.security.Key;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
@@ -44,7 +33,8 @@ import java.util.Iterator;
  * This class handles validating base Reference Integrity Manifest files.
  */
 public class SwidTagValidator {
-    private Unmarshaller unmarshaller;
+    private final SwidProcessingService swidProcessingService =
+            SwidProcessingService.getInstance();
     private String rimEventLog;
     private String certificateFile;
 
@@ -61,14 +51,8 @@ public class SwidTagValidator {
     }
 
     public SwidTagValidator() {
-        try {
-            JAXBContext jaxbContext = JAXBContext.newInstance(SwidTagConstants.SCHEMA_PACKAGE);
-            unmarshaller = jaxbContext.createUnmarshaller();
-            rimEventLog = "";
-            certificateFile = "";
-        } catch (JAXBException e) {
-            System.out.println("Error initializing JAXBContext: " + e.getMessage());
-        }
+        rimEventLog = "";
+        certificateFile = "";
     }
     /**
      * This method validates the .swidtag file at the given filepath against the
@@ -140,8 +124,7 @@ public class SwidTagValidator {
                     System.exit(1);
                 }
             }
-            XMLSignatureFactory sigFactory = XMLSignatureFactory.getInstance("DOM");
-            XMLSignature signature = sigFactory.unmarshalXMLSignature(context);
+            XMLSignature signature = swidProcessingService.unmarshalXMLSignature(context);
             isValid = signature.validate(context);
         } catch (MarshalException | XMLSignatureException e) {
             System.out.println(e.getMessage());
@@ -208,33 +191,18 @@ public class SwidTagValidator {
      * @throws IOException if the swidtag cannot be unmarshalled or validated
      */
     private Document unmarshallSwidTag(String path) {
-        InputStream is = null;
         Document document = null;
         try {
             document = removeXMLWhitespace(path);
-            is = SwidTagGateway.class.getClassLoader().getResourceAsStream(SwidTagConstants.SCHEMA_URL);
-            SchemaFactory schemaFactory = SchemaFactory.newInstance(SwidTagConstants.SCHEMA_LANGUAGE);
-            Schema schema = schemaFactory.newSchema(new StreamSource(is));
-            unmarshaller.setSchema(schema);
-            unmarshaller.unmarshal(document);
+            swidProcessingService.unmarshal(document);
         } catch (IOException e) {
             System.out.println(e.getMessage());
-        } catch (SAXException e) {
-            System.out.println("Error setting schema for validation!");
         } catch (UnmarshalException e) {
             System.out.println("Error validating swidtag file!");
         } catch (IllegalArgumentException e) {
             System.out.println("Input file empty.");
         } catch (JAXBException e) {
             e.printStackTrace();
-        } finally {
-            if (is != null) {
-                try {
-                    is.close();
-                } catch (IOException e) {
-                    System.out.println("Error closing input stream");
-                }
-            }
         }
 
         return document;
@@ -247,17 +215,11 @@ public class SwidTagValidator {
      * @return
      */
     private Document removeXMLWhitespace(String path) throws IOException {
-        TransformerFactory tf = TransformerFactory.newInstance();
-        Source source = new StreamSource(
-                SwidTagGateway.class.getClassLoader().getResourceAsStream("identity_transform.xslt"));
         Document document = null;
         File input = new File(path);
         if (input.length() > 0) {
             try {
-                Transformer transformer = tf.newTransformer(source);
-                DOMResult result = new DOMResult();
-                transformer.transform(new StreamSource(input), result);
-                document = (Document) result.getNode();
+                document = swidProcessingService.removeXMLWhitespace(new StreamSource(input));
             } catch (TransformerConfigurationException e) {
                 System.out.println("Error configuring transformer!");
                 e.printStackTrace();